@@ -0,0 +1,107 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data.export;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Keeps track of the progress of a single export, reporting it to a
+ * {@link TaskProgressListener} only when its percentage changes.
+ * <p>
+ * Each update also checks whether the exporting thread is interrupted, which
+ * is used to cancel the export.
+ * </p>
+ */
+public final class ExportProgress
+{
+  // VARIABLES
+
+  private final TaskProgressListener listener;
+  private final long total;
+
+  private int lastPercentage;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ExportProgress} instance.
+   * 
+   * @param aListener
+   *          the listener to report the progress to, can be <code>null</code>;
+   * @param aTotal
+   *          the total amount of work to do, for example, the number of
+   *          samples to export, >= 0.
+   */
+  public ExportProgress( final TaskProgressListener aListener, final long aTotal )
+  {
+    this.listener = aListener;
+    this.total = aTotal;
+    this.lastPercentage = -1;
+  }
+
+  // METHODS
+
+  /**
+   * Marks the export as completely done.
+   * 
+   * @throws InterruptedIOException
+   *           in case the current thread is interrupted.
+   */
+  public void done() throws InterruptedIOException
+  {
+    update( this.total );
+  }
+
+  /**
+   * Updates the amount of work done, and reports the progress to our listener
+   * if the percentage of work done has changed.
+   * 
+   * @param aDone
+   *          the amount of work done so far, >= 0 && <= total.
+   * @throws InterruptedIOException
+   *           in case the current thread is interrupted.
+   */
+  public void update( final long aDone ) throws InterruptedIOException
+  {
+    if ( Thread.currentThread().isInterrupted() )
+    {
+      throw new InterruptedIOException( "Export interrupted!" );
+    }
+
+    if ( this.listener == null )
+    {
+      return;
+    }
+
+    final int percentage = ( this.total <= 0L ) ? 100 : ( int )Math.min( 100L, ( 100L * aDone ) / this.total );
+    if ( percentage != this.lastPercentage )
+    {
+      this.listener.setProgress( percentage );
+      this.lastPercentage = percentage;
+    }
+  }
+}
+
+/* EOF */
@@ -0,0 +1,71 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data.export;
+
+
+import java.io.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Provides an {@link Exporter} that reports its progress and can be cancelled
+ * while exporting.
+ * <p>
+ * Exports are typically run in the background. Implementations should check
+ * regularly whether the exporting thread is interrupted, and if so, abort the
+ * export with an {@link InterruptedIOException}. The {@link ExportProgress}
+ * helper can be used for both.
+ * </p>
+ */
+public interface ProgressAwareExporter extends Exporter
+{
+  // METHODS
+
+  /**
+   * Exports the given data container to the given writer, reporting its
+   * progress to the given listener.
+   * 
+   * @param aDataSet
+   *          the current project with all data to export, can never be
+   *          <code>null</code>;
+   * @param aComponent
+   *          the Swing UI component that is being exported, this is for example
+   *          the scroll pane in which the diagram is shown, cannot be
+   *          <code>null</code>;
+   * @param aStream
+   *          the output stream to write the export to, can never be
+   *          <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   * @throws InterruptedIOException
+   *           in case the export is cancelled;
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream,
+      final TaskProgressListener aProgressListener ) throws IOException;
+}
+
+/* EOF */
@@ -27,6 +27,7 @@ import java.util.*;
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
@@ -37,6 +38,24 @@ public interface Project
 {
   // METHODS
 
+  /**
+   * Returns the position of the current captured data in the acquisition
+   * history of this project.
+   * 
+   * @return the index of the current acquisition, 0 being the most recent one,
+   *         or -1 if the current captured data is not part of the history.
+   * @see #selectAcquisition(int)
+   */
+  int getAcquisitionHistoryIndex();
+
+  /**
+   * Returns the number of acquisitions retained in the history of this
+   * project.
+   * 
+   * @return the number of acquisitions in the history, >= 0.
+   */
+  int getAcquisitionHistorySize();
+
   /**
    * Returns the current data set for this project.
    * 
@@ -109,6 +128,18 @@ public interface Project
    */
   void readData( Reader aReader ) throws IOException;
 
+  /**
+   * Makes an acquisition from the history of this project the current captured
+   * data.
+   * 
+   * @param aIndex
+   *          the index of the acquisition to select, 0 being the most recent
+   *          one, and less than {@link #getAcquisitionHistorySize()}.
+   * @throws IOException
+   *           in case the acquisition could not be restored from the history.
+   */
+  void selectAcquisition( int aIndex ) throws IOException;
+
   /**
    * Sets the captured data of this project.
    * 
@@ -187,4 +218,20 @@ public interface Project
    * @see #readData(Reader)
    */
   void writeData( Writer aWriter ) throws IOException;
+
+  /**
+   * Allows the current data to be written to a given writer, while reporting
+   * the progress to the given listener. The format in which the data will be
+   * written is the OLS data-file format.
+   * 
+   * @param aWriter
+   *          the writer to write to, cannot be <code>null</code>;
+   * @param aListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or when the calling thread is
+   *           interrupted.
+   * @see #writeData(Writer)
+   */
+  void writeData( Writer aWriter, TaskProgressListener aListener ) throws IOException;
 }
@@ -24,6 +24,8 @@ package nl.lxtreme.ols.api.data.project;
 import java.beans.*;
 import java.io.*;
 
+import nl.lxtreme.ols.api.task.*;
+
 
 /**
  * Provides a way of loading and storing projects.
@@ -89,4 +91,18 @@ public interface ProjectManager
    *           in case of I/O problems during writing of the project.
    */
   public void saveProject( final OutputStream aOutput ) throws IOException;
+
+  /**
+   * Stores a project to the given output stream, while reporting the progress
+   * to the given listener.
+   * 
+   * @param aOutput
+   *          the output to write the project to, cannot be <code>null</code>;
+   * @param aListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems during writing of the project, or when
+   *           the calling thread is interrupted.
+   */
+  public void saveProject( final OutputStream aOutput, final TaskProgressListener aListener ) throws IOException;
 }
@@ -21,6 +21,8 @@
 package nl.lxtreme.ols.client.project;
 
 
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.client.project.impl.*;
 import nl.lxtreme.ols.util.*;
@@ -76,5 +78,24 @@ public class Activator extends DependencyActivatorBase
                 .setRequired( false ) //
             ) //
         );
+
+    // All the interfaces we're registering the project journal under...
+    final String[] serviceNames = new String[] { AcquisitionDataListener.class.getName(),
+        AnnotationListener.class.getName() };
+
+    // Crash-recovery journal...
+    aManager.add( //
+        createComponent() //
+            .setInterface( serviceNames, null ) //
+            .setImplementation( new ProjectJournal() ) //
+            .add( createServiceDependency() //
+                .setService( ProjectManager.class ) //
+                .setRequired( true ) //
+            ) //
+            .add( createServiceDependency() //
+                .setService( LogService.class ) //
+                .setRequired( false ) //
+            ) //
+        );
   }
 }
@@ -0,0 +1,411 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.lang.ref.*;
+import java.util.*;
+import java.util.zip.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a bounded history of acquisition results.
+ * <p>
+ * Each acquisition result is kept in a compressed form. When the compressed
+ * results exceed a given memory budget, the least recently used ones are
+ * spilled to disk. When the history exceeds its maximum size, the least
+ * recently used result is evicted. Acquisition results that are restored
+ * are retained as long as memory allows, making switching back and forth
+ * between them cheap.
+ * </p>
+ * <p>
+ * This class is <em>not</em> thread-safe.
+ * </p>
+ */
+final class AcquisitionHistory
+{
+  // INNER TYPES
+
+  /**
+   * Denotes a single acquisition result in the history.
+   */
+  static final class Entry
+  {
+    // VARIABLES
+
+    private final int sampleRate;
+    private final int channels;
+    private final int enabledChannels;
+    private final long triggerPosition;
+    private final long absoluteLength;
+    private final int sampleCount;
+
+    private byte[] compressedData;
+    private int compressedSize;
+    private File spillFile;
+    private Reference<AcquisitionResult> cached;
+    private long lastUsed;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Entry} instance.
+     */
+    Entry( final AcquisitionResult aData ) throws IOException
+    {
+      this.sampleRate = aData.getSampleRate();
+      this.channels = aData.getChannels();
+      this.enabledChannels = aData.getEnabledChannels();
+      this.triggerPosition = aData.getTriggerPosition();
+      this.absoluteLength = aData.getAbsoluteLength();
+
+      final int[] values = aData.getValues();
+      final long[] timestamps = aData.getTimestamps();
+      this.sampleCount = values.length;
+
+      // Store the differences between successive samples, as these compress
+      // far better than the absolute values...
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream( Math.max( 64, this.sampleCount ) );
+      final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+      final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new DeflaterOutputStream( baos,
+          deflater ) ) );
+      try
+      {
+        int lastValue = 0;
+        long lastTimestamp = 0L;
+        for ( int i = 0; i < this.sampleCount; i++ )
+        {
+          out.writeInt( values[i] ^ lastValue );
+          out.writeLong( timestamps[i] - lastTimestamp );
+          lastValue = values[i];
+          lastTimestamp = timestamps[i];
+        }
+      }
+      finally
+      {
+        out.close();
+        deflater.end();
+      }
+
+      this.compressedData = baos.toByteArray();
+      this.compressedSize = this.compressedData.length;
+      this.cached = new SoftReference<AcquisitionResult>( null );
+    }
+
+    // METHODS
+
+    /**
+     * Returns the number of bytes this entry occupies in memory.
+     */
+    int getMemorySize()
+    {
+      return ( this.compressedData == null ) ? 0 : this.compressedSize;
+    }
+
+    /**
+     * Restores the acquisition result of this entry.
+     */
+    AcquisitionResult restore() throws IOException
+    {
+      AcquisitionResult result = this.cached.get();
+      if ( result != null )
+      {
+        return result;
+      }
+
+      final byte[] data = ( this.compressedData != null ) ? this.compressedData : readSpillFile();
+
+      final int[] values = new int[this.sampleCount];
+      final long[] timestamps = new long[this.sampleCount];
+
+      final Inflater inflater = new Inflater();
+      final DataInputStream in = new DataInputStream( new BufferedInputStream( new InflaterInputStream(
+          new ByteArrayInputStream( data ), inflater ) ) );
+      try
+      {
+        int lastValue = 0;
+        long lastTimestamp = 0L;
+        for ( int i = 0; i < this.sampleCount; i++ )
+        {
+          lastValue ^= in.readInt();
+          lastTimestamp += in.readLong();
+          values[i] = lastValue;
+          timestamps[i] = lastTimestamp;
+        }
+      }
+      finally
+      {
+        HostUtils.closeResource( in );
+        inflater.end();
+      }
+
+      result = new CapturedData( values, timestamps, this.triggerPosition, this.sampleRate, this.channels,
+          this.enabledChannels, this.absoluteLength );
+      this.cached = new SoftReference<AcquisitionResult>( result );
+      return result;
+    }
+
+    /**
+     * Releases all resources held by this entry.
+     */
+    void dispose()
+    {
+      this.compressedData = null;
+      this.cached.clear();
+      if ( ( this.spillFile != null ) && !this.spillFile.delete() )
+      {
+        this.spillFile.deleteOnExit();
+      }
+      this.spillFile = null;
+    }
+
+    /**
+     * Moves the compressed data of this entry to disk.
+     */
+    void spill() throws IOException
+    {
+      final File file = File.createTempFile( "ols", ".history" );
+      file.deleteOnExit();
+
+      final OutputStream out = new FileOutputStream( file );
+      try
+      {
+        out.write( this.compressedData );
+      }
+      finally
+      {
+        HostUtils.closeResource( out );
+      }
+
+      this.spillFile = file;
+      this.compressedData = null;
+    }
+
+    /**
+     * Reads the compressed data of this entry back from disk.
+     */
+    private byte[] readSpillFile() throws IOException
+    {
+      final byte[] result = new byte[this.compressedSize];
+
+      final DataInputStream in = new DataInputStream( new FileInputStream( this.spillFile ) );
+      try
+      {
+        in.readFully( result );
+      }
+      finally
+      {
+        HostUtils.closeResource( in );
+      }
+      return result;
+    }
+  }
+
+  // VARIABLES
+
+  private final List<Entry> entries;
+  private final int maxSize;
+  private final long memoryBudget;
+
+  private Entry current;
+  private long useCounter;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link AcquisitionHistory} instance.
+   * 
+   * @param aMaxSize
+   *          the maximum number of acquisition results to retain, >= 0;
+   * @param aMemoryBudget
+   *          the maximum number of bytes the compressed acquisition results may
+   *          occupy in memory before being spilled to disk, >= 0.
+   */
+  public AcquisitionHistory( final int aMaxSize, final long aMemoryBudget )
+  {
+    this.entries = new ArrayList<Entry>();
+
+    this.maxSize = aMaxSize;
+    this.memoryBudget = aMemoryBudget;
+  }
+
+  // METHODS
+
+  /**
+   * Adds a new acquisition result to this history, making it the current one.
+   * 
+   * @param aData
+   *          the acquisition result to add, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case the acquisition result could not be stored.
+   */
+  public void add( final AcquisitionResult aData ) throws IOException
+  {
+    if ( this.maxSize <= 0 )
+    {
+      this.current = null;
+      return;
+    }
+
+    final Entry entry = new Entry( aData );
+    entry.lastUsed = ++this.useCounter;
+
+    this.entries.add( 0, entry );
+    this.current = entry;
+
+    enforceLimits();
+  }
+
+  /**
+   * Removes all acquisition results from this history.
+   */
+  public void clear()
+  {
+    for ( Entry entry : this.entries )
+    {
+      entry.dispose();
+    }
+    this.entries.clear();
+    this.current = null;
+  }
+
+  /**
+   * Returns the position of the current acquisition result.
+   * 
+   * @return the index of the current acquisition result, 0 being the most
+   *         recent one, or -1 if there is no current acquisition result.
+   */
+  public int getCurrentIndex()
+  {
+    return ( this.current == null ) ? -1 : this.entries.indexOf( this.current );
+  }
+
+  /**
+   * Returns the number of bytes all acquisition results occupy in memory.
+   * 
+   * @return a memory size, in bytes, >= 0.
+   */
+  public long getMemorySize()
+  {
+    long result = 0L;
+    for ( Entry entry : this.entries )
+    {
+      result += entry.getMemorySize();
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of acquisition results in this history.
+   * 
+   * @return a size, >= 0.
+   */
+  public int size()
+  {
+    return this.entries.size();
+  }
+
+  /**
+   * Makes the acquisition result at the given position the current one.
+   * 
+   * @param aIndex
+   *          the position of the acquisition result to select, 0 being the
+   *          most recent one.
+   * @return the selected acquisition result, never <code>null</code>.
+   * @throws IOException
+   *           in case the acquisition result could not be restored.
+   */
+  public AcquisitionResult select( final int aIndex ) throws IOException
+  {
+    if ( ( aIndex < 0 ) || ( aIndex >= this.entries.size() ) )
+    {
+      throw new IndexOutOfBoundsException( "Invalid history index: " + aIndex );
+    }
+
+    final Entry entry = this.entries.get( aIndex );
+    final AcquisitionResult result = entry.restore();
+
+    entry.lastUsed = ++this.useCounter;
+    this.current = entry;
+
+    return result;
+  }
+
+  /**
+   * Forgets the current acquisition result, for example, when the current
+   * data is replaced by data that did not originate from this history.
+   */
+  public void unselect()
+  {
+    this.current = null;
+  }
+
+  /**
+   * Evicts and spills the least recently used acquisition results until this
+   * history is within its limits again.
+   */
+  private void enforceLimits() throws IOException
+  {
+    while ( this.entries.size() > this.maxSize )
+    {
+      final Entry entry = findLeastRecentlyUsed( false /* aInMemoryOnly */);
+      this.entries.remove( entry );
+      entry.dispose();
+    }
+
+    long memorySize = getMemorySize();
+    while ( memorySize > this.memoryBudget )
+    {
+      final Entry entry = findLeastRecentlyUsed( true /* aInMemoryOnly */);
+      if ( entry == null )
+      {
+        break;
+      }
+      memorySize -= entry.getMemorySize();
+      entry.spill();
+    }
+  }
+
+  /**
+   * Finds the least recently used entry, other than the current one.
+   */
+  private Entry findLeastRecentlyUsed( final boolean aInMemoryOnly )
+  {
+    Entry result = null;
+    for ( Entry entry : this.entries )
+    {
+      if ( ( entry == this.current ) || ( aInMemoryOnly && ( entry.getMemorySize() == 0 ) ) )
+      {
+        continue;
+      }
+      if ( ( result == null ) || ( entry.lastUsed < result.lastUsed ) )
+      {
+        result = entry;
+      }
+    }
+    return result;
+  }
+}
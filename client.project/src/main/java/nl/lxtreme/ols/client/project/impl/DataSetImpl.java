@@ -182,6 +182,45 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
     this.propertyChangeSupport.firePropertyChange( PROPERTY_CURSORS_ENABLED, old, aEnabled );
   }
 
+  /**
+   * Merges the given cursor settings with the cursors of this data set.
+   * <p>
+   * Cursors that are not mentioned in the given settings are cleared.
+   * </p>
+   * 
+   * @param aCursors
+   *          the cursor settings to merge, can be <code>null</code>.
+   */
+  final void mergeCursors( final Properties aCursors )
+  {
+    if ( aCursors == null )
+    {
+      return;
+    }
+
+    setCursorsEnabled( Boolean.parseBoolean( aCursors.getProperty( "enabled", "true" ) ) );
+
+    for ( int i = 0; i < this.cursors.length; i++ )
+    {
+      final String value = aCursors.getProperty( "cursor." + i );
+      if ( value == null )
+      {
+        this.cursors[i].clear();
+      }
+      else
+      {
+        try
+        {
+          this.cursors[i].setTimestamp( Long.parseLong( value.trim() ) );
+        }
+        catch ( NumberFormatException exception )
+        {
+          this.cursors[i].clear();
+        }
+      }
+    }
+  }
+
   /**
    * Trims the channels to the same number as the captured data, using the
    * channel information of the given data set as template.
@@ -30,6 +30,7 @@ import java.util.regex.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.util.*;
 
 
@@ -44,8 +45,8 @@ public final class OlsDataHelper
 
   /** The regular expression used to parse an (OLS-datafile) instruction. */
   private static final Pattern OLS_INSTRUCTION_PATTERN = Pattern.compile( "^;([^:]+):\\s+([^\r\n]+)$" );
-  /** The regular expression used to parse an (OLS-datafile) data value. */
-  private static final Pattern OLS_DATA_PATTERN = Pattern.compile( "^([0-9a-fA-F]+)@(\\d+)$" );
+  /** The initial number of samples we allocate room for while reading. */
+  private static final int INITIAL_SAMPLE_CAPACITY = 1024;
   /**
    * The margin that is used to determine whether we need to insert an
    * additional sample at the absolute length of the captured data in case the
@@ -85,21 +86,33 @@ public final class OlsDataHelper
       LOG.info( "Parsing OLS captured data from stream..." );
     }
 
-    final List<String[]> dataValues = new ArrayList<String[]>();
+    // The sample data is parsed directly into (growing) primitive arrays, which
+    // avoids keeping all lines of a large data file in memory at once...
+    int[] values = new int[INITIAL_SAMPLE_CAPACITY];
+    long[] timestamps = new long[INITIAL_SAMPLE_CAPACITY];
+    int sampleCount = 0;
 
     String line;
     while ( ( line = br.readLine() ) != null )
     {
       // Determine whether the line is an instruction, or data...
-      final Matcher instructionMatcher = OLS_INSTRUCTION_PATTERN.matcher( line );
-      final Matcher dataMatcher = OLS_DATA_PATTERN.matcher( line );
-
-      if ( dataMatcher.matches() )
+      if ( !line.startsWith( ";" ) )
       {
-        final String[] dataPair = new String[] { dataMatcher.group( 1 ), dataMatcher.group( 2 ) };
-        dataValues.add( dataPair );
+        if ( sampleCount == values.length )
+        {
+          final int newCapacity = values.length << 1;
+          values = Arrays.copyOf( values, newCapacity );
+          timestamps = Arrays.copyOf( timestamps, newCapacity );
+        }
+        if ( parseSample( line, values, timestamps, sampleCount ) )
+        {
+          sampleCount++;
+        }
+        continue;
       }
-      else if ( instructionMatcher.matches() )
+
+      final Matcher instructionMatcher = OLS_INSTRUCTION_PATTERN.matcher( line );
+      if ( instructionMatcher.matches() )
       {
         // Ok; found an instruction...
         final String instrKey = instructionMatcher.group( 1 );
@@ -167,7 +180,7 @@ public final class OlsDataHelper
 
     // Perform some sanity checks, make it not possible to import invalid
     // data...
-    if ( dataValues.isEmpty() )
+    if ( sampleCount == 0 )
     {
       throw new IOException( "Data file does not contain any sample data!" );
     }
@@ -179,9 +192,9 @@ public final class OlsDataHelper
     // take the length of the data values as size indicator...
     if ( size < 0 )
     {
-      size = dataValues.size();
+      size = sampleCount;
     }
-    if ( size != dataValues.size() )
+    if ( size != sampleCount )
     {
       throw new IOException( "Data file is corrupt?! Data size does not match sample count!" );
     }
@@ -199,22 +212,10 @@ public final class OlsDataHelper
       enabledChannels = NumberUtils.getBitMask( channels );
     }
 
-    int[] values = new int[size];
-    long[] timestamps = new long[size];
-
-    try
-    {
-      for ( int i = 0; i < size; i++ )
-      {
-        final String[] dataPair = dataValues.get( i );
-
-        values[i] = ( int )Long.parseLong( dataPair[0], 16 );
-        timestamps[i] = Long.parseLong( dataPair[1], 10 ) & Long.MAX_VALUE;
-      }
-    }
-    catch ( final NumberFormatException exception )
+    if ( values.length != size )
     {
-      throw new IOException( "Invalid data encountered.", exception );
+      values = Arrays.copyOf( values, size );
+      timestamps = Arrays.copyOf( timestamps, size );
     }
 
     // Allow the absolute length to be undefined, in which case the last
@@ -251,6 +252,26 @@ public final class OlsDataHelper
    *           in case of I/O problems.
    */
   public static void write( final DataSet aDataSet, final Writer aWriter ) throws IOException
+  {
+    write( aDataSet, aWriter, null /* aListener */);
+  }
+
+  /**
+   * Writes the data to the given writer, reporting the progress of the write to
+   * the given listener.
+   * 
+   * @param aDataSet
+   *          the data set to write, cannot be <code>null</code>;
+   * @param aWriter
+   *          the writer to write the data to, cannot be <code>null</code>;
+   * @param aListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or when the calling thread is
+   *           interrupted.
+   */
+  public static void write( final DataSet aDataSet, final Writer aWriter, final TaskProgressListener aListener )
+      throws IOException
   {
     final BufferedWriter bw = new BufferedWriter( aWriter );
 
@@ -308,10 +329,31 @@ public final class OlsDataHelper
           bw.newLine();
         }
       }
+      int lastPercentage = -1;
       for ( int i = 0; i < values.length; i++ )
       {
         bw.write( formatSample( values[i], timestamps[i] ) );
         bw.newLine();
+
+        if ( ( i & 0xFFF ) == 0 )
+        {
+          if ( Thread.currentThread().isInterrupted() )
+          {
+            throw new InterruptedIOException( "Writing of data interrupted!" );
+          }
+
+          final int percentage = ( int )( ( 100L * i ) / values.length );
+          if ( ( aListener != null ) && ( percentage != lastPercentage ) )
+          {
+            aListener.setProgress( percentage );
+            lastPercentage = percentage;
+          }
+        }
+      }
+
+      if ( aListener != null )
+      {
+        aListener.setProgress( 100 );
       }
     }
     finally
@@ -320,6 +362,69 @@ public final class OlsDataHelper
     }
   }
 
+  /**
+   * Parses a single sample line, in the form of
+   * &lt;value<sub>16</sub>&gt;@&lt;timestamp<sub>10</sub>&gt;, directly into
+   * the given arrays.
+   * 
+   * @param aLine
+   *          the line to parse, cannot be <code>null</code>;
+   * @param aValues
+   *          the array to store the parsed sample value in;
+   * @param aTimestamps
+   *          the array to store the parsed timestamp in;
+   * @param aIndex
+   *          the index in both arrays to store the parsed sample at.
+   * @return <code>true</code> if the given line denotes a sample,
+   *         <code>false</code> if it is not a sample line.
+   * @throws IOException
+   *           in case the sample line contained invalid data.
+   */
+  static boolean parseSample( final String aLine, final int[] aValues, final long[] aTimestamps, final int aIndex )
+      throws IOException
+  {
+    final int length = aLine.length();
+    final int sep = aLine.indexOf( '@' );
+    if ( ( sep < 1 ) || ( sep == ( length - 1 ) ) )
+    {
+      return false;
+    }
+
+    long value = 0L;
+    for ( int i = 0; i < sep; i++ )
+    {
+      final int digit = Character.digit( aLine.charAt( i ), 16 );
+      if ( digit < 0 )
+      {
+        return false;
+      }
+      if ( value > ( ( Long.MAX_VALUE - digit ) >> 4 ) )
+      {
+        throw new IOException( "Invalid data encountered." );
+      }
+      value = ( value << 4 ) | digit;
+    }
+
+    long timestamp = 0L;
+    for ( int i = sep + 1; i < length; i++ )
+    {
+      final char ch = aLine.charAt( i );
+      if ( ( ch < '0' ) || ( ch > '9' ) )
+      {
+        return false;
+      }
+      if ( timestamp > ( ( Long.MAX_VALUE - ( ch - '0' ) ) / 10L ) )
+      {
+        throw new IOException( "Invalid data encountered." );
+      }
+      timestamp = ( timestamp * 10L ) + ( ch - '0' );
+    }
+
+    aValues[aIndex] = ( int )value;
+    aTimestamps[aIndex] = timestamp & Long.MAX_VALUE;
+    return true;
+  }
+
   /**
    * Formats the given value and timestamp into a single sample string.
    * 
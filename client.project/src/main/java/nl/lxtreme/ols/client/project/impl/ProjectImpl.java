@@ -31,6 +31,7 @@ import javax.swing.*;
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
@@ -42,10 +43,17 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
 
   private static final Logger LOG = Logger.getLogger( ProjectImpl.class.getName() );
 
+  /** The default number of acquisitions to retain in the history. */
+  private static final int DEFAULT_HISTORY_SIZE = 5;
+  /** The number of bytes the history may occupy in memory. */
+  private static final long HISTORY_MEMORY_BUDGET = 32L * 1024L * 1024L;
+
   // VARIABLES
 
   private final PropertyChangeSupport propertyChangeSupport;
   private final Map<String, UserSettings> settings;
+  private final Set<String> changedParts;
+  private final AcquisitionHistory acquisitionHistory;
 
   private DataSetImpl dataSet;
   private String name;
@@ -53,6 +61,8 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   private Date lastModified;
   private String sourceVersion;
   private File filename;
+  private long fileLastModified;
+  private long fileLength;
 
   // CONSTRUCTORS
 
@@ -63,6 +73,11 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   {
     this.propertyChangeSupport = new PropertyChangeSupport( this );
     this.settings = new HashMap<String, UserSettings>();
+    this.changedParts = new HashSet<String>();
+
+    final Object historySize = UIManager.get( "ols.acquisition.history.size.int" );
+    this.acquisitionHistory = new AcquisitionHistory( ( historySize instanceof Integer ) ? ( ( Integer )historySize )
+        .intValue() : DEFAULT_HISTORY_SIZE, HISTORY_MEMORY_BUDGET );
 
     setDataSet( new DataSetImpl() );
 
@@ -82,6 +97,30 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     this.propertyChangeSupport.addPropertyChangeListener( aListener );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getAcquisitionHistoryIndex()
+  {
+    synchronized ( this.acquisitionHistory )
+    {
+      return this.acquisitionHistory.getCurrentIndex();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getAcquisitionHistorySize()
+  {
+    synchronized ( this.acquisitionHistory )
+    {
+      return this.acquisitionHistory.size();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -158,8 +197,14 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   public void propertyChange( final PropertyChangeEvent aEvent )
   {
     String name = aEvent.getPropertyName();
-    if ( PROPERTY_CURSORS_ENABLED.equals( name ) || name.startsWith( "channel" ) || name.startsWith( "cursor" ) )
+    if ( PROPERTY_CURSORS_ENABLED.equals( name ) || name.startsWith( "cursor" ) )
     {
+      markPartChanged( PROPERTY_CURSORS );
+      setChanged( true );
+    }
+    else if ( name.startsWith( "channel" ) )
+    {
+      markPartChanged( PROPERTY_CHANNEL_LABELS );
       setChanged( true );
     }
 
@@ -172,7 +217,15 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   @Override
   public final void readData( final Reader aReader ) throws IOException
   {
-    setDataSet( OlsDataHelper.read( aReader ) );
+    final DataSetImpl newDataSet = OlsDataHelper.read( aReader );
+
+    // The read data is not part of our acquisition history...
+    synchronized ( this.acquisitionHistory )
+    {
+      this.acquisitionHistory.unselect();
+    }
+
+    setDataSet( newDataSet );
   }
 
   /**
@@ -186,6 +239,25 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     this.propertyChangeSupport.removePropertyChangeListener( aListener );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void selectAcquisition( final int aIndex ) throws IOException
+  {
+    final AcquisitionResult capturedData;
+    synchronized ( this.acquisitionHistory )
+    {
+      capturedData = this.acquisitionHistory.select( aIndex );
+    }
+
+    // Annotations belong to the data they were made for, so drop them...
+    setDataSet( new DataSetImpl( capturedData, this.dataSet, false /* aRetainAnnotations */) );
+
+    // Mark this project as modified...
+    setChanged( true );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -195,6 +267,19 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     final DataSetImpl old = this.dataSet;
     final boolean retainAnnotations = UIManager.getBoolean( "ols.retain.annotations.boolean" );
 
+    synchronized ( this.acquisitionHistory )
+    {
+      try
+      {
+        this.acquisitionHistory.add( aCapturedData );
+      }
+      catch ( IOException exception )
+      {
+        LOG.log( Level.WARNING, "Failed to add acquisition to history!", exception );
+        this.acquisitionHistory.unselect();
+      }
+    }
+
     setDataSet( new DataSetImpl( aCapturedData, old, retainAnnotations ) );
 
     // Mark this project as modified...
@@ -222,6 +307,15 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     final File old = this.filename;
     this.filename = aFilename;
 
+    // Remember the fingerprint of the file to detect whether it is safe to
+    // reuse its contents; parts changed since it was written remain marked as
+    // changed...
+    synchronized ( this.changedParts )
+    {
+      this.fileLastModified = ( aFilename == null ) ? 0L : aFilename.lastModified();
+      this.fileLength = ( aFilename == null ) ? 0L : aFilename.length();
+    }
+
     this.propertyChangeSupport.firePropertyChange( PROPERTY_FILENAME, old, aFilename );
 
     // We don't mark the project as saved; as this is probably a bit weird: we
@@ -320,7 +414,90 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   @Override
   public void writeData( final Writer aWriter ) throws IOException
   {
-    OlsDataHelper.write( this.dataSet, aWriter );
+    writeData( aWriter, null /* aListener */);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeData( final Writer aWriter, final TaskProgressListener aListener ) throws IOException
+  {
+    OlsDataHelper.write( this.dataSet, aWriter, aListener );
+  }
+
+  /**
+   * Returns the file this project was last loaded from or saved to, provided
+   * that this file is not modified since.
+   * 
+   * @return the unmodified project file, or <code>null</code> if there is no
+   *         such file.
+   */
+  final File getUnmodifiedFile()
+  {
+    synchronized ( this.changedParts )
+    {
+      final File file = this.filename;
+      if ( ( file == null ) || !file.isFile() )
+      {
+        return null;
+      }
+      if ( ( file.lastModified() != this.fileLastModified ) || ( file.length() != this.fileLength ) )
+      {
+        return null;
+      }
+      return file;
+    }
+  }
+
+  /**
+   * Marks the given parts of this project as changed again, for example, after
+   * writing them failed.
+   * 
+   * @param aParts
+   *          the parts to mark as changed, as returned by
+   *          {@link #takeChangedParts()}, cannot be <code>null</code>.
+   */
+  final void restoreChangedParts( final Set<String> aParts )
+  {
+    synchronized ( this.changedParts )
+    {
+      this.changedParts.addAll( aParts );
+    }
+  }
+
+  /**
+   * Returns the parts of this project that are changed, and starts tracking
+   * changes anew. Changes made while the returned parts are written are thus
+   * retained for the next save.
+   * <p>
+   * As the file this project was last loaded from or saved to is about to be
+   * superseded, it is no longer considered unmodified until
+   * {@link #setFilename(File)} is called again.
+   * </p>
+   * 
+   * @return a copy of the changed parts, never <code>null</code>.
+   */
+  final Set<String> takeChangedParts()
+  {
+    synchronized ( this.changedParts )
+    {
+      final Set<String> result = new HashSet<String>( this.changedParts );
+      this.changedParts.clear();
+      this.fileLastModified = -1L;
+      return result;
+    }
+  }
+
+  /**
+   * Removes all acquisitions from the history of this project.
+   */
+  final void clearAcquisitionHistory()
+  {
+    synchronized ( this.acquisitionHistory )
+    {
+      this.acquisitionHistory.clear();
+    }
   }
 
   /**
@@ -356,6 +533,25 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
 
     this.dataSet.addPropertyChangeListener( this );
 
+    // A new data set changes the cursors and channels as well...
+    markPartChanged( PROPERTY_CAPTURED_DATA );
+    markPartChanged( PROPERTY_CURSORS );
+    markPartChanged( PROPERTY_CHANNEL_LABELS );
+
     this.propertyChangeSupport.firePropertyChange( PROPERTY_CAPTURED_DATA, old, this.dataSet );
   }
+
+  /**
+   * Marks the given part of this project as changed.
+   * 
+   * @param aPart
+   *          the part to mark as changed, cannot be <code>null</code>.
+   */
+  private void markPartChanged( final String aPart )
+  {
+    synchronized ( this.changedParts )
+    {
+      this.changedParts.add( aPart );
+    }
+  }
 }
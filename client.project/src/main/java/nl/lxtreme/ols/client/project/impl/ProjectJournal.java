@@ -0,0 +1,920 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.beans.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.util.*;
+
+import org.osgi.service.log.*;
+
+
+/**
+ * Provides a crash-recovery journal for the current project.
+ * <p>
+ * As soon as an acquisition completes, its results are written to a binary
+ * journal file. Hereafter, changes to the cursors, channel labels and
+ * annotations are appended to this journal as lightweight records. Once the
+ * project is saved (or replaced by another one), the journal is discarded, as
+ * it is on a normal shutdown. Hence, if a journal is found upon startup, the
+ * previous session did not end normally and its data is recovered into the
+ * current project.
+ * </p>
+ * <p>
+ * All I/O is done on a single background thread; change records are written
+ * at most once every {@value #FLUSH_DELAY} milliseconds, regardless of the
+ * number of changes made in the meantime.
+ * </p>
+ */
+public class ProjectJournal implements AcquisitionDataListener, AnnotationListener, PropertyChangeListener,
+    ProjectProperties
+{
+  // INNER TYPES
+
+  /**
+   * Denotes a single annotation (or the clearing thereof) that is still to be
+   * written to the journal.
+   */
+  static final class AnnotationRecord
+  {
+    // VARIABLES
+
+    final int channel;
+    final long startTimestamp;
+    final long endTimestamp;
+    final String text;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link AnnotationRecord} instance.
+     */
+    AnnotationRecord( final int aChannel, final long aStartTimestamp, final long aEndTimestamp, final String aText )
+    {
+      this.channel = aChannel;
+      this.startTimestamp = aStartTimestamp;
+      this.endTimestamp = aEndTimestamp;
+      this.text = aText;
+    }
+
+    // METHODS
+
+    /**
+     * Returns whether this record denotes the clearing of annotations.
+     * 
+     * @return <code>true</code> if annotations should be cleared,
+     *         <code>false</code> if an annotation should be added.
+     */
+    boolean isClear()
+    {
+      return this.text == null;
+    }
+  }
+
+  /**
+   * Provides a recovered data annotation.
+   */
+  static final class RecoveredAnnotation implements DataAnnotation<String>
+  {
+    // VARIABLES
+
+    private final AnnotationRecord record;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link RecoveredAnnotation} instance.
+     */
+    RecoveredAnnotation( final AnnotationRecord aRecord )
+    {
+      this.record = aRecord;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo( final Annotation<String> aOther )
+    {
+      int result = ( getChannel() - aOther.getChannel() );
+      if ( ( result == 0 ) && ( aOther instanceof DataAnnotation ) )
+      {
+        final DataAnnotation<?> other = ( DataAnnotation<?> )aOther;
+        result = Long.signum( getStartTimestamp() - other.getStartTimestamp() );
+        if ( result == 0 )
+        {
+          result = Long.signum( getEndTimestamp() - other.getEndTimestamp() );
+        }
+      }
+      if ( result == 0 )
+      {
+        result = getAnnotation().compareTo( aOther.getAnnotation() );
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAnnotation()
+    {
+      return this.record.text;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannel()
+    {
+      return this.record.channel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEndTimestamp()
+    {
+      return this.record.endTimestamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStartTimestamp()
+    {
+      return this.record.startTimestamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+      return this.record.text;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The time (in milliseconds) during which changes are collected. */
+  static final long FLUSH_DELAY = 1000L;
+
+  private static final int MAGIC = 0x4f4c534a; // OLSJ
+  private static final int VERSION = 1;
+
+  private static final int RECORD_CURSORS = 'C';
+  private static final int RECORD_LABELS = 'L';
+  private static final int RECORD_ANNOTATION = 'A';
+  private static final int RECORD_CLEAR_ANNOTATIONS = 'X';
+
+  private static final int MAX_TEXT_LENGTH = 4096;
+
+  // VARIABLES
+
+  // Injected by Felix DM...
+  private volatile ProjectManager projectManager;
+  private volatile LogService log;
+
+  private final File journalFile;
+  private final Queue<AnnotationRecord> pendingAnnotations;
+  private final AtomicBoolean cursorsChanged;
+  private final AtomicBoolean labelsChanged;
+  private final AtomicBoolean flushScheduled;
+
+  private volatile ScheduledExecutorService executor;
+  private volatile AcquisitionResult journaledData;
+  // Only accessed from the executor thread...
+  private DataOutputStream out;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ProjectJournal} instance.
+   */
+  public ProjectJournal()
+  {
+    this( HostUtils.createLocalDataFile( "nl.lxtreme.ols.client.journal", "journal" ) );
+  }
+
+  /**
+   * Creates a new {@link ProjectJournal} instance.
+   * 
+   * @param aJournalFile
+   *          the file to use as journal, cannot be <code>null</code>.
+   */
+  ProjectJournal( final File aJournalFile )
+  {
+    this.journalFile = aJournalFile;
+
+    this.pendingAnnotations = new ConcurrentLinkedQueue<AnnotationRecord>();
+    this.cursorsChanged = new AtomicBoolean();
+    this.labelsChanged = new AtomicBoolean();
+    this.flushScheduled = new AtomicBoolean();
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void acquisitionComplete( final AcquisitionResult aData )
+  {
+    this.journaledData = aData;
+
+    execute( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        writeSnapshot( aData );
+      }
+    } );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clearAnnotations()
+  {
+    clearAnnotations( -1 );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clearAnnotations( final int aChannelIdx )
+  {
+    this.pendingAnnotations.add( new AnnotationRecord( aChannelIdx, 0L, 0L, null ) );
+    scheduleFlush();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void onAnnotation( final Annotation<?> aAnnotation )
+  {
+    // Other annotations end up as channel label, which we already track...
+    if ( aAnnotation instanceof DataAnnotation )
+    {
+      final DataAnnotation<?> annotation = ( DataAnnotation<?> )aAnnotation;
+      this.pendingAnnotations.add( new AnnotationRecord( annotation.getChannel(), annotation.getStartTimestamp(),
+          annotation.getEndTimestamp(), String.valueOf( annotation.getAnnotation() ) ) );
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void propertyChange( final PropertyChangeEvent aEvent )
+  {
+    final String name = aEvent.getPropertyName();
+    if ( "project".equals( name ) )
+    {
+      // Another project is created or loaded...
+      discardJournal();
+    }
+    else if ( PROPERTY_CHANGED.equals( name ) )
+    {
+      // The project is saved, or freshly loaded...
+      if ( Boolean.FALSE.equals( aEvent.getNewValue() ) )
+      {
+        discardJournal();
+      }
+    }
+    else if ( PROPERTY_CAPTURED_DATA.equals( name ) )
+    {
+      // Data that did not originate from an acquisition (e.g., loaded from
+      // file) makes our journal obsolete; data restored from the acquisition
+      // history does not, as the journal still holds the latest acquisition...
+      final DataSet dataSet = ( DataSet )aEvent.getNewValue();
+      final AcquisitionResult data = ( dataSet == null ) ? null : dataSet.getCapturedData();
+      if ( ( data != null ) && ( data != this.journaledData )
+          && ( this.projectManager.getCurrentProject().getAcquisitionHistoryIndex() < 0 ) )
+      {
+        discardJournal();
+      }
+    }
+    else if ( PROPERTY_CURSORS_ENABLED.equals( name ) || name.startsWith( "cursor" ) )
+    {
+      this.cursorsChanged.set( true );
+      scheduleFlush();
+    }
+    else if ( name.startsWith( "channel" ) )
+    {
+      this.labelsChanged.set( true );
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Sets log to the given value.
+   * 
+   * @param aLog
+   *          the log to set.
+   */
+  public void setLog( final LogService aLog )
+  {
+    this.log = aLog;
+  }
+
+  /**
+   * Sets projectManager to the given value.
+   * 
+   * @param aProjectManager
+   *          the project manager to set.
+   */
+  public void setProjectManager( final ProjectManager aProjectManager )
+  {
+    this.projectManager = aProjectManager;
+  }
+
+  /**
+   * Called by the dependency manager when all dependencies are satisfied, and
+   * this component can be started.
+   */
+  public void start()
+  {
+    final ScheduledThreadPoolExecutor service = new ScheduledThreadPoolExecutor( 1, new ThreadFactory()
+    {
+      @Override
+      public Thread newThread( final Runnable aRunnable )
+      {
+        final Thread thread = new Thread( aRunnable, "OLS project journal" );
+        thread.setDaemon( true );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        return thread;
+      }
+    } );
+    // Pending changes are of no use after a normal shutdown...
+    service.setExecuteExistingDelayedTasksAfterShutdownPolicy( false );
+
+    this.executor = service;
+
+    this.projectManager.addPropertyChangeListener( this );
+
+    // Recover the data of a previous session that did not end normally...
+    execute( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        recover();
+      }
+    } );
+  }
+
+  /**
+   * Called by the dependency manager when it is shutting down this component.
+   */
+  public void stop()
+  {
+    this.projectManager.removePropertyChangeListener( this );
+
+    final ScheduledExecutorService service = this.executor;
+    this.executor = null;
+
+    service.shutdown();
+
+    try
+    {
+      service.awaitTermination( 5L, TimeUnit.SECONDS );
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+    }
+
+    // A normal shutdown; nothing needs to be recovered next time...
+    deleteJournal();
+  }
+
+  /**
+   * Writes all pending changes to the journal, and waits until this is done.
+   * 
+   * @throws Exception
+   *           in case waiting for the journal failed.
+   */
+  final void sync() throws Exception
+  {
+    this.executor.submit( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        flush();
+      }
+    } ).get();
+  }
+
+  /**
+   * Closes the current journal and removes its file.
+   */
+  private void deleteJournal()
+  {
+    HostUtils.closeResource( this.out );
+    this.out = null;
+
+    if ( this.journalFile.exists() && !this.journalFile.delete() )
+    {
+      this.log.log( LogService.LOG_WARNING, "Failed to delete project journal " + this.journalFile );
+    }
+  }
+
+  /**
+   * Discards the current journal, if any.
+   */
+  private void discardJournal()
+  {
+    this.journaledData = null;
+
+    execute( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        deleteJournal();
+      }
+    } );
+  }
+
+  /**
+   * Executes the given runnable on the journal thread.
+   */
+  private void execute( final Runnable aRunnable )
+  {
+    final ScheduledExecutorService service = this.executor;
+    if ( service == null )
+    {
+      return;
+    }
+
+    try
+    {
+      service.execute( aRunnable );
+    }
+    catch ( RejectedExecutionException exception )
+    {
+      // Ignore; we're shutting down...
+    }
+  }
+
+  /**
+   * Writes all pending changes to the journal. Should be called from the
+   * journal thread.
+   */
+  private void flush()
+  {
+    this.flushScheduled.set( false );
+
+    final boolean cursors = this.cursorsChanged.getAndSet( false );
+    final boolean labels = this.labelsChanged.getAndSet( false );
+
+    final List<AnnotationRecord> annotations = new ArrayList<AnnotationRecord>();
+    AnnotationRecord record;
+    while ( ( record = this.pendingAnnotations.poll() ) != null )
+    {
+      annotations.add( record );
+    }
+
+    if ( this.out == null )
+    {
+      // Nothing to journal...
+      return;
+    }
+
+    try
+    {
+      final DataSet dataSet = this.projectManager.getCurrentProject().getDataSet();
+      if ( cursors )
+      {
+        writeCursors( dataSet );
+      }
+      if ( labels )
+      {
+        writeLabels( dataSet );
+      }
+      for ( AnnotationRecord annotation : annotations )
+      {
+        writeAnnotation( annotation );
+      }
+
+      this.out.flush();
+    }
+    catch ( IOException exception )
+    {
+      this.log.log( LogService.LOG_WARNING, "Failed to write project journal!", exception );
+      deleteJournal();
+    }
+  }
+
+  /**
+   * Reads a single change record and applies it to the given data set.
+   */
+  private void readRecord( final int aType, final DataInputStream aIn, final DataSet aDataSet ) throws IOException
+  {
+    if ( aType == RECORD_CURSORS )
+    {
+      aDataSet.setCursorsEnabled( aIn.readBoolean() );
+
+      final int count = aIn.readInt();
+      for ( int i = 0; i < count; i++ )
+      {
+        final boolean defined = aIn.readBoolean();
+        final long timestamp = defined ? aIn.readLong() : 0L;
+        if ( i < Ols.MAX_CURSORS )
+        {
+          final Cursor cursor = aDataSet.getCursor( i );
+          if ( defined )
+          {
+            cursor.setTimestamp( timestamp );
+          }
+          else
+          {
+            cursor.clear();
+          }
+        }
+      }
+    }
+    else if ( aType == RECORD_LABELS )
+    {
+      final int channelCount = aDataSet.getChannels().length;
+
+      final int count = aIn.readInt();
+      for ( int i = 0; i < count; i++ )
+      {
+        final String label = aIn.readUTF();
+        if ( i < channelCount )
+        {
+          aDataSet.getChannel( i ).setLabel( label );
+        }
+      }
+    }
+    else if ( aType == RECORD_ANNOTATION )
+    {
+      final AnnotationRecord record = new AnnotationRecord( aIn.readInt(), aIn.readLong(), aIn.readLong(),
+          aIn.readUTF() );
+      if ( ( record.channel >= 0 ) && ( record.channel < aDataSet.getChannels().length ) )
+      {
+        aDataSet.getChannel( record.channel ).addAnnotation( new RecoveredAnnotation( record ) );
+      }
+    }
+    else if ( aType == RECORD_CLEAR_ANNOTATIONS )
+    {
+      final int channelIdx = aIn.readInt();
+      final Channel[] channels = aDataSet.getChannels();
+      for ( int i = 0; i < channels.length; i++ )
+      {
+        if ( ( channels[i] != null ) && ( ( channelIdx < 0 ) || ( channelIdx == i ) ) )
+        {
+          channels[i].clearAnnotations();
+        }
+      }
+    }
+    else
+    {
+      throw new IOException( "Unknown journal record: " + aType );
+    }
+  }
+
+  /**
+   * Recovers the journal of a previous session, if present. Should be called
+   * from the journal thread.
+   */
+  private void recover()
+  {
+    if ( !this.journalFile.isFile() )
+    {
+      return;
+    }
+
+    this.log.log( LogService.LOG_INFO, "Recovering project journal " + this.journalFile );
+
+    final AcquisitionResult data;
+    final byte[] records;
+
+    DataInputStream in = null;
+    try
+    {
+      in = new DataInputStream( new BufferedInputStream( new FileInputStream( this.journalFile ) ) );
+
+      if ( ( in.readInt() != MAGIC ) || ( in.readInt() != VERSION ) )
+      {
+        throw new IOException( "Not a valid project journal!" );
+      }
+
+      final int rate = in.readInt();
+      final int channels = in.readInt();
+      final int enabledChannels = in.readInt();
+      final long triggerPosition = in.readLong();
+      final long absoluteLength = in.readLong();
+
+      final int size = in.readInt();
+      final int[] values = new int[size];
+      final long[] timestamps = new long[size];
+      for ( int i = 0; i < size; i++ )
+      {
+        values[i] = in.readInt();
+        timestamps[i] = in.readLong();
+      }
+
+      data = new CapturedData( values, timestamps, triggerPosition, rate, channels, enabledChannels,
+          absoluteLength );
+
+      // The records can only be applied once the data is set, on the EDT...
+      final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ( ( read = in.read( buffer ) ) >= 0 )
+      {
+        recordBytes.write( buffer, 0, read );
+      }
+      records = recordBytes.toByteArray();
+    }
+    catch ( EOFException exception )
+    {
+      this.log.log( LogService.LOG_WARNING, "Failed to recover truncated project journal!" );
+      deleteJournal();
+      return;
+    }
+    catch ( IOException exception )
+    {
+      this.log.log( LogService.LOG_WARNING, "Failed to recover project journal!", exception );
+      deleteJournal();
+      return;
+    }
+    finally
+    {
+      HostUtils.closeResource( in );
+    }
+
+    this.journaledData = data;
+
+    SwingUtilities.invokeLater( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        restore( data, records );
+      }
+    } );
+  }
+
+  /**
+   * Restores the recovered data and journal records into the current project.
+   * Should be called from the EDT.
+   * 
+   * @param aData
+   *          the recovered acquisition results;
+   * @param aRecords
+   *          the recovered journal records.
+   */
+  private void restore( final AcquisitionResult aData, final byte[] aRecords )
+  {
+    if ( aData != this.journaledData )
+    {
+      // Already superseded by other data...
+      return;
+    }
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( aData );
+
+    final DataSet dataSet = project.getDataSet();
+
+    final DataInputStream in = new DataInputStream( new ByteArrayInputStream( aRecords ) );
+    try
+    {
+      int type;
+      while ( ( type = in.read() ) >= 0 )
+      {
+        readRecord( type, in, dataSet );
+      }
+    }
+    catch ( EOFException exception )
+    {
+      // The session probably ended while writing the last record; recover
+      // what we've got so far...
+    }
+    catch ( IOException exception )
+    {
+      this.log.log( LogService.LOG_WARNING, "Failed to recover project journal!", exception );
+      discardJournal();
+      return;
+    }
+
+    final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>();
+    try
+    {
+      for ( Channel channel : dataSet.getChannels() )
+      {
+        if ( channel != null )
+        {
+          annotations.addAll( channel.getAnnotations() );
+        }
+      }
+    }
+    catch ( RuntimeException exception )
+    {
+      this.log.log( LogService.LOG_WARNING, "Failed to rewrite annotations to project journal!", exception );
+    }
+
+    execute( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        // Rewrite the journal, as its tail might be incomplete...
+        writeSnapshot( aData );
+
+        for ( Annotation<?> annotation : annotations )
+        {
+          onAnnotation( annotation );
+        }
+      }
+    } );
+  }
+
+  /**
+   * Schedules the pending changes to be written to the journal, if not already
+   * done.
+   */
+  private void scheduleFlush()
+  {
+    final ScheduledExecutorService service = this.executor;
+    if ( ( service == null ) || !this.flushScheduled.compareAndSet( false, true ) )
+    {
+      return;
+    }
+
+    try
+    {
+      service.schedule( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          flush();
+        }
+      }, FLUSH_DELAY, TimeUnit.MILLISECONDS );
+    }
+    catch ( RejectedExecutionException exception )
+    {
+      // Ignore; we're shutting down...
+    }
+  }
+
+  /**
+   * Writes a single annotation record to the journal.
+   */
+  private void writeAnnotation( final AnnotationRecord aRecord ) throws IOException
+  {
+    if ( aRecord.isClear() )
+    {
+      this.out.write( RECORD_CLEAR_ANNOTATIONS );
+      this.out.writeInt( aRecord.channel );
+    }
+    else
+    {
+      String text = aRecord.text;
+      if ( text.length() > MAX_TEXT_LENGTH )
+      {
+        text = text.substring( 0, MAX_TEXT_LENGTH );
+      }
+
+      this.out.write( RECORD_ANNOTATION );
+      this.out.writeInt( aRecord.channel );
+      this.out.writeLong( aRecord.startTimestamp );
+      this.out.writeLong( aRecord.endTimestamp );
+      this.out.writeUTF( text );
+    }
+  }
+
+  /**
+   * Writes the state of all cursors to the journal.
+   */
+  private void writeCursors( final DataSet aDataSet ) throws IOException
+  {
+    final Cursor[] cursors = aDataSet.getCursors();
+
+    this.out.write( RECORD_CURSORS );
+    this.out.writeBoolean( aDataSet.isCursorsEnabled() );
+    this.out.writeInt( cursors.length );
+    for ( Cursor cursor : cursors )
+    {
+      final boolean defined = cursor.isDefined();
+      this.out.writeBoolean( defined );
+      if ( defined )
+      {
+        this.out.writeLong( cursor.getTimestamp() );
+      }
+    }
+  }
+
+  /**
+   * Writes the labels of all channels to the journal.
+   */
+  private void writeLabels( final DataSet aDataSet ) throws IOException
+  {
+    final Channel[] channels = aDataSet.getChannels();
+
+    this.out.write( RECORD_LABELS );
+    this.out.writeInt( channels.length );
+    for ( Channel channel : channels )
+    {
+      final boolean named = ( channel != null ) && channel.hasName();
+      this.out.writeUTF( named ? channel.getLabel() : "" );
+    }
+  }
+
+  /**
+   * Starts a new journal with the given acquisition results. Should be called
+   * from the journal thread.
+   */
+  private void writeSnapshot( final AcquisitionResult aData )
+  {
+    deleteJournal();
+
+    if ( aData != this.journaledData )
+    {
+      // Already superseded by other data...
+      return;
+    }
+
+    final int[] values = aData.getValues();
+    final long[] timestamps = aData.getTimestamps();
+
+    try
+    {
+      this.out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( this.journalFile ), 65536 ) );
+
+      this.out.writeInt( MAGIC );
+      this.out.writeInt( VERSION );
+      this.out.writeInt( aData.getSampleRate() );
+      this.out.writeInt( aData.getChannels() );
+      this.out.writeInt( aData.getEnabledChannels() );
+      this.out.writeLong( aData.getTriggerPosition() );
+      this.out.writeLong( aData.getAbsoluteLength() );
+      this.out.writeInt( values.length );
+      for ( int i = 0; i < values.length; i++ )
+      {
+        this.out.writeInt( values[i] );
+        this.out.writeLong( timestamps[i] );
+      }
+
+      // The cursors and labels are retained between acquisitions...
+      final DataSet dataSet = this.projectManager.getCurrentProject().getDataSet();
+      writeCursors( dataSet );
+      writeLabels( dataSet );
+
+      this.out.flush();
+    }
+    catch ( IOException exception )
+    {
+      this.log.log( LogService.LOG_WARNING, "Failed to write project journal!", exception );
+      deleteJournal();
+    }
+  }
+}
@@ -29,12 +29,18 @@ import java.util.zip.*;
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.util.*;
 
 
 /**
  * Provides a simple implementation of a project manager, which writes an entire
  * project as (compressed) ZIP-file.
+ * <p>
+ * When a project is saved while the file it was loaded from (or last saved to)
+ * is still unmodified, the parts of the project that did not change since are
+ * copied verbatim from that file, without recompressing them.
+ * </p>
  */
 public class ProjectManagerImpl implements PropertyChangeListener, ProjectManager, ProjectProperties
 {
@@ -44,6 +50,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   private static final String FILENAME_CHANNEL_LABELS = "channel.labels";
   private static final String FILENAME_PROJECT_SETTINGS = "settings/";
   private static final String FILENAME_CAPTURE_RESULTS = "data.ols";
+  private static final String FILENAME_CURSORS = "cursors";
 
   // VARIABLES
 
@@ -120,6 +127,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     copyPropertyChangeListeners( this.project, newProject );
 
     List<String> labels = null;
+    Properties cursors = null;
 
     try
     {
@@ -143,6 +151,11 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
           loadCapturedResults( newProject, zipIS );
           entriesSeen = true;
         }
+        else if ( FILENAME_CURSORS.equals( name ) )
+        {
+          cursors = loadCursors( zipIS );
+          entriesSeen = true;
+        }
         else if ( name.startsWith( FILENAME_PROJECT_SETTINGS ) )
         {
           final String userSettingsName = name.substring( FILENAME_PROJECT_SETTINGS.length() );
@@ -162,9 +175,14 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       // set; this is not the nicest way of doing this, but we otherwise have to
       // break our project file-format, which is not done at the moment...
       newProject.getDataSet().mergeChannelLabels( labels );
+      // The cursors are stored separately from the captured data, allowing the
+      // latter to be reused when only the cursors are changed...
+      newProject.getDataSet().mergeCursors( cursors );
 
-      // Mark the project as no longer changed...
+      // Mark the project as no longer changed; everything is just read from
+      // the project file...
       newProject.setChanged( false );
+      newProject.takeChangedParts();
 
       // Overwrite the main project...
       setProject( newProject );
@@ -198,32 +216,70 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    */
   @Override
   public void saveProject( final OutputStream aOutput ) throws IOException
+  {
+    saveProject( aOutput, null /* aListener */);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void saveProject( final OutputStream aOutput, final TaskProgressListener aListener ) throws IOException
   {
     if ( aOutput == null )
     {
       throw new IllegalArgumentException( "Output stream cannot be null!" );
     }
 
+    final ProjectImpl project = this.project;
+
     final BufferedOutputStream os = new BufferedOutputStream( aOutput );
-    final ZipOutputStream zipOS = new ZipOutputStream( os );
+    final ZipArchiveWriter zipOS = new ZipArchiveWriter( os );
 
     zipOS.setComment( this.hostProperties.getFullName().concat( " project file" ) );
 
+    final ZipArchiveReader previous = openUnmodifiedProjectFile( project );
+    // Changes made from now on are to be written by the next save...
+    final Set<String> changedParts = project.takeChangedParts();
+    boolean saved = false;
+
     try
     {
-      storeProjectMetadata( this.project, zipOS );
+      storeProjectMetadata( project, zipOS );
       // Store the channel labels...
-      storeChannelLabels( this.project.getDataSet(), zipOS );
-      // Store the settings...
-      storeProjectSettings( this.project, zipOS );
+      if ( !copyEntry( changedParts, PROPERTY_CHANNEL_LABELS, previous, FILENAME_CHANNEL_LABELS, zipOS ) )
+      {
+        storeChannelLabels( project.getDataSet(), zipOS );
+      }
+      // Store the settings; these can be changed without us knowing it, so we
+      // always write them...
+      storeProjectSettings( project, zipOS );
       // Store the last capture results...
-      storeCapturedResults( this.project, zipOS );
+      if ( !copyEntry( changedParts, PROPERTY_CAPTURED_DATA, previous, FILENAME_CAPTURE_RESULTS, zipOS ) )
+      {
+        storeCapturedResults( project, zipOS, aListener );
+      }
+      // Store the cursors...
+      if ( !copyEntry( changedParts, PROPERTY_CURSORS, previous, FILENAME_CURSORS, zipOS ) )
+      {
+        storeCursors( project.getDataSet(), zipOS );
+      }
+
+      // Write the central directory; any failure should fail the save...
+      zipOS.close();
 
       // Mark the project as no longer changed...
-      this.project.setChanged( false );
+      project.setChanged( false );
+      saved = true;
     }
     finally
     {
+      if ( !saved )
+      {
+        project.restoreChangedParts( changedParts );
+      }
+
+      HostUtils.closeResource( previous );
       HostUtils.closeResource( zipOS );
       HostUtils.closeResource( os );
     }
@@ -282,6 +338,22 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     return result;
   }
 
+  /**
+   * Reads the cursors from the given ZIP-input stream.
+   * 
+   * @param aZipIS
+   *          the ZIP input stream to read the cursors from.
+   * @return the cursor settings, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  protected Properties loadCursors( final ZipInputStream aZipIS ) throws IOException
+  {
+    final Properties result = new Properties();
+    result.load( aZipIS );
+    return result;
+  }
+
   /**
    * Reads the project metadata to the given ZIP-input stream.
    * 
@@ -352,11 +424,14 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @param aProject
    *          the project to write the capture results for;
    * @param aZipOS
-   *          the ZIP output stream to write the capture results to.
+   *          the ZIP output stream to write the capture results to;
+   * @param aListener
+   *          the listener to report the progress to, can be <code>null</code>.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeCapturedResults( final Project aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeCapturedResults( final Project aProject, final ZipArchiveWriter aZipOS,
+      final TaskProgressListener aListener ) throws IOException
   {
     final DataSet dataSet = aProject.getDataSet();
     if ( dataSet.getCapturedData() == null )
@@ -364,10 +439,9 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       return;
     }
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_CAPTURE_RESULTS );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_CAPTURE_RESULTS );
 
-    aProject.writeData( new OutputStreamWriter( aZipOS ) );
+    aProject.writeData( new OutputStreamWriter( aZipOS ), aListener );
   }
 
   /**
@@ -384,12 +458,11 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeChannelLabels( final DataSet aDataSet, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeChannelLabels( final DataSet aDataSet, final ZipArchiveWriter aZipOS ) throws IOException
   {
     final Channel[] channels = aDataSet.getChannels();
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_CHANNEL_LABELS );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_CHANNEL_LABELS );
 
     // Write the channel labels
     PrintStream out = new PrintStream( aZipOS );
@@ -408,6 +481,34 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * Stores the cursors to the given ZIP-output stream.
+   * 
+   * @param aDataSet
+   *          the data set to write the cursors for;
+   * @param aZipOS
+   *          the ZIP output stream to write the cursors to.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  protected void storeCursors( final DataSet aDataSet, final ZipArchiveWriter aZipOS ) throws IOException
+  {
+    final Properties props = new Properties();
+    props.setProperty( "enabled", Boolean.toString( aDataSet.isCursorsEnabled() ) );
+
+    final Cursor[] cursors = aDataSet.getCursors();
+    for ( int i = 0; i < cursors.length; i++ )
+    {
+      if ( cursors[i].isDefined() )
+      {
+        props.setProperty( "cursor." + i, Long.toString( cursors[i].getTimestamp() ) );
+      }
+    }
+
+    aZipOS.putNextEntry( FILENAME_CURSORS );
+    props.store( aZipOS, "cursors" );
+  }
+
   /**
    * Stores the project metadata to the given ZIP-output stream.
    * <p>
@@ -422,7 +523,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeProjectMetadata( final Project aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeProjectMetadata( final Project aProject, final ZipArchiveWriter aZipOS ) throws IOException
   {
     final String name = aProject.getName();
     if ( ( name == null ) || name.trim().isEmpty() )
@@ -430,8 +531,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       return;
     }
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_PROJECT_METADATA );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_PROJECT_METADATA );
 
     // Write the project metadata...
     PrintStream out = new PrintStream( aZipOS );
@@ -463,7 +563,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeProjectSettings( final ProjectImpl aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeProjectSettings( final ProjectImpl aProject, final ZipArchiveWriter aZipOS ) throws IOException
   {
     try
     {
@@ -474,8 +574,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
         {
           final String zipEntryName = FILENAME_PROJECT_SETTINGS.concat( aSettings.getName() );
 
-          final ZipEntry zipEntry = new ZipEntry( zipEntryName );
-          aZipOS.putNextEntry( zipEntry );
+          aZipOS.putNextEntry( zipEntryName );
 
           // Convert to a properties object...
           final Properties props = new Properties();
@@ -495,6 +594,65 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * Copies a ZIP-entry verbatim from the previous project file, provided that
+   * the corresponding part of the project did not change.
+   * 
+   * @param aChangedParts
+   *          the parts of the project that are changed;
+   * @param aPart
+   *          the part of the project that is stored in the ZIP-entry;
+   * @param aPrevious
+   *          the previous project file, can be <code>null</code>;
+   * @param aEntryName
+   *          the name of the ZIP-entry to copy;
+   * @param aZipOS
+   *          the ZIP output stream to copy the ZIP-entry to.
+   * @return <code>true</code> if the ZIP-entry is copied, <code>false</code> if
+   *         it should be written anew.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  private boolean copyEntry( final Set<String> aChangedParts, final String aPart, final ZipArchiveReader aPrevious,
+      final String aEntryName, final ZipArchiveWriter aZipOS ) throws IOException
+  {
+    if ( ( aPrevious == null ) || ( aPrevious.getEntry( aEntryName ) == null ) || aChangedParts.contains( aPart ) )
+    {
+      return false;
+    }
+
+    aZipOS.copyEntry( aPrevious, aEntryName );
+    return true;
+  }
+
+  /**
+   * Opens the file the given project was last loaded from or saved to, if it
+   * is not modified since.
+   * 
+   * @param aProject
+   *          the project to open the previous project file for.
+   * @return the previous project file, or <code>null</code> if there is no such
+   *         file or it cannot be read.
+   */
+  private ZipArchiveReader openUnmodifiedProjectFile( final ProjectImpl aProject )
+  {
+    final File file = aProject.getUnmodifiedFile();
+    if ( file == null )
+    {
+      return null;
+    }
+
+    try
+    {
+      return new ZipArchiveReader( file );
+    }
+    catch ( IOException exception )
+    {
+      // Not fatal; we simply write all parts anew...
+      return null;
+    }
+  }
+
   /**
    * Copies the current set of {@link PropertyChangeListener}s from a given
    * source project to a given target project.
@@ -526,6 +684,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     if ( oldProject != null )
     {
       oldProject.removePropertyChangeListener( this );
+      // Release the (possibly disk-backed) acquisitions of the old project...
+      oldProject.clearAcquisitionHistory();
     }
 
     this.project = aProject;
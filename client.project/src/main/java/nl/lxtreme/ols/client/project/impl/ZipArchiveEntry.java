@@ -0,0 +1,95 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+
+
+/**
+ * Provides the bookkeeping of a single entry in a ZIP-archive, as written by
+ * {@link ZipArchiveWriter} or read by {@link ZipArchiveReader}.
+ */
+final class ZipArchiveEntry
+{
+  // VARIABLES
+
+  final String name;
+  final byte[] nameBytes;
+
+  int flags;
+  int method;
+  long dosTime;
+  long crc;
+  long compressedSize;
+  long size;
+  /** The offset of the local file header of this entry. */
+  long offset;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ZipArchiveEntry} instance.
+   * 
+   * @param aName
+   *          the name of this entry, cannot be <code>null</code>.
+   */
+  ZipArchiveEntry( final String aName )
+  {
+    this( aName, toBytes( aName ) );
+  }
+
+  /**
+   * Creates a new {@link ZipArchiveEntry} instance.
+   * 
+   * @param aName
+   *          the name of this entry, cannot be <code>null</code>;
+   * @param aNameBytes
+   *          the UTF-8 encoded name of this entry, cannot be <code>null</code>.
+   */
+  ZipArchiveEntry( final String aName, final byte[] aNameBytes )
+  {
+    this.name = aName;
+    this.nameBytes = aNameBytes;
+  }
+
+  // METHODS
+
+  /**
+   * Converts a given string to its UTF-8 representation.
+   * 
+   * @param aValue
+   *          the string to convert, cannot be <code>null</code>.
+   * @return the UTF-8 bytes of the given string, never <code>null</code>.
+   */
+  static byte[] toBytes( final String aValue )
+  {
+    try
+    {
+      return aValue.getBytes( "UTF-8" );
+    }
+    catch ( UnsupportedEncodingException exception )
+    {
+      // Should never happen; UTF-8 is always supported...
+      throw new RuntimeException( exception );
+    }
+  }
+}
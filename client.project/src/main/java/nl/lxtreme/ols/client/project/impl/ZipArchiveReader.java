@@ -0,0 +1,322 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.*;
+
+
+/**
+ * Provides a minimal ZIP-archive reader that gives access to the raw
+ * (compressed) data of its entries, allowing them to be copied verbatim by
+ * {@link ZipArchiveWriter#copyEntry(ZipArchiveReader, String)}. ZIP64
+ * extensions, as used for archives larger than 4GB, are supported.
+ */
+final class ZipArchiveReader implements Closeable
+{
+  // CONSTANTS
+
+  private static final int END_OF_CENTRAL_DIR_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIZE = 20;
+  private static final int ZIP64_END_OF_CENTRAL_DIR_SIZE = 56;
+
+  // VARIABLES
+
+  private final RandomAccessFile file;
+  private final Map<String, ZipArchiveEntry> entries;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ZipArchiveReader} instance.
+   * 
+   * @param aFile
+   *          the ZIP-archive to read, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case the given file is not a valid ZIP-archive, or in case of
+   *           I/O problems.
+   */
+  public ZipArchiveReader( final File aFile ) throws IOException
+  {
+    this.file = new RandomAccessFile( aFile, "r" );
+    this.entries = new LinkedHashMap<String, ZipArchiveEntry>();
+
+    try
+    {
+      readCentralDirectory();
+    }
+    catch ( IOException exception )
+    {
+      this.file.close();
+      throw exception;
+    }
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.file.close();
+  }
+
+  /**
+   * Returns the entry with the given name.
+   * 
+   * @param aName
+   *          the name of the entry to return, cannot be <code>null</code>.
+   * @return the entry with the given name, or <code>null</code> if no such
+   *         entry exists.
+   */
+  public ZipArchiveEntry getEntry( final String aName )
+  {
+    return this.entries.get( aName );
+  }
+
+  /**
+   * Copies the raw (compressed) data of the given entry to the given output
+   * stream.
+   * 
+   * @param aEntry
+   *          the entry to copy the data of, cannot be <code>null</code>;
+   * @param aOutput
+   *          the output stream to copy the data to, cannot be
+   *          <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void copyRawData( final ZipArchiveEntry aEntry, final OutputStream aOutput ) throws IOException
+  {
+    // The local header might have a different extra field than the central
+    // header, so we need to determine the start of the data from it...
+    this.file.seek( aEntry.offset );
+    if ( readInt() != ZipArchiveWriter.LOCAL_HEADER_SIG )
+    {
+      throw new IOException( "Invalid local header for entry: " + aEntry.name );
+    }
+    this.file.seek( aEntry.offset + 26 );
+    final int nameLength = readShort();
+    final int extraLength = readShort();
+
+    this.file.seek( aEntry.offset + ZipArchiveWriter.LOCAL_HEADER_SIZE + nameLength + extraLength );
+
+    final byte[] buffer = new byte[8192];
+    long remaining = aEntry.compressedSize;
+    while ( remaining > 0 )
+    {
+      final int read = this.file.read( buffer, 0, ( int )Math.min( buffer.length, remaining ) );
+      if ( read < 0 )
+      {
+        throw new EOFException( "Unexpected end of ZIP entry: " + aEntry.name );
+      }
+      aOutput.write( buffer, 0, read );
+      remaining -= read;
+    }
+  }
+
+  /**
+   * Locates the "end of central directory" record, and reads all entries from
+   * the central directory.
+   */
+  private void readCentralDirectory() throws IOException
+  {
+    final long length = this.file.length();
+    if ( length < END_OF_CENTRAL_DIR_SIZE )
+    {
+      throw new IOException( "Not a ZIP archive!" );
+    }
+
+    // Scan backwards for the end of central directory record; it is located
+    // at the end of the file, followed by an optional comment...
+    final int tailSize = ( int )Math.min( length, END_OF_CENTRAL_DIR_SIZE + MAX_COMMENT_SIZE );
+    final byte[] tail = new byte[tailSize];
+    this.file.seek( length - tailSize );
+    this.file.readFully( tail );
+
+    int eocd = -1;
+    for ( int i = tailSize - END_OF_CENTRAL_DIR_SIZE; ( eocd < 0 ) && ( i >= 0 ); i-- )
+    {
+      if ( getInt( tail, i ) == ZipArchiveWriter.END_OF_CENTRAL_DIR_SIG )
+      {
+        eocd = i;
+      }
+    }
+    if ( eocd < 0 )
+    {
+      throw new IOException( "Not a ZIP archive!" );
+    }
+
+    long count = getShort( tail, eocd + 10 );
+    final long cdSize = getInt( tail, eocd + 12 ) & 0xFFFFFFFFL;
+    long cdOffset = getInt( tail, eocd + 16 ) & 0xFFFFFFFFL;
+
+    if ( ( count == ZipArchiveWriter.ZIP64_MAGIC_COUNT ) || ( cdSize == ZipArchiveWriter.ZIP64_MAGIC )
+        || ( cdOffset == ZipArchiveWriter.ZIP64_MAGIC ) )
+    {
+      // Possibly a ZIP64 archive; its locator directly precedes the end of
+      // central directory record...
+      final long locatorOffset = ( length - tailSize ) + eocd - ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIZE;
+      if ( locatorOffset >= 0 )
+      {
+        this.file.seek( locatorOffset );
+        if ( readInt() == ZipArchiveWriter.ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG )
+        {
+          this.file.skipBytes( 4 );
+
+          final byte[] zip64End = new byte[ZIP64_END_OF_CENTRAL_DIR_SIZE];
+          this.file.seek( readLong() );
+          this.file.readFully( zip64End );
+          if ( getInt( zip64End, 0 ) != ZipArchiveWriter.ZIP64_END_OF_CENTRAL_DIR_SIG )
+          {
+            throw new IOException( "Invalid ZIP64 end of central directory!" );
+          }
+
+          count = getLong( zip64End, 32 );
+          cdOffset = getLong( zip64End, 48 );
+        }
+      }
+    }
+
+    this.file.seek( cdOffset );
+    final byte[] header = new byte[CENTRAL_HEADER_SIZE];
+    for ( long i = 0; i < count; i++ )
+    {
+      this.file.readFully( header );
+      if ( getInt( header, 0 ) != ZipArchiveWriter.CENTRAL_HEADER_SIG )
+      {
+        throw new IOException( "Invalid central directory!" );
+      }
+
+      final byte[] nameBytes = new byte[getShort( header, 28 )];
+      final int extraLength = getShort( header, 30 );
+      final int commentLength = getShort( header, 32 );
+
+      final byte[] extra = new byte[extraLength];
+
+      this.file.readFully( nameBytes );
+      this.file.readFully( extra );
+      this.file.skipBytes( commentLength );
+
+      final ZipArchiveEntry entry = new ZipArchiveEntry( new String( nameBytes, "UTF-8" ), nameBytes );
+      entry.flags = getShort( header, 8 );
+      entry.method = getShort( header, 10 );
+      entry.dosTime = getInt( header, 12 ) & 0xFFFFFFFFL;
+      entry.crc = getInt( header, 16 ) & 0xFFFFFFFFL;
+      entry.compressedSize = getInt( header, 20 ) & 0xFFFFFFFFL;
+      entry.size = getInt( header, 24 ) & 0xFFFFFFFFL;
+      entry.offset = getInt( header, 42 ) & 0xFFFFFFFFL;
+
+      readZip64Extra( entry, extra );
+
+      this.entries.put( entry.name, entry );
+    }
+  }
+
+  /**
+   * Replaces the sizes and offset of the given entry that do not fit in the
+   * central directory header by those of its ZIP64 extra field, if present.
+   */
+  private void readZip64Extra( final ZipArchiveEntry aEntry, final byte[] aExtra ) throws IOException
+  {
+    int idx = 0;
+    while ( ( idx + 4 ) <= aExtra.length )
+    {
+      final int id = getShort( aExtra, idx );
+      final int size = getShort( aExtra, idx + 2 );
+      idx += 4;
+
+      if ( id == ZipArchiveWriter.ZIP64_EXTRA_ID )
+      {
+        // Only the values that do not fit are present, in this order...
+        final int end = Math.min( aExtra.length, idx + size );
+        if ( aEntry.size == ZipArchiveWriter.ZIP64_MAGIC )
+        {
+          aEntry.size = getZip64Value( aExtra, idx, end );
+          idx += 8;
+        }
+        if ( aEntry.compressedSize == ZipArchiveWriter.ZIP64_MAGIC )
+        {
+          aEntry.compressedSize = getZip64Value( aExtra, idx, end );
+          idx += 8;
+        }
+        if ( aEntry.offset == ZipArchiveWriter.ZIP64_MAGIC )
+        {
+          aEntry.offset = getZip64Value( aExtra, idx, end );
+        }
+        return;
+      }
+
+      idx += size;
+    }
+  }
+
+  private int readInt() throws IOException
+  {
+    final byte[] buf = new byte[4];
+    this.file.readFully( buf );
+    return getInt( buf, 0 );
+  }
+
+  private long readLong() throws IOException
+  {
+    final byte[] buf = new byte[8];
+    this.file.readFully( buf );
+    return getLong( buf, 0 );
+  }
+
+  private int readShort() throws IOException
+  {
+    final byte[] buf = new byte[2];
+    this.file.readFully( buf );
+    return getShort( buf, 0 );
+  }
+
+  private static int getInt( final byte[] aBuffer, final int aOffset )
+  {
+    return ( aBuffer[aOffset] & 0xFF ) | ( ( aBuffer[aOffset + 1] & 0xFF ) << 8 )
+        | ( ( aBuffer[aOffset + 2] & 0xFF ) << 16 ) | ( ( aBuffer[aOffset + 3] & 0xFF ) << 24 );
+  }
+
+  private static long getLong( final byte[] aBuffer, final int aOffset )
+  {
+    return ( getInt( aBuffer, aOffset ) & 0xFFFFFFFFL ) | ( ( long )getInt( aBuffer, aOffset + 4 ) << 32 );
+  }
+
+  private static int getShort( final byte[] aBuffer, final int aOffset )
+  {
+    return ( aBuffer[aOffset] & 0xFF ) | ( ( aBuffer[aOffset + 1] & 0xFF ) << 8 );
+  }
+
+  private static long getZip64Value( final byte[] aBuffer, final int aOffset, final int aEnd ) throws IOException
+  {
+    if ( ( aOffset + 8 ) > aEnd )
+    {
+      throw new IOException( "Invalid ZIP64 extra field!" );
+    }
+    return getLong( aBuffer, aOffset );
+  }
+}
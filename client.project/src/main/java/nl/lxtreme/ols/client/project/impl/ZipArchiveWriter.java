@@ -0,0 +1,504 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+
+/**
+ * Provides a minimal ZIP-archive writer that, unlike {@link ZipOutputStream},
+ * is able to copy an entry of an existing ZIP-archive verbatim, that is,
+ * without decompressing and recompressing its contents.
+ * <p>
+ * Like {@link ZipOutputStream}, this writer is an output stream itself: all
+ * data written to it ends up (deflated) in the current entry. ZIP64 extensions
+ * are only written for the entries, offsets and central directory that need
+ * them, that is, for archives larger than 4GB.
+ * </p>
+ */
+final class ZipArchiveWriter extends OutputStream
+{
+  // CONSTANTS
+
+  static final int LOCAL_HEADER_SIG = 0x04034b50;
+  static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+  static final int CENTRAL_HEADER_SIG = 0x02014b50;
+  static final int END_OF_CENTRAL_DIR_SIG = 0x06054b50;
+  static final int ZIP64_END_OF_CENTRAL_DIR_SIG = 0x06064b50;
+  static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG = 0x07064b50;
+  static final int ZIP64_EXTRA_ID = 0x0001;
+
+  static final int LOCAL_HEADER_SIZE = 30;
+
+  private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+  private static final int FLAG_UTF8 = 0x0800;
+  private static final int VERSION = 20;
+  private static final int VERSION_ZIP64 = 45;
+
+  static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+  // VARIABLES
+
+  private final OutputStream out;
+  private final List<ZipArchiveEntry> entries;
+  private final Deflater deflater;
+  private final CRC32 crc;
+  private final byte[] buffer;
+  private final long zip64Threshold;
+
+  private ZipArchiveEntry current;
+  private byte[] comment;
+  private long written;
+  private boolean closed;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ZipArchiveWriter} instance.
+   * 
+   * @param aOutput
+   *          the output stream to write the ZIP-archive to, cannot be
+   *          <code>null</code>.
+   */
+  public ZipArchiveWriter( final OutputStream aOutput )
+  {
+    this( aOutput, ZIP64_MAGIC );
+  }
+
+  /**
+   * Creates a new {@link ZipArchiveWriter} instance.
+   * 
+   * @param aOutput
+   *          the output stream to write the ZIP-archive to, cannot be
+   *          <code>null</code>;
+   * @param aZip64Threshold
+   *          the size or offset from which on ZIP64 extensions are written,
+   *          &lt;= 0xFFFFFFFF.
+   */
+  ZipArchiveWriter( final OutputStream aOutput, final long aZip64Threshold )
+  {
+    this.out = aOutput;
+    this.zip64Threshold = aZip64Threshold;
+    this.entries = new ArrayList<ZipArchiveEntry>();
+    this.deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true /* nowrap */);
+    this.crc = new CRC32();
+    this.buffer = new byte[8192];
+    this.comment = new byte[0];
+  }
+
+  // METHODS
+
+  /**
+   * Finishes the current entry, writes the central directory and closes the
+   * underlying output stream.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if ( this.closed )
+    {
+      return;
+    }
+    this.closed = true;
+
+    try
+    {
+      closeEntry();
+
+      final long cdOffset = this.written;
+      for ( ZipArchiveEntry entry : this.entries )
+      {
+        writeCentralHeader( entry );
+      }
+      final long cdSize = this.written - cdOffset;
+      final int count = this.entries.size();
+
+      final boolean zip64 = isZip64( cdOffset ) || isZip64( cdSize ) || ( count >= ZIP64_MAGIC_COUNT );
+      if ( zip64 )
+      {
+        final long zip64EndOffset = this.written;
+
+        writeInt( ZIP64_END_OF_CENTRAL_DIR_SIG );
+        writeLong( 44L ); // size of the remainder of this record
+        writeShort( VERSION_ZIP64 ); // version made by
+        writeShort( VERSION_ZIP64 ); // version needed to extract
+        writeInt( 0 ); // number of this disk
+        writeInt( 0 ); // disk with the start of the central directory
+        writeLong( count );
+        writeLong( count );
+        writeLong( cdSize );
+        writeLong( cdOffset );
+
+        writeInt( ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG );
+        writeInt( 0 ); // disk with the start of the ZIP64 end of central dir
+        writeLong( zip64EndOffset );
+        writeInt( 1 ); // total number of disks
+      }
+
+      writeInt( END_OF_CENTRAL_DIR_SIG );
+      writeShort( 0 ); // number of this disk
+      writeShort( 0 ); // disk with the start of the central directory
+      writeShort( zip64 ? ZIP64_MAGIC_COUNT : count );
+      writeShort( zip64 ? ZIP64_MAGIC_COUNT : count );
+      writeInt( zip64 ? ZIP64_MAGIC : cdSize );
+      writeInt( zip64 ? ZIP64_MAGIC : cdOffset );
+      writeShort( this.comment.length );
+      writeBytes( this.comment, 0, this.comment.length );
+
+      this.out.flush();
+    }
+    finally
+    {
+      this.deflater.end();
+      this.out.close();
+    }
+  }
+
+  /**
+   * Finishes writing the current entry, if any.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void closeEntry() throws IOException
+  {
+    final ZipArchiveEntry entry = this.current;
+    if ( entry == null )
+    {
+      return;
+    }
+
+    this.deflater.finish();
+    while ( !this.deflater.finished() )
+    {
+      deflate();
+    }
+
+    this.current = null;
+
+    entry.crc = this.crc.getValue();
+
+    writeInt( DATA_DESCRIPTOR_SIG );
+    writeInt( entry.crc );
+    if ( isZip64( entry.size ) || isZip64( entry.compressedSize ) )
+    {
+      // Like ZipOutputStream, use 8-byte sizes for large entries...
+      writeLong( entry.compressedSize );
+      writeLong( entry.size );
+    }
+    else
+    {
+      writeInt( entry.compressedSize );
+      writeInt( entry.size );
+    }
+
+    this.deflater.reset();
+    this.crc.reset();
+  }
+
+  /**
+   * Copies the entry with the given name verbatim from the given ZIP-archive.
+   * 
+   * @param aSource
+   *          the ZIP-archive to copy the entry from, cannot be
+   *          <code>null</code>;
+   * @param aName
+   *          the name of the entry to copy, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case the entry does not exist, or in case of I/O problems.
+   */
+  public void copyEntry( final ZipArchiveReader aSource, final String aName ) throws IOException
+  {
+    final ZipArchiveEntry sourceEntry = aSource.getEntry( aName );
+    if ( sourceEntry == null )
+    {
+      throw new IOException( "No such entry: " + aName );
+    }
+
+    closeEntry();
+
+    final ZipArchiveEntry entry = new ZipArchiveEntry( aName, sourceEntry.nameBytes );
+    // Sizes and CRC are known up front, so we do not need a data descriptor...
+    entry.flags = sourceEntry.flags & ~FLAG_DATA_DESCRIPTOR;
+    entry.method = sourceEntry.method;
+    entry.dosTime = sourceEntry.dosTime;
+    entry.crc = sourceEntry.crc;
+    entry.compressedSize = sourceEntry.compressedSize;
+    entry.size = sourceEntry.size;
+
+    writeLocalHeader( entry );
+
+    aSource.copyRawData( sourceEntry, new OutputStream()
+    {
+      @Override
+      public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+      {
+        writeBytes( aBuffer, aOffset, aLength );
+      }
+
+      @Override
+      public void write( final int aByte ) throws IOException
+      {
+        writeBytes( new byte[] { ( byte )aByte }, 0, 1 );
+      }
+    } );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush() throws IOException
+  {
+    this.out.flush();
+  }
+
+  /**
+   * Starts a new (deflated) entry with the given name. All data written to
+   * this stream hereafter ends up in this entry. Any current entry is closed.
+   * 
+   * @param aName
+   *          the name of the entry to start, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void putNextEntry( final String aName ) throws IOException
+  {
+    closeEntry();
+
+    final ZipArchiveEntry entry = new ZipArchiveEntry( aName );
+    entry.flags = FLAG_DATA_DESCRIPTOR | FLAG_UTF8;
+    entry.method = ZipEntry.DEFLATED;
+    entry.dosTime = toDosTime( System.currentTimeMillis() );
+
+    writeLocalHeader( entry );
+
+    this.current = entry;
+  }
+
+  /**
+   * Sets the comment of the ZIP-archive.
+   * 
+   * @param aComment
+   *          the comment to set, can be <code>null</code>.
+   */
+  public void setComment( final String aComment )
+  {
+    this.comment = ( aComment == null ) ? new byte[0] : ZipArchiveEntry.toBytes( aComment );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    final ZipArchiveEntry entry = this.current;
+    if ( entry == null )
+    {
+      throw new IOException( "No current ZIP entry!" );
+    }
+    if ( aLength == 0 )
+    {
+      return;
+    }
+
+    this.crc.update( aBuffer, aOffset, aLength );
+    entry.size += aLength;
+
+    this.deflater.setInput( aBuffer, aOffset, aLength );
+    while ( !this.deflater.needsInput() )
+    {
+      deflate();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final int aByte ) throws IOException
+  {
+    write( new byte[] { ( byte )aByte }, 0, 1 );
+  }
+
+  /**
+   * Converts a Java time value to a MS-DOS date/time value.
+   * 
+   * @param aTime
+   *          the time value to convert, in milliseconds since the epoch.
+   * @return the MS-DOS date/time representation of the given time.
+   */
+  static long toDosTime( final long aTime )
+  {
+    final Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis( aTime );
+
+    final int year = cal.get( Calendar.YEAR );
+    if ( year < 1980 )
+    {
+      return ( 1 << 21 ) | ( 1 << 16 );
+    }
+    return ( ( year - 1980 ) << 25 ) | ( ( cal.get( Calendar.MONTH ) + 1 ) << 21 )
+        | ( cal.get( Calendar.DAY_OF_MONTH ) << 16 ) | ( cal.get( Calendar.HOUR_OF_DAY ) << 11 )
+        | ( cal.get( Calendar.MINUTE ) << 5 ) | ( cal.get( Calendar.SECOND ) >> 1 );
+  }
+
+  /**
+   * Writes the output of the deflater to the current entry.
+   */
+  private void deflate() throws IOException
+  {
+    final int len = this.deflater.deflate( this.buffer, 0, this.buffer.length );
+    if ( len > 0 )
+    {
+      writeBytes( this.buffer, 0, len );
+      this.current.compressedSize += len;
+    }
+  }
+
+  /**
+   * Returns whether the given size or offset needs ZIP64 extensions.
+   */
+  private boolean isZip64( final long aValue )
+  {
+    return aValue >= this.zip64Threshold;
+  }
+
+  /**
+   * Writes the central directory header for the given entry.
+   */
+  private void writeCentralHeader( final ZipArchiveEntry aEntry ) throws IOException
+  {
+    final boolean zip64Size = isZip64( aEntry.size );
+    final boolean zip64CompressedSize = isZip64( aEntry.compressedSize );
+    final boolean zip64Offset = isZip64( aEntry.offset );
+
+    // The ZIP64 extra field only contains the values that do not fit...
+    final int extraLength = ( zip64Size ? 8 : 0 ) + ( zip64CompressedSize ? 8 : 0 ) + ( zip64Offset ? 8 : 0 );
+    final boolean zip64 = extraLength > 0;
+
+    writeInt( CENTRAL_HEADER_SIG );
+    writeShort( zip64 ? VERSION_ZIP64 : VERSION ); // version made by
+    writeShort( zip64 ? VERSION_ZIP64 : VERSION ); // version needed to extract
+    writeShort( aEntry.flags );
+    writeShort( aEntry.method );
+    writeInt( aEntry.dosTime );
+    writeInt( aEntry.crc );
+    writeInt( zip64CompressedSize ? ZIP64_MAGIC : aEntry.compressedSize );
+    writeInt( zip64Size ? ZIP64_MAGIC : aEntry.size );
+    writeShort( aEntry.nameBytes.length );
+    writeShort( zip64 ? ( extraLength + 4 ) : 0 ); // extra field length
+    writeShort( 0 ); // comment length
+    writeShort( 0 ); // disk number start
+    writeShort( 0 ); // internal attributes
+    writeInt( 0 ); // external attributes
+    writeInt( zip64Offset ? ZIP64_MAGIC : aEntry.offset );
+    writeBytes( aEntry.nameBytes, 0, aEntry.nameBytes.length );
+
+    if ( zip64 )
+    {
+      writeShort( ZIP64_EXTRA_ID );
+      writeShort( extraLength );
+      if ( zip64Size )
+      {
+        writeLong( aEntry.size );
+      }
+      if ( zip64CompressedSize )
+      {
+        writeLong( aEntry.compressedSize );
+      }
+      if ( zip64Offset )
+      {
+        writeLong( aEntry.offset );
+      }
+    }
+  }
+
+  /**
+   * Writes the local file header for the given entry, and registers it for the
+   * central directory.
+   */
+  private void writeLocalHeader( final ZipArchiveEntry aEntry ) throws IOException
+  {
+    aEntry.offset = this.written;
+    this.entries.add( aEntry );
+
+    final boolean dataDescriptor = ( aEntry.flags & FLAG_DATA_DESCRIPTOR ) != 0;
+    // The local ZIP64 extra field should contain both sizes...
+    final boolean zip64 = !dataDescriptor && ( isZip64( aEntry.size ) || isZip64( aEntry.compressedSize ) );
+
+    writeInt( LOCAL_HEADER_SIG );
+    writeShort( zip64 ? VERSION_ZIP64 : VERSION );
+    writeShort( aEntry.flags );
+    writeShort( aEntry.method );
+    writeInt( aEntry.dosTime );
+    writeInt( dataDescriptor ? 0L : aEntry.crc );
+    writeInt( dataDescriptor ? 0L : ( zip64 ? ZIP64_MAGIC : aEntry.compressedSize ) );
+    writeInt( dataDescriptor ? 0L : ( zip64 ? ZIP64_MAGIC : aEntry.size ) );
+    writeShort( aEntry.nameBytes.length );
+    writeShort( zip64 ? 20 : 0 ); // extra field length
+    writeBytes( aEntry.nameBytes, 0, aEntry.nameBytes.length );
+
+    if ( zip64 )
+    {
+      writeShort( ZIP64_EXTRA_ID );
+      writeShort( 16 );
+      writeLong( aEntry.size );
+      writeLong( aEntry.compressedSize );
+    }
+  }
+
+  private void writeBytes( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    this.out.write( aBuffer, aOffset, aLength );
+    this.written += aLength;
+  }
+
+  private void writeInt( final long aValue ) throws IOException
+  {
+    this.out.write( ( int )( aValue & 0xFF ) );
+    this.out.write( ( int )( ( aValue >>> 8 ) & 0xFF ) );
+    this.out.write( ( int )( ( aValue >>> 16 ) & 0xFF ) );
+    this.out.write( ( int )( ( aValue >>> 24 ) & 0xFF ) );
+    this.written += 4;
+  }
+
+  private void writeLong( final long aValue ) throws IOException
+  {
+    writeInt( aValue & 0xFFFFFFFFL );
+    writeInt( aValue >>> 32 );
+  }
+
+  private void writeShort( final int aValue ) throws IOException
+  {
+    this.out.write( aValue & 0xFF );
+    this.out.write( ( aValue >>> 8 ) & 0xFF );
+    this.written += 2;
+  }
+}
@@ -29,6 +29,7 @@ import java.util.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.test.*;
 import nl.lxtreme.ols.test.data.*;
 
@@ -155,6 +156,33 @@ public class ProjectImplTest
     ensure.waitForStep( 6, 500 );
   }
 
+  /**
+   * Test method for {@link ProjectImpl#selectAcquisition(int)}.
+   */
+  @Test
+  public void testSelectAcquisition() throws IOException
+  {
+    final AcquisitionResult first = new CapturedData( new int[] { 1, 2, 3 }, new long[] { 0L, 10L, 20L }, 5L,
+        1000000, 8, 0xFF, 21L );
+    final AcquisitionResult second = DataTestUtils.getMockedCapturedData();
+
+    this.project.setCapturedData( first );
+    this.project.setCapturedData( second );
+
+    assertEquals( 2, this.project.getAcquisitionHistorySize() );
+    assertEquals( 0, this.project.getAcquisitionHistoryIndex() );
+
+    this.project.selectAcquisition( 1 );
+
+    assertEquals( 1, this.project.getAcquisitionHistoryIndex() );
+    DataTestUtils.assertEquals( first, this.project.getDataSet().getCapturedData() );
+
+    this.project.selectAcquisition( 0 );
+
+    assertEquals( 0, this.project.getAcquisitionHistoryIndex() );
+    DataTestUtils.assertEquals( second, this.project.getDataSet().getCapturedData() );
+  }
+
   /**
    * Test method for
    * {@link ProjectImpl#setCapturedData(nl.lxtreme.ols.api.data.CapturedData)}.
@@ -0,0 +1,163 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.util.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.util.*;
+
+import org.junit.*;
+import org.osgi.service.log.*;
+
+
+/**
+ * Test cases for {@link ProjectJournal}.
+ */
+public class ProjectJournalTest
+{
+  // VARIABLES
+
+  private File journalFile;
+
+  // METHODS
+
+  /**
+   * @throws java.lang.Exception
+   */
+  @Before
+  public void setUp() throws Exception
+  {
+    this.journalFile = new File( System.getProperty( "java.io.tmpdir" ), UUID.randomUUID().toString() );
+    this.journalFile.deleteOnExit();
+  }
+
+  /**
+   * Tests that a saved project discards the journal.
+   */
+  @Test
+  public void testSavedProjectDiscardsJournalOk() throws Exception
+  {
+    final ProjectManagerImpl projectManager = createProjectManager();
+    final ProjectJournal journal = createJournal( projectManager );
+
+    final AcquisitionResult capturedData = DataTestUtils.getMockedCapturedData();
+    journal.acquisitionComplete( capturedData );
+    projectManager.getCurrentProject().setCapturedData( capturedData );
+    journal.sync();
+
+    assertTrue( this.journalFile.exists() );
+
+    projectManager.saveProject( new ByteArrayOutputStream() );
+    journal.sync();
+
+    assertFalse( this.journalFile.exists() );
+
+    journal.stop();
+  }
+
+  /**
+   * Tests that the journal of an abnormally terminated session is recovered.
+   */
+  @Test
+  public void testRecoverJournalOk() throws Exception
+  {
+    final ProjectManagerImpl projectManager = createProjectManager();
+    final ProjectJournal journal = createJournal( projectManager );
+
+    final AcquisitionResult capturedData = DataTestUtils.getMockedCapturedData();
+    journal.acquisitionComplete( capturedData );
+    projectManager.getCurrentProject().setCapturedData( capturedData );
+
+    final DataSet dataSet = projectManager.getCurrentProject().getDataSet();
+    dataSet.getCursor( 3 ).setTimestamp( 5L );
+    dataSet.getChannel( 1 ).setLabel( "clk" );
+    journal.onAnnotation( new ProjectJournal.RecoveredAnnotation( new ProjectJournal.AnnotationRecord( 2, 1L, 3L,
+        "foo" ) ) );
+
+    journal.sync();
+
+    // Simulate a new session, without stopping the journal...
+    final ProjectManagerImpl newProjectManager = createProjectManager();
+    final ProjectJournal newJournal = createJournal( newProjectManager );
+    newJournal.sync();
+    // The recovered data is restored on the EDT, which rewrites the journal...
+    SwingUtilities.invokeAndWait( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        // Nop
+      }
+    } );
+    newJournal.sync();
+
+    final DataSet recovered = newProjectManager.getCurrentProject().getDataSet();
+    DataTestUtils.assertEquals( capturedData, recovered.getCapturedData() );
+    assertEquals( 5L, recovered.getCursor( 3 ).getTimestamp() );
+    assertEquals( "clk", recovered.getChannel( 1 ).getLabel() );
+
+    final Collection<Annotation<?>> annotations = recovered.getChannel( 2 ).getAnnotations();
+    assertEquals( 1, annotations.size() );
+    assertEquals( "foo", annotations.iterator().next().getAnnotation() );
+
+    // A normal shutdown removes the journal...
+    newJournal.stop();
+
+    assertFalse( this.journalFile.exists() );
+  }
+
+  /**
+   * Creates a new, started, journal for the given project manager.
+   */
+  private ProjectJournal createJournal( final ProjectManagerImpl aProjectManager )
+  {
+    final ProjectJournal journal = new ProjectJournal( this.journalFile );
+    journal.setLog( mock( LogService.class ) );
+    journal.setProjectManager( aProjectManager );
+    journal.start();
+    return journal;
+  }
+
+  /**
+   * Creates a new project manager.
+   */
+  private ProjectManagerImpl createProjectManager()
+  {
+    final HostProperties mockProperties = mock( HostProperties.class );
+    when( mockProperties.getFullName() ).thenReturn( "OLS" );
+
+    final ProjectManagerImpl projectManager = new ProjectManagerImpl();
+    projectManager.setHostProperties( mockProperties );
+    return projectManager;
+  }
+}
@@ -30,6 +30,7 @@ import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.test.data.*;
 import nl.lxtreme.ols.util.*;
 
@@ -141,6 +142,152 @@ public class ProjectManagerImplTest
         .getCapturedData() );
   }
 
+  /**
+   * Tests that resaving a project whose captured data did not change reuses the
+   * captured data from the previously saved project file.
+   */
+  @Test
+  public void testSaveProjectReusesUnchangedDataOk() throws IOException
+  {
+    final AcquisitionResult mockedCapturedData = DataTestUtils.getMockedCapturedData();
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( mockedCapturedData );
+
+    final File file = File.createTempFile( "olstest", ".olp" );
+    file.deleteOnExit();
+
+    FileOutputStream fos = new FileOutputStream( file );
+    this.projectManager.saveProject( fos );
+    project.setFilename( file );
+
+    // Only move a cursor; this should not rewrite the captured data...
+    project.getDataSet().getCursor( 2 ).setTimestamp( 12L );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos, mock( TaskProgressListener.class ) );
+
+    final File copy = File.createTempFile( "olstest", ".olp" );
+    copy.deleteOnExit();
+    fos = new FileOutputStream( copy );
+    fos.write( baos.toByteArray() );
+    fos.close();
+
+    final ZipArchiveReader original = new ZipArchiveReader( file );
+    final ZipArchiveReader resaved = new ZipArchiveReader( copy );
+    try
+    {
+      // A rewritten data.ols would contain the moved cursor as well...
+      assertEquals( original.getEntry( "data.ols" ).crc, resaved.getEntry( "data.ols" ).crc );
+    }
+    finally
+    {
+      original.close();
+      resaved.close();
+    }
+
+    // Make sure everyhing is gone...
+    this.projectManager.createNewProject();
+
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    final DataSet dataSet = this.projectManager.getCurrentProject().getDataSet();
+    DataTestUtils.assertEquals( mockedCapturedData, dataSet.getCapturedData() );
+    assertEquals( 12L, dataSet.getCursor( 2 ).getTimestamp() );
+  }
+
+  /**
+   * Tests that a project is not marked as saved when its ZIP-archive cannot be
+   * finished.
+   */
+  @Test
+  public void testSaveProjectFailsWhenArchiveCannotBeFinishedOk()
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+    assertTrue( project.isChanged() );
+
+    final OutputStream os = new ByteArrayOutputStream( 1024 )
+    {
+      @Override
+      public void close() throws IOException
+      {
+        throw new IOException( "Disk full!" );
+      }
+    };
+
+    try
+    {
+      this.projectManager.saveProject( os );
+      fail( "Expected IOException!" );
+    }
+    catch ( IOException exception )
+    {
+      // Ok; expected...
+    }
+
+    assertTrue( project.isChanged() );
+  }
+
+  /**
+   * Tests that changes made while a project is being saved are written by the
+   * next save, even though the file name is set after the first save.
+   */
+  @Test
+  public void testSaveProjectRetainsChangesMadeWhileSavingOk() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+
+    final File file = File.createTempFile( "olstest", ".olp" );
+    file.deleteOnExit();
+
+    final FileOutputStream fos = new FileOutputStream( file );
+    this.projectManager.saveProject( fos );
+    // Simulate a cursor being moved after the cursors are written, but before
+    // the save is completed...
+    project.getDataSet().getCursor( 1 ).setTimestamp( 7L );
+    project.setFilename( file );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    this.projectManager.createNewProject();
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    assertEquals( 7L, this.projectManager.getCurrentProject().getDataSet().getCursor( 1 ).getTimestamp() );
+  }
+
+  /**
+   * Test method for
+   * {@link ProjectManagerImpl#saveProject(OutputStream, TaskProgressListener)}.
+   */
+  @Test
+  public void testSaveProjectReportsProgressOk() throws IOException
+  {
+    final AcquisitionResult mockedCapturedData = DataTestUtils.getMockedCapturedData();
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( mockedCapturedData );
+
+    final TaskProgressListener listener = mock( TaskProgressListener.class );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos, listener ); // should succeed...
+
+    verify( listener ).setProgress( 0 );
+    verify( listener ).setProgress( 100 );
+
+    // Make sure everyhing is gone...
+    this.projectManager.createNewProject();
+
+    final ByteArrayInputStream bais = new ByteArrayInputStream( baos.toByteArray() );
+    this.projectManager.loadProject( bais );
+
+    DataTestUtils.assertEquals( mockedCapturedData, this.projectManager.getCurrentProject().getDataSet()
+        .getCapturedData() );
+  }
+
   /**
    * Test method for
    * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
@@ -0,0 +1,193 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ZipArchiveWriter} and {@link ZipArchiveReader}.
+ */
+public class ZipArchiveWriterTest
+{
+  // VARIABLES
+
+  private File file;
+  private File copy;
+
+  // METHODS
+
+  /**
+   * Sets up the test cases.
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    this.file = File.createTempFile( "olstest", ".zip" );
+    this.file.deleteOnExit();
+    this.copy = File.createTempFile( "olstest", ".zip" );
+    this.copy.deleteOnExit();
+  }
+
+  /**
+   * Cleans up after the test cases.
+   */
+  @After
+  public void tearDown()
+  {
+    this.file.delete();
+    this.copy.delete();
+  }
+
+  /**
+   * Tests that an archive without ZIP64 extensions can be read back.
+   */
+  @Test
+  public void testWriteAndReadArchiveOk() throws IOException
+  {
+    writeArchive( this.file, ZipArchiveWriter.ZIP64_MAGIC );
+
+    assertArchiveContents( this.file );
+  }
+
+  /**
+   * Tests that an archive with ZIP64 extensions for all entries, offsets and
+   * the central directory can be read back, both by {@link ZipArchiveReader}
+   * and {@link ZipFile}, and that its entries can be copied verbatim.
+   */
+  @Test
+  public void testWriteAndReadZip64ArchiveOk() throws IOException
+  {
+    writeArchive( this.file, 0L );
+
+    assertArchiveContents( this.file );
+
+    final ZipArchiveReader reader = new ZipArchiveReader( this.file );
+    try
+    {
+      final ZipArchiveEntry entry = reader.getEntry( "b.txt" );
+      assertNotNull( entry );
+      assertEquals( 2000L, entry.size );
+      assertTrue( entry.offset > 0L );
+
+      final ZipArchiveWriter writer = new ZipArchiveWriter( new FileOutputStream( this.copy ), 0L );
+      writer.copyEntry( reader, "a.txt" );
+      writer.copyEntry( reader, "b.txt" );
+      writer.close();
+    }
+    finally
+    {
+      reader.close();
+    }
+
+    assertArchiveContents( this.copy );
+  }
+
+  /**
+   * Asserts that the given archive contains the entries written by
+   * {@link #writeArchive(File, long)}.
+   */
+  private void assertArchiveContents( final File aFile ) throws IOException
+  {
+    final ZipFile zipFile = new ZipFile( aFile );
+    try
+    {
+      assertEquals( "hello", readEntry( zipFile, "a.txt" ) );
+      assertEquals( createText( 2000 ), readEntry( zipFile, "b.txt" ) );
+    }
+    finally
+    {
+      zipFile.close();
+    }
+
+    final ZipArchiveReader reader = new ZipArchiveReader( aFile );
+    try
+    {
+      assertEquals( 5L, reader.getEntry( "a.txt" ).size );
+      assertEquals( 2000L, reader.getEntry( "b.txt" ).size );
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  /**
+   * Creates a text of the given length.
+   */
+  private String createText( final int aLength )
+  {
+    final StringBuilder sb = new StringBuilder( aLength );
+    for ( int i = 0; i < aLength; i++ )
+    {
+      sb.append( ( char )( 'a' + ( i % 26 ) ) );
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Reads the contents of the given entry as text.
+   */
+  private String readEntry( final ZipFile aZipFile, final String aName ) throws IOException
+  {
+    final ZipEntry entry = aZipFile.getEntry( aName );
+    assertNotNull( entry );
+
+    final InputStream is = aZipFile.getInputStream( entry );
+    try
+    {
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[1024];
+      int read;
+      while ( ( read = is.read( buffer ) ) >= 0 )
+      {
+        baos.write( buffer, 0, read );
+      }
+      return baos.toString( "UTF-8" );
+    }
+    finally
+    {
+      is.close();
+    }
+  }
+
+  /**
+   * Writes a ZIP-archive with two entries.
+   */
+  private void writeArchive( final File aFile, final long aZip64Threshold ) throws IOException
+  {
+    final ZipArchiveWriter writer = new ZipArchiveWriter( new FileOutputStream( aFile ), aZip64Threshold );
+    writer.setComment( "test" );
+    writer.putNextEntry( "a.txt" );
+    writer.write( "hello".getBytes( "UTF-8" ) );
+    writer.putNextEntry( "b.txt" );
+    writer.write( createText( 2000 ).getBytes( "UTF-8" ) );
+    writer.close();
+  }
+}
+
+/* EOF */
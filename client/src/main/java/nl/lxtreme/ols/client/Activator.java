@@ -29,6 +29,7 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.data.export.*;
 import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.ui.*;
 import nl.lxtreme.ols.client.osgi.*;
@@ -202,7 +203,7 @@ public class Activator extends DependencyActivatorBase
     // All the interfaces we're registering the client controller under...
     serviceNames = new String[] { AcquisitionDataListener.class.getName(), AcquisitionProgressListener.class.getName(),
         AcquisitionStatusListener.class.getName(), AnnotationListener.class.getName(),
-        ApplicationCallback.class.getName() };
+        ApplicationCallback.class.getName(), TaskStatusListener.class.getName() };
 
     // Client controller...
     aManager.add( createComponent() //
@@ -218,6 +219,9 @@ public class Activator extends DependencyActivatorBase
         .add( createServiceDependency() //
             .setService( DataAcquisitionService.class ) //
             .setRequired( true ) ) //
+        .add( createServiceDependency() //
+            .setService( TaskExecutionService.class ) //
+            .setRequired( true ) ) //
         .add( createServiceDependency() //
             .setService( UIColorSchemeManager.class ) //
             .setRequired( true ) ) //
@@ -40,6 +40,7 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.data.export.*;
 import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.ui.*;
 import nl.lxtreme.ols.api.util.*;
@@ -47,6 +48,7 @@ import nl.lxtreme.ols.client.action.*;
 import nl.lxtreme.ols.client.actionmanager.*;
 import nl.lxtreme.ols.client.osgi.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
+import nl.lxtreme.ols.client.task.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.component.*;
@@ -61,7 +63,7 @@ import org.osgi.service.cm.*;
  * Denotes a front-end controller for the client.
  */
 public final class ClientController implements ActionProvider, AcquisitionProgressListener, AcquisitionStatusListener,
-    AcquisitionDataListener, AnnotationListener, ApplicationCallback
+    AcquisitionDataListener, AnnotationListener, ApplicationCallback, TaskStatusListener
 {
   // INNER TYPES
 
@@ -249,6 +251,22 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
     }
   }
 
+  /**
+   * Provides a {@link TaskProgressListener} that reports the progress of
+   * {@link FileTask}s to the main frame.
+   */
+  final class FileTaskProgressListener implements TaskProgressListener
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      ClientController.this.progressAccumulatingRunnable.add( Integer.valueOf( aPercentage ) );
+    }
+  }
+
   /**
    * A runnable implementation that accumulates several calls to avoid an
    * avalanche of events on the EDT.
@@ -283,15 +301,22 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
 
   private final ProgressUpdatingRunnable progressAccumulatingRunnable;
   private final AccumulatingRepaintingRunnable repaintAccumulatingRunnable;
+  private final FileTaskProgressListener fileTaskProgressListener;
 
   private volatile ProjectManager projectManager;
   private volatile DataAcquisitionService dataAcquisitionService;
+  private volatile TaskExecutionService taskExecutionService;
   private volatile MainFrame mainFrame;
   private volatile HostProperties hostProperties;
   private volatile UIColorSchemeManager colorSchemeManager;
 
   private volatile long acquisitionStartTime;
 
+  private volatile FileTask fileTask;
+  private volatile Future<File> fileTaskFuture;
+  private volatile boolean fileTaskStarted;
+  private volatile SelectCaptureTask selectCaptureTask;
+
   // CONSTRUCTORS
 
   /**
@@ -329,6 +354,7 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
 
     this.progressAccumulatingRunnable = new ProgressUpdatingRunnable();
     this.repaintAccumulatingRunnable = new AccumulatingRepaintingRunnable();
+    this.fileTaskProgressListener = new FileTaskProgressListener();
   }
 
   // METHODS
@@ -518,6 +544,35 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
     }
   }
 
+  /**
+   * Cancels the file operation that is currently running in the background,
+   * if any.
+   */
+  public void cancelFileOperation()
+  {
+    final Future<File> future = this.fileTaskFuture;
+    if ( future == null )
+    {
+      setStatusOnEDT( "No file operation in progress!" );
+      return;
+    }
+
+    if ( future.cancel( true /* mayInterruptIfRunning */) )
+    {
+      // A running task is only finished once it has been interrupted, which is
+      // signalled by taskFailed; a task that never started won't signal...
+      if ( !this.fileTaskStarted )
+      {
+        this.fileTask = null;
+        this.fileTaskFuture = null;
+      }
+
+      setStatusOnEDT( "File operation cancelled ..." );
+    }
+
+    updateActionsOnEDT();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -639,39 +694,33 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
 
   /**
    * Exports the current data set to a file using an {@link Exporter} with a
-   * given name.
+   * given name in the background.
+   * <p>
+   * The export can be cancelled in the same way as other file operations, see
+   * {@link #cancelFileOperation()}.
+   * </p>
    * 
    * @param aExporterName
    *          the name of the exporter to use, cannot be <code>null</code>;
    * @param aExportFile
    *          the file to export the results to, cannot be <code>null</code>.
-   * @throws IOException
-   *           in case of I/O problems during the export.
    */
-  public void exportTo( final String aExporterName, final File aExportFile ) throws IOException
+  public void exportTo( final String aExporterName, final File aExportFile )
   {
     if ( this.mainFrame == null )
     {
       return;
     }
 
-    OutputStream writer = null;
-
-    try
+    final Exporter exporter = getExporter( aExporterName );
+    if ( exporter == null )
     {
-      writer = new FileOutputStream( aExportFile );
-
-      final Exporter exporter = getExporter( aExporterName );
-      exporter.export( getCurrentDataSet(), this.mainFrame.getDiagramScrollPane(), writer );
-
-      setStatusOnEDT( "Export to {0} succesful ...", aExporterName );
+      setStatusOnEDT( "No such exporter: {0} ...", aExporterName );
+      return;
     }
-    finally
-    {
-      HostUtils.closeResource( writer );
 
-      updateActionsOnEDT();
-    }
+    executeFileTask( new ExportTask( aExportFile, exporter, getCurrentDataSet(),
+        this.mainFrame.getDiagramScrollPane(), this.fileTaskProgressListener ) );
   }
 
   /**
@@ -921,6 +970,18 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
     updateActionsOnEDT();
   }
 
+  /**
+   * Returns whether a capture is being restored from the acquisition history
+   * in the background.
+   * 
+   * @return <code>true</code> if a capture is being restored,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isCaptureSelectionInProgress()
+  {
+    return this.selectCaptureTask != null;
+  }
+
   /**
    * Returns whether or not a device is selected.
    * 
@@ -970,58 +1031,38 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
   }
 
   /**
-   * Opens a given file as OLS-data file.
+   * Returns whether or not a file operation (load or save) is currently running
+   * in the background.
+   * 
+   * @return <code>true</code> if a file operation is in progress,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isFileOperationInProgress()
+  {
+    // A cancelled future is done directly, even if its task is still running...
+    return this.fileTask != null;
+  }
+
+  /**
+   * Opens a given file as OLS-data file in the background.
    * 
    * @param aFile
    *          the file to open, cannot be <code>null</code>.
-   * @throws IOException
-   *           in case opening/reading from the given file failed.
    */
-  public void openDataFile( final File aFile ) throws IOException
+  public void openDataFile( final File aFile )
   {
-    final FileReader reader = new FileReader( aFile );
-
-    try
-    {
-      getCurrentProject().readData( reader );
-
-      setStatusOnEDT( "Capture data loaded from {0} ...", aFile.getName() );
-    }
-    finally
-    {
-      HostUtils.closeResource( reader );
-      updateActionsOnEDT();
-    }
+    executeFileTask( new OpenDataFileTask( aFile, getCurrentProject(), this.fileTaskProgressListener ) );
   }
 
   /**
-   * Opens a given file as OLS-project file.
+   * Opens a given file as OLS-project file in the background.
    * 
    * @param aFile
    *          the file to open, cannot be <code>null</code>.
-   * @throws IOException
-   *           in case opening/reading from the given file failed.
    */
-  public void openProjectFile( final File aFile ) throws IOException
+  public void openProjectFile( final File aFile )
   {
-    FileInputStream fis = null;
-
-    try
-    {
-      fis = new FileInputStream( aFile );
-
-      this.projectManager.loadProject( fis );
-
-      final Project project = getCurrentProject();
-      project.setFilename( aFile );
-
-      setStatusOnEDT( "Project {0} loaded ...", project.getName() );
-    }
-    finally
-    {
-      HostUtils.closeResource( fis );
-      updateActionsOnEDT();
-    }
+    executeFileTask( new OpenProjectTask( aFile, this.projectManager, this.fileTaskProgressListener ) );
   }
 
   /**
@@ -1180,58 +1221,71 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
   }
 
   /**
-   * Stores the current acquisition data to the given file, in the OLS-data file
-   * format.
+   * Shows another capture from the acquisition history of the current project.
    * 
-   * @param aFile
-   *          the file to write the data to, cannot be <code>null</code>.
-   * @throws IOException
-   *           in case of errors during opening/writing to the file.
+   * @param aOffset
+   *          the offset relative to the current capture, a positive value
+   *          selects an older capture, a negative value a newer one.
    */
-  public void saveDataFile( final File aFile ) throws IOException
+  public void selectCapture( final int aOffset )
   {
-    final FileWriter writer = new FileWriter( aFile );
-    try
+    final Project project = getCurrentProject();
+    if ( project == null )
     {
-      getCurrentProject().writeData( writer );
+      return;
+    }
 
-      setStatusOnEDT( "Capture data saved to {0} ...", aFile.getName() );
+    final int size = project.getAcquisitionHistorySize();
+    final int index = Math.max( -1, project.getAcquisitionHistoryIndex() ) + aOffset;
+    if ( ( index < 0 ) || ( index >= size ) )
+    {
+      return;
     }
-    finally
+
+    if ( isCaptureSelectionInProgress() )
+    {
+      // Ignore; the actions are enabled again once the capture is restored...
+      return;
+    }
+    if ( isFileOperationInProgress() )
     {
-      HostUtils.closeResource( writer );
+      setStatusOnEDT( "Another file operation is still in progress!" );
+      return;
     }
+
+    // Restoring a capture involves inflating it completely, so do this in the
+    // background...
+    final SelectCaptureTask task = new SelectCaptureTask( project, index );
+    this.selectCaptureTask = task;
+    this.taskExecutionService.execute( task );
+
+    updateActionsOnEDT();
+  }
+
+  /**
+   * Stores the current acquisition data to the given file, in the OLS-data file
+   * format, in the background.
+   * 
+   * @param aFile
+   *          the file to write the data to, cannot be <code>null</code>.
+   */
+  public void saveDataFile( final File aFile )
+  {
+    executeFileTask( new SaveDataFileTask( aFile, getCurrentProject(), this.fileTaskProgressListener ) );
   }
 
   /**
    * Stores the current acquisition data to the given file, in the OLS-project
-   * file format.
+   * file format, in the background.
    * 
    * @param aName
    *          the name of the project to store, cannot be <code>null</code>;
    * @param aFile
    *          the file to write the data to, cannot be <code>null</code>.
-   * @throws IOException
-   *           in case of errors during opening/writing to the file.
    */
-  public void saveProjectFile( final String aName, final File aFile ) throws IOException
+  public void saveProjectFile( final String aName, final File aFile )
   {
-    FileOutputStream out = null;
-    try
-    {
-      final Project project = getCurrentProject();
-      project.setFilename( aFile );
-      project.setName( aName );
-
-      out = new FileOutputStream( aFile );
-      this.projectManager.saveProject( out );
-
-      setStatusOnEDT( "Project {0} saved ...", aName );
-    }
-    finally
-    {
-      HostUtils.closeResource( out );
-    }
+    executeFileTask( new SaveProjectTask( aFile, aName, this.projectManager, this.fileTaskProgressListener ) );
   }
 
   /**
@@ -1396,6 +1450,103 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
     } );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <RT> void taskEnded( final Task<RT> aTask, final RT aResult )
+  {
+    if ( aTask == this.fileTask )
+    {
+      this.fileTask = null;
+      this.fileTaskFuture = null;
+
+      setStatusOnEDT( ( ( FileTask )aTask ).getStatusMessage() );
+      updateActionsOnEDT();
+    }
+    else if ( aTask == this.selectCaptureTask )
+    {
+      this.selectCaptureTask = null;
+
+      setStatusOnEDT( ( ( SelectCaptureTask )aTask ).getStatusMessage() );
+      updateActionsOnEDT();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <RT> void taskFailed( final Task<RT> aTask, final Exception aException )
+  {
+    if ( aTask == this.fileTask )
+    {
+      this.fileTask = null;
+      this.fileTaskFuture = null;
+
+      // Make sure to handle IO-interrupted exceptions properly!
+      if ( HostUtils.handleInterruptedException( aException ) )
+      {
+        setStatusOnEDT( "File operation cancelled ..." );
+      }
+      else
+      {
+        final String message = ( ( FileTask )aTask ).getFailureMessage();
+
+        LOG.log( Level.WARNING, message, aException );
+
+        setStatusOnEDT( message );
+        SwingComponentUtils.invokeOnEDT( new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            JErrorDialog.showDialog( getMainFrame(), message, aException );
+          }
+        } );
+      }
+
+      updateActionsOnEDT();
+    }
+    else if ( aTask == this.selectCaptureTask )
+    {
+      this.selectCaptureTask = null;
+
+      final String message = ( ( SelectCaptureTask )aTask ).getFailureMessage();
+
+      LOG.log( Level.WARNING, message, aException );
+
+      setStatusOnEDT( message );
+      SwingComponentUtils.invokeOnEDT( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          JErrorDialog.showDialog( getMainFrame(), message, aException );
+        }
+      } );
+
+      updateActionsOnEDT();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <RT> void taskStarted( final Task<RT> aTask )
+  {
+    if ( aTask == this.fileTask )
+    {
+      this.fileTaskStarted = true;
+    }
+
+    if ( ( aTask == this.fileTask ) || ( aTask == this.selectCaptureTask ) )
+    {
+      updateActionsOnEDT();
+    }
+  }
+
   /**
    * Returns the current data set.
    * 
@@ -1580,11 +1731,26 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
         final boolean deviceControllerSet = ( device != null );
         final boolean deviceCapturing = ( acquisitionService != null ) && acquisitionService.isAcquiring();
         final boolean deviceSetup = deviceControllerSet && !deviceCapturing && device.isSetup();
+        final boolean fileOperationInProgress = isFileOperationInProgress();
 
         getAction( CaptureAction.ID ).setEnabled( deviceControllerSet );
-        getAction( CancelCaptureAction.ID ).setEnabled( deviceCapturing );
+        getAction( CancelCaptureAction.ID ).setEnabled( deviceCapturing || fileOperationInProgress );
         getAction( RepeatCaptureAction.ID ).setEnabled( deviceSetup );
 
+        final Project project = getCurrentProject();
+        final int historyIndex = ( project == null ) ? -1 : project.getAcquisitionHistoryIndex();
+        final int historySize = ( project == null ) ? 0 : project.getAcquisitionHistorySize();
+
+        final boolean canSelectCapture = !deviceCapturing && !fileOperationInProgress
+            && !isCaptureSelectionInProgress();
+
+        getAction( SelectCaptureAction.getPreviousID() ).setEnabled( canSelectCapture
+            && ( historyIndex < ( historySize - 1 ) ) );
+        getAction( SelectCaptureAction.getNextID() ).setEnabled( canSelectCapture && ( historyIndex > 0 ) );
+
+        getAction( OpenProjectAction.ID ).setEnabled( !fileOperationInProgress );
+        getAction( OpenDataFileAction.ID ).setEnabled( !fileOperationInProgress );
+
         final boolean projectChanged = isProjectChanged();
         final boolean projectSavedBefore = !isAnonymousProject();
         final boolean dataAvailable = hasCapturedData();
@@ -1592,9 +1758,10 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
         final boolean cursorsEnabled = areCursorsEnabled();
         final boolean enableCursors = dataAvailable && cursorsEnabled;
 
-        getAction( SaveProjectAction.ID ).setEnabled( projectChanged );
-        getAction( SaveProjectAsAction.ID ).setEnabled( projectSavedBefore && projectChanged );
-        getAction( SaveDataFileAction.ID ).setEnabled( dataAvailable );
+        getAction( SaveProjectAction.ID ).setEnabled( projectChanged && !fileOperationInProgress );
+        getAction( SaveProjectAsAction.ID ).setEnabled( projectSavedBefore && projectChanged
+            && !fileOperationInProgress );
+        getAction( SaveDataFileAction.ID ).setEnabled( dataAvailable && !fileOperationInProgress );
 
         getAction( GotoTriggerAction.ID ).setEnabled( dataAvailable && hasTriggerData );
 
@@ -1724,6 +1891,28 @@ public final class ClientController implements ActionProvider, AcquisitionProgre
     return cursor.isDefined();
   }
 
+  /**
+   * Executes the given file task in the background, unless another file task is
+   * still in progress.
+   * 
+   * @param aTask
+   *          the file task to execute, cannot be <code>null</code>.
+   */
+  private void executeFileTask( final FileTask aTask )
+  {
+    if ( isFileOperationInProgress() )
+    {
+      setStatusOnEDT( "Another file operation is still in progress!" );
+      return;
+    }
+
+    this.fileTask = aTask;
+    this.fileTaskStarted = false;
+    this.fileTaskFuture = this.taskExecutionService.execute( aTask );
+
+    updateActionsOnEDT();
+  }
+
   /**
    * Creates the tool context denoting the range of samples that should be
    * analysed by a tool.
@@ -1022,6 +1022,9 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
     captureMenu.add( this.controller.getAction( RepeatCaptureAction.ID ) );
     captureMenu.add( this.controller.getAction( CancelCaptureAction.ID ) );
     captureMenu.addSeparator();
+    captureMenu.add( this.controller.getAction( SelectCaptureAction.getPreviousID() ) );
+    captureMenu.add( this.controller.getAction( SelectCaptureAction.getNextID() ) );
+    captureMenu.addSeparator();
     captureMenu.add( this.deviceMenu );
 
     final JMenu diagramMenu = bar.add( new JMenu( "Diagram" ) );
@@ -62,6 +62,15 @@ public class CancelCaptureAction extends BaseAction
   @Override
   public void actionPerformed( final ActionEvent aEvent )
   {
-    getController().cancelCapture();
+    final ClientController controller = getController();
+    // Also allows a running file operation to be cancelled...
+    if ( controller.isFileOperationInProgress() )
+    {
+      controller.cancelFileOperation();
+    }
+    else
+    {
+      controller.cancelCapture();
+    }
   }
 }
@@ -30,9 +30,8 @@ import javax.swing.filechooser.*;
 import javax.swing.filechooser.FileFilter;
 
 import nl.lxtreme.ols.client.*;
-import nl.lxtreme.ols.util.*;
+import nl.lxtreme.ols.client.task.*;
 import nl.lxtreme.ols.util.swing.*;
-import nl.lxtreme.ols.util.swing.component.*;
 
 
 /**
@@ -51,6 +50,8 @@ public class OpenDataFileAction extends BaseAction
   public static final String OLS_FILE_EXTENSION = "ols";
   public static final FileFilter OLS_FILEFILTER = new FileNameExtensionFilter( "OpenLogic Sniffer data file",
       OLS_FILE_EXTENSION );
+  public static final FileFilter VCD_FILEFILTER = new FileNameExtensionFilter( "Value change dump",
+      OpenDataFileTask.VCD_FILE_EXTENSION );
 
   // CONSTRUCTORS
 
@@ -76,24 +77,12 @@ public class OpenDataFileAction extends BaseAction
   {
     final Window owner = SwingComponentUtils.getOwningWindow( aEvent );
 
-    final File file = SwingComponentUtils.showFileOpenDialog( owner, OLS_FILEFILTER );
+    final File file = SwingComponentUtils.showFileOpenDialog( owner, OLS_FILEFILTER, VCD_FILEFILTER );
     if ( file != null )
     {
       LOG.log( Level.INFO, "Loading capture data from file {0}", file );
 
-      try
-      {
-        getController().openDataFile( file );
-      }
-      catch ( IOException exception )
-      {
-        // Make sure to handle IO-interrupted exceptions properly!
-        if ( !HostUtils.handleInterruptedException( exception ) )
-        {
-          LOG.log( Level.WARNING, "Loading OLS file failed!", exception );
-          JErrorDialog.showDialog( owner, "Loading the capture data failed!", exception );
-        }
-      }
+      getController().openDataFile( file );
     }
   }
 }
@@ -30,9 +30,7 @@ import javax.swing.filechooser.*;
 import javax.swing.filechooser.FileFilter;
 
 import nl.lxtreme.ols.client.*;
-import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
-import nl.lxtreme.ols.util.swing.component.*;
 
 
 /**
@@ -93,19 +91,7 @@ public class OpenProjectAction extends BaseAction
     {
       LOG.log( Level.INFO, "Loading project data from file: {0}", file );
 
-      try
-      {
-        controller.openProjectFile( file );
-      }
-      catch ( IOException exception )
-      {
-        // Make sure to handle IO-interrupted exceptions properly!
-        if ( !HostUtils.handleInterruptedException( exception ) )
-        {
-          LOG.log( Level.WARNING, "Loading OLS project failed!", exception );
-          JErrorDialog.showDialog( parent, "Loading the project data failed!", exception );
-        }
-      }
+      controller.openProjectFile( file );
     }
   }
 }
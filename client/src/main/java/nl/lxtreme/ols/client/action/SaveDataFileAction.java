@@ -29,7 +29,6 @@ import java.util.logging.*;
 import nl.lxtreme.ols.client.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
-import nl.lxtreme.ols.util.swing.component.*;
 
 
 /**
@@ -76,19 +75,7 @@ public class SaveDataFileAction extends BaseAction
 
       LOG.log( Level.INFO, "Saving capture data to file {0}", actualFile );
 
-      try
-      {
-        getController().saveDataFile( actualFile );
-      }
-      catch ( IOException exception )
-      {
-        // Make sure to handle IO-interrupted exceptions properly!
-        if ( !HostUtils.handleInterruptedException( exception ) )
-        {
-          LOG.log( Level.WARNING, "Saving capture data failed!", exception );
-          JErrorDialog.showDialog( owner, "Saving the capture data failed!", exception );
-        }
-      }
+      getController().saveDataFile( actualFile );
     }
   }
 }
@@ -0,0 +1,132 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.action;
+
+
+import java.awt.event.*;
+
+import nl.lxtreme.ols.client.*;
+import nl.lxtreme.ols.util.swing.*;
+
+
+/**
+ * Provides an action that shows the previous or next capture from the
+ * acquisition history of the current project.
+ */
+public class SelectCaptureAction extends BaseAction
+{
+  // INNER TYPES
+
+  /**
+   * Denotes in which direction the acquisition history is browsed.
+   */
+  public static enum Direction
+  {
+    PREVIOUS, NEXT;
+  }
+
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  // VARIABLES
+
+  private final Direction direction;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new SelectCaptureAction instance.
+   * 
+   * @param aDirection
+   *          the direction in which to browse the acquisition history;
+   * @param aController
+   *          the controller to use for this action.
+   */
+  public SelectCaptureAction( final Direction aDirection, final ClientController aController )
+  {
+    super( getID( aDirection ), aController, getTitle( aDirection ), getDescription( aDirection ) );
+
+    this.direction = aDirection;
+
+    final boolean previous = ( aDirection == Direction.PREVIOUS );
+    putValue( ACCELERATOR_KEY,
+        SwingComponentUtils.createMenuKeyMask( previous ? KeyEvent.VK_OPEN_BRACKET : KeyEvent.VK_CLOSE_BRACKET ) );
+    putValue( MNEMONIC_KEY, Integer.valueOf( previous ? KeyEvent.VK_P : KeyEvent.VK_N ) );
+  }
+
+  // METHODS
+
+  /**
+   * @return the ID of the action showing the next capture.
+   */
+  public static String getNextID()
+  {
+    return getID( Direction.NEXT );
+  }
+
+  /**
+   * @return the ID of the action showing the previous capture.
+   */
+  public static String getPreviousID()
+  {
+    return getID( Direction.PREVIOUS );
+  }
+
+  /**
+   * @param aDirection
+   * @return
+   */
+  private static String getDescription( final Direction aDirection )
+  {
+    return String.format( "Show the %s capture from the acquisition history", aDirection.name().toLowerCase() );
+  }
+
+  /**
+   * @param aDirection
+   * @return
+   */
+  private static String getID( final Direction aDirection )
+  {
+    return String.format( "SelectCapture%s", aDirection.name() );
+  }
+
+  /**
+   * @param aDirection
+   * @return
+   */
+  private static String getTitle( final Direction aDirection )
+  {
+    return String.format( "Show %s capture", aDirection.name().toLowerCase() );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void actionPerformed( final ActionEvent aEvent )
+  {
+    // The history is ordered from new to old...
+    getController().selectCapture( ( this.direction == Direction.PREVIOUS ) ? 1 : -1 );
+  }
+}
+
+/* EOF */
@@ -69,6 +69,9 @@ public final class ActionManagerFactory
     aActionManager.add( new CaptureAction( aController ) ).setEnabled( false );
     aActionManager.add( new CancelCaptureAction( aController ) ).setEnabled( false );
     aActionManager.add( new RepeatCaptureAction( aController ) ).setEnabled( false );
+    aActionManager.add( new SelectCaptureAction( SelectCaptureAction.Direction.PREVIOUS, aController ) ).setEnabled(
+        false );
+    aActionManager.add( new SelectCaptureAction( SelectCaptureAction.Direction.NEXT, aController ) ).setEnabled( false );
 
     aActionManager.add( new ZoomInAction( signalDiagramController ) ).setEnabled( false );
     aActionManager.add( new ZoomOutAction( signalDiagramController ) ).setEnabled( false );
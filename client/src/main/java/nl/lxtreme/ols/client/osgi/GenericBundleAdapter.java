@@ -30,7 +30,9 @@ import org.osgi.service.log.*;
 
 /**
  * Provides a bundle adapter that instantiates a service from a bundle with a
- * particular magic key-value header.
+ * particular magic key-value header. The header value can list multiple
+ * (comma-separated) classes, in which case a service is registered for each of
+ * them.
  */
 public class GenericBundleAdapter<TYPE>
 {
@@ -41,7 +43,7 @@ public class GenericBundleAdapter<TYPE>
 
   private volatile Bundle bundle; // = adapted bundle
   private volatile DependencyManager manager; // injected
-  private volatile Component serviceComponent; // = added service
+  private final List<Component> serviceComponents; // = added services
 
   // CONSTRUCTORS
 
@@ -52,6 +54,7 @@ public class GenericBundleAdapter<TYPE>
   {
     this.serviceClass = aClass;
     this.headerKey = aHeaderKey;
+    this.serviceComponents = new ArrayList<Component>();
   }
 
   // METHODS
@@ -61,10 +64,11 @@ public class GenericBundleAdapter<TYPE>
    */
   public void destroy( final Component aComponent ) throws Exception
   {
-    if ( this.serviceComponent != null )
+    for ( Component serviceComponent : this.serviceComponents )
     {
-      this.manager.remove( this.serviceComponent );
+      this.manager.remove( serviceComponent );
     }
+    this.serviceComponents.clear();
   }
 
   /**
@@ -80,18 +84,27 @@ public class GenericBundleAdapter<TYPE>
       throw new IllegalArgumentException( "No such header given: " + this.headerKey );
     }
 
-    Class<?> implClass = this.bundle.loadClass( entry );
+    for ( String className : entry.split( "," ) )
+    {
+      if ( "".equals( className.trim() ) )
+      {
+        continue;
+      }
 
-    Properties serviceProps = copyOlsProperties( bundleProps );
+      Class<?> implClass = this.bundle.loadClass( className.trim() );
 
-    this.serviceComponent = this.manager.createComponent() //
-        .setInterface( this.serviceClass.getName(), serviceProps ) //
-        .setImplementation( implClass ) //
-        .add( this.manager.createServiceDependency() //
-            .setService( LogService.class ) //
-            .setRequired( false ) //
-        );
-    this.manager.add( this.serviceComponent );
+      Properties serviceProps = copyOlsProperties( bundleProps );
+
+      Component serviceComponent = this.manager.createComponent() //
+          .setInterface( this.serviceClass.getName(), serviceProps ) //
+          .setImplementation( implClass ) //
+          .add( this.manager.createServiceDependency() //
+              .setService( LogService.class ) //
+              .setRequired( false ) //
+          );
+      this.manager.add( serviceComponent );
+      this.serviceComponents.add( serviceComponent );
+    }
   }
 
   /**
@@ -0,0 +1,444 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import java.awt.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
+import nl.lxtreme.ols.client.signaldisplay.signalelement.SignalElement.*;
+
+
+/**
+ * Caches pre-rendered, fixed-width tiles of signal elements, so that scrolling
+ * and overlay changes (cursors, measurements) do not need to re-rasterize all
+ * signal transitions on the EDT.
+ * <p>
+ * Tiles are rendered by a small pool of background threads. The cache is bound
+ * to a "render context" (zoom factor, data set, rendering settings), and is
+ * flushed as soon as this context changes.
+ * </p>
+ */
+final class SignalTileCache
+{
+  // INNER TYPES
+
+  /**
+   * Renders the contents of a single tile.
+   */
+  static interface TileRenderer
+  {
+    /**
+     * Renders the tile denoted by the given key.
+     * 
+     * @param aKey
+     *          the key of the tile to render, never <code>null</code>.
+     * @return the rendered tile, can be <code>null</code> in case the tile
+     *         could not be rendered.
+     */
+    Image renderTile( TileKey aKey );
+  }
+
+  /**
+   * Identifies a single tile: a column of a signal element in a certain
+   * appearance.
+   */
+  static final class TileKey
+  {
+    // VARIABLES
+
+    private final SignalElement element;
+    private final int column;
+    private final SignalElementType type;
+    private final int color;
+    private final int mask;
+    private final int height;
+    private final int signalHeight;
+    private final int offset;
+    private final boolean enabled;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new TileKey instance.
+     * 
+     * @param aElement
+     *          the signal element to create a tile key for;
+     * @param aColumn
+     *          the column of the tile.
+     */
+    TileKey( final SignalElement aElement, final int aColumn )
+    {
+      this.element = aElement;
+      this.column = aColumn;
+      this.type = aElement.getType();
+      this.color = aElement.getColor().getRGB();
+      this.mask = aElement.getMask();
+      this.height = aElement.getHeight();
+      this.signalHeight = aElement.getSignalHeight();
+      // The offset is only defined for digital signals...
+      this.offset = aElement.isDigitalSignal() ? aElement.getOffset() : 0;
+      this.enabled = aElement.isEnabled();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof TileKey ) )
+      {
+        return false;
+      }
+
+      final TileKey other = ( TileKey )aObject;
+      return ( this.column == other.column ) && ( this.type == other.type ) && ( this.color == other.color )
+          && ( this.mask == other.mask ) && ( this.height == other.height )
+          && ( this.signalHeight == other.signalHeight ) && ( this.offset == other.offset )
+          && ( this.enabled == other.enabled ) && this.element.equals( other.element );
+    }
+
+    /**
+     * Returns the column of this tile.
+     * 
+     * @return a column index, >= 0.
+     */
+    public int getColumn()
+    {
+      return this.column;
+    }
+
+    /**
+     * Returns the signal element this tile is for.
+     * 
+     * @return a signal element, never <code>null</code>.
+     */
+    public SignalElement getElement()
+    {
+      return this.element;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      final int prime = 31;
+      int result = this.element.hashCode();
+      result = ( prime * result ) + this.column;
+      result = ( prime * result ) + this.color;
+      result = ( prime * result ) + this.mask;
+      result = ( prime * result ) + this.height;
+      return result;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The width of a single tile, in pixels. */
+  static final int TILE_WIDTH = 256;
+  /** The default minimal number of tiles to keep. */
+  static final int DEFAULT_MIN_TILES = 512;
+
+  private static volatile ExecutorService sharedExecutor;
+
+  // VARIABLES
+
+  private final Executor executor;
+  private final Map<TileKey, Image> tiles;
+  private final Set<TileKey> pending;
+  private final int minTiles;
+
+  private Object context;
+  private int maxTiles;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new SignalTileCache instance using a shared pool of background
+   * rendering threads.
+   */
+  public SignalTileCache()
+  {
+    this( getSharedExecutor(), DEFAULT_MIN_TILES );
+  }
+
+  /**
+   * Creates a new SignalTileCache instance.
+   * 
+   * @param aExecutor
+   *          the executor to render the tiles with, cannot be <code>null</code>
+   *          ;
+   * @param aMinTiles
+   *          the minimal number of tiles to keep, > 0. The cache grows beyond
+   *          this to hold twice the working set given to
+   *          {@link #setContext(Object, int)}.
+   */
+  SignalTileCache( final Executor aExecutor, final int aMinTiles )
+  {
+    this.executor = aExecutor;
+    this.minTiles = aMinTiles;
+    this.maxTiles = aMinTiles;
+    this.tiles = new LinkedHashMap<TileKey, Image>( 16, 0.75f, true /* accessOrder */)
+    {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( final Map.Entry<TileKey, Image> aEldest )
+      {
+        return size() > SignalTileCache.this.maxTiles;
+      }
+    };
+    this.pending = new HashSet<TileKey>();
+  }
+
+  // METHODS
+
+  /**
+   * Returns the column of the tile containing the given X-coordinate.
+   * 
+   * @param aX
+   *          the X-coordinate, in pixels.
+   * @return a tile column index.
+   */
+  public static int getColumn( final int aX )
+  {
+    return ( int )Math.floor( aX / ( double )TILE_WIDTH );
+  }
+
+  /**
+   * Returns the shared executor used to render the tiles in the background.
+   */
+  private static ExecutorService getSharedExecutor()
+  {
+    if ( sharedExecutor == null )
+    {
+      synchronized ( SignalTileCache.class )
+      {
+        if ( sharedExecutor == null )
+        {
+          final int threads = Math.max( 1, Runtime.getRuntime().availableProcessors() / 2 );
+          sharedExecutor = Executors.newFixedThreadPool( threads, new ThreadFactory()
+          {
+            private final AtomicInteger count = new AtomicInteger( 0 );
+
+            @Override
+            public Thread newThread( final Runnable aRunnable )
+            {
+              final Thread thread = new Thread( aRunnable, "SignalTileRenderer-" + this.count.incrementAndGet() );
+              thread.setDaemon( true );
+              thread.setPriority( Thread.NORM_PRIORITY - 1 );
+              return thread;
+            }
+          } );
+        }
+      }
+    }
+    return sharedExecutor;
+  }
+
+  /**
+   * Removes all tiles from this cache.
+   */
+  public synchronized void clear()
+  {
+    this.context = null;
+    this.tiles.clear();
+    this.pending.clear();
+  }
+
+  /**
+   * Returns the tile denoted by the given key.
+   * 
+   * @param aKey
+   *          the key of the tile to return, cannot be <code>null</code>.
+   * @return the tile, or <code>null</code> if no such tile is (yet) rendered.
+   */
+  public synchronized Image getTile( final TileKey aKey )
+  {
+    return this.tiles.get( aKey );
+  }
+
+  /**
+   * Returns the maximum number of tiles this cache currently keeps.
+   * 
+   * @return a tile count, > 0.
+   */
+  public synchronized int getMaxTileCount()
+  {
+    return this.maxTiles;
+  }
+
+  /**
+   * Returns the number of currently cached tiles.
+   * 
+   * @return a tile count, >= 0.
+   */
+  public synchronized int getTileCount()
+  {
+    return this.tiles.size();
+  }
+
+  /**
+   * Requests the tile denoted by the given key to be rendered in the
+   * background. Tiles that are already cached or being rendered are not
+   * requested again.
+   * 
+   * @param aKey
+   *          the key of the tile to render, cannot be <code>null</code>;
+   * @param aRenderer
+   *          the renderer to use, cannot be <code>null</code>;
+   * @param aCallback
+   *          the (optional) callback to invoke when the tile is rendered, can
+   *          be <code>null</code>.
+   */
+  public void requestTile( final TileKey aKey, final TileRenderer aRenderer, final Runnable aCallback )
+  {
+    final Object requestContext;
+    synchronized ( this )
+    {
+      if ( this.tiles.containsKey( aKey ) || !this.pending.add( aKey ) )
+      {
+        return;
+      }
+      requestContext = this.context;
+    }
+
+    this.executor.execute( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        Image tile = null;
+        try
+        {
+          if ( isCurrentContext( requestContext ) )
+          {
+            tile = aRenderer.renderTile( aKey );
+          }
+        }
+        finally
+        {
+          if ( storeTile( requestContext, aKey, tile ) && ( aCallback != null ) )
+          {
+            aCallback.run();
+          }
+        }
+      }
+    } );
+  }
+
+  /**
+   * Binds this cache to the given render context, using its minimal size. In
+   * case the context differs from the current one, all cached tiles are
+   * flushed.
+   * 
+   * @param aContext
+   *          the render context to use, cannot be <code>null</code>.
+   * @return <code>true</code> if the cache was flushed, <code>false</code>
+   *         otherwise.
+   */
+  public boolean setContext( final Object aContext )
+  {
+    return setContext( aContext, 0 );
+  }
+
+  /**
+   * Binds this cache to the given render context, and sizes it to hold (at
+   * least) twice the given working set. In case the context differs from the
+   * current one, all cached tiles are flushed.
+   * 
+   * @param aContext
+   *          the render context to use, cannot be <code>null</code>;
+   * @param aWorkingSetSize
+   *          the number of tiles needed to paint the visible area, >= 0.
+   * @return <code>true</code> if the cache was flushed, <code>false</code>
+   *         otherwise.
+   */
+  public synchronized boolean setContext( final Object aContext, final int aWorkingSetSize )
+  {
+    this.maxTiles = ( int )Math.max( this.minTiles, Math.min( Integer.MAX_VALUE, 2L * aWorkingSetSize ) );
+
+    // Shrink the cache in case it is larger than needed...
+    final Iterator<TileKey> iter = this.tiles.keySet().iterator();
+    while ( ( this.tiles.size() > this.maxTiles ) && iter.hasNext() )
+    {
+      iter.next();
+      iter.remove();
+    }
+
+    if ( aContext.equals( this.context ) )
+    {
+      return false;
+    }
+
+    this.context = aContext;
+    this.tiles.clear();
+    this.pending.clear();
+    return true;
+  }
+
+  /**
+   * @return <code>true</code> if the given context is the current context,
+   *         <code>false</code> otherwise.
+   */
+  synchronized boolean isCurrentContext( final Object aContext )
+  {
+    return ( aContext != null ) && aContext.equals( this.context );
+  }
+
+  /**
+   * Stores a rendered tile, provided that it was rendered for the current
+   * context.
+   * 
+   * @return <code>true</code> if the tile is stored, <code>false</code>
+   *         otherwise.
+   */
+  synchronized boolean storeTile( final Object aContext, final TileKey aKey, final Image aTile )
+  {
+    if ( !isCurrentContext( aContext ) )
+    {
+      return false;
+    }
+
+    this.pending.remove( aKey );
+    if ( aTile == null )
+    {
+      return false;
+    }
+
+    this.tiles.put( aKey, aTile );
+    return true;
+  }
+}
+
+/* EOF */
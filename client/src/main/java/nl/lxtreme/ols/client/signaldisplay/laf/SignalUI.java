@@ -21,6 +21,7 @@ package nl.lxtreme.ols.client.signaldisplay.laf;
 
 
 import java.awt.*;
+import java.awt.image.*;
 
 import javax.swing.*;
 import javax.swing.plaf.*;
@@ -28,6 +29,7 @@ import javax.swing.plaf.*;
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
+import nl.lxtreme.ols.client.signaldisplay.laf.SignalTileCache.*;
 import nl.lxtreme.ols.client.signaldisplay.model.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
 import nl.lxtreme.ols.client.signaldisplay.util.*;
@@ -39,8 +41,101 @@ import nl.lxtreme.ols.client.signaldisplay.view.*;
  */
 public class SignalUI extends ComponentUI
 {
+  // INNER TYPES
+
+  /**
+   * Captures all settings, except those of the signal elements themselves,
+   * that determine how signals are rendered. Tiles rendered in one render
+   * context are not valid in another one.
+   */
+  static final class RenderContext
+  {
+    // VARIABLES
+
+    final int[] values;
+    final long[] timestamps;
+    final double zoomFactor;
+    final int sampleIncr;
+    final int elementSpacing;
+    final Font groupSummaryFont;
+    final int groupSummaryPadding;
+    final Color groupSummaryBarColor;
+    final boolean groupSummaryAA;
+    final boolean scopeAA;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new RenderContext instance.
+     * 
+     * @param aModel
+     *          the model to take the render settings from;
+     * @param aSampleIncr
+     *          the sample increment for sloppy painting, >= 1.
+     */
+    RenderContext( final SignalViewModel aModel, final int aSampleIncr )
+    {
+      this.values = aModel.getDataValues();
+      this.timestamps = aModel.getTimestamps();
+      this.zoomFactor = aModel.getZoomFactor();
+      this.sampleIncr = aSampleIncr;
+      this.elementSpacing = aModel.getSignalElementSpacing();
+      this.groupSummaryFont = aModel.getGroupSummaryTextFont();
+      this.groupSummaryPadding = aModel.getGroupSummaryPadding();
+      this.groupSummaryBarColor = aModel.getGroupSummaryBarColor();
+      this.groupSummaryAA = aModel.isRenderGroupSummaryAntiAliased();
+      this.scopeAA = aModel.isRenderScopeSignalAntiAliased();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof RenderContext ) )
+      {
+        return false;
+      }
+
+      final RenderContext other = ( RenderContext )aObject;
+      // The data arrays are compared by identity; a new acquisition always
+      // yields new arrays...
+      return ( this.values == other.values ) && ( this.timestamps == other.timestamps )
+          && ( Double.compare( this.zoomFactor, other.zoomFactor ) == 0 ) && ( this.sampleIncr == other.sampleIncr )
+          && ( this.elementSpacing == other.elementSpacing ) && this.groupSummaryFont.equals( other.groupSummaryFont )
+          && ( this.groupSummaryPadding == other.groupSummaryPadding )
+          && this.groupSummaryBarColor.equals( other.groupSummaryBarColor )
+          && ( this.groupSummaryAA == other.groupSummaryAA ) && ( this.scopeAA == other.scopeAA );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      final int prime = 31;
+      int result = System.identityHashCode( this.values );
+      result = ( prime * result ) + System.identityHashCode( this.timestamps );
+      final long zoomBits = Double.doubleToLongBits( this.zoomFactor );
+      result = ( prime * result ) + ( int )( zoomBits ^ ( zoomBits >>> 32 ) );
+      result = ( prime * result ) + this.sampleIncr;
+      return result;
+    }
+  }
+
   // CONSTANTS
 
+  /** The width of the cached tiles, in pixels. */
+  private static final int TILE_WIDTH = SignalTileCache.TILE_WIDTH;
+
   /** The maximum number of points in a polyline. */
   private static final int POINT_COUNT = 1000000;
   /**
@@ -55,8 +150,13 @@ public class SignalUI extends ComponentUI
   private volatile MeasurementInfo measurementInfo;
   private volatile Rectangle measurementRect;
 
+  private final SignalTileCache tileCache = new SignalTileCache();
+
+  /** Only to be used on the EDT. */
   private static final int[] x = new int[2 * POINT_COUNT];
   private static final int[] y = new int[2 * POINT_COUNT];
+  /** Polyline buffers for the background tile renderers. */
+  private static final ThreadLocal<int[][]> renderBuffers = new ThreadLocal<int[][]>();
 
   // METHODS
 
@@ -105,6 +205,365 @@ public class SignalUI extends ComponentUI
     return hints;
   }
 
+  /**
+   * Creates a callback that repaints the area of a tile once it is rendered.
+   * 
+   * @param aView
+   *          the view to repaint;
+   * @param aKey
+   *          the key of the tile to repaint;
+   * @param aTileHeight
+   *          the height of the tile.
+   */
+  private static Runnable createRepaintCallback( final SignalView aView, final TileKey aKey, final int aTileHeight )
+  {
+    return new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        aView.repaint( aKey.getColumn() * TILE_WIDTH, aKey.getElement().getYposition(), TILE_WIDTH, aTileHeight );
+      }
+    };
+  }
+
+  /**
+   * Creates a renderer for the tiles of a single column.
+   * 
+   * @param aContext
+   *          the render context to use;
+   * @param aConfiguration
+   *          the graphics configuration to create compatible images for, can
+   *          be <code>null</code>;
+   * @param aTileHeight
+   *          the height of the tile;
+   * @param aStartIdx
+   *          the first sample index of the tile column;
+   * @param aEndIdx
+   *          the last sample index of the tile column.
+   */
+  private static TileRenderer createTileRenderer( final RenderContext aContext,
+      final GraphicsConfiguration aConfiguration, final int aTileHeight, final int aStartIdx, final int aEndIdx )
+  {
+    return new TileRenderer()
+    {
+      @Override
+      public Image renderTile( final TileKey aKey )
+      {
+        final BufferedImage image;
+        if ( aConfiguration != null )
+        {
+          image = aConfiguration.createCompatibleImage( TILE_WIDTH, aTileHeight, Transparency.TRANSLUCENT );
+        }
+        else
+        {
+          image = new BufferedImage( TILE_WIDTH, aTileHeight, BufferedImage.TYPE_INT_ARGB );
+        }
+
+        final Rectangle tileRect = new Rectangle( aKey.getColumn() * TILE_WIDTH, 0, TILE_WIDTH, aTileHeight );
+        final int[][] buffer = getRenderBuffer( ( 2 * ( aEndIdx - aStartIdx ) ) + 4 );
+
+        final Graphics2D canvas = image.createGraphics();
+        try
+        {
+          canvas.translate( -tileRect.x, 0 );
+          canvas.setClip( tileRect );
+
+          paintSignalElement( canvas, aContext, aKey.getElement(), tileRect, aStartIdx, aEndIdx, buffer[0], buffer[1] );
+        }
+        finally
+        {
+          canvas.dispose();
+        }
+
+        return image;
+      }
+    };
+  }
+
+  /**
+   * Returns the polyline buffers for the current (background) thread, as the
+   * static buffers may only be used on the EDT.
+   * 
+   * @param aSize
+   *          the minimal size of the buffers.
+   * @return an array with the X- and Y-coordinate buffers.
+   */
+  private static int[][] getRenderBuffer( final int aSize )
+  {
+    final int size = Math.min( 2 * POINT_COUNT, Math.max( 4, aSize ) );
+
+    int[][] buffer = renderBuffers.get();
+    if ( ( buffer == null ) || ( buffer[0].length < size ) )
+    {
+      buffer = new int[][] { new int[size], new int[size] };
+      renderBuffers.set( buffer );
+    }
+    return buffer;
+  }
+
+  /**
+   * Determines the sample increment used for "sloppy" painting of group
+   * summaries and scopes. This is decided upon the number of samples in the
+   * entire visible area, in order to let all tiles use the same increment.
+   * 
+   * @param aView
+   *          the view to paint;
+   * @param aModel
+   *          the model to use.
+   * @return a sample increment, >= 1.
+   */
+  private static int getSampleIncrement( final SignalView aView, final SignalViewModel aModel )
+  {
+    if ( !aModel.isSloppyScopeRenderingAllowed() )
+    {
+      return 1;
+    }
+
+    final Rectangle visibleRect = aView.getVisibleRect();
+    final int sampleCount = aModel.getEndIndex( visibleRect, aModel.getDataValues().length )
+        - aModel.getStartIndex( visibleRect );
+    if ( sampleCount <= SLOPPY_DRAW_THRESHOLD )
+    {
+      return 1;
+    }
+    return ( int )Math.max( 1.0, ( 1.0 / aModel.getZoomFactor() ) );
+  }
+
+  /**
+   * Returns the number of tiles needed to paint the given visible area,
+   * including the prefetched columns on either side of it.
+   * 
+   * @param aModel
+   *          the model to use, cannot be <code>null</code>;
+   * @param aVisibleRect
+   *          the visible area of the view, cannot be <code>null</code>.
+   * @return a tile count, >= 0.
+   */
+  private static int getWorkingSetSize( final SignalViewModel aModel, final Rectangle aVisibleRect )
+  {
+    int elementCount = 0;
+    for ( SignalElement signalElement : aModel.getSignalElements( aVisibleRect.y, aVisibleRect.height ) )
+    {
+      if ( !signalElement.isSignalGroup() )
+      {
+        elementCount++;
+      }
+    }
+
+    final int columnCount = SignalTileCache.getColumn( ( aVisibleRect.x + aVisibleRect.width ) - 1 )
+        - SignalTileCache.getColumn( aVisibleRect.x ) + 1;
+
+    return ( columnCount + 2 ) * elementCount;
+  }
+
+  /**
+   * Paints a single signal element, which is either a digital signal, a group
+   * summary or an analogue scope signal.
+   * 
+   * @param aCanvas
+   *          the canvas to paint on, translated to the top of the signal
+   *          element;
+   * @param aContext
+   *          the render context to use;
+   * @param aSignalElement
+   *          the signal element to paint;
+   * @param aClip
+   *          the area to paint, in the coordinates of the signal element;
+   * @param aStartIdx
+   *          the first sample index to paint;
+   * @param aEndIdx
+   *          the last sample index to paint;
+   * @param aX
+   *          the buffer for the X-coordinates of the polylines;
+   * @param aY
+   *          the buffer for the Y-coordinates of the polylines.
+   */
+  private static void paintSignalElement( final Graphics2D aCanvas, final RenderContext aContext,
+      final SignalElement aSignalElement, final Rectangle aClip, final int aStartIdx, final int aEndIdx,
+      final int[] aX, final int[] aY )
+  {
+    final int[] values = aContext.values;
+    final long[] timestamps = aContext.timestamps;
+    final double zoomFactor = aContext.zoomFactor;
+    final int sampleIncr = aContext.sampleIncr;
+    final int pointCount = Math.min( POINT_COUNT, aX.length - 2 );
+
+    aCanvas.setColor( aSignalElement.getColor() );
+
+    if ( aSignalElement.isDigitalSignal() )
+    {
+      int signalHeight = aSignalElement.getSignalHeight();
+      int signalOffset = aSignalElement.getOffset();
+
+      // Tell Swing how we would like to render ourselves...
+      aCanvas.setRenderingHints( createSignalRenderingHints( false /* aUseAA */) );
+
+      aCanvas.translate( 0, signalOffset );
+
+      if ( !aSignalElement.isEnabled() || ( aStartIdx == aEndIdx ) )
+      {
+        // Forced zero'd channel is *very* easy to draw...
+        aCanvas.drawLine( aClip.x, signalHeight, aClip.x + aClip.width, signalHeight );
+      }
+      else
+      {
+        // "Normal" data set; draw as accurate as possible...
+        final int mask = aSignalElement.getMask();
+
+        // Make sure we always start with time 0...
+        long timestamp = timestamps[aStartIdx];
+        int prevSampleValue = ( values[aStartIdx] & mask );
+
+        int xValue = ( int )( zoomFactor * timestamp );
+        int yValue = ( prevSampleValue == 0 ? signalHeight : 0 );
+
+        aX[0] = xValue;
+        aY[0] = yValue;
+        int p = 1;
+
+        for ( int sampleIdx = aStartIdx + 1; ( p < pointCount ) && ( sampleIdx <= aEndIdx ); sampleIdx++ )
+        {
+          timestamp = timestamps[sampleIdx];
+          int sampleValue = ( values[sampleIdx] & mask );
+
+          xValue = ( int )( zoomFactor * timestamp );
+
+          if ( prevSampleValue != sampleValue )
+          {
+            aX[p] = xValue;
+            aY[p] = ( prevSampleValue == 0 ? signalHeight : 0 );
+            p++;
+          }
+
+          aX[p] = xValue;
+          aY[p] = ( sampleValue == 0 ? signalHeight : 0 );
+          p++;
+
+          prevSampleValue = sampleValue;
+        }
+
+        aCanvas.drawPolyline( aX, aY, p );
+      }
+
+      // Move back to the original position...
+      aCanvas.translate( 0, -signalOffset );
+    }
+
+    if ( aSignalElement.isGroupSummary() )
+    {
+      // Tell Swing how we would like to render ourselves...
+      aCanvas.setRenderingHints( createSignalRenderingHints( aContext.groupSummaryAA ) );
+
+      int mask = aSignalElement.getMask();
+
+      int padding = aContext.groupSummaryPadding;
+
+      // Extend the painted range to whole cells, otherwise the texts of cells
+      // crossing the clip boundaries would end up at different positions...
+      int startIdx = aStartIdx;
+      while ( ( startIdx > 0 ) && ( ( values[startIdx - 1] & mask ) == ( values[startIdx] & mask ) ) )
+      {
+        startIdx--;
+      }
+      int endIdx = Math.max( 1, aEndIdx );
+      while ( ( endIdx < values.length ) && ( ( values[endIdx] & mask ) == ( values[endIdx - 1] & mask ) ) )
+      {
+        endIdx++;
+      }
+      endIdx = Math.min( values.length, endIdx + 1 );
+
+      int prevSampleValue = values[startIdx] & mask;
+      int prevX = ( int )( zoomFactor * timestamps[startIdx] );
+
+      aCanvas.setFont( aContext.groupSummaryFont );
+
+      FontMetrics fm = aCanvas.getFontMetrics();
+      int textYpos = ( int )( ( aSignalElement.getHeight() + fm.getLeading() + fm.getMaxAscent() ) / 2.0 ) - padding;
+
+      for ( int sampleIdx = startIdx + 1; sampleIdx < endIdx; sampleIdx += sampleIncr )
+      {
+        int sampleValue = ( values[sampleIdx] & mask );
+
+        if ( sampleValue != prevSampleValue )
+        {
+          int x = ( int )( zoomFactor * timestamps[sampleIdx] );
+
+          String text = String.format( "%02X", Integer.valueOf( prevSampleValue ) );
+
+          int textWidth = fm.stringWidth( text ) + ( 2 * padding );
+          int cellWidth = x - prevX;
+          if ( textWidth < cellWidth )
+          {
+            int textXpos = prevX + ( int )( ( cellWidth - textWidth ) / 2.0 ) + padding;
+
+            aCanvas.setColor( aSignalElement.getColor() );
+
+            aCanvas.drawString( text, textXpos, textYpos );
+          }
+
+          aCanvas.setColor( aContext.groupSummaryBarColor );
+
+          // draw a small line...
+          aCanvas.drawLine( x, padding, x, aSignalElement.getHeight() - padding );
+
+          prevX = x;
+        }
+
+        prevSampleValue = sampleValue;
+      }
+    }
+
+    if ( aSignalElement.isAnalogSignal() )
+    {
+      // Tell Swing how we would like to render ourselves...
+      aCanvas.setRenderingHints( createSignalRenderingHints( aContext.scopeAA ) );
+
+      aCanvas.setColor( aSignalElement.getColor() );
+
+      long mask = aSignalElement.getMask() & 0xFFFFFFFFL;
+      final int trailingZeros = Long.numberOfTrailingZeros( mask );
+      final int onesCount = Long.SIZE - Long.numberOfLeadingZeros( mask ) - trailingZeros;
+      final long maxValue = ( ( 1L << onesCount ) - 1L ) & 0xFFFFFFFFL;
+      double scaleFactor = ( maxValue == 0L ) ? 1.0 : aSignalElement.getHeight() / ( double )maxValue;
+
+      // Make sure we always start with time 0...
+      int p = 0;
+      if ( aStartIdx == aEndIdx )
+      {
+        aX[p] = aClip.x;
+        aY[p] = aSignalElement.getHeight();
+        p++;
+      }
+      else
+      {
+        for ( int sampleIdx = aStartIdx; ( p < pointCount ) && ( sampleIdx < aEndIdx ); sampleIdx += sampleIncr )
+        {
+          long timestamp = timestamps[sampleIdx];
+
+          int sampleValue = ( int )( ( values[sampleIdx] & mask ) >> trailingZeros );
+          final int i_max = Math.min( aEndIdx, ( sampleIdx + sampleIncr ) - 1 );
+          for ( int i = sampleIdx + 1; i < i_max; i++ )
+          {
+            sampleValue += ( ( values[i] & mask ) >> trailingZeros );
+          }
+          sampleValue = ( int )( maxValue - ( sampleValue / ( double )sampleIncr ) );
+
+          aX[p] = ( int )( zoomFactor * timestamp );
+          aY[p] = ( int )( scaleFactor * sampleValue );
+          p++;
+        }
+      }
+
+      // Make sure we end at the last visible sample index...
+      aX[p] = aClip.x + aClip.width;
+      aY[p] = aY[p - 1];
+      p++;
+
+      aCanvas.drawPolyline( aX, aY, p );
+    }
+  }
+
   /**
    * Returns the current value of measurementRect.
    * 
@@ -168,7 +627,7 @@ public class SignalUI extends ComponentUI
       {
         if ( signalElements.length > 0 )
         {
-          paintSignals( canvas, model, signalElements );
+          paintSignals( canvas, view, model, signalElements );
         }
       }
       finally
@@ -202,6 +661,17 @@ public class SignalUI extends ComponentUI
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void uninstallUI( final JComponent aComponent )
+  {
+    this.tileCache.clear();
+
+    super.uninstallUI( aComponent );
+  }
+
   /**
    * Returns the stroke to use to render the annotation lines.
    * 
@@ -410,16 +880,22 @@ public class SignalUI extends ComponentUI
 
   /**
    * Paints the individual signal channels, group bytes and analogue scope
-   * signals.
+   * signals. The signal elements are composed of pre-rendered tiles; tiles
+   * that are not (yet) available are requested to be rendered in the
+   * background, and painted directly in the meantime. Areas outside the
+   * visible part of the view (for example, when exporting the view as image)
+   * are always painted directly.
    * 
    * @param aCanvas
    *          the canvas to paint on, cannot be <code>null</code>;
+   * @param aView
+   *          the view to paint, cannot be <code>null</code>;
    * @param aModel
    *          the model to use, cannot be <code>null</code>;
    * @param aSignalElements
    *          the signal elements to draw, cannot be <code>null</code> or empty!
    */
-  private void paintSignals( final Graphics2D aCanvas, final SignalViewModel aModel,
+  private void paintSignals( final Graphics2D aCanvas, final SignalView aView, final SignalViewModel aModel,
       final SignalElement[] aSignalElements )
   {
     final int[] values = aModel.getDataValues();
@@ -448,189 +924,111 @@ public class SignalUI extends ComponentUI
       }
     }
 
-    // Start drawing at the correct position in the clipped region...
-    aCanvas.translate( 0, aSignalElements[0].getYposition() );
-
-    final boolean enableSloppyScopePainting = aModel.isSloppyScopeRenderingAllowed();
-    int lastP = 0;
+    final RenderContext context = new RenderContext( aModel, getSampleIncrement( aView, aModel ) );
 
-    for ( SignalElement signalElement : aSignalElements )
+    final Rectangle visibleRect = aView.getVisibleRect();
+    if ( !visibleRect.contains( clip ) )
     {
-      aCanvas.setColor( signalElement.getColor() );
-
-      if ( signalElement.isSignalGroup() )
-      {
-        // Draw nothing...
-      }
-
-      if ( signalElement.isDigitalSignal() )
+      // Not painting (only) what is on screen; paint directly, as to not evict
+      // the on-screen tiles from the cache...
+      for ( SignalElement signalElement : aSignalElements )
       {
-        int signalHeight = signalElement.getSignalHeight();
-        int signalOffset = signalElement.getOffset();
-
-        // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( false /* aUseAA */) );
-
-        aCanvas.translate( 0, signalOffset );
-
-        if ( !signalElement.isEnabled() || ( startIdx == endIdx ) )
+        if ( signalElement.isSignalGroup() )
         {
-          // Forced zero'd channel is *very* easy to draw...
-          aCanvas.drawLine( clip.x, signalHeight, clip.x + clip.width, signalHeight );
+          // Draw nothing...
+          continue;
         }
-        else
-        {
-          // "Normal" data set; draw as accurate as possible...
-          final int mask = signalElement.getMask();
-
-          // Make sure we always start with time 0...
-          long timestamp = timestamps[startIdx];
-          int prevSampleValue = ( values[startIdx] & mask );
-
-          int xValue = ( int )( zoomFactor * timestamp );
-          int yValue = ( prevSampleValue == 0 ? signalHeight : 0 );
 
-          x[0] = xValue;
-          y[0] = yValue;
-          int p = 1;
+        final int tileHeight = signalElement.getHeight() + context.elementSpacing;
+        final Rectangle elementRect = new Rectangle( clip.x, 0, clip.width, tileHeight );
 
-          for ( int sampleIdx = startIdx + 1; ( p < POINT_COUNT ) && ( sampleIdx <= endIdx ); sampleIdx++ )
-          {
-            timestamp = timestamps[sampleIdx];
-            int sampleValue = ( values[sampleIdx] & mask );
-
-            xValue = ( int )( zoomFactor * timestamp );
-
-            if ( prevSampleValue != sampleValue )
-            {
-              x[p] = xValue;
-              y[p] = ( prevSampleValue == 0 ? signalHeight : 0 );
-              p++;
-            }
-
-            x[p] = xValue;
-            y[p] = ( sampleValue == 0 ? signalHeight : 0 );
-            p++;
-
-            prevSampleValue = sampleValue;
-          }
-
-          aCanvas.drawPolyline( x, y, p );
+        final Graphics2D canvas = ( Graphics2D )aCanvas.create();
+        try
+        {
+          canvas.translate( 0, signalElement.getYposition() );
 
-          lastP = ( int )( ( p * 0.1 ) + ( lastP * 0.9 ) );
+          paintSignalElement( canvas, context, signalElement, elementRect, startIdx, endIdx, x, y );
+        }
+        finally
+        {
+          canvas.dispose();
         }
-
-        // Move back to the original position...
-        aCanvas.translate( 0, -signalOffset );
       }
+      return;
+    }
 
-      int sampleIncr = 1;
-      if ( enableSloppyScopePainting && ( lastP > SLOPPY_DRAW_THRESHOLD ) )
-      {
-        sampleIncr = ( int )Math.max( 1.0, ( 1.0 / zoomFactor ) );
-      }
+    this.tileCache.setContext( context, getWorkingSetSize( aModel, visibleRect ) );
 
-      if ( signalElement.isGroupSummary() )
-      {
-        // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( aModel.isRenderGroupSummaryAntiAliased() ) );
+    final GraphicsConfiguration gc = aView.getGraphicsConfiguration();
 
-        int mask = signalElement.getMask();
+    final int firstColumn = SignalTileCache.getColumn( clip.x );
+    final int lastColumn = SignalTileCache.getColumn( ( clip.x + clip.width ) - 1 );
+    // Prefetch the tiles directly left and right of the clip as well, as to
+    // make scrolling more smoothly...
+    final int fromColumn = Math.max( 0, firstColumn - 1 );
+    final int toColumn = Math.max( lastColumn, Math.min( SignalTileCache.getColumn( aView.getWidth() - 1 ),
+        lastColumn + 1 ) );
 
-        int padding = aModel.getGroupSummaryPadding();
+    final int columnCount = ( toColumn - fromColumn ) + 1;
+    final int[] columnStartIdx = new int[columnCount];
+    final int[] columnEndIdx = new int[columnCount];
+    for ( int i = 0; i < columnCount; i++ )
+    {
+      final Rectangle tileRect = new Rectangle( ( fromColumn + i ) * TILE_WIDTH, 0, TILE_WIDTH, 1 );
+      columnStartIdx[i] = aModel.getStartIndex( tileRect );
+      columnEndIdx[i] = aModel.getEndIndex( tileRect, values.length );
+    }
 
-        int prevSampleValue = values[startIdx] & mask;
-        int prevX = ( int )( zoomFactor * timestamps[startIdx] );
+    for ( SignalElement signalElement : aSignalElements )
+    {
+      if ( signalElement.isSignalGroup() )
+      {
+        // Draw nothing...
+        continue;
+      }
 
-        aCanvas.setFont( aModel.getGroupSummaryTextFont() );
+      final int yPos = signalElement.getYposition();
+      final int tileHeight = signalElement.getHeight() + context.elementSpacing;
 
-        FontMetrics fm = aCanvas.getFontMetrics();
-        int textYpos = ( int )( ( signalElement.getHeight() + fm.getLeading() + fm.getMaxAscent() ) / 2.0 ) - padding;
+      for ( int i = 0; i < columnCount; i++ )
+      {
+        final int column = fromColumn + i;
+        final boolean visible = ( column >= firstColumn ) && ( column <= lastColumn );
 
-        for ( int sampleIdx = startIdx + 1; sampleIdx < endIdx; sampleIdx += sampleIncr )
+        final TileKey key = new TileKey( signalElement, column );
+        final Image tile = this.tileCache.getTile( key );
+        if ( tile != null )
         {
-          int sampleValue = ( values[sampleIdx] & mask );
-
-          if ( sampleValue != prevSampleValue )
+          if ( visible )
           {
-            int x = ( int )( zoomFactor * timestamps[sampleIdx] );
-
-            String text = String.format( "%02X", Integer.valueOf( prevSampleValue ) );
-
-            int textWidth = fm.stringWidth( text ) + ( 2 * padding );
-            int cellWidth = x - prevX;
-            if ( textWidth < cellWidth )
-            {
-              int textXpos = prevX + ( int )( ( cellWidth - textWidth ) / 2.0 ) + padding;
-
-              aCanvas.setColor( signalElement.getColor() );
-
-              aCanvas.drawString( text, textXpos, textYpos );
-            }
-
-            aCanvas.setColor( aModel.getGroupSummaryBarColor() );
-
-            // draw a small line...
-            aCanvas.drawLine( x, padding, x, signalElement.getHeight() - padding );
-
-            prevX = x;
+            aCanvas.drawImage( tile, column * TILE_WIDTH, yPos, null );
           }
-
-          prevSampleValue = sampleValue;
+          continue;
         }
-      }
-
-      if ( signalElement.isAnalogSignal() )
-      {
-        // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( aModel.isRenderScopeSignalAntiAliased() ) );
-
-        aCanvas.setColor( signalElement.getColor() );
 
-        long mask = signalElement.getMask() & 0xFFFFFFFFL;
-        final int trailingZeros = Long.numberOfTrailingZeros( mask );
-        final int onesCount = Long.SIZE - Long.numberOfLeadingZeros( mask ) - trailingZeros;
-        final long maxValue = ( ( 1L << onesCount ) - 1L ) & 0xFFFFFFFFL;
-        double scaleFactor = ( maxValue == 0L ) ? 1.0 : signalElement.getHeight() / ( double )maxValue;
+        this.tileCache.requestTile( key,
+            createTileRenderer( context, gc, tileHeight, columnStartIdx[i], columnEndIdx[i] ),
+            createRepaintCallback( aView, key, tileHeight ) );
 
-        // Make sure we always start with time 0...
-        int p = 0;
-        if ( startIdx == endIdx )
+        if ( visible )
         {
-          x[p] = clip.x;
-          y[p] = signalElement.getHeight();
-          p++;
-        }
-        else
-        {
-          for ( int sampleIdx = startIdx; ( p < POINT_COUNT ) && ( sampleIdx < endIdx ); sampleIdx += sampleIncr )
-          {
-            long timestamp = timestamps[sampleIdx];
+          // Tile is not yet available; paint this part of the signal directly...
+          final Rectangle tileRect = new Rectangle( column * TILE_WIDTH, 0, TILE_WIDTH, tileHeight );
 
-            int sampleValue = ( int )( ( values[sampleIdx] & mask ) >> trailingZeros );
-            final int i_max = Math.min( endIdx, ( sampleIdx + sampleIncr ) - 1 );
-            for ( int i = sampleIdx + 1; i < i_max; i++ )
-            {
-              sampleValue += ( ( values[i] & mask ) >> trailingZeros );
-            }
-            sampleValue = ( int )( maxValue - ( sampleValue / ( double )sampleIncr ) );
+          final Graphics2D canvas = ( Graphics2D )aCanvas.create();
+          try
+          {
+            canvas.translate( 0, yPos );
+            canvas.clipRect( tileRect.x, tileRect.y, tileRect.width, tileRect.height );
 
-            x[p] = ( int )( zoomFactor * timestamp );
-            y[p] = ( int )( scaleFactor * sampleValue );
-            p++;
+            paintSignalElement( canvas, context, signalElement, tileRect, columnStartIdx[i], columnEndIdx[i], x, y );
+          }
+          finally
+          {
+            canvas.dispose();
           }
         }
-
-        // Make sure we end at the last visible sample index...
-        x[p] = clip.x + clip.width;
-        y[p] = y[p - 1];
-        p++;
-
-        aCanvas.drawPolyline( x, y, p );
       }
-
-      // advance to the next element...
-      aCanvas.translate( 0, signalElement.getHeight() + aModel.getSignalElementSpacing() );
     }
   }
 }
@@ -50,7 +50,7 @@ import nl.lxtreme.ols.util.swing.component.*;
  * signals, such as frequency, # of pulses and so on.
  */
 public class MeasurementView extends AbstractViewLayer implements IToolWindow, ISignalElementChangeListener,
-    ICursorChangeListener, IMeasurementListener
+    ICursorChangeListener, IDataModelChangeListener, IMeasurementListener
 {
   // INNER TYPES
 
@@ -141,6 +141,164 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
     }
   }
 
+  /**
+   * Provides the edges of a single channel, together with the total low- and
+   * high-time up to each edge. It is built once per capture and channel, after
+   * which the pulse statistics between any two samples are determined with two
+   * binary searches and a few subtractions.
+   */
+  static final class EdgeIndex
+  {
+    // VARIABLES
+
+    private final AcquisitionResult result;
+    /** the sample indexes of all edges of the channel. */
+    private final int[] edges;
+    /** whether the first edge is a rising edge, edges alternate afterwards. */
+    private final boolean firstEdgeRising;
+    /** total low-time of all periods that end before the n-th edge. */
+    private final long[] lowTimes;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link EdgeIndex} instance.
+     * 
+     * @param aResult
+     *          the acquisition result to index;
+     * @param aIndex
+     *          the index of the channel to index.
+     */
+    public EdgeIndex( final AcquisitionResult aResult, final int aIndex )
+    {
+      final int mask = ( 1 << aIndex );
+      final int[] values = aResult.getValues();
+      final long[] timestamps = aResult.getTimestamps();
+
+      int count = 0;
+      for ( int i = 1; i < values.length; i++ )
+      {
+        if ( ( ( values[i] ^ values[i - 1] ) & mask ) != 0 )
+        {
+          count++;
+        }
+      }
+
+      this.result = aResult;
+      this.edges = new int[count];
+      this.lowTimes = new long[count + 1];
+
+      boolean firstRising = false;
+      long lowTime = 0L;
+
+      for ( int i = 1, k = 0; i < values.length; i++ )
+      {
+        if ( ( ( values[i] ^ values[i - 1] ) & mask ) == 0 )
+        {
+          continue;
+        }
+
+        final boolean rising = ( values[i] & mask ) != 0;
+        if ( k == 0 )
+        {
+          firstRising = rising;
+        }
+        else if ( rising )
+        {
+          lowTime += timestamps[i] - timestamps[this.edges[k - 1]];
+        }
+
+        this.edges[k++] = i;
+        this.lowTimes[k] = lowTime;
+      }
+
+      this.firstEdgeRising = firstRising;
+    }
+
+    // METHODS
+
+    /**
+     * Determines the pulse statistics of all edges in the given range of
+     * samples, as if the range was walked sample by sample.
+     * 
+     * @param aStartIdx
+     *          the sample index to start at, edges on this sample are not
+     *          included;
+     * @param aEndIdx
+     *          the sample index to end at (inclusive).
+     * @return an array with the rising edge count, falling edge count, total
+     *         low-time and total high-time, never <code>null</code>.
+     */
+    public long[] measure( final int aStartIdx, final int aEndIdx )
+    {
+      final long[] result = new long[4];
+
+      final int first = countEdgesUpTo( aStartIdx );
+      final int last = countEdgesUpTo( aEndIdx );
+      if ( last <= first )
+      {
+        return result;
+      }
+
+      // The number of even-numbered edges in [first, last)...
+      final int evenEdges = ( ( last + 1 ) >> 1 ) - ( ( first + 1 ) >> 1 );
+      final int risingEdges = this.firstEdgeRising ? evenEdges : ( last - first - evenEdges );
+
+      final long[] timestamps = this.result.getTimestamps();
+      // The first period starts at the start sample, not at the previous edge...
+      final long firstPeriod = timestamps[this.edges[first]] - timestamps[aStartIdx];
+      final boolean firstRising = this.firstEdgeRising == ( ( first & 1 ) == 0 );
+
+      result[0] = risingEdges;
+      result[1] = last - first - risingEdges;
+      result[2] = this.lowTimes[last] - this.lowTimes[first + 1] + ( firstRising ? firstPeriod : 0L );
+      result[3] = getHighTime( last ) - getHighTime( first + 1 ) + ( firstRising ? 0L : firstPeriod );
+      return result;
+    }
+
+    /**
+     * @return <code>true</code> if this index is built for the given
+     *         acquisition result, <code>false</code> otherwise.
+     */
+    public boolean isIndexFor( final AcquisitionResult aResult )
+    {
+      return this.result == aResult;
+    }
+
+    /**
+     * @return the number of edges on or before the given sample index.
+     */
+    private int countEdgesUpTo( final int aSampleIdx )
+    {
+      int low = 0;
+      int high = this.edges.length;
+      while ( low < high )
+      {
+        final int mid = ( low + high ) >>> 1;
+        if ( this.edges[mid] <= aSampleIdx )
+        {
+          low = mid + 1;
+        }
+        else
+        {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * @return the total high-time of all periods that end before the n-th
+     *         edge, which is the time between the first and the (n-1)-th edge
+     *         that is not low-time, n &gt; 0.
+     */
+    private long getHighTime( final int aEdgeCount )
+    {
+      final long[] timestamps = this.result.getTimestamps();
+      return ( timestamps[this.edges[aEdgeCount - 1]] - timestamps[this.edges[0]] ) - this.lowTimes[aEdgeCount];
+    }
+  }
+
   /**
    * Represents a small DTO for measured pulse count information.
    */
@@ -216,7 +374,7 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
     // VARIABLES
 
     private final AcquisitionResult result;
-    private final int mask;
+    private final EdgeIndex edgeIndex;
     private final long startTimestamp;
     private final long endTimestamp;
 
@@ -227,9 +385,19 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
      */
     public SignalMeasurer( final AcquisitionResult aResult, final int aIndex, final long aStartTimestamp,
         final long aEndTimestamp )
+    {
+      this( aResult, new EdgeIndex( aResult, aIndex ), aStartTimestamp, aEndTimestamp );
+    }
+
+    /**
+     * Creates a new {@link SignalMeasurer} instance using an existing edge
+     * index.
+     */
+    public SignalMeasurer( final AcquisitionResult aResult, final EdgeIndex aEdgeIndex, final long aStartTimestamp,
+        final long aEndTimestamp )
     {
       this.result = aResult;
-      this.mask = ( 1 << aIndex );
+      this.edgeIndex = aEdgeIndex;
       this.startTimestamp = aStartTimestamp;
       this.endTimestamp = aEndTimestamp;
     }
@@ -248,50 +416,12 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
 
       final boolean hasTimingData = this.result.hasTimingData();
 
-      final int[] values = this.result.getValues();
-      final long[] timestamps = this.result.getTimestamps();
-
-      int fallingEdgeCount = 0;
-      long highTime = 0;
-      int risingEdgeCount = 0;
-      long lowTime = 0;
-
-      int i = startIdx;
-      long lastTransition = timestamps[i];
-      int lastBitValue = values[i++] & this.mask;
-
-      for ( ; !Thread.currentThread().isInterrupted() && ( i <= endIdx ); i++ )
-      {
-        final int bitValue = values[i] & this.mask;
-        final Edge edge = Edge.toEdge( lastBitValue, bitValue );
-
-        if ( !edge.isNone() )
-        {
-          final long periodTime = timestamps[i] - lastTransition;
-          lastTransition = timestamps[i];
-
-          if ( edge.isRising() )
-          {
-            // Low to high transition: previously seen a low-state...
-            risingEdgeCount++;
-            lowTime += periodTime;
-          }
-          else
-          /* if ( edge.isFalling() ) */
-          {
-            // High to low transition: previously seen a high-state...
-            fallingEdgeCount++;
-            highTime += periodTime;
-          }
-        }
-
-        lastBitValue = bitValue;
-      }
+      final long[] stats = this.edgeIndex.measure( startIdx, endIdx );
 
       final double measureTime = Math.abs( ( this.endTimestamp - this.startTimestamp )
           / ( double )this.result.getSampleRate() );
 
-      return new PulseCountInfo( measureTime, risingEdgeCount, fallingEdgeCount, lowTime, highTime,
+      return new PulseCountInfo( measureTime, ( int )stats[0], ( int )stats[1], stats[2], stats[3],
           this.result.getSampleRate(), hasTimingData );
     }
   }
@@ -348,7 +478,10 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
         end = model.getAbsoluteLength();
       }
 
-      return new SignalMeasurer( model.getCapturedData(), this.index, start, end ).run();
+      final AcquisitionResult capturedData = model.getCapturedData();
+      final EdgeIndex edgeIndex = getEdgeIndex( capturedData, this.index );
+
+      return new SignalMeasurer( capturedData, edgeIndex, start, end ).run();
     }
 
     /**
@@ -407,6 +540,11 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
 
   private volatile boolean listening;
   private volatile SignalMeasurerWorker signalMeasurerWorker;
+  /**
+   * the edge indexes of the current capture, built on demand per channel and
+   * released as soon as the capture is replaced.
+   */
+  private final Map<Integer, EdgeIndex> edgeIndexes;
 
   private final List<Component> comps;
 
@@ -422,6 +560,7 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
     super( aController );
 
     this.comps = new ArrayList<Component>();
+    this.edgeIndexes = new HashMap<Integer, EdgeIndex>();
 
     this.mi_channel = new JLabel();
     this.mi_referenceLabel = new JLabel( "Time:" );
@@ -463,6 +602,7 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
 
     aController.addChannelChangeListener( result );
     aController.addCursorChangeListener( result );
+    aController.addDataModelChangeListener( result );
     aController.addMeasurementListener( result );
 
     return result;
@@ -532,6 +672,19 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
     setState( true );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void dataModelChanged( final DataSet aDataSet )
+  {
+    // The edge indexes of the previous capture are of no use anymore...
+    synchronized ( this )
+    {
+      this.edgeIndexes.clear();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -636,6 +789,29 @@ public class MeasurementView extends AbstractViewLayer implements IToolWindow, I
     return getAllChannels( getSignalElementManager().getAllElements() );
   }
 
+  /**
+   * Returns the edge index of the given channel, building it if the index
+   * does not exist yet or was built for another capture.
+   * 
+   * @param aResult
+   *          the captured data to return the edge index for;
+   * @param aIndex
+   *          the index of the channel to return the edge index for.
+   * @return the edge index, never <code>null</code>.
+   */
+  final synchronized EdgeIndex getEdgeIndex( final AcquisitionResult aResult, final int aIndex )
+  {
+    final Integer key = Integer.valueOf( aIndex );
+
+    EdgeIndex result = this.edgeIndexes.get( key );
+    if ( ( result == null ) || !result.isIndexFor( aResult ) )
+    {
+      result = new EdgeIndex( aResult, aIndex );
+      this.edgeIndexes.put( key, result );
+    }
+    return result;
+  }
+
   /**
    * @return a signal diagram model, never <code>null</code>.
    */
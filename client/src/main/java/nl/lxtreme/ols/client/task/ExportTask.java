@@ -0,0 +1,148 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a task that exports the current data set with an {@link Exporter}
+ * in the background.
+ * <p>
+ * Exporters that implement {@link ProgressAwareExporter} report their progress
+ * and can be cancelled; other exporters simply run to completion. In both
+ * cases, the export is written to a temporary file first, so a failing or
+ * cancelled export never leaves a partial file behind.
+ * </p>
+ */
+public class ExportTask extends FileTask
+{
+  // VARIABLES
+
+  private final Exporter exporter;
+  private final DataSet dataSet;
+  private final JComponent component;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ExportTask} instance.
+   * 
+   * @param aFile
+   *          the file to export to, cannot be <code>null</code>;
+   * @param aExporter
+   *          the exporter to use, cannot be <code>null</code>;
+   * @param aDataSet
+   *          the data set to export, cannot be <code>null</code>;
+   * @param aComponent
+   *          the UI component that is being exported, cannot be
+   *          <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   */
+  public ExportTask( final File aFile, final Exporter aExporter, final DataSet aDataSet,
+      final JComponent aComponent, final TaskProgressListener aProgressListener )
+  {
+    super( aFile, aProgressListener );
+
+    if ( aExporter == null )
+    {
+      throw new IllegalArgumentException( "Exporter cannot be null!" );
+    }
+
+    this.exporter = aExporter;
+    this.dataSet = aDataSet;
+    this.component = aComponent;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public File call() throws Exception
+  {
+    final File tempFile = createTempFile();
+
+    OutputStream stream = null;
+    boolean written = false;
+
+    try
+    {
+      stream = new FileOutputStream( tempFile );
+
+      if ( this.exporter instanceof ProgressAwareExporter )
+      {
+        ( ( ProgressAwareExporter )this.exporter ).export( this.dataSet, this.component, stream,
+            getProgressListener() );
+      }
+      else
+      {
+        this.exporter.export( this.dataSet, this.component, stream );
+      }
+      // Make sure all pending data is written before we commit the file...
+      stream.close();
+      written = true;
+    }
+    finally
+    {
+      HostUtils.closeResource( stream );
+
+      if ( !written )
+      {
+        tempFile.delete();
+      }
+    }
+
+    replaceFile( tempFile );
+
+    return getFile();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getFailureMessage()
+  {
+    return String.format( "Export with '%s' failed!", this.exporter.getName() );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getStatusMessage()
+  {
+    return String.format( "Export to %s succesful ...", getFile().getName() );
+  }
+}
+
+/* EOF */
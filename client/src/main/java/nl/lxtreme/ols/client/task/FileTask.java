@@ -0,0 +1,175 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Provides a base class for tasks that read or write a file in the
+ * background.
+ * <p>
+ * Implementations of this task should be responsive to interrupts of the
+ * executing thread, which is used to cancel them.
+ * </p>
+ */
+public abstract class FileTask implements Task<File>
+{
+  // VARIABLES
+
+  private final File file;
+  private final TaskProgressListener progressListener;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link FileTask} instance.
+   * 
+   * @param aFile
+   *          the file to read from or write to, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress of this task to, can be
+   *          <code>null</code>.
+   */
+  protected FileTask( final File aFile, final TaskProgressListener aProgressListener )
+  {
+    if ( aFile == null )
+    {
+      throw new IllegalArgumentException( "File cannot be null!" );
+    }
+    this.file = aFile;
+    this.progressListener = aProgressListener;
+  }
+
+  // METHODS
+
+  /**
+   * Returns the message to show in case this task failed.
+   * 
+   * @return a failure message, never <code>null</code>.
+   */
+  public abstract String getFailureMessage();
+
+  /**
+   * Returns the file this task reads from or writes to.
+   * 
+   * @return the file, never <code>null</code>.
+   */
+  public final File getFile()
+  {
+    return this.file;
+  }
+
+  /**
+   * Returns the message to show after this task is successfully completed.
+   * 
+   * @return a status message, never <code>null</code>.
+   */
+  public abstract String getStatusMessage();
+
+  /**
+   * Creates a temporary file, in the same directory as the file of this task,
+   * to write to.
+   * 
+   * @return a new temporary file, never <code>null</code>.
+   * @throws IOException
+   *           in case the temporary file could not be created.
+   * @see #replaceFile(File)
+   */
+  protected final File createTempFile() throws IOException
+  {
+    final File dir = this.file.getAbsoluteFile().getParentFile();
+    return File.createTempFile( ".ols", ".tmp", dir );
+  }
+
+  /**
+   * Returns the progress listener of this task.
+   * 
+   * @return the progress listener, can be <code>null</code>.
+   */
+  protected final TaskProgressListener getProgressListener()
+  {
+    return this.progressListener;
+  }
+
+  /**
+   * Opens the file of this task for reading, reporting the number of bytes
+   * read as progress.
+   * 
+   * @return a new input stream, never <code>null</code>.
+   * @throws IOException
+   *           in case the file could not be opened.
+   */
+  protected final InputStream openInputStream() throws IOException
+  {
+    final InputStream is = new FileInputStream( this.file );
+    return new BufferedInputStream( new ProgressInputStream( is, this.file.length(), this.progressListener ) );
+  }
+
+  /**
+   * Replaces the file of this task with the given temporary file. This way, a
+   * failing or cancelled write never leaves a truncated file behind.
+   * <p>
+   * The original file is first moved aside to a backup file, which is restored
+   * in case the temporary file cannot be moved in place. In that case, the
+   * temporary file is kept and named in the thrown exception.
+   * </p>
+   * 
+   * @param aTempFile
+   *          the temporary file that is completely written, cannot be
+   *          <code>null</code>.
+   * @throws IOException
+   *           in case the file could not be replaced.
+   */
+  protected final void replaceFile( final File aTempFile ) throws IOException
+  {
+    File backupFile = null;
+    if ( this.file.exists() )
+    {
+      backupFile = File.createTempFile( ".ols", ".bak", aTempFile.getAbsoluteFile().getParentFile() );
+      if ( !backupFile.delete() || !this.file.renameTo( backupFile ) )
+      {
+        backupFile.delete();
+        throw new IOException( "Failed to overwrite " + this.file.getName() + "; new contents are kept in "
+            + aTempFile.getPath() + "!" );
+      }
+    }
+
+    if ( !aTempFile.renameTo( this.file ) )
+    {
+      if ( ( backupFile != null ) && !backupFile.renameTo( this.file ) )
+      {
+        throw new IOException( "Failed to write " + this.file.getName() + "; original contents are kept in "
+            + backupFile.getPath() + ", new contents in " + aTempFile.getPath() + "!" );
+      }
+      throw new IOException( "Failed to write " + this.file.getName() + "; new contents are kept in "
+          + aTempFile.getPath() + "!" );
+    }
+
+    if ( backupFile != null )
+    {
+      backupFile.delete();
+    }
+  }
+}
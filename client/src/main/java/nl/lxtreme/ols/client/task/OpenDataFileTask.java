@@ -0,0 +1,205 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a task that loads an OLS data file, or imports a value change dump,
+ * in the background.
+ */
+public class OpenDataFileTask extends FileTask
+{
+  // CONSTANTS
+
+  /** The file extension of value change dumps. */
+  public static final String VCD_FILE_EXTENSION = "vcd";
+
+  private static final Logger LOG = Logger.getLogger( OpenDataFileTask.class.getName() );
+
+  // VARIABLES
+
+  private final Project project;
+  private final int maxSamples;
+
+  private volatile int truncatedSampleCount = -1;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link OpenDataFileTask} instance.
+   * 
+   * @param aFile
+   *          the data file to load, cannot be <code>null</code>;
+   * @param aProject
+   *          the project to load the data into, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   */
+  public OpenDataFileTask( final File aFile, final Project aProject, final TaskProgressListener aProgressListener )
+  {
+    this( aFile, aProject, aProgressListener, ValueChangeDumpReader.DEFAULT_MAX_SAMPLES );
+  }
+
+  /**
+   * Creates a new {@link OpenDataFileTask} instance.
+   * 
+   * @param aFile
+   *          the data file to load, cannot be <code>null</code>;
+   * @param aProject
+   *          the project to load the data into, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>;
+   * @param aMaxSamples
+   *          the maximum number of samples to import from a value change dump.
+   */
+  OpenDataFileTask( final File aFile, final Project aProject, final TaskProgressListener aProgressListener,
+      final int aMaxSamples )
+  {
+    super( aFile, aProgressListener );
+
+    this.project = aProject;
+    this.maxSamples = aMaxSamples;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public File call() throws Exception
+  {
+    if ( isValueChangeDump( getFile() ) )
+    {
+      importValueChangeDump();
+      return getFile();
+    }
+
+    Reader reader = null;
+
+    try
+    {
+      reader = new InputStreamReader( openInputStream() );
+
+      this.project.readData( reader );
+
+      return getFile();
+    }
+    finally
+    {
+      HostUtils.closeResource( reader );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getFailureMessage()
+  {
+    return "Loading the capture data failed!";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getStatusMessage()
+  {
+    final int sampleCount = this.truncatedSampleCount;
+    if ( sampleCount >= 0 )
+    {
+      return String.format( "Capture data loaded from %s, truncated after %d samples!", getFile().getName(),
+          Integer.valueOf( sampleCount ) );
+    }
+    return String.format( "Capture data loaded from %s ...", getFile().getName() );
+  }
+
+  /**
+   * Returns whether the given file is a value change dump, based on its file
+   * extension.
+   * 
+   * @param aFile
+   *          the file to test, cannot be <code>null</code>.
+   * @return <code>true</code> if the given file is a value change dump,
+   *         <code>false</code> otherwise.
+   */
+  static boolean isValueChangeDump( final File aFile )
+  {
+    return aFile.getName().toLowerCase().endsWith( "." + VCD_FILE_EXTENSION );
+  }
+
+  /**
+   * Imports the value change dump of this task as captured data, using the
+   * signal names as channel labels.
+   * 
+   * @throws IOException
+   *           in case of I/O problems, or in case the dump is malformed.
+   */
+  private void importValueChangeDump() throws IOException
+  {
+    InputStream is = null;
+
+    try
+    {
+      is = openInputStream();
+
+      final ValueChangeDumpReader vcdReader = new ValueChangeDumpReader( is, this.maxSamples );
+      final AcquisitionResult result = vcdReader.read();
+
+      if ( vcdReader.isTruncated() )
+      {
+        this.truncatedSampleCount = result.getValues().length;
+
+        LOG.log( Level.WARNING, "Value change dump truncated after {0} samples!",
+            Integer.valueOf( this.truncatedSampleCount ) );
+      }
+      if ( vcdReader.getSignalCount() > vcdReader.getChannelLabels().length )
+      {
+        LOG.log( Level.INFO, "Imported {0} of {1} signals from value change dump.", new Object[] {
+            Integer.valueOf( vcdReader.getChannelLabels().length ), Integer.valueOf( vcdReader.getSignalCount() ) } );
+      }
+
+      this.project.setCapturedData( result );
+
+      final String[] labels = vcdReader.getChannelLabels();
+      final DataSet dataSet = this.project.getDataSet();
+      for ( int i = 0; i < labels.length; i++ )
+      {
+        dataSet.getChannel( i ).setLabel( labels[i] );
+      }
+    }
+    finally
+    {
+      HostUtils.closeResource( is );
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a task that loads an OLS project file in the background.
+ */
+public class OpenProjectTask extends FileTask
+{
+  // VARIABLES
+
+  private final ProjectManager projectManager;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link OpenProjectTask} instance.
+   * 
+   * @param aFile
+   *          the project file to load, cannot be <code>null</code>;
+   * @param aProjectManager
+   *          the project manager to load the project into, cannot be
+   *          <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   */
+  public OpenProjectTask( final File aFile, final ProjectManager aProjectManager,
+      final TaskProgressListener aProgressListener )
+  {
+    super( aFile, aProgressListener );
+
+    this.projectManager = aProjectManager;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public File call() throws Exception
+  {
+    final File file = getFile();
+
+    InputStream is = null;
+
+    try
+    {
+      is = openInputStream();
+
+      // The project manager only replaces its current project after the
+      // project is read completely, so cancelling keeps the current one...
+      this.projectManager.loadProject( is );
+      this.projectManager.getCurrentProject().setFilename( file );
+
+      return file;
+    }
+    finally
+    {
+      HostUtils.closeResource( is );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getFailureMessage()
+  {
+    return "Loading the project data failed!";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getStatusMessage()
+  {
+    return String.format( "Project %s loaded ...", this.projectManager.getCurrentProject().getName() );
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Provides an input stream that reports the number of bytes read, relative to
+ * the total number of bytes available, as progress to a
+ * {@link TaskProgressListener}.
+ * <p>
+ * In addition, this stream aborts with an {@link InterruptedIOException} as
+ * soon as the reading thread is interrupted, allowing (long) reads to be
+ * cancelled.
+ * </p>
+ */
+public class ProgressInputStream extends FilterInputStream
+{
+  // VARIABLES
+
+  private final long totalSize;
+  private final TaskProgressListener listener;
+
+  private long bytesRead;
+  private long markedBytesRead;
+  private int lastPercentage;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ProgressInputStream} instance.
+   * 
+   * @param aInput
+   *          the input stream to wrap, cannot be <code>null</code>;
+   * @param aTotalSize
+   *          the total number of bytes that is expected to be read, >= 0;
+   * @param aListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   */
+  public ProgressInputStream( final InputStream aInput, final long aTotalSize, final TaskProgressListener aListener )
+  {
+    super( aInput );
+
+    this.totalSize = aTotalSize;
+    this.listener = aListener;
+    this.lastPercentage = -1;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void mark( final int aReadLimit )
+  {
+    super.mark( aReadLimit );
+    this.markedBytesRead = this.bytesRead;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read() throws IOException
+  {
+    checkInterrupted();
+
+    final int result = super.read();
+    if ( result >= 0 )
+    {
+      bytesProcessed( 1L );
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    checkInterrupted();
+
+    final int result = super.read( aBuffer, aOffset, aLength );
+    if ( result > 0 )
+    {
+      bytesProcessed( result );
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void reset() throws IOException
+  {
+    super.reset();
+    this.bytesRead = this.markedBytesRead;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long skip( final long aCount ) throws IOException
+  {
+    checkInterrupted();
+
+    final long result = super.skip( aCount );
+    if ( result > 0L )
+    {
+      bytesProcessed( result );
+    }
+    return result;
+  }
+
+  /**
+   * Accounts for the given number of processed bytes, and reports the progress
+   * to our listener if the percentage of bytes read has changed.
+   * 
+   * @param aCount
+   *          the number of bytes processed, > 0.
+   */
+  private void bytesProcessed( final long aCount )
+  {
+    this.bytesRead += aCount;
+
+    if ( ( this.listener == null ) || ( this.totalSize <= 0L ) )
+    {
+      return;
+    }
+
+    final int percentage = ( int )Math.min( 100L, ( 100L * this.bytesRead ) / this.totalSize );
+    if ( percentage != this.lastPercentage )
+    {
+      this.listener.setProgress( percentage );
+      this.lastPercentage = percentage;
+    }
+  }
+
+  /**
+   * Checks whether the current thread is interrupted, and if so, bails out
+   * with an {@link InterruptedIOException}.
+   * 
+   * @throws InterruptedIOException
+   *           in case the current thread is interrupted.
+   */
+  private void checkInterrupted() throws InterruptedIOException
+  {
+    if ( Thread.currentThread().isInterrupted() )
+    {
+      throw new InterruptedIOException( "Reading interrupted!" );
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a task that saves the current capture data to an OLS data file in
+ * the background.
+ */
+public class SaveDataFileTask extends FileTask
+{
+  // VARIABLES
+
+  private final Project project;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SaveDataFileTask} instance.
+   * 
+   * @param aFile
+   *          the data file to write, cannot be <code>null</code>;
+   * @param aProject
+   *          the project whose data is to be saved, cannot be
+   *          <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   */
+  public SaveDataFileTask( final File aFile, final Project aProject, final TaskProgressListener aProgressListener )
+  {
+    super( aFile, aProgressListener );
+
+    this.project = aProject;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public File call() throws Exception
+  {
+    final File tempFile = createTempFile();
+
+    Writer writer = null;
+    boolean written = false;
+
+    try
+    {
+      writer = new OutputStreamWriter( new FileOutputStream( tempFile ) );
+
+      this.project.writeData( writer, getProgressListener() );
+      // Make sure all pending data is written before we commit the file...
+      writer.close();
+      written = true;
+    }
+    finally
+    {
+      HostUtils.closeResource( writer );
+
+      if ( !written )
+      {
+        tempFile.delete();
+      }
+    }
+
+    replaceFile( tempFile );
+
+    return getFile();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getFailureMessage()
+  {
+    return "Saving the capture data failed!";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getStatusMessage()
+  {
+    return String.format( "Capture data saved to %s ...", getFile().getName() );
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a task that saves the current project to an OLS project file in the
+ * background.
+ */
+public class SaveProjectTask extends FileTask
+{
+  // VARIABLES
+
+  private final ProjectManager projectManager;
+  private final String name;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SaveProjectTask} instance.
+   * 
+   * @param aFile
+   *          the project file to write, cannot be <code>null</code>;
+   * @param aName
+   *          the name of the project to save, cannot be <code>null</code>;
+   * @param aProjectManager
+   *          the project manager whose current project is to be saved, cannot
+   *          be <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   */
+  public SaveProjectTask( final File aFile, final String aName, final ProjectManager aProjectManager,
+      final TaskProgressListener aProgressListener )
+  {
+    super( aFile, aProgressListener );
+
+    this.name = aName;
+    this.projectManager = aProjectManager;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public File call() throws Exception
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setName( this.name );
+
+    final File tempFile = createTempFile();
+
+    OutputStream out = null;
+    boolean written = false;
+
+    try
+    {
+      out = new FileOutputStream( tempFile );
+
+      this.projectManager.saveProject( out, getProgressListener() );
+      // Make sure all pending data is written before we commit the file...
+      out.close();
+      written = true;
+    }
+    finally
+    {
+      HostUtils.closeResource( out );
+
+      if ( !written )
+      {
+        tempFile.delete();
+      }
+    }
+
+    replaceFile( tempFile );
+    project.setFilename( getFile() );
+
+    return getFile();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getFailureMessage()
+  {
+    return "Saving the project data failed!";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getStatusMessage()
+  {
+    return String.format( "Project %s saved ...", this.name );
+  }
+}
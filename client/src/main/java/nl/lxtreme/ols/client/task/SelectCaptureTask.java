@@ -0,0 +1,95 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Provides a task that restores a capture from the acquisition history of a
+ * project in the background, as this involves inflating (and possibly reading)
+ * the entire capture.
+ */
+public class SelectCaptureTask implements Task<Integer>
+{
+  // VARIABLES
+
+  private final Project project;
+  private final int index;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SelectCaptureTask} instance.
+   * 
+   * @param aProject
+   *          the project to select the capture of, cannot be <code>null</code>;
+   * @param aIndex
+   *          the index in the acquisition history of the capture to select.
+   */
+  public SelectCaptureTask( final Project aProject, final int aIndex )
+  {
+    if ( aProject == null )
+    {
+      throw new IllegalArgumentException( "Project cannot be null!" );
+    }
+
+    this.project = aProject;
+    this.index = aIndex;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Integer call() throws Exception
+  {
+    this.project.selectAcquisition( this.index );
+
+    return Integer.valueOf( this.index );
+  }
+
+  /**
+   * Returns the message to show in case this task failed.
+   * 
+   * @return a failure message, never <code>null</code>.
+   */
+  public String getFailureMessage()
+  {
+    return "Failed to restore capture from history!";
+  }
+
+  /**
+   * Returns the message to show after this task is successfully completed.
+   * 
+   * @return a status message, never <code>null</code>.
+   */
+  public String getStatusMessage()
+  {
+    final int size = this.project.getAcquisitionHistorySize();
+    return String.format( "Showing capture %d of %d ...", Integer.valueOf( size - this.index ),
+        Integer.valueOf( size ) );
+  }
+}
@@ -0,0 +1,792 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import java.io.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides a streaming reader for "value change dump" files, as specified in
+ * IEEE Std 1364-2001.
+ * <p>
+ * The dump is read in a single pass: the declarations are parsed into a
+ * mapping of identifier codes to channels, after which all value changes are
+ * decoded directly from the raw bytes into the sample arrays, without creating
+ * intermediary objects for each line. Only the first {@value Ols#MAX_CHANNELS}
+ * one-bit signals (in any scope) are mapped onto channels; all other signals
+ * are skipped. As only the value changes of these signals are kept, the memory
+ * needed is bound by the number of transitions rather than the size of the
+ * dump itself, and can be limited further by a maximum number of samples.
+ * </p>
+ */
+public final class ValueChangeDumpReader
+{
+  // CONSTANTS
+
+  /** The default maximum number of samples to read. */
+  public static final int DEFAULT_MAX_SAMPLES = 1 << 24;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_TOKEN_LENGTH = 1024 * 1024;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final int EOF = -1;
+
+  // VARIABLES
+
+  private final InputStream stream;
+  private final int maxSamples;
+  private final byte[] buffer;
+
+  private int bufferPos;
+  private int bufferLen;
+
+  private byte[] token;
+  private int tokenLen;
+
+  private final long[] idKeys;
+  private final int[] idChannels;
+  private final String[] labels;
+  private int channelCount;
+  private int signalCount;
+
+  private long timeDivisor;
+  private long timeMultiplier;
+  private int sampleRate;
+
+  private int[] values;
+  private long[] timestamps;
+  private int sampleCount;
+  private int currentValue;
+  private long currentTime;
+  private long endTime;
+  private boolean truncated;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ValueChangeDumpReader} instance.
+   * 
+   * @param aStream
+   *          the stream to read the dump from, cannot be <code>null</code>.
+   */
+  public ValueChangeDumpReader( final InputStream aStream )
+  {
+    this( aStream, DEFAULT_MAX_SAMPLES );
+  }
+
+  /**
+   * Creates a new {@link ValueChangeDumpReader} instance.
+   * 
+   * @param aStream
+   *          the stream to read the dump from, cannot be <code>null</code>;
+   * @param aMaxSamples
+   *          the maximum number of samples to read, &gt; 0. Dumps with more
+   *          transitions are truncated.
+   */
+  public ValueChangeDumpReader( final InputStream aStream, final int aMaxSamples )
+  {
+    if ( aStream == null )
+    {
+      throw new IllegalArgumentException( "Stream cannot be null!" );
+    }
+    if ( aMaxSamples <= 0 )
+    {
+      throw new IllegalArgumentException( "Maximum number of samples should be positive!" );
+    }
+
+    this.stream = aStream;
+    this.maxSamples = aMaxSamples;
+    this.buffer = new byte[BUFFER_SIZE];
+    this.token = new byte[256];
+
+    // Twice the number of channels keeps the probe sequences short...
+    this.idKeys = new long[2 * Ols.MAX_CHANNELS];
+    this.idChannels = new int[2 * Ols.MAX_CHANNELS];
+    this.labels = new String[Ols.MAX_CHANNELS];
+
+    // Default timescale of 1 second...
+    this.timeDivisor = 1L;
+    this.timeMultiplier = 1L;
+    this.sampleRate = 1;
+  }
+
+  // METHODS
+
+  /**
+   * Computes the lookup key for the identifier code in the given bytes.
+   * <p>
+   * Identifier codes of up to nine characters are encoded exactly as base-95
+   * number, longer codes are hashed. In both cases, the resulting key is never
+   * zero.
+   * </p>
+   * 
+   * @param aBytes
+   *          the bytes containing the identifier code;
+   * @param aOffset
+   *          the offset of the identifier code;
+   * @param aLength
+   *          the length of the identifier code, &gt; 0.
+   * @return the key of the identifier code.
+   */
+  static long getIdentifierKey( final byte[] aBytes, final int aOffset, final int aLength )
+  {
+    long key;
+    if ( aLength <= 9 )
+    {
+      key = 0L;
+      for ( int i = aOffset, end = aOffset + aLength; i < end; i++ )
+      {
+        key = ( key * 95L ) + ( ( aBytes[i] & 0x7F ) - 31 );
+      }
+    }
+    else
+    {
+      // FNV-1a; with the MSB set to avoid clashes with the exact keys...
+      key = 0xcbf29ce484222325L;
+      for ( int i = aOffset, end = aOffset + aLength; i < end; i++ )
+      {
+        key ^= aBytes[i] & 0xFF;
+        key *= 0x100000001b3L;
+      }
+      key |= Long.MIN_VALUE;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the labels of the channels, as "scope.name" of the mapped signals.
+   * 
+   * @return an array with the labels of all read channels, never
+   *         <code>null</code>.
+   */
+  public String[] getChannelLabels()
+  {
+    return Arrays.copyOf( this.labels, this.channelCount );
+  }
+
+  /**
+   * Returns the total number of signals declared in the dump.
+   * 
+   * @return a signal count, &gt;= 0.
+   */
+  public int getSignalCount()
+  {
+    return this.signalCount;
+  }
+
+  /**
+   * Returns whether the read data is truncated due to the maximum number of
+   * samples.
+   * 
+   * @return <code>true</code> if not all value changes are read,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isTruncated()
+  {
+    return this.truncated;
+  }
+
+  /**
+   * Reads the complete dump.
+   * 
+   * @return the read acquisition result, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the dump is malformed.
+   */
+  public AcquisitionResult read() throws IOException
+  {
+    this.values = new int[INITIAL_CAPACITY];
+    this.timestamps = new long[INITIAL_CAPACITY];
+    this.sampleCount = 0;
+    this.currentValue = 0;
+    this.currentTime = -1L;
+    this.endTime = 0L;
+
+    readDeclarations();
+    readValueChanges();
+
+    if ( this.channelCount == 0 )
+    {
+      throw new IOException( "No one-bit signals found in dump!" );
+    }
+
+    // Flush the last pending value...
+    if ( !this.truncated )
+    {
+      addSample();
+    }
+
+    final int count = this.sampleCount;
+    final long lastTimestamp = this.timestamps[count - 1];
+    final long absLength = Math.max( scaleTime( this.endTime ), lastTimestamp + 1L );
+
+    final int[] resultValues = Arrays.copyOf( this.values, count );
+    final long[] resultTimestamps = Arrays.copyOf( this.timestamps, count );
+    this.values = null;
+    this.timestamps = null;
+
+    // Keep the channel count a multiple of the block size...
+    final int channels = Math.min( Ols.MAX_CHANNELS,
+        ( ( this.channelCount + Ols.CHANNELS_PER_BLOCK - 1 ) / Ols.CHANNELS_PER_BLOCK ) * Ols.CHANNELS_PER_BLOCK );
+    final int enabledChannels = ( int )( ( 1L << this.channelCount ) - 1L );
+
+    return new CapturedData( resultValues, resultTimestamps, Ols.NOT_AVAILABLE, this.sampleRate, channels,
+        enabledChannels, absLength );
+  }
+
+  /**
+   * Adds the current value as sample at the current time, if it differs from
+   * the last added sample.
+   */
+  private void addSample()
+  {
+    final int count = this.sampleCount;
+    if ( ( count > 0 ) && ( this.values[count - 1] == this.currentValue ) )
+    {
+      return;
+    }
+    if ( count == this.maxSamples )
+    {
+      this.truncated = true;
+      return;
+    }
+    if ( count == this.values.length )
+    {
+      final int newSize = ( int )Math.min( this.maxSamples, count + ( count >> 1 ) + 1L );
+      this.values = Arrays.copyOf( this.values, newSize );
+      this.timestamps = Arrays.copyOf( this.timestamps, newSize );
+    }
+    this.values[count] = this.currentValue;
+    this.timestamps[count] = Math.max( 0L, this.currentTime );
+    this.sampleCount = count + 1;
+  }
+
+  /**
+   * Applies the value change of a single bit signal.
+   * 
+   * @param aValue
+   *          the (ASCII) value of the signal;
+   * @param aKey
+   *          the identifier key of the signal.
+   */
+  private void applyValueChange( final int aValue, final long aKey )
+  {
+    final int channel = lookupChannel( aKey );
+    if ( channel < 0 )
+    {
+      // Not a mapped signal...
+      return;
+    }
+
+    final int mask = 1 << channel;
+    if ( aValue == '1' )
+    {
+      this.currentValue |= mask;
+    }
+    else
+    {
+      // Both unknown ('x') and high-impedance ('z') are taken as zero...
+      this.currentValue &= ~mask;
+    }
+  }
+
+  /**
+   * Returns the (unmasked) slot in the identifier table for the given key.
+   */
+  private static int getSlot( final long aKey )
+  {
+    final int hash = ( int )( aKey ^ ( aKey >>> 32 ) ) * 0x9E3779B9;
+    return hash ^ ( hash >>> 16 );
+  }
+
+  /**
+   * Returns whether the current token equals the given keyword.
+   */
+  private boolean isToken( final String aKeyword )
+  {
+    final int len = aKeyword.length();
+    if ( this.tokenLen != len )
+    {
+      return false;
+    }
+    for ( int i = 0; i < len; i++ )
+    {
+      if ( this.token[i] != aKeyword.charAt( i ) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the channel mapped onto the given identifier key.
+   * 
+   * @return a channel index, or -1 if no channel is mapped to the given key.
+   */
+  private int lookupChannel( final long aKey )
+  {
+    final int mask = this.idKeys.length - 1;
+    int idx = getSlot( aKey ) & mask;
+    long key;
+    while ( ( key = this.idKeys[idx] ) != 0L )
+    {
+      if ( key == aKey )
+      {
+        return this.idChannels[idx];
+      }
+      idx = ( idx + 1 ) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Maps the given identifier key onto a new channel, if not already mapped.
+   */
+  private void mapChannel( final long aKey, final String aLabel )
+  {
+    if ( ( this.channelCount >= Ols.MAX_CHANNELS ) || ( lookupChannel( aKey ) >= 0 ) )
+    {
+      return;
+    }
+
+    final int mask = this.idKeys.length - 1;
+    int idx = getSlot( aKey ) & mask;
+    while ( this.idKeys[idx] != 0L )
+    {
+      idx = ( idx + 1 ) & mask;
+    }
+
+    this.idKeys[idx] = aKey;
+    this.idChannels[idx] = this.channelCount;
+    this.labels[this.channelCount++] = aLabel;
+  }
+
+  /**
+   * Parses the time value of the current token, starting at the given offset.
+   */
+  private long parseTime( final int aOffset ) throws IOException
+  {
+    if ( aOffset >= this.tokenLen )
+    {
+      throw new IOException( "Missing time value!" );
+    }
+    long result = 0L;
+    for ( int i = aOffset; i < this.tokenLen; i++ )
+    {
+      final int digit = this.token[i] - '0';
+      if ( ( digit < 0 ) || ( digit > 9 ) )
+      {
+        throw new IOException( "Invalid time value: " + tokenAsString() );
+      }
+      if ( result > ( ( Long.MAX_VALUE - digit ) / 10L ) )
+      {
+        throw new IOException( "Time value out of range: " + tokenAsString() );
+      }
+      result = ( result * 10L ) + digit;
+    }
+    return result;
+  }
+
+  /**
+   * Reads all declarations up to, and including, the "$enddefinitions"
+   * keyword.
+   */
+  private void readDeclarations() throws IOException
+  {
+    final Deque<String> scopes = new ArrayDeque<String>();
+
+    while ( readToken() )
+    {
+      if ( isToken( "$enddefinitions" ) )
+      {
+        skipToEnd();
+        return;
+      }
+      else if ( isToken( "$timescale" ) )
+      {
+        readTimescale();
+      }
+      else if ( isToken( "$scope" ) )
+      {
+        final List<String> args = readDeclarationArguments();
+        scopes.addLast( args.size() > 1 ? args.get( 1 ) : "" );
+      }
+      else if ( isToken( "$upscope" ) )
+      {
+        skipToEnd();
+        scopes.pollLast();
+      }
+      else if ( isToken( "$var" ) )
+      {
+        readVariable( scopes );
+      }
+      else if ( ( this.tokenLen > 0 ) && ( this.token[0] == '$' ) )
+      {
+        // $comment, $date, $version or any other declaration...
+        skipToEnd();
+      }
+      else
+      {
+        throw new IOException( "Unexpected token in declarations: " + tokenAsString() );
+      }
+    }
+
+    throw new IOException( "Unexpected end of dump: no $enddefinitions found!" );
+  }
+
+  /**
+   * Reads all tokens of the current declaration up to its "$end" keyword.
+   */
+  private List<String> readDeclarationArguments() throws IOException
+  {
+    final List<String> result = new ArrayList<String>();
+    while ( readToken() )
+    {
+      if ( isToken( "$end" ) )
+      {
+        return result;
+      }
+      result.add( tokenAsString() );
+    }
+    throw new IOException( "Unexpected end of dump: unterminated declaration!" );
+  }
+
+  /**
+   * Reads the next byte of the dump.
+   * 
+   * @return the read byte, or {@link #EOF} in case the end of the dump is
+   *         reached.
+   */
+  private int readByte() throws IOException
+  {
+    if ( this.bufferPos >= this.bufferLen )
+    {
+      this.bufferLen = this.stream.read( this.buffer, 0, this.buffer.length );
+      this.bufferPos = 0;
+      if ( this.bufferLen <= 0 )
+      {
+        this.bufferLen = 0;
+        return EOF;
+      }
+    }
+    return this.buffer[this.bufferPos++] & 0xFF;
+  }
+
+  /**
+   * Reads the "$timescale" declaration, and determines the sample rate and
+   * time scaling from it.
+   */
+  private void readTimescale() throws IOException
+  {
+    final StringBuilder sb = new StringBuilder();
+    for ( String arg : readDeclarationArguments() )
+    {
+      sb.append( arg );
+    }
+
+    final String timescale = sb.toString().trim().toLowerCase();
+    int idx = 0;
+    while ( ( idx < timescale.length() ) && Character.isDigit( timescale.charAt( idx ) ) )
+    {
+      idx++;
+    }
+
+    final String number = timescale.substring( 0, idx );
+    final String unit = timescale.substring( idx );
+
+    final int exponent;
+    if ( "s".equals( unit ) )
+    {
+      exponent = 15;
+    }
+    else if ( "ms".equals( unit ) )
+    {
+      exponent = 12;
+    }
+    else if ( "us".equals( unit ) )
+    {
+      exponent = 9;
+    }
+    else if ( "ns".equals( unit ) )
+    {
+      exponent = 6;
+    }
+    else if ( "ps".equals( unit ) )
+    {
+      exponent = 3;
+    }
+    else if ( "fs".equals( unit ) )
+    {
+      exponent = 0;
+    }
+    else
+    {
+      throw new IOException( "Invalid timescale: " + timescale );
+    }
+
+    if ( !"1".equals( number ) && !"10".equals( number ) && !"100".equals( number ) )
+    {
+      throw new IOException( "Invalid timescale: " + timescale );
+    }
+
+    // The period of a single time unit in femtoseconds...
+    long period = Long.parseLong( number );
+    for ( int i = 0; i < exponent; i++ )
+    {
+      period *= 10L;
+    }
+
+    final long second = 1000000000000000L;
+    if ( period >= second )
+    {
+      this.sampleRate = 1;
+      this.timeMultiplier = period / second;
+      this.timeDivisor = 1L;
+    }
+    else
+    {
+      long rate = second / period;
+      long divisor = 1L;
+      while ( rate > Integer.MAX_VALUE )
+      {
+        rate /= 10L;
+        divisor *= 10L;
+      }
+      this.sampleRate = ( int )rate;
+      this.timeMultiplier = 1L;
+      this.timeDivisor = divisor;
+    }
+  }
+
+  /**
+   * Reads the next whitespace-delimited token into the token buffer.
+   * 
+   * @return <code>true</code> if a token is read, <code>false</code> if the
+   *         end of the dump is reached.
+   */
+  private boolean readToken() throws IOException
+  {
+    int b;
+    do
+    {
+      b = readByte();
+    }
+    while ( ( b != EOF ) && ( b <= ' ' ) );
+
+    this.tokenLen = 0;
+    if ( b == EOF )
+    {
+      return false;
+    }
+
+    do
+    {
+      if ( this.tokenLen == this.token.length )
+      {
+        if ( this.tokenLen >= MAX_TOKEN_LENGTH )
+        {
+          throw new IOException( "Token too long!" );
+        }
+        this.token = Arrays.copyOf( this.token, 2 * this.tokenLen );
+      }
+      this.token[this.tokenLen++] = ( byte )b;
+      b = readByte();
+    }
+    while ( ( b != EOF ) && ( b > ' ' ) );
+
+    return true;
+  }
+
+  /**
+   * Reads all value changes up to the end of the dump.
+   */
+  private void readValueChanges() throws IOException
+  {
+    while ( !this.truncated && readToken() )
+    {
+      final int first = this.token[0];
+      switch ( first )
+      {
+        case '#':
+          final long time = parseTime( 1 );
+          if ( time < this.endTime )
+          {
+            throw new IOException( "Time values should be increasing: " + tokenAsString() );
+          }
+          this.endTime = time;
+
+          final long scaled = scaleTime( time );
+          if ( this.currentTime < 0L )
+          {
+            this.currentTime = scaled;
+          }
+          else if ( scaled != this.currentTime )
+          {
+            addSample();
+            this.currentTime = scaled;
+          }
+          break;
+
+        case '0':
+        case '1':
+        case 'x':
+        case 'X':
+        case 'z':
+        case 'Z':
+          if ( this.tokenLen < 2 )
+          {
+            throw new IOException( "Missing identifier code for value change!" );
+          }
+          applyValueChange( first, getIdentifierKey( this.token, 1, this.tokenLen - 1 ) );
+          break;
+
+        case 'b':
+        case 'B':
+          // Vector value; only the LSB is relevant for one-bit signals...
+          final int value = this.token[this.tokenLen - 1];
+          if ( !readToken() )
+          {
+            throw new IOException( "Missing identifier code for value change!" );
+          }
+          applyValueChange( value, getIdentifierKey( this.token, 0, this.tokenLen ) );
+          break;
+
+        case 'r':
+        case 'R':
+          // Real values are never mapped; skip its identifier code...
+          readToken();
+          break;
+
+        case '$':
+          if ( isToken( "$comment" ) )
+          {
+            skipToEnd();
+          }
+          // $dumpvars, $dumpall, $dumpon, $dumpoff and $end simply contain or
+          // close value changes...
+          break;
+
+        default:
+          throw new IOException( "Unexpected token in value changes: " + tokenAsString() );
+      }
+    }
+  }
+
+  /**
+   * Reads a "$var" declaration, mapping it onto a channel if it is a one-bit
+   * signal.
+   */
+  private void readVariable( final Deque<String> aScopes ) throws IOException
+  {
+    final List<String> args = readDeclarationArguments();
+    if ( args.size() < 4 )
+    {
+      throw new IOException( "Invalid variable declaration: " + args );
+    }
+
+    this.signalCount++;
+
+    final String type = args.get( 0 );
+    if ( "real".equals( type ) || "realtime".equals( type ) || "event".equals( type ) )
+    {
+      return;
+    }
+
+    final int size;
+    try
+    {
+      size = Integer.parseInt( args.get( 1 ) );
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IOException( "Invalid variable size: " + args.get( 1 ) );
+    }
+    if ( size != 1 )
+    {
+      return;
+    }
+
+    final StringBuilder label = new StringBuilder();
+    for ( String scope : aScopes )
+    {
+      label.append( scope ).append( '.' );
+    }
+    label.append( args.get( 3 ) );
+
+    final byte[] id = args.get( 2 ).getBytes( "US-ASCII" );
+    mapChannel( getIdentifierKey( id, 0, id.length ), label.toString() );
+  }
+
+  /**
+   * Scales the given time value of the dump to a timestamp in samples.
+   */
+  private long scaleTime( final long aTime ) throws IOException
+  {
+    if ( this.timeMultiplier > 1L )
+    {
+      if ( aTime > ( Long.MAX_VALUE / this.timeMultiplier ) )
+      {
+        throw new IOException( "Time value out of range: " + aTime );
+      }
+      return aTime * this.timeMultiplier;
+    }
+    return aTime / this.timeDivisor;
+  }
+
+  /**
+   * Skips all tokens up to, and including, the next "$end" keyword.
+   */
+  private void skipToEnd() throws IOException
+  {
+    while ( readToken() )
+    {
+      if ( isToken( "$end" ) )
+      {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the current token as string, for use in error messages.
+   */
+  private String tokenAsString()
+  {
+    try
+    {
+      return new String( this.token, 0, this.tokenLen, "US-ASCII" );
+    }
+    catch ( UnsupportedEncodingException exception )
+    {
+      throw new RuntimeException( exception );
+    }
+  }
+}
+
+/* EOF */
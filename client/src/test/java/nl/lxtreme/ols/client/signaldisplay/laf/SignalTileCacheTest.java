@@ -0,0 +1,216 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.client.signaldisplay.laf.SignalTileCache.TileKey;
+import nl.lxtreme.ols.client.signaldisplay.laf.SignalTileCache.TileRenderer;
+import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides some test cases for {@link SignalTileCache}.
+ */
+public class SignalTileCacheTest
+{
+  // VARIABLES
+
+  private java.util.List<Runnable> jobs;
+  private SignalTileCache cache;
+  private SignalElement element;
+  private TileRenderer renderer;
+
+  // METHODS
+
+  /**
+   * Sets up this test case.
+   */
+  @Before
+  public void setUp()
+  {
+    this.jobs = new ArrayList<Runnable>();
+    this.cache = new SignalTileCache( new Executor()
+    {
+      @Override
+      public void execute( final Runnable aJob )
+      {
+        SignalTileCacheTest.this.jobs.add( aJob );
+      }
+    }, 4 );
+    this.cache.setContext( "ctx1" );
+
+    this.element = SignalElement.createGroupSummaryElement( mock( ElementGroup.class ) );
+
+    this.renderer = new TileRenderer()
+    {
+      @Override
+      public Image renderTile( final TileKey aKey )
+      {
+        return new BufferedImage( 1, 1, BufferedImage.TYPE_INT_ARGB );
+      }
+    };
+  }
+
+  /**
+   * Tests that the cache grows to hold a working set that is larger than its
+   * minimal size, so painting it does not evict tiles it still needs.
+   */
+  @Test
+  public void testCacheHoldsWorkingSetLargerThanMinimalSize()
+  {
+    final int workingSet = 10;
+    assertFalse( this.cache.setContext( "ctx1", workingSet ) );
+    assertEquals( 2 * workingSet, this.cache.getMaxTileCount() );
+
+    for ( int column = 0; column < workingSet; column++ )
+    {
+      this.cache.requestTile( new TileKey( this.element, column ), this.renderer, null );
+    }
+    runJobs();
+
+    // All tiles of the working set should be available for the next paint...
+    for ( int column = 0; column < workingSet; column++ )
+    {
+      assertNotNull( this.cache.getTile( new TileKey( this.element, column ) ) );
+      this.cache.requestTile( new TileKey( this.element, column ), this.renderer, null );
+    }
+    assertTrue( this.jobs.isEmpty() );
+
+    // Shrinking the working set should shrink the cache, but not below its
+    // minimal size...
+    this.cache.setContext( "ctx1", 1 );
+    assertEquals( 4, this.cache.getMaxTileCount() );
+    assertEquals( 4, this.cache.getTileCount() );
+  }
+
+  /**
+   * Tests that only the least recently used tiles are retained.
+   */
+  @Test
+  public void testLeastRecentlyUsedTilesAreEvicted()
+  {
+    for ( int column = 0; column < 4; column++ )
+    {
+      this.cache.requestTile( new TileKey( this.element, column ), this.renderer, null );
+    }
+    runJobs();
+    assertEquals( 4, this.cache.getTileCount() );
+
+    // Touch the first tile, so the second one becomes the eldest...
+    assertNotNull( this.cache.getTile( new TileKey( this.element, 0 ) ) );
+
+    this.cache.requestTile( new TileKey( this.element, 4 ), this.renderer, null );
+    runJobs();
+
+    assertEquals( 4, this.cache.getTileCount() );
+    assertNotNull( this.cache.getTile( new TileKey( this.element, 0 ) ) );
+    assertNull( this.cache.getTile( new TileKey( this.element, 1 ) ) );
+    assertNotNull( this.cache.getTile( new TileKey( this.element, 4 ) ) );
+  }
+
+  /**
+   * Tests that a tile is requested only once while it is pending or cached.
+   */
+  @Test
+  public void testRequestTileIsNotRenderedTwice()
+  {
+    final TileKey key = new TileKey( this.element, 1 );
+    final Runnable callback = mock( Runnable.class );
+
+    this.cache.requestTile( key, this.renderer, callback );
+    this.cache.requestTile( key, this.renderer, callback );
+    assertEquals( 1, this.jobs.size() );
+
+    runJobs();
+    verify( callback ).run();
+    assertNotNull( this.cache.getTile( key ) );
+
+    this.cache.requestTile( key, this.renderer, callback );
+    assertTrue( this.jobs.isEmpty() );
+  }
+
+  /**
+   * Tests that changing the context flushes the cache and discards tiles
+   * rendered for the old context.
+   */
+  @Test
+  public void testSetContextFlushesCache()
+  {
+    this.cache.requestTile( new TileKey( this.element, 0 ), this.renderer, null );
+    runJobs();
+    this.cache.requestTile( new TileKey( this.element, 1 ), this.renderer, null );
+
+    assertFalse( this.cache.setContext( "ctx1" ) );
+    assertEquals( 1, this.cache.getTileCount() );
+
+    assertTrue( this.cache.setContext( "ctx2" ) );
+    assertEquals( 0, this.cache.getTileCount() );
+
+    // The pending job belongs to the old context...
+    final Runnable callback = mock( Runnable.class );
+    runJobs();
+    assertEquals( 0, this.cache.getTileCount() );
+
+    this.cache.requestTile( new TileKey( this.element, 1 ), this.renderer, callback );
+    runJobs();
+    verify( callback ).run();
+    assertEquals( 1, this.cache.getTileCount() );
+  }
+
+  /**
+   * Tests that tiles of the same element in another appearance do not match.
+   */
+  @Test
+  public void testTileKeyIncludesAppearance()
+  {
+    final TileKey key1 = new TileKey( this.element, 2 );
+    assertEquals( key1, new TileKey( this.element, 2 ) );
+    assertFalse( key1.equals( new TileKey( this.element, 3 ) ) );
+
+    this.element.setHeight( this.element.getHeight() + 10 );
+    assertFalse( key1.equals( new TileKey( this.element, 2 ) ) );
+  }
+
+  /**
+   * Runs all scheduled jobs.
+   */
+  private void runJobs()
+  {
+    final java.util.List<Runnable> toRun = new ArrayList<Runnable>( this.jobs );
+    this.jobs.clear();
+    for ( Runnable job : toRun )
+    {
+      job.run();
+    }
+  }
+}
+
+/* EOF */
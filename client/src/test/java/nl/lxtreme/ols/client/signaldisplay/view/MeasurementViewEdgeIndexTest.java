@@ -0,0 +1,140 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.view;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.client.signaldisplay.view.MeasurementView.EdgeIndex;
+
+import org.junit.*;
+
+
+/**
+ * Provides some test cases for {@link MeasurementView.EdgeIndex}.
+ */
+public class MeasurementViewEdgeIndexTest
+{
+  // VARIABLES
+
+  private AcquisitionResult data;
+
+  // METHODS
+
+  /**
+   * Sets up this test case.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 1L );
+
+    final int[] values = new int[100000];
+    for ( int i = 1; i < values.length; i++ )
+    {
+      // Change one of the lower four channels every now and then...
+      values[i] = ( rnd.nextInt( 8 ) == 0 ) ? values[i - 1] ^ ( 1 << rnd.nextInt( 4 ) ) : values[i - 1];
+    }
+
+    this.data = new CapturedData( values, Ols.NOT_AVAILABLE, 1000000, 4, 0x0F );
+  }
+
+  /**
+   * Tests that measuring with an edge index yields the same results as walking
+   * all samples between two arbitrary sample indexes.
+   */
+  @Test
+  public void testMeasureEqualsSampleWalkOk()
+  {
+    final Random rnd = new Random( 2L );
+    final int sampleCount = this.data.getValues().length;
+
+    for ( int channel = 0; channel < 4; channel++ )
+    {
+      final EdgeIndex index = new EdgeIndex( this.data, channel );
+
+      for ( int i = 0; i < 1000; i++ )
+      {
+        final int startIdx = rnd.nextInt( sampleCount );
+        final int endIdx = ( i % 10 == 0 ) ? startIdx : rnd.nextInt( sampleCount );
+
+        final String msg = "Channel " + channel + ", " + startIdx + " to " + endIdx;
+        assertArrayEquals( msg, walkSamples( channel, startIdx, endIdx ), index.measure( startIdx, endIdx ) );
+      }
+    }
+  }
+
+  /**
+   * Tests that an edge index is only considered valid for its own capture.
+   */
+  @Test
+  public void testIsIndexForOk()
+  {
+    final EdgeIndex index = new EdgeIndex( this.data, 0 );
+
+    assertTrue( index.isIndexFor( this.data ) );
+    assertFalse( index.isIndexFor( new CapturedData( new int[] { 0, 1 }, Ols.NOT_AVAILABLE, 1000000, 4, 0x0F ) ) );
+  }
+
+  /**
+   * Determines the pulse statistics by walking all samples.
+   */
+  private long[] walkSamples( final int aChannel, final int aStartIdx, final int aEndIdx )
+  {
+    final int mask = ( 1 << aChannel );
+    final int[] values = this.data.getValues();
+    final long[] timestamps = this.data.getTimestamps();
+
+    final long[] result = new long[4];
+
+    long lastTransition = timestamps[aStartIdx];
+    int lastBitValue = values[aStartIdx] & mask;
+    for ( int i = aStartIdx + 1; i <= aEndIdx; i++ )
+    {
+      final int bitValue = values[i] & mask;
+      if ( bitValue != lastBitValue )
+      {
+        final long periodTime = timestamps[i] - lastTransition;
+        lastTransition = timestamps[i];
+
+        if ( bitValue != 0 )
+        {
+          result[0]++;
+          result[2] += periodTime;
+        }
+        else
+        {
+          result[1]++;
+          result[3] += periodTime;
+        }
+      }
+      lastBitValue = bitValue;
+    }
+    return result;
+  }
+}
+
+/* EOF */
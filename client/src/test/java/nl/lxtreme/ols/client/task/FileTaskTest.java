@@ -0,0 +1,203 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link FileTask}.
+ */
+public class FileTaskTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a task that writes a given text to its file.
+   */
+  static final class WriteTextTask extends FileTask
+  {
+    // VARIABLES
+
+    private final String text;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new WriteTextTask instance.
+     */
+    WriteTextTask( final File aFile, final String aText )
+    {
+      super( aFile, null );
+      this.text = aText;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File call() throws Exception
+    {
+      final File tempFile = createTempFile();
+      writeText( tempFile, this.text );
+      replaceFile( tempFile );
+      return getFile();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getFailureMessage()
+    {
+      return "Failed!";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getStatusMessage()
+    {
+      return "Written.";
+    }
+
+    /**
+     * Replaces the file of this task with the given file.
+     */
+    void replaceWith( final File aFile ) throws IOException
+    {
+      replaceFile( aFile );
+    }
+  }
+
+  // VARIABLES
+
+  private File dir;
+  private File file;
+
+  // METHODS
+
+  /**
+   * Reads the contents of the given file as text.
+   */
+  static String readText( final File aFile ) throws IOException
+  {
+    final BufferedReader reader = new BufferedReader( new FileReader( aFile ) );
+    try
+    {
+      return reader.readLine();
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  /**
+   * Writes the given text to the given file.
+   */
+  static void writeText( final File aFile, final String aText ) throws IOException
+  {
+    final Writer writer = new FileWriter( aFile );
+    try
+    {
+      writer.write( aText );
+    }
+    finally
+    {
+      writer.close();
+    }
+  }
+
+  /**
+   * Sets up this test case.
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    this.dir = File.createTempFile( "filetask", "" );
+    this.dir.delete();
+    this.dir.mkdirs();
+
+    this.file = new File( this.dir, "test.ols" );
+  }
+
+  /**
+   * Tears down this test case.
+   */
+  @After
+  public void tearDown()
+  {
+    for ( File f : this.dir.listFiles() )
+    {
+      f.delete();
+    }
+    this.dir.delete();
+  }
+
+  /**
+   * Tests that an existing file is replaced without leaving backup files.
+   */
+  @Test
+  public void testReplaceExistingFileOk() throws Exception
+  {
+    writeText( this.file, "old" );
+
+    new WriteTextTask( this.file, "new" ).call();
+
+    assertEquals( "new", readText( this.file ) );
+    assertEquals( 1, this.dir.listFiles().length );
+  }
+
+  /**
+   * Tests that the original file is restored when the new contents cannot be
+   * moved in place.
+   */
+  @Test
+  public void testReplaceFailureKeepsOriginalFile() throws Exception
+  {
+    writeText( this.file, "old" );
+
+    final File missingFile = new File( this.dir, "missing.tmp" );
+    try
+    {
+      new WriteTextTask( this.file, "new" ).replaceWith( missingFile );
+      fail( "IOException expected!" );
+    }
+    catch ( IOException exception )
+    {
+      assertTrue( exception.getMessage().contains( missingFile.getPath() ) );
+    }
+
+    assertEquals( "old", readText( this.file ) );
+    assertEquals( 1, this.dir.listFiles().length );
+  }
+}
+
+/* EOF */
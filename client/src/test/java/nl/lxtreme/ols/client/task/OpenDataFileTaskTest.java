@@ -0,0 +1,107 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.project.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link OpenDataFileTask}.
+ */
+public class OpenDataFileTaskTest
+{
+  // VARIABLES
+
+  private File file;
+  private Project project;
+
+  // METHODS
+
+  /**
+   * Sets up this test case.
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    this.file = File.createTempFile( "olstest", ".vcd" );
+    this.file.deleteOnExit();
+
+    final StringBuilder sb = new StringBuilder( "$timescale 1 us $end\n$var wire 1 ! a $end\n$enddefinitions $end\n" );
+    for ( int i = 0; i < 100; i++ )
+    {
+      sb.append( '#' ).append( i ).append( '\n' ).append( i & 1 ).append( "!\n" );
+    }
+
+    final Writer writer = new FileWriter( this.file );
+    try
+    {
+      writer.write( sb.toString() );
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    final DataSet dataSet = mock( DataSet.class );
+    when( dataSet.getChannel( anyInt() ) ).thenReturn( mock( Channel.class ) );
+
+    this.project = mock( Project.class );
+    when( this.project.getDataSet() ).thenReturn( dataSet );
+  }
+
+  /**
+   * Tests that importing a complete value change dump reports plain success.
+   */
+  @Test
+  public void testImportValueChangeDumpOk() throws Exception
+  {
+    final OpenDataFileTask task = new OpenDataFileTask( this.file, this.project, null, 1000 );
+    task.call();
+
+    verify( this.project ).setCapturedData( any( AcquisitionResult.class ) );
+    assertFalse( task.getStatusMessage().contains( "truncated" ) );
+  }
+
+  /**
+   * Tests that a truncated import is reported in the status message.
+   */
+  @Test
+  public void testImportTruncatedValueChangeDumpReportsTruncation() throws Exception
+  {
+    final OpenDataFileTask task = new OpenDataFileTask( this.file, this.project, null, 10 );
+    task.call();
+
+    verify( this.project ).setCapturedData( any( AcquisitionResult.class ) );
+    assertTrue( task.getStatusMessage(), task.getStatusMessage().contains( "truncated after 10 samples" ) );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,152 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.task;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ValueChangeDumpReader}.
+ */
+public class ValueChangeDumpReaderTest
+{
+  // METHODS
+
+  /**
+   * Test method for {@link ValueChangeDumpReader#read()}.
+   */
+  @Test
+  public void testReadMultipleScopesOk() throws Exception
+  {
+    final String dump = "$date today $end\n" //
+        + "$timescale 1 ns $end\n" //
+        + "$scope module top $end\n" //
+        + "$var wire 1 ! clk $end\n" //
+        + "$var wire 8 \" bus [7:0] $end\n" //
+        + "$scope module sub $end\n" //
+        + "$var reg 1 #a data $end\n" //
+        + "$var real 1 $ voltage $end\n" //
+        + "$upscope $end\n" //
+        + "$upscope $end\n" //
+        + "$enddefinitions $end\n" //
+        + "#0\n$dumpvars\n0!\nb00000000 \"\nx#a\nr1.5 $\n$end\n" //
+        + "#10\n1!\nb00000001 \"\n" //
+        + "#15\n1#a\n" //
+        + "#20\n0!\n0#a\n" //
+        + "#30\n";
+
+    final ValueChangeDumpReader reader = createReader( dump );
+    final AcquisitionResult result = reader.read();
+
+    assertArrayEquals( new String[] { "top.clk", "top.sub.data" }, reader.getChannelLabels() );
+    assertEquals( 4, reader.getSignalCount() );
+    assertFalse( reader.isTruncated() );
+
+    assertEquals( 1000000000, result.getSampleRate() );
+    assertEquals( 8, result.getChannels() );
+    assertEquals( 0x03, result.getEnabledChannels() );
+    assertEquals( 30L, result.getAbsoluteLength() );
+
+    assertArrayEquals( new int[] { 0, 1, 3, 0 }, result.getValues() );
+    assertArrayEquals( new long[] { 0L, 10L, 15L, 20L }, result.getTimestamps() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpReader#read()}.
+   */
+  @Test
+  public void testReadMoreThan32SignalsOk() throws Exception
+  {
+    final StringBuilder sb = new StringBuilder( "$timescale 10ps $end\n" );
+    for ( int i = 0; i < 40; i++ )
+    {
+      sb.append( "$var wire 1 id" ).append( i ).append( " s" ).append( i ).append( " $end\n" );
+    }
+    sb.append( "$enddefinitions $end\n#0\n" );
+    for ( int i = 0; i < 40; i++ )
+    {
+      sb.append( "1id" ).append( i ).append( '\n' );
+    }
+    // Time values that collapse onto a single sample...
+    sb.append( "#100\n0id0\n#150\n0id39\n#200\n1id31\n0id1\n#250\n" );
+
+    final ValueChangeDumpReader reader = createReader( sb.toString() );
+    final AcquisitionResult result = reader.read();
+
+    assertEquals( 32, reader.getChannelLabels().length );
+    assertEquals( 40, reader.getSignalCount() );
+
+    // 10ps yields 100GHz, which is scaled down to 1GHz...
+    assertEquals( 1000000000, result.getSampleRate() );
+    assertEquals( 32, result.getChannels() );
+    assertEquals( -1, result.getEnabledChannels() );
+
+    assertArrayEquals( new int[] { -1, -2, -4 }, result.getValues() );
+    assertArrayEquals( new long[] { 0L, 1L, 2L }, result.getTimestamps() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpReader#read()}.
+   */
+  @Test
+  public void testReadTruncatesOnMaxSamples() throws Exception
+  {
+    final StringBuilder sb = new StringBuilder( "$timescale 1 us $end\n$var wire 1 ! a $end\n$enddefinitions $end\n" );
+    for ( int i = 0; i < 100; i++ )
+    {
+      sb.append( '#' ).append( i ).append( '\n' ).append( i & 1 ).append( "!\n" );
+    }
+
+    final ValueChangeDumpReader reader = new ValueChangeDumpReader( new ByteArrayInputStream( sb.toString()
+        .getBytes( "US-ASCII" ) ), 10 );
+    final AcquisitionResult result = reader.read();
+
+    assertTrue( reader.isTruncated() );
+    assertEquals( 10, result.getValues().length );
+    assertEquals( 1000000, result.getSampleRate() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpReader#read()}.
+   */
+  @Test( expected = IOException.class )
+  public void testReadWithoutSignalsFails() throws Exception
+  {
+    createReader( "$timescale 1 ns $end\n$enddefinitions $end\n#0\n#10\n" ).read();
+  }
+
+  /**
+   * Creates a new reader for the given dump.
+   */
+  private ValueChangeDumpReader createReader( final String aDump ) throws IOException
+  {
+    return new ValueChangeDumpReader( new ByteArrayInputStream( aDump.getBytes( "US-ASCII" ) ) );
+  }
+}
+
+/* EOF */
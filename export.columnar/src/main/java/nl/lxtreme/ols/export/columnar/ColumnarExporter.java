@@ -0,0 +1,524 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.columnar;
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.Channel;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Provides an exporter that writes the acquisition data as raw little-endian
+ * columns, for direct consumption by external analysis tools.
+ * <p>
+ * The exported file consists of:
+ * </p>
+ * <ol>
+ * <li>an 8-byte magic, "OLSCOL01";</li>
+ * <li>the length of the JSON metadata, as little-endian int64;</li>
+ * <li>the JSON metadata (UTF-8), describing the sample rate, trigger, channel
+ * labels, cursors and the absolute file offset, type and length of each
+ * column;</li>
+ * <li>the columns themselves, each starting at an 8-byte aligned offset: the
+ * timestamps (int64), the sample values (uint32) and, for each enabled
+ * channel, the timestamps of its edges (int64).</li>
+ * </ol>
+ * <p>
+ * All columns are written with bulk buffer operations through a (file)
+ * channel, making this export bound by the speed of the disk.
+ * </p>
+ */
+public class ColumnarExporter implements ProgressAwareExporter
+{
+  // INNER TYPES
+
+  /**
+   * Describes a single column in the exported file.
+   */
+  static final class Column
+  {
+    // VARIABLES
+
+    final String name;
+    final String type;
+    final int elementSize;
+    final long count;
+    final int channel;
+    final int initialLevel;
+
+    long offset;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Column} instance.
+     */
+    Column( final String aName, final String aType, final int aElementSize, final long aCount, final int aChannel,
+        final int aInitialLevel )
+    {
+      this.name = aName;
+      this.type = aType;
+      this.elementSize = aElementSize;
+      this.count = aCount;
+      this.channel = aChannel;
+      this.initialLevel = aInitialLevel;
+    }
+
+    // METHODS
+
+    /**
+     * Returns the size of this column, padded to a multiple of 8 bytes.
+     */
+    long getPaddedSize()
+    {
+      return align( this.count * this.elementSize );
+    }
+  }
+
+  // CONSTANTS
+
+  /** The magic at the start of each exported file. */
+  static final byte[] MAGIC = { 'O', 'L', 'S', 'C', 'O', 'L', '0', '1' };
+  /** The size of the fixed header: the magic and the JSON length. */
+  static final int HEADER_SIZE = MAGIC.length + 8;
+
+  private static final String COLUMN_TIMESTAMPS = "timestamps";
+  private static final String COLUMN_VALUES = "values";
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  /** The number of written buffers after which the progress is updated. */
+  private static final int PROGRESS_INTERVAL = 4;
+
+  // METHODS
+
+  /**
+   * Aligns the given size to a multiple of 8 bytes.
+   */
+  static long align( final long aSize )
+  {
+    return ( aSize + 7L ) & ~7L;
+  }
+
+  /**
+   * Returns the given text as JSON string literal.
+   */
+  static String quote( final String aText )
+  {
+    final StringBuilder sb = new StringBuilder( aText.length() + 2 );
+    sb.append( '"' );
+    for ( int i = 0; i < aText.length(); i++ )
+    {
+      final char c = aText.charAt( i );
+      if ( ( c == '"' ) || ( c == '\\' ) )
+      {
+        sb.append( '\\' ).append( c );
+      }
+      else if ( c < 0x20 )
+      {
+        sb.append( String.format( "\\u%04x", Integer.valueOf( c ) ) );
+      }
+      else
+      {
+        sb.append( c );
+      }
+    }
+    return sb.append( '"' ).toString();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
+      throws IOException
+  {
+    export( aDataSet, aComponent, aStream, null );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream,
+      final TaskProgressListener aProgressListener ) throws IOException
+  {
+    final AcquisitionResult data = aDataSet.getCapturedData();
+    if ( data == null )
+    {
+      throw new IOException( "Nothing to export!" );
+    }
+
+    final int[] values = data.getValues();
+    final long[] timestamps = data.getTimestamps();
+
+    final List<Column> columns = createColumns( data );
+
+    // The column offsets depend on the length of the metadata, which in turn
+    // depends on the offsets; iterate until both are stable...
+    long dataOffset = HEADER_SIZE;
+    byte[] metadata;
+    do
+    {
+      long offset = dataOffset;
+      for ( Column column : columns )
+      {
+        column.offset = offset;
+        offset += column.getPaddedSize();
+      }
+
+      metadata = createMetadata( aDataSet, data, columns ).getBytes( "UTF-8" );
+
+      final long newDataOffset = align( HEADER_SIZE + metadata.length );
+      if ( newDataOffset == dataOffset )
+      {
+        break;
+      }
+      dataOffset = newDataOffset;
+    }
+    while ( true );
+
+    final WritableByteChannel channel;
+    if ( aStream instanceof FileOutputStream )
+    {
+      channel = ( ( FileOutputStream )aStream ).getChannel();
+    }
+    else
+    {
+      channel = Channels.newChannel( aStream );
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+
+    // Header & metadata...
+    buffer.put( MAGIC );
+    buffer.putLong( metadata.length );
+    for ( int offset = 0; offset < metadata.length; )
+    {
+      final int length = Math.min( buffer.remaining(), metadata.length - offset );
+      buffer.put( metadata, offset, length );
+      offset += length;
+      drainIfFull( channel, buffer );
+    }
+    pad( channel, buffer, dataOffset - ( HEADER_SIZE + metadata.length ) );
+
+    long totalCount = 0L;
+    for ( Column column : columns )
+    {
+      totalCount += column.count;
+    }
+
+    final ExportProgress progress = new ExportProgress( aProgressListener, totalCount );
+
+    long writtenCount = 0L;
+    for ( Column column : columns )
+    {
+      if ( column.channel >= 0 )
+      {
+        writeEdges( channel, buffer, values, timestamps, column.channel, progress, writtenCount );
+      }
+      else if ( COLUMN_TIMESTAMPS.equals( column.name ) )
+      {
+        writeLongs( channel, buffer, timestamps, progress, writtenCount );
+      }
+      else
+      {
+        writeInts( channel, buffer, values, progress, writtenCount );
+      }
+      pad( channel, buffer, column.getPaddedSize() - ( column.count * column.elementSize ) );
+
+      writtenCount += column.count;
+      progress.update( writtenCount );
+    }
+
+    drain( channel, buffer );
+    aStream.flush();
+    progress.done();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String[] getFilenameExtentions()
+  {
+    return new String[] { "olsc" };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return "Columnar binary";
+  }
+
+  /**
+   * Creates the column descriptors for the given data, counting the edges of
+   * all enabled channels in a single pass.
+   */
+  private List<Column> createColumns( final AcquisitionResult aData )
+  {
+    final int[] values = aData.getValues();
+    final int channelCount = Math.min( 32, aData.getChannels() );
+    final int channelMask = aData.getEnabledChannels()
+        & ( ( channelCount >= 32 ) ? -1 : ( ( 1 << channelCount ) - 1 ) );
+
+    final long[] edgeCounts = new long[32];
+    for ( int i = 1; i < values.length; i++ )
+    {
+      int changed = ( values[i] ^ values[i - 1] ) & channelMask;
+      while ( changed != 0 )
+      {
+        edgeCounts[Integer.numberOfTrailingZeros( changed )]++;
+        changed &= changed - 1;
+      }
+    }
+
+    final List<Column> result = new ArrayList<Column>();
+    result.add( new Column( COLUMN_TIMESTAMPS, "int64", 8, values.length, -1, -1 ) );
+    result.add( new Column( COLUMN_VALUES, "uint32", 4, values.length, -1, -1 ) );
+
+    for ( int i = 0; i < channelCount; i++ )
+    {
+      if ( ( channelMask & ( 1 << i ) ) != 0 )
+      {
+        final int initialLevel = ( values.length > 0 ) ? ( ( values[0] >>> i ) & 1 ) : 0;
+        result.add( new Column( "edges." + i, "int64", 8, edgeCounts[i], i, initialLevel ) );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Creates the JSON metadata describing the exported data.
+   */
+  private String createMetadata( final DataSet aDataSet, final AcquisitionResult aData, final List<Column> aColumns )
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append( "{\n" );
+    sb.append( "  \"format\": \"ols-columnar\",\n" );
+    sb.append( "  \"version\": 1,\n" );
+    sb.append( "  \"byteOrder\": \"little-endian\",\n" );
+    sb.append( "  \"sampleRate\": " ).append( aData.getSampleRate() ).append( ",\n" );
+    sb.append( "  \"triggerPosition\": " ).append( aData.getTriggerPosition() ).append( ",\n" );
+    sb.append( "  \"absoluteLength\": " ).append( aData.getAbsoluteLength() ).append( ",\n" );
+    sb.append( "  \"sampleCount\": " ).append( aData.getValues().length ).append( ",\n" );
+    sb.append( "  \"channels\": " ).append( aData.getChannels() ).append( ",\n" );
+    sb.append( "  \"enabledChannels\": " ).append( aData.getEnabledChannels() & 0xFFFFFFFFL ).append( ",\n" );
+
+    sb.append( "  \"channelLabels\": [" );
+    final Channel[] channels = aDataSet.getChannels();
+    for ( int i = 0; ( channels != null ) && ( i < channels.length ); i++ )
+    {
+      final String label = channels[i].getLabel();
+      sb.append( ( i > 0 ) ? ", " : "" ).append( ( label == null ) ? "null" : quote( label ) );
+    }
+    sb.append( "],\n" );
+
+    sb.append( "  \"cursorsEnabled\": " ).append( aDataSet.isCursorsEnabled() ).append( ",\n" );
+    sb.append( "  \"cursors\": [" );
+    final Cursor[] cursors = aDataSet.getCursors();
+    boolean first = true;
+    for ( int i = 0; ( cursors != null ) && ( i < cursors.length ); i++ )
+    {
+      final Cursor cursor = cursors[i];
+      if ( !cursor.isDefined() )
+      {
+        continue;
+      }
+      sb.append( first ? "\n" : ",\n" );
+      sb.append( "    {\"index\": " ).append( cursor.getIndex() );
+      sb.append( ", \"timestamp\": " ).append( cursor.getTimestamp() );
+      if ( cursor.hasLabel() )
+      {
+        sb.append( ", \"label\": " ).append( quote( cursor.getLabel() ) );
+      }
+      sb.append( "}" );
+      first = false;
+    }
+    sb.append( first ? "],\n" : "\n  ],\n" );
+
+    sb.append( "  \"columns\": [" );
+    for ( int i = 0; i < aColumns.size(); i++ )
+    {
+      final Column column = aColumns.get( i );
+      sb.append( ( i > 0 ) ? ",\n" : "\n" );
+      sb.append( "    {\"name\": " ).append( quote( column.name ) );
+      sb.append( ", \"type\": " ).append( quote( column.type ) );
+      sb.append( ", \"offset\": " ).append( column.offset );
+      sb.append( ", \"count\": " ).append( column.count );
+      if ( column.channel >= 0 )
+      {
+        sb.append( ", \"channel\": " ).append( column.channel );
+        sb.append( ", \"initialLevel\": " ).append( column.initialLevel );
+      }
+      sb.append( "}" );
+    }
+    sb.append( "\n  ]\n" );
+    sb.append( "}\n" );
+
+    return sb.toString();
+  }
+
+  /**
+   * Writes the contents of the given buffer to the given channel, and clears
+   * the buffer.
+   */
+  private void drain( final WritableByteChannel aChannel, final ByteBuffer aBuffer ) throws IOException
+  {
+    aBuffer.flip();
+    try
+    {
+      while ( aBuffer.hasRemaining() )
+      {
+        aChannel.write( aBuffer );
+      }
+    }
+    catch ( ClosedByInterruptException exception )
+    {
+      // Report it as any other interrupted export...
+      final InterruptedIOException ioe = new InterruptedIOException( "Export interrupted!" );
+      ioe.initCause( exception );
+      throw ioe;
+    }
+    aBuffer.clear();
+  }
+
+  /**
+   * Drains the given buffer in case it is full.
+   */
+  private void drainIfFull( final WritableByteChannel aChannel, final ByteBuffer aBuffer ) throws IOException
+  {
+    if ( !aBuffer.hasRemaining() )
+    {
+      drain( aChannel, aBuffer );
+    }
+  }
+
+  /**
+   * Writes the given number of zero bytes.
+   */
+  private void pad( final WritableByteChannel aChannel, final ByteBuffer aBuffer, final long aCount )
+      throws IOException
+  {
+    for ( long i = 0; i < aCount; i++ )
+    {
+      drainIfFull( aChannel, aBuffer );
+      aBuffer.put( ( byte )0 );
+    }
+  }
+
+  /**
+   * Updates the given progress every {@link #PROGRESS_INTERVAL} written
+   * buffers, which also aborts the export in case it is interrupted.
+   */
+  private void updateProgress( final ExportProgress aProgress, final int aBufferCount, final long aWrittenCount )
+      throws InterruptedIOException
+  {
+    if ( ( aBufferCount % PROGRESS_INTERVAL ) == 0 )
+    {
+      aProgress.update( aWrittenCount );
+    }
+  }
+
+  /**
+   * Writes the timestamps of all edges of the given channel.
+   */
+  private void writeEdges( final WritableByteChannel aChannel, final ByteBuffer aBuffer, final int[] aValues,
+      final long[] aTimestamps, final int aChannelIdx, final ExportProgress aProgress, final long aWrittenCount )
+      throws IOException
+  {
+    int bufferCount = 0;
+    long edgeCount = 0L;
+    for ( int i = 1; i < aValues.length; i++ )
+    {
+      if ( ( ( ( aValues[i] ^ aValues[i - 1] ) >>> aChannelIdx ) & 1 ) != 0 )
+      {
+        if ( aBuffer.remaining() < 8 )
+        {
+          drain( aChannel, aBuffer );
+          updateProgress( aProgress, ++bufferCount, aWrittenCount + edgeCount );
+        }
+        aBuffer.putLong( aTimestamps[i] );
+        edgeCount++;
+      }
+    }
+  }
+
+  /**
+   * Writes all given values as int32/uint32 using bulk puts.
+   */
+  private void writeInts( final WritableByteChannel aChannel, final ByteBuffer aBuffer, final int[] aValues,
+      final ExportProgress aProgress, final long aWrittenCount ) throws IOException
+  {
+    int bufferCount = 0;
+    int offset = 0;
+    while ( offset < aValues.length )
+    {
+      final int count = Math.min( aBuffer.remaining() / 4, aValues.length - offset );
+      if ( count == 0 )
+      {
+        drain( aChannel, aBuffer );
+        updateProgress( aProgress, ++bufferCount, aWrittenCount + offset );
+        continue;
+      }
+      aBuffer.asIntBuffer().put( aValues, offset, count );
+      aBuffer.position( aBuffer.position() + ( count * 4 ) );
+      offset += count;
+    }
+  }
+
+  /**
+   * Writes all given values as int64 using bulk puts.
+   */
+  private void writeLongs( final WritableByteChannel aChannel, final ByteBuffer aBuffer, final long[] aValues,
+      final ExportProgress aProgress, final long aWrittenCount ) throws IOException
+  {
+    int bufferCount = 0;
+    int offset = 0;
+    while ( offset < aValues.length )
+    {
+      final int count = Math.min( aBuffer.remaining() / 8, aValues.length - offset );
+      if ( count == 0 )
+      {
+        drain( aChannel, aBuffer );
+        updateProgress( aProgress, ++bufferCount, aWrittenCount + offset );
+        continue;
+      }
+      aBuffer.asLongBuffer().put( aValues, offset, count );
+      aBuffer.position( aBuffer.position() + ( count * 8 ) );
+      offset += count;
+    }
+  }
+}
+
+/* EOF */
@@ -0,0 +1,207 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.columnar;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.regex.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.test.data.project.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+
+/**
+ * Provides test cases for {@link ColumnarExporter}.
+ */
+public class ColumnarExporterTest
+{
+  // VARIABLES
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // METHODS
+
+  /**
+   * Test method for
+   * {@link ColumnarExporter#export(DataSet, JComponent, OutputStream)}.
+   */
+  @Test
+  public void testExportToFileOk() throws Exception
+  {
+    final int[] values = { 0x0, 0x1, 0x3, 0x2, 0x0 };
+    final long[] timestamps = { 0L, 5L, 7L, 12L, 20L };
+
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( new CapturedData( values, timestamps, 7L, 1000, 8, 0x03, 21L ) );
+    dataSet.setCursorsEnabled( false );
+
+    final File file = this.folder.newFile( "capture.olsc" );
+    final FileOutputStream fos = new FileOutputStream( file );
+    try
+    {
+      new ColumnarExporter().export( dataSet, mock( JComponent.class ), fos );
+    }
+    finally
+    {
+      fos.close();
+    }
+
+    final ByteBuffer buffer = readFile( file );
+
+    final byte[] magic = new byte[8];
+    buffer.get( magic );
+    assertArrayEquals( ColumnarExporter.MAGIC, magic );
+
+    final byte[] json = new byte[( int )buffer.getLong()];
+    buffer.get( json );
+    final String metadata = new String( json, "UTF-8" );
+
+    assertTrue( metadata.contains( "\"sampleRate\": 1000" ) );
+    assertTrue( metadata.contains( "\"triggerPosition\": 7" ) );
+
+    final int timestampsOffset = getOffset( metadata, "timestamps" );
+    assertEquals( 0, timestampsOffset % 8 );
+    for ( int i = 0; i < timestamps.length; i++ )
+    {
+      assertEquals( timestamps[i], buffer.getLong( timestampsOffset + ( 8 * i ) ) );
+    }
+
+    final int valuesOffset = getOffset( metadata, "values" );
+    for ( int i = 0; i < values.length; i++ )
+    {
+      assertEquals( values[i], buffer.getInt( valuesOffset + ( 4 * i ) ) );
+    }
+
+    // Channel 0 toggles at 5 and 12, channel 1 at 7 and 20...
+    final int edges0Offset = getOffset( metadata, "edges.0" );
+    assertEquals( 0, edges0Offset % 8 );
+    assertEquals( 5L, buffer.getLong( edges0Offset ) );
+    assertEquals( 12L, buffer.getLong( edges0Offset + 8 ) );
+
+    final int edges1Offset = getOffset( metadata, "edges.1" );
+    assertEquals( 7L, buffer.getLong( edges1Offset ) );
+    assertEquals( 20L, buffer.getLong( edges1Offset + 8 ) );
+
+    assertEquals( file.length(), edges1Offset + 16 );
+  }
+
+  /**
+   * Test method for
+   * {@link ColumnarExporter#export(DataSet, JComponent, OutputStream, TaskProgressListener)}
+   * .
+   * <p>
+   * Tests that an export is aborted while writing a column when the exporting
+   * thread is interrupted.
+   * </p>
+   */
+  @Test
+  public void testExportInterruptedWithinColumnFail() throws Exception
+  {
+    final int sampleCount = 1 << 21;
+    final int[] values = new int[sampleCount];
+    final long[] timestamps = new long[sampleCount];
+    for ( int i = 0; i < sampleCount; i++ )
+    {
+      values[i] = i & 0xFF;
+      timestamps[i] = i;
+    }
+
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( new CapturedData( values, timestamps, -1L, 1000, 8, 0xFF, sampleCount ) );
+    dataSet.setCursorsEnabled( false );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try
+    {
+      new ColumnarExporter().export( dataSet, mock( JComponent.class ), baos, new TaskProgressListener()
+      {
+        @Override
+        public void setProgress( final int aPercentage )
+        {
+          // Cancel the export as soon as it reports its first progress...
+          Thread.currentThread().interrupt();
+        }
+      } );
+      fail( "InterruptedIOException expected!" );
+    }
+    catch ( InterruptedIOException exception )
+    {
+      // Ok; the timestamp column should not be written completely...
+      assertTrue( baos.size() < ( 8L * sampleCount ) );
+    }
+    finally
+    {
+      // Clear the interrupted flag again...
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Test method for {@link ColumnarExporter#quote(String)}.
+   */
+  @Test
+  public void testQuoteOk()
+  {
+    assertEquals( "\"a\\\"b\\\\c\\u000a\"", ColumnarExporter.quote( "a\"b\\c\n" ) );
+  }
+
+  /**
+   * Returns the offset of the column with the given name.
+   */
+  private int getOffset( final String aMetadata, final String aColumn )
+  {
+    final String regex = "\"name\": \"" + Pattern.quote( aColumn ) + "\", \"type\": \"[a-z0-9]+\", \"offset\": (\\d+)";
+    final Matcher m = Pattern.compile( regex ).matcher( aMetadata );
+    assertTrue( "Column not found: " + aColumn, m.find() );
+    return Integer.parseInt( m.group( 1 ) );
+  }
+
+  /**
+   * Reads the given file completely.
+   */
+  private ByteBuffer readFile( final File aFile ) throws IOException
+  {
+    final byte[] data = new byte[( int )aFile.length()];
+    final DataInputStream dis = new DataInputStream( new FileInputStream( aFile ) );
+    try
+    {
+      dis.readFully( data );
+    }
+    finally
+    {
+      dis.close();
+    }
+    return ByteBuffer.wrap( data ).order( ByteOrder.LITTLE_ENDIAN );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,61 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.csv;
+
+
+/**
+ * Provides a CSV exporter that only exports the range between the first two
+ * cursors, if cursors are enabled and defined.
+ */
+public class CsvCursorRangeExporter extends CsvExporter
+{
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link CsvCursorRangeExporter} instance.
+   */
+  public CsvCursorRangeExporter()
+  {
+    super( ',', RowMode.TRANSITIONS, 0L, true );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String[] getFilenameExtentions()
+  {
+    return new String[] { "csv" };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return "CSV File (cursor range)";
+  }
+}
+
+/* EOF */
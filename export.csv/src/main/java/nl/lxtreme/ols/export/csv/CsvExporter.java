@@ -23,23 +23,313 @@ package nl.lxtreme.ols.export.csv;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import javax.swing.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
  * Provides a CSV exporter for exporting the acquisition data in a
  * comma-separated format.
+ * <p>
+ * Rows are formatted in parallel chunks, which are written back in order. By
+ * default, one row is written for each transition of the entire capture.
+ * Subclasses can restrict the export to the range between the first two
+ * cursors, or resample the rows at a fixed interval.
+ * </p>
  */
-public class CsvExporter implements Exporter
+public class CsvExporter implements ProgressAwareExporter
 {
+  // INNER TYPES
+
+  /**
+   * Denotes which rows are written.
+   */
+  public static enum RowMode
+  {
+    /** One row for each sample, that is, for each transition. */
+    TRANSITIONS,
+    /** One row for each fixed time interval. */
+    RESAMPLED;
+  }
+
+  /**
+   * Formats a contiguous range of rows into a byte array.
+   */
+  final class RowFormatter implements Callable<byte[]>
+  {
+    // VARIABLES
+
+    private final ExportContext context;
+    private final int firstRow;
+    private final int lastRow;
+
+    private byte[] buffer;
+    private int length;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link RowFormatter} instance.
+     * 
+     * @param aContext
+     *          the export context;
+     * @param aFirstRow
+     *          the first row to format;
+     * @param aLastRow
+     *          the last row to format, exclusive.
+     */
+    RowFormatter( final ExportContext aContext, final int aFirstRow, final int aLastRow )
+    {
+      this.context = aContext;
+      this.firstRow = aFirstRow;
+      this.lastRow = aLastRow;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] call()
+    {
+      final ExportContext ctx = this.context;
+      final int[] values = ctx.values;
+      final long[] timestamps = ctx.timestamps;
+
+      this.buffer = new byte[( this.lastRow - this.firstRow ) * ctx.estimatedRowLength];
+      this.length = 0;
+
+      if ( ctx.interval > 0L )
+      {
+        // Resampled; find the sample in effect at the first row...
+        long time = ctx.start + ( this.firstRow * ctx.interval );
+        int idx = Arrays.binarySearch( timestamps, time );
+        if ( idx < 0 )
+        {
+          idx = Math.max( 0, -idx - 2 );
+        }
+
+        for ( int row = this.firstRow; row < this.lastRow; row++, time += ctx.interval )
+        {
+          while ( ( ( idx + 1 ) < timestamps.length ) && ( timestamps[idx + 1] <= time ) )
+          {
+            idx++;
+          }
+          appendRow( time, values[idx] );
+        }
+      }
+      else
+      {
+        for ( int row = this.firstRow; row < this.lastRow; row++ )
+        {
+          final int idx = ctx.firstIndex + row;
+          appendRow( timestamps[idx], values[idx] );
+        }
+      }
+
+      return Arrays.copyOf( this.buffer, this.length );
+    }
+
+    /**
+     * Appends a single byte.
+     */
+    private void append( final byte aByte )
+    {
+      ensureCapacity( 1 );
+      this.buffer[this.length++] = aByte;
+    }
+
+    /**
+     * Appends the decimal representation of the given value.
+     */
+    private void appendLong( final long aValue )
+    {
+      ensureCapacity( 20 );
+
+      if ( aValue == Long.MIN_VALUE )
+      {
+        for ( byte b : Long.toString( aValue ).getBytes() )
+        {
+          append( b );
+        }
+        return;
+      }
+
+      long value = aValue;
+      if ( value < 0L )
+      {
+        this.buffer[this.length++] = '-';
+        value = -value;
+      }
+
+      int end = this.length;
+      do
+      {
+        this.buffer[end++] = ( byte )( '0' + ( value % 10L ) );
+        value /= 10L;
+      }
+      while ( value > 0L );
+
+      // Digits are written in reverse order...
+      for ( int i = this.length, j = end - 1; i < j; i++, j-- )
+      {
+        final byte t = this.buffer[i];
+        this.buffer[i] = this.buffer[j];
+        this.buffer[j] = t;
+      }
+      this.length = end;
+    }
+
+    /**
+     * Appends a single data row.
+     */
+    private void appendRow( final long aAbsTime, final int aValue )
+    {
+      final ExportContext ctx = this.context;
+      final byte separator = ( byte )CsvExporter.this.colSeparator;
+
+      appendLong( aAbsTime );
+
+      if ( ctx.triggerPos > 0 )
+      {
+        append( separator );
+        appendLong( aAbsTime - ctx.triggerPos );
+      }
+      if ( ctx.sampleRate > 0 )
+      {
+        append( separator );
+        appendLong( ctx.sampleRate );
+      }
+
+      final int[] shifts = ctx.channelShifts;
+      ensureCapacity( ( 2 * shifts.length ) + ctx.lineSeparator.length );
+      for ( int shift : shifts )
+      {
+        this.buffer[this.length++] = separator;
+        this.buffer[this.length++] = ( byte )( '0' + ( ( aValue >>> shift ) & 1 ) );
+      }
+
+      for ( byte b : ctx.lineSeparator )
+      {
+        this.buffer[this.length++] = b;
+      }
+    }
+
+    /**
+     * Ensures the buffer can hold the given number of additional bytes.
+     */
+    private void ensureCapacity( final int aLength )
+    {
+      if ( ( this.length + aLength ) > this.buffer.length )
+      {
+        this.buffer = Arrays.copyOf( this.buffer, Math.max( this.length + aLength, 2 * this.buffer.length ) );
+      }
+    }
+  }
+
+  /**
+   * Provides the (immutable) context of a single export.
+   */
+  static final class ExportContext
+  {
+    // VARIABLES
+
+    final int[] values;
+    final long[] timestamps;
+    final long triggerPos;
+    final int sampleRate;
+    final int[] channelShifts;
+    final byte[] lineSeparator;
+    final long start;
+    final long interval;
+    final int firstIndex;
+    final int rowCount;
+    final int estimatedRowLength;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ExportContext} instance.
+     */
+    ExportContext( final AcquisitionResult aData, final Channel[] aChannels, final long aStart, final long aEnd,
+        final long aInterval )
+    {
+      this.values = aData.getValues();
+      this.timestamps = aData.getTimestamps();
+      this.triggerPos = aData.getTriggerPosition();
+      this.sampleRate = aData.getSampleRate();
+      this.lineSeparator = System.getProperty( "line.separator", "\n" ).getBytes();
+      this.start = aStart;
+      this.interval = aInterval;
+
+      // Causes the channels to be listed in "inverse" order, MSB first...
+      final int l = ( aChannels == null ) ? 0 : aChannels.length;
+      this.channelShifts = new int[l];
+      for ( int i = 0; i < l; i++ )
+      {
+        this.channelShifts[i] = aChannels[l - i - 1].getIndex();
+      }
+
+      if ( aInterval > 0L )
+      {
+        this.firstIndex = 0;
+        final long rows = ( ( aEnd - aStart ) + aInterval - 1L ) / aInterval;
+        this.rowCount = ( this.values.length == 0 ) ? 0 : ( int )Math.max( 0L, Math.min( Integer.MAX_VALUE, rows ) );
+      }
+      else
+      {
+        this.firstIndex = lowerBound( this.timestamps, aStart );
+        this.rowCount = lowerBound( this.timestamps, aEnd ) - this.firstIndex;
+      }
+
+      this.estimatedRowLength = 40 + ( 2 * l ) + this.lineSeparator.length;
+    }
+
+    // METHODS
+
+    /**
+     * Returns the index of the first timestamp that is equal to, or greater
+     * than, the given time.
+     */
+    private static int lowerBound( final long[] aTimestamps, final long aTime )
+    {
+      int low = 0;
+      int high = aTimestamps.length;
+      while ( low < high )
+      {
+        final int mid = ( low + high ) >>> 1;
+        if ( aTimestamps[mid] < aTime )
+        {
+          low = mid + 1;
+        }
+        else
+        {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The number of rows formatted in a single chunk. */
+  static final int CHUNK_SIZE = 64 * 1024;
+
   // VARIABLES
 
   private final char colSeparator;
+  private final RowMode rowMode;
+  private final long interval;
+  private final boolean cursorRange;
+  private final int threadCount;
 
   // CONSTRUCTORS
 
@@ -48,7 +338,57 @@ public class CsvExporter implements Exporter
    */
   public CsvExporter()
   {
-    this.colSeparator = ',';
+    this( ',', RowMode.TRANSITIONS, 0L );
+  }
+
+  /**
+   * Creates a new {@link CsvExporter} instance.
+   * 
+   * @param aSeparator
+   *          the column separator to use, for example ',' or '\t';
+   * @param aRowMode
+   *          the row mode to use, cannot be <code>null</code>;
+   * @param aInterval
+   *          the interval (in samples) between two rows, &gt; 0 for
+   *          {@link RowMode#RESAMPLED}, ignored otherwise.
+   */
+  public CsvExporter( final char aSeparator, final RowMode aRowMode, final long aInterval )
+  {
+    this( aSeparator, aRowMode, aInterval, false );
+  }
+
+  /**
+   * Creates a new {@link CsvExporter} instance.
+   * 
+   * @param aSeparator
+   *          the column separator to use, for example ',' or '\t';
+   * @param aRowMode
+   *          the row mode to use, cannot be <code>null</code>;
+   * @param aInterval
+   *          the interval (in samples) between two rows, &gt; 0 for
+   *          {@link RowMode#RESAMPLED}, ignored otherwise;
+   * @param aCursorRange
+   *          <code>true</code> to only export the range between the first two
+   *          cursors (if enabled and defined), <code>false</code> to always
+   *          export the entire capture.
+   */
+  public CsvExporter( final char aSeparator, final RowMode aRowMode, final long aInterval,
+      final boolean aCursorRange )
+  {
+    if ( aRowMode == null )
+    {
+      throw new IllegalArgumentException( "Row mode cannot be null!" );
+    }
+    if ( ( aRowMode == RowMode.RESAMPLED ) && ( aInterval <= 0L ) )
+    {
+      throw new IllegalArgumentException( "Interval should be positive!" );
+    }
+
+    this.colSeparator = aSeparator;
+    this.rowMode = aRowMode;
+    this.interval = ( aRowMode == RowMode.RESAMPLED ) ? aInterval : 0L;
+    this.cursorRange = aCursorRange;
+    this.threadCount = Math.max( 1, Runtime.getRuntime().availableProcessors() );
   }
 
   // METHODS
@@ -59,6 +399,16 @@ public class CsvExporter implements Exporter
   @Override
   public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
+  {
+    export( aDataSet, aComponent, aStream, null );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream,
+      final TaskProgressListener aProgressListener ) throws IOException
   {
     final PrintStream stream = new PrintStream( aStream );
 
@@ -66,21 +416,16 @@ public class CsvExporter implements Exporter
     {
       // Write header row...
       writeHeaderRow( stream, createHeaderRowValues( aDataSet ) );
-
-      final Channel[] channels = aDataSet.getChannels();
+      stream.flush();
 
       final AcquisitionResult capturedData = aDataSet.getCapturedData();
-      final int sampleRate = capturedData.getSampleRate();
-      final int[] values = capturedData.getValues();
-      final long[] timestamps = capturedData.getTimestamps();
-      final long triggerPos = capturedData.getTriggerPosition();
+
+      final long[] window = getTimeWindow( aDataSet, capturedData );
+      final ExportContext context = new ExportContext( capturedData, aDataSet.getChannels(), window[0], window[1],
+          this.interval );
 
       // Write data...
-      for ( int i = 0; i < values.length; i++ )
-      {
-        // Write data row...
-        writeDataRow( stream, timestamps[i], triggerPos, sampleRate, values[i], channels );
-      }
+      writeDataRows( aStream, context, new ExportProgress( aProgressListener, context.rowCount ) );
     }
     finally
     {
@@ -106,6 +451,27 @@ public class CsvExporter implements Exporter
     return "CSV File";
   }
 
+  /**
+   * Returns the row mode of this exporter.
+   * 
+   * @return the row mode, never <code>null</code>.
+   */
+  public RowMode getRowMode()
+  {
+    return this.rowMode;
+  }
+
+  /**
+   * Returns whether only the range between the first two cursors is exported.
+   * 
+   * @return <code>true</code> if only the cursor range is exported,
+   *         <code>false</code> if the entire capture is exported.
+   */
+  public boolean isCursorRange()
+  {
+    return this.cursorRange;
+  }
+
   /**
    * @param aChannelCount
    * @return
@@ -118,7 +484,7 @@ public class CsvExporter implements Exporter
       String label = aChannels[i].getLabel();
       if ( label == null )
       {
-        label = String.format( "Ch.%d", Integer.valueOf( i ) );
+        label = "Ch." + i;
       }
       // Causes the channels to be listed in "inverse" order, MSB first...
       aList.add( insertIdx, label );
@@ -169,54 +535,120 @@ public class CsvExporter implements Exporter
     return result.toArray( new String[result.size()] );
   }
 
+  /**
+   * Returns the time window to export, as defined by the first two cursors (if
+   * requested), or covering the entire capture.
+   * 
+   * @return an array with the start (inclusive) and end (exclusive) time of
+   *         the window.
+   */
+  private long[] getTimeWindow( final DataSet aDataSet, final AcquisitionResult aData )
+  {
+    long start = Long.MIN_VALUE;
+    long end = Long.MAX_VALUE;
+
+    if ( this.cursorRange )
+    {
+      final Cursor[] cursors = aDataSet.getCursors();
+      if ( aDataSet.isCursorsEnabled() && ( cursors != null ) && ( cursors.length > 1 ) && cursors[0].isDefined()
+          && cursors[1].isDefined() )
+      {
+        start = Math.min( cursors[0].getTimestamp(), cursors[1].getTimestamp() );
+        end = Math.max( cursors[0].getTimestamp(), cursors[1].getTimestamp() ) + 1L;
+      }
+    }
+
+    if ( this.interval > 0L )
+    {
+      // Resampling needs a finite window...
+      final long[] timestamps = aData.getTimestamps();
+      if ( timestamps.length > 0 )
+      {
+        start = Math.max( start, timestamps[0] );
+        end = Math.min( end, Math.max( timestamps[timestamps.length - 1] + 1L, aData.getAbsoluteLength() ) );
+      }
+    }
+
+    return new long[] { start, end };
+  }
+
   /**
    * @param aValue
    * @return
    */
   private String quote( final String aValue )
   {
-    return String.format( "\"%s\"", aValue );
+    return "\"" + aValue + "\"";
   }
 
   /**
+   * Writes all data rows, formatting them in parallel chunks.
+   * 
    * @param aStream
-   *          the output stream to write the data values to;
-   * @param aAbsTime
-   * @param aTriggerPos
-   * @param aValue
-   * @param aChannels
+   *          the output stream to write the data rows to;
+   * @param aContext
+   *          the export context;
+   * @param aProgress
+   *          the progress of the export, updated after each written chunk.
    * @throws IOException
    *           in case of I/O problems.
    */
-  private void writeDataRow( final PrintStream aStream, final long aAbsTime, final long aTriggerPos,
-      final int aSampleRate, final int aValue, final Channel[] aChannels ) throws IOException
+  private void writeDataRows( final OutputStream aStream, final ExportContext aContext,
+      final ExportProgress aProgress ) throws IOException
   {
-    aStream.print( aAbsTime );
-
-    if ( aTriggerPos > 0 )
-    {
-      aStream.print( this.colSeparator );
-      aStream.print( aAbsTime - aTriggerPos );
-    }
-    if ( aSampleRate > 0 )
+    final int rowCount = aContext.rowCount;
+    if ( ( rowCount <= CHUNK_SIZE ) || ( this.threadCount < 2 ) )
     {
-      aStream.print( this.colSeparator );
-      aStream.print( aSampleRate );
+      for ( int row = 0; row < rowCount; row += CHUNK_SIZE )
+      {
+        final int lastRow = Math.min( rowCount, row + CHUNK_SIZE );
+        aStream.write( new RowFormatter( aContext, row, lastRow ).call() );
+        aProgress.update( lastRow );
+      }
+      aProgress.done();
+      return;
     }
 
-    if ( aChannels != null )
+    final ExecutorService executor = Executors.newFixedThreadPool( this.threadCount );
+    try
     {
-      int l = aChannels.length;
-      for ( int i = 0; i < l; i++ )
+      // Limit the number of formatted, but not yet written, chunks...
+      final int maxPending = 2 * this.threadCount;
+      final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>( maxPending );
+
+      int row = 0;
+      int rowsWritten = 0;
+      while ( ( row < rowCount ) || !pending.isEmpty() )
       {
-        Channel channel = aChannels[l - i - 1];
-        int v = ( aValue & channel.getMask() ) >> channel.getIndex();
-        aStream.print( this.colSeparator );
-        aStream.print( v );
+        while ( ( row < rowCount ) && ( pending.size() < maxPending ) )
+        {
+          final int lastRow = Math.min( rowCount, row + CHUNK_SIZE );
+          pending.addLast( executor.submit( new RowFormatter( aContext, row, lastRow ) ) );
+          row = lastRow;
+        }
+
+        aStream.write( pending.removeFirst().get() );
+
+        rowsWritten = Math.min( rowCount, rowsWritten + CHUNK_SIZE );
+        aProgress.update( rowsWritten );
       }
+      aProgress.done();
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Export interrupted!" );
+    }
+    catch ( ExecutionException exception )
+    {
+      final IOException ioe = new IOException( "Failed to format rows!" );
+      ioe.initCause( exception.getCause() );
+      throw ioe;
+    }
+    finally
+    {
+      executor.shutdownNow();
     }
-
-    aStream.println();
   }
 
   /**
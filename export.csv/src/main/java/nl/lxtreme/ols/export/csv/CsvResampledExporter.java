@@ -0,0 +1,61 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.csv;
+
+
+/**
+ * Provides a CSV exporter that writes a row for each sample of the capture,
+ * instead of only for each transition.
+ */
+public class CsvResampledExporter extends CsvExporter
+{
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link CsvResampledExporter} instance.
+   */
+  public CsvResampledExporter()
+  {
+    super( ',', RowMode.RESAMPLED, 1L, false );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String[] getFilenameExtentions()
+  {
+    return new String[] { "csv" };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return "CSV File (every sample)";
+  }
+}
+
+/* EOF */
@@ -0,0 +1,61 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.csv;
+
+
+/**
+ * Provides an exporter for exporting the acquisition data in a tab-separated
+ * format.
+ */
+public class TsvExporter extends CsvExporter
+{
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link TsvExporter} instance.
+   */
+  public TsvExporter()
+  {
+    super( '\t', RowMode.TRANSITIONS, 0L, false );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String[] getFilenameExtentions()
+  {
+    return new String[] { "tsv" };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return "TSV File";
+  }
+}
+
+/* EOF */
@@ -30,6 +30,7 @@ import java.util.*;
 import javax.swing.*;
 
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.test.data.project.*;
 
 import org.junit.*;
@@ -182,6 +183,144 @@ public class CsvExporterTest
     assertCsvDimensions( results, expectedRows, expectedCols );
   }
 
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that a data set spanning multiple chunks is written in order.
+   * </p>
+   */
+  @Test
+  public void testExportLargeDataSetInOrderOk() throws Exception
+  {
+    final int dataSize = ( 3 * CsvExporter.CHUNK_SIZE ) + 17;
+
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, dataSize, SAMPLE_RATE, -1 );
+
+    this.exporter.export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ dataSize, 2 /* time + samplerate */+ CHANNEL_COUNT );
+
+    for ( int i = 1; i < results.length; i++ )
+    {
+      assertEquals( i - 1, Long.parseLong( getCsvCols( results[i] )[0] ) );
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that the cursor range exporter only exports the rows between the
+   * first two cursors.
+   * </p>
+   */
+  @Test
+  public void testExportCursorRangeOk() throws Exception
+  {
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, 100, SAMPLE_RATE, -1 );
+    setCursors( dataSet, 19L, 10L );
+
+    this.exporter = new CsvCursorRangeExporter();
+    this.exporter.export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ 10, 2 /* time + samplerate */+ CHANNEL_COUNT );
+    assertEquals( "10", getCsvCols( results[1] )[0] );
+    assertEquals( "19", getCsvCols( results[10] )[0] );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that the default exporter exports the entire capture, even if
+   * cursors are enabled.
+   * </p>
+   */
+  @Test
+  public void testExportIgnoresCursorsByDefaultOk() throws Exception
+  {
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, 100, SAMPLE_RATE, -1 );
+    setCursors( dataSet, 10L, 19L );
+
+    this.exporter.export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ 100, 2 /* time + samplerate */+ CHANNEL_COUNT );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that rows are resampled at a fixed interval.
+   * </p>
+   */
+  @Test
+  public void testExportResampledOk() throws Exception
+  {
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, 10, SAMPLE_RATE, -1 );
+
+    this.exporter = new CsvExporter( ',', CsvExporter.RowMode.RESAMPLED, 3L );
+    this.exporter.export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ 4, 2 /* time + samplerate */+ CHANNEL_COUNT );
+    assertEquals( "0," + SAMPLE_RATE + ",0,0,0,0", results[1] );
+    assertEquals( "3," + SAMPLE_RATE + ",0,0,1,1", results[2] );
+    assertEquals( "9," + SAMPLE_RATE + ",1,0,0,1", results[4] );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream, TaskProgressListener)}
+   * .
+   * <p>
+   * Tests that the progress is reported for each chunk, up to 100%.
+   * </p>
+   */
+  @Test
+  public void testExportReportsProgressOk() throws Exception
+  {
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, 4 * CsvExporter.CHUNK_SIZE, SAMPLE_RATE, -1 );
+    final TaskProgressListener listener = mock( TaskProgressListener.class );
+
+    this.exporter.export( dataSet, this.component, this.outputStream, listener );
+
+    verify( listener ).setProgress( 25 );
+    verify( listener ).setProgress( 50 );
+    verify( listener ).setProgress( 75 );
+    verify( listener ).setProgress( 100 );
+    verifyNoMoreInteractions( listener );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream, TaskProgressListener)}
+   * .
+   * <p>
+   * Tests that an export is aborted when the exporting thread is interrupted.
+   * </p>
+   */
+  @Test( expected = InterruptedIOException.class )
+  public void testExportInterruptedFail() throws Exception
+  {
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, 4 * CsvExporter.CHUNK_SIZE, SAMPLE_RATE, -1 );
+
+    Thread.currentThread().interrupt();
+    try
+    {
+      this.exporter.export( dataSet, this.component, this.outputStream, null );
+    }
+    finally
+    {
+      // Clear the interrupted flag again...
+      Thread.interrupted();
+    }
+  }
+
   /**
    * @param aCsvData
    * @param aExpectedRows
@@ -242,4 +381,15 @@ public class CsvExporterTest
     assertNotNull( result );
     return result.split( this.separator );
   }
+
+  /**
+   * Enables the cursors of the given data set and sets the first two cursors.
+   */
+  private void setCursors( final DataSet aDataSet, final long aCursor1, final long aCursor2 )
+  {
+    final StubDataSet dataSet = ( StubDataSet )aDataSet;
+    dataSet.setCursorsEnabled( true );
+    dataSet.getCursor( 0 ).setTimestamp( aCursor1 );
+    dataSet.getCursor( 1 ).setTimestamp( aCursor2 );
+  }
 }
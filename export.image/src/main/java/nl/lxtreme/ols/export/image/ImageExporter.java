@@ -24,26 +24,34 @@ package nl.lxtreme.ols.export.image;
 import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
+import java.lang.reflect.*;
 
-import javax.imageio.*;
 import javax.swing.*;
 import javax.swing.border.*;
 
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
  * Provides a simple export-to-image functionality.
+ * <p>
+ * The complete diagram is exported, not only its visible part. To keep the
+ * memory footprint bounded, the diagram is painted in horizontal strips into a
+ * single reusable buffer, which are streamed row-by-row into the PNG image.
+ * When exporting in the background, the strips are painted on the EDT while
+ * the PNG encoding itself is done on the calling thread.
+ * </p>
  */
-public class ImageExporter implements Exporter
+public class ImageExporter implements ProgressAwareExporter
 {
   // CONSTANTS
 
-  /** The maximum width of the image to export. */
-  private static final int MAX_WIDTH = 8192;
-  /** The maximum height of the image to export. */
-  private static final int MAX_HEIGHT = 8192;
+  /** The maximum number of pixels painted in a single strip. */
+  private static final int MAX_STRIP_PIXELS = 4 * 1024 * 1024;
+  /** The maximum height of a single strip. */
+  private static final int MAX_STRIP_HEIGHT = 256;
 
   // METHODS
 
@@ -54,26 +62,43 @@ public class ImageExporter implements Exporter
   public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
   {
-    final Dimension dims = getExportSize( aComponent );
-
-    final BufferedImage image = new BufferedImage( dims.width, dims.height, BufferedImage.TYPE_INT_RGB );
+    export( aDataSet, aComponent, aStream, null );
+  }
 
-    // Create a graphics contents on the buffered image
-    Graphics2D g2d = image.createGraphics();
-    try
-    {
-      paintDiagram( g2d, aComponent );
-    }
-    finally
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream,
+      final TaskProgressListener aProgressListener ) throws IOException
+  {
+    final Dimension dims = getImageSize( aComponent );
+    if ( ( dims.width <= 0 ) || ( dims.height <= 0 ) )
     {
-      g2d.dispose();
-      g2d = null;
+      throw new IOException( "Export to PNG failed! Nothing to export?" );
     }
 
-    if ( !ImageIO.write( image, "png", aStream ) )
+    final int stripHeight = Math.max( 1,
+        Math.min( Math.min( dims.height, MAX_STRIP_HEIGHT ), MAX_STRIP_PIXELS / dims.width ) );
+
+    final BufferedImage strip = new BufferedImage( dims.width, stripHeight, BufferedImage.TYPE_INT_RGB );
+    final int[] pixels = ( ( DataBufferInt )strip.getRaster().getDataBuffer() ).getData();
+
+    final PngEncoder encoder = new PngEncoder( aStream, dims.width, dims.height );
+    final ExportProgress progress = new ExportProgress( aProgressListener, dims.height );
+
+    for ( int y = 0; y < dims.height; y += stripHeight )
     {
-      throw new IOException( "Export to PNG failed! Image not supported?" );
+      final int rows = Math.min( stripHeight, dims.height - y );
+
+      paintStrip( strip, aComponent, y, rows );
+
+      encoder.writeRows( pixels, dims.width, rows );
+      progress.update( y + rows );
     }
+
+    encoder.finish();
+    progress.done();
   }
 
   /**
@@ -95,21 +120,16 @@ public class ImageExporter implements Exporter
   }
 
   /**
-   * Returns the export image size for the given component.
+   * Returns the view of the given viewport.
    * 
-   * @param aDiagram
-   *          the component to get the export image size for, cannot be
-   *          <code>null</code>.
-   * @return a export image size, never <code>null</code>.
+   * @param aViewport
+   *          the viewport to return the view for, can be <code>null</code>.
+   * @return the view of the given viewport, or <code>null</code> if there is
+   *         no such view.
    */
-  private Dimension getExportSize( final JComponent aDiagram )
+  private Component getView( final JViewport aViewport )
   {
-    Dimension dims = getImageSize( aDiagram );
-
-    final int width = Math.min( dims.width, MAX_WIDTH );
-    final int height = Math.min( dims.height, MAX_HEIGHT );
-
-    return new Dimension( width, height );
+    return ( aViewport == null ) ? null : aViewport.getView();
   }
 
   /**
@@ -126,13 +146,12 @@ public class ImageExporter implements Exporter
     {
       final JScrollPane scrollpane = ( JScrollPane )aDiagram;
 
-      final Dimension visibleViewSize = scrollpane.getViewport().getExtentSize();
       final Dimension viewSize = scrollpane.getViewport().getViewSize();
-      final Dimension rowHeaderSize = scrollpane.getRowHeader().getExtentSize();
-      final Dimension columnHeaderSize = scrollpane.getColumnHeader().getExtentSize();
+      final Component rowHeader = getView( scrollpane.getRowHeader() );
+      final Component columnHeader = getView( scrollpane.getColumnHeader() );
 
-      final int width = Math.min( viewSize.width, visibleViewSize.width ) + rowHeaderSize.width;
-      final int height = Math.min( viewSize.height, visibleViewSize.height ) + columnHeaderSize.height;
+      final int width = viewSize.width + ( ( rowHeader == null ) ? 0 : rowHeader.getWidth() );
+      final int height = viewSize.height + ( ( columnHeader == null ) ? 0 : columnHeader.getHeight() );
 
       return new Dimension( width, height );
     }
@@ -140,17 +159,136 @@ public class ImageExporter implements Exporter
     return aDiagram.getSize();
   }
 
+  /**
+   * Paints the given strip of the diagram into the given image, on the EDT.
+   * 
+   * @param aStrip
+   *          the image to paint the strip in, cannot be <code>null</code>;
+   * @param aComponent
+   *          the component to paint, cannot be <code>null</code>;
+   * @param aY
+   *          the Y-position of the strip in the diagram;
+   * @param aRows
+   *          the number of rows of the strip to paint.
+   * @throws IOException
+   *           in case the painting was interrupted or failed.
+   */
+  private void paintStrip( final BufferedImage aStrip, final JComponent aComponent, final int aY, final int aRows )
+      throws IOException
+  {
+    final Runnable painter = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        // Create a graphics contents on the strip, positioned at the current
+        // strip of the diagram...
+        Graphics2D g2d = aStrip.createGraphics();
+        try
+        {
+          g2d.setColor( aComponent.getBackground() );
+          g2d.fillRect( 0, 0, aStrip.getWidth(), aStrip.getHeight() );
+
+          g2d.translate( 0, -aY );
+          g2d.clipRect( 0, aY, aStrip.getWidth(), aRows );
+
+          paintDiagram( g2d, aComponent );
+        }
+        finally
+        {
+          g2d.dispose();
+          g2d = null;
+        }
+      }
+    };
+
+    if ( SwingUtilities.isEventDispatchThread() )
+    {
+      painter.run();
+      return;
+    }
+
+    try
+    {
+      SwingUtilities.invokeAndWait( painter );
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Export interrupted!" );
+    }
+    catch ( InvocationTargetException exception )
+    {
+      final IOException ioe = new IOException( "Failed to paint diagram!" );
+      ioe.initCause( exception.getCause() );
+      throw ioe;
+    }
+  }
+
+  /**
+   * Paints the given component on the given canvas at the given position, if
+   * it intersects with the clip of the canvas.
+   * 
+   * @param aCanvas
+   *          the canvas to paint on, cannot be <code>null</code>;
+   * @param aComponent
+   *          the component to paint, can be <code>null</code>;
+   * @param aX
+   *          the X-position to paint the component at;
+   * @param aY
+   *          the Y-position to paint the component at.
+   */
+  private void paintComponent( final Graphics2D aCanvas, final Component aComponent, final int aX, final int aY )
+  {
+    if ( ( aComponent == null ) || !aCanvas.hitClip( aX, aY, aComponent.getWidth(), aComponent.getHeight() ) )
+    {
+      return;
+    }
+
+    final Graphics2D canvas = ( Graphics2D )aCanvas.create();
+    try
+    {
+      canvas.translate( aX, aY );
+      canvas.clipRect( 0, 0, aComponent.getWidth(), aComponent.getHeight() );
+      aComponent.paint( canvas );
+    }
+    finally
+    {
+      canvas.dispose();
+    }
+  }
+
   /**
    * Paints the given component on the given canvas.
+   * <p>
+   * For scroll panes, the complete views are painted instead of only their
+   * visible parts.
+   * </p>
    * 
    * @param aCanvas
    *          the canvas to paint on, cannot be <code>null</code>;
    * @param aDiagram
    *          the component to paint, cannot be <code>null</code>.
-   * @see #paintScrollPaneContents(Graphics2D, JScrollPane)
    */
   private void paintDiagram( final Graphics2D aCanvas, final JComponent aDiagram )
   {
+    if ( aDiagram instanceof JScrollPane )
+    {
+      final JScrollPane scrollpane = ( JScrollPane )aDiagram;
+
+      final Component rowHeader = getView( scrollpane.getRowHeader() );
+      final Component columnHeader = getView( scrollpane.getColumnHeader() );
+
+      final int x = ( rowHeader == null ) ? 0 : rowHeader.getWidth();
+      final int y = ( columnHeader == null ) ? 0 : columnHeader.getHeight();
+
+      paintComponent( aCanvas, scrollpane.getCorner( ScrollPaneConstants.UPPER_LEFT_CORNER ), 0, 0 );
+      paintComponent( aCanvas, columnHeader, x, 0 );
+      paintComponent( aCanvas, rowHeader, 0, y );
+      paintComponent( aCanvas, scrollpane.getViewport().getView(), x, y );
+      return;
+    }
+
     final Border border = aDiagram.getBorder();
     if ( border != null )
     {
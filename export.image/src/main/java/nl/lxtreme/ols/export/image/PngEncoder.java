@@ -0,0 +1,235 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.image;
+
+
+import java.io.*;
+import java.util.zip.*;
+
+
+/**
+ * Provides a streaming PNG encoder that writes an image row-by-row, allowing
+ * images to be written that are too large to keep in memory at once.
+ * <p>
+ * The image is written as 8-bit RGB without alpha channel. Each row is encoded
+ * using the "sub" filter, which works well for diagrams with many horizontal
+ * runs of the same color.
+ * </p>
+ */
+final class PngEncoder
+{
+  // CONSTANTS
+
+  private static final byte[] SIGNATURE = { ( byte )0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+  private static final byte[] IHDR = { 'I', 'H', 'D', 'R' };
+  private static final byte[] IDAT = { 'I', 'D', 'A', 'T' };
+  private static final byte[] IEND = { 'I', 'E', 'N', 'D' };
+
+  private static final int FILTER_SUB = 1;
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  // VARIABLES
+
+  private final OutputStream stream;
+  private final int width;
+  private final int height;
+  private final byte[] row;
+  private final byte[] chunk;
+  private final CRC32 crc;
+  private final Deflater deflater;
+
+  private int rowsWritten;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link PngEncoder} instance and writes the PNG header.
+   * 
+   * @param aStream
+   *          the stream to write the PNG image to, cannot be <code>null</code>;
+   * @param aWidth
+   *          the width of the image, in pixels, &gt; 0;
+   * @param aHeight
+   *          the height of the image, in pixels, &gt; 0.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public PngEncoder( final OutputStream aStream, final int aWidth, final int aHeight ) throws IOException
+  {
+    if ( ( aWidth <= 0 ) || ( aHeight <= 0 ) )
+    {
+      throw new IllegalArgumentException( "Invalid image size: " + aWidth + "x" + aHeight );
+    }
+    if ( aWidth > ( ( Integer.MAX_VALUE - 1 ) / 3 ) )
+    {
+      throw new IllegalArgumentException( "Image too wide: " + aWidth );
+    }
+
+    this.stream = aStream;
+    this.width = aWidth;
+    this.height = aHeight;
+    this.row = new byte[1 + ( 3 * aWidth )];
+    this.chunk = new byte[CHUNK_SIZE];
+    this.crc = new CRC32();
+    this.deflater = new Deflater( Deflater.DEFAULT_COMPRESSION );
+
+    this.stream.write( SIGNATURE );
+
+    final byte[] header = new byte[13];
+    putInt( header, 0, aWidth );
+    putInt( header, 4, aHeight );
+    header[8] = 8; // bit depth
+    header[9] = 2; // color type: RGB
+    header[10] = 0; // compression: deflate
+    header[11] = 0; // filter method: adaptive
+    header[12] = 0; // interlace: none
+    writeChunk( IHDR, header, header.length );
+  }
+
+  // METHODS
+
+  /**
+   * Stores the given value as big-endian integer.
+   */
+  private static void putInt( final byte[] aBuffer, final int aOffset, final int aValue )
+  {
+    aBuffer[aOffset] = ( byte )( aValue >>> 24 );
+    aBuffer[aOffset + 1] = ( byte )( aValue >>> 16 );
+    aBuffer[aOffset + 2] = ( byte )( aValue >>> 8 );
+    aBuffer[aOffset + 3] = ( byte )aValue;
+  }
+
+  /**
+   * Finishes the PNG image, writing all pending data. Does <em>not</em> close
+   * the underlying stream.
+   * 
+   * @throws IOException
+   *           in case not all rows of the image are written, or in case of I/O
+   *           problems.
+   */
+  public void finish() throws IOException
+  {
+    try
+    {
+      if ( this.rowsWritten != this.height )
+      {
+        throw new IOException( "Incomplete image: only " + this.rowsWritten + " of " + this.height
+            + " rows written!" );
+      }
+
+      this.deflater.finish();
+      while ( !this.deflater.finished() )
+      {
+        writeCompressedData();
+      }
+
+      writeChunk( IEND, this.chunk, 0 );
+      this.stream.flush();
+    }
+    finally
+    {
+      this.deflater.end();
+    }
+  }
+
+  /**
+   * Writes the given rows of pixels.
+   * 
+   * @param aPixels
+   *          the pixels to write, as (A)RGB values, cannot be <code>null</code>;
+   * @param aScanline
+   *          the distance between two rows in the given pixels, &gt;= width of
+   *          the image;
+   * @param aRows
+   *          the number of rows to write.
+   * @throws IOException
+   *           in case more rows are written than the image height, or in case
+   *           of I/O problems.
+   */
+  public void writeRows( final int[] aPixels, final int aScanline, final int aRows ) throws IOException
+  {
+    if ( ( this.rowsWritten + aRows ) > this.height )
+    {
+      throw new IOException( "Too many rows written!" );
+    }
+
+    final byte[] buf = this.row;
+    for ( int r = 0; r < aRows; r++ )
+    {
+      final int offset = r * aScanline;
+
+      buf[0] = FILTER_SUB;
+
+      int prev = 0;
+      for ( int x = 0, i = 1; x < this.width; x++, i += 3 )
+      {
+        final int pixel = aPixels[offset + x];
+        buf[i] = ( byte )( ( pixel >> 16 ) - ( prev >> 16 ) );
+        buf[i + 1] = ( byte )( ( pixel >> 8 ) - ( prev >> 8 ) );
+        buf[i + 2] = ( byte )( pixel - prev );
+        prev = pixel;
+      }
+
+      this.deflater.setInput( buf, 0, buf.length );
+      while ( !this.deflater.needsInput() )
+      {
+        writeCompressedData();
+      }
+    }
+
+    this.rowsWritten += aRows;
+  }
+
+  /**
+   * Writes a single chunk with the given type and data.
+   */
+  private void writeChunk( final byte[] aType, final byte[] aData, final int aLength ) throws IOException
+  {
+    final byte[] intBuf = new byte[4];
+
+    putInt( intBuf, 0, aLength );
+    this.stream.write( intBuf );
+    this.stream.write( aType );
+    this.stream.write( aData, 0, aLength );
+
+    this.crc.reset();
+    this.crc.update( aType );
+    this.crc.update( aData, 0, aLength );
+
+    putInt( intBuf, 0, ( int )this.crc.getValue() );
+    this.stream.write( intBuf );
+  }
+
+  /**
+   * Writes the currently available compressed data as IDAT chunk.
+   */
+  private void writeCompressedData() throws IOException
+  {
+    final int length = this.deflater.deflate( this.chunk );
+    if ( length > 0 )
+    {
+      writeChunk( IDAT, this.chunk, length );
+    }
+  }
+}
+
+/* EOF */
@@ -0,0 +1,102 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.image;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.image.*;
+import java.io.*;
+
+import javax.imageio.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link PngEncoder}.
+ */
+public class PngEncoderTest
+{
+  // METHODS
+
+  /**
+   * Tests that an image written in multiple strips can be read back with the
+   * same pixels.
+   */
+  @Test
+  public void testWriteRowsInStripsOk() throws IOException
+  {
+    final int width = 37;
+    final int height = 11;
+
+    final int[] pixels = new int[width * 4];
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final PngEncoder encoder = new PngEncoder( baos, width, height );
+    for ( int y = 0; y < height; y += 4 )
+    {
+      final int rows = Math.min( 4, height - y );
+      for ( int r = 0; r < rows; r++ )
+      {
+        for ( int x = 0; x < width; x++ )
+        {
+          pixels[( r * width ) + x] = getPixel( x, y + r );
+        }
+      }
+      encoder.writeRows( pixels, width, rows );
+    }
+    encoder.finish();
+
+    final BufferedImage image = ImageIO.read( new ByteArrayInputStream( baos.toByteArray() ) );
+    assertEquals( width, image.getWidth() );
+    assertEquals( height, image.getHeight() );
+
+    for ( int y = 0; y < height; y++ )
+    {
+      for ( int x = 0; x < width; x++ )
+      {
+        assertEquals( getPixel( x, y ), image.getRGB( x, y ) & 0xFFFFFF );
+      }
+    }
+  }
+
+  /**
+   * Tests that finishing an incomplete image fails.
+   */
+  @Test( expected = IOException.class )
+  public void testFinishIncompleteImageFails() throws IOException
+  {
+    final PngEncoder encoder = new PngEncoder( new ByteArrayOutputStream(), 10, 10 );
+    encoder.writeRows( new int[10], 10, 1 );
+    encoder.finish();
+  }
+
+  /**
+   * Returns a test pixel for the given position.
+   */
+  private static int getPixel( final int aX, final int aY )
+  {
+    return ( ( aX * 7 ) & 0xFF ) << 16 | ( ( aY * 23 ) & 0xFF ) << 8 | ( ( aX * aY ) & 0xFF );
+  }
+}
+
+/* EOF */
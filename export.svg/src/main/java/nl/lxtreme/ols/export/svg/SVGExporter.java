@@ -21,64 +21,218 @@
 package nl.lxtreme.ols.export.svg;
 
 
-import java.awt.*;
 import java.io.*;
 import java.util.*;
 
 import javax.swing.*;
-import javax.swing.border.*;
 
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.export.*;
-
-import org.apache.batik.dom.*;
-import org.apache.batik.svggen.*;
-import org.w3c.dom.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
- * @author jawi
+ * Provides a scalable vector graphics (SVG) exporter, which renders the
+ * signals directly from the acquisition data.
+ * <p>
+ * Each enabled channel is written as a single path, streamed directly to the
+ * output. The horizontal scale is taken from the exported diagram, so the
+ * export reflects the current zoom level. Transitions that fall within the same
+ * horizontal unit are merged, so the size of the exported file is bound by its
+ * width rather than the number of samples. By default, the entire capture is
+ * exported; subclasses can restrict the export to the time window between the
+ * first two cursors.
+ * </p>
  */
-public class SVGExporter implements Exporter
+public class SVGExporter implements ProgressAwareExporter
 {
+  // CONSTANTS
+
+  /** The width used in case the diagram does not provide one. */
+  private static final int DEFAULT_WIDTH = 1024;
+  /** The maximum width of the exported image. */
+  private static final int MAX_WIDTH = 1 << 20;
+
+  private static final int LABEL_WIDTH = 100;
+  private static final int CHANNEL_HEIGHT = 20;
+  private static final int SIGNAL_HIGH = 3;
+  private static final int SIGNAL_LOW = 17;
+
+  private static final String BACKGROUND_COLOR = "#ffffff";
+  private static final String LABEL_COLOR = "#000000";
+  private static final String SIGNAL_COLOR = "#1a7a1a";
+
+  // VARIABLES
+
+  private final boolean cursorRange;
+  private final char[] intBuffer = new char[11];
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SVGExporter} instance.
+   */
+  public SVGExporter()
+  {
+    this( false );
+  }
+
+  /**
+   * Creates a new {@link SVGExporter} instance.
+   * 
+   * @param aCursorRange
+   *          <code>true</code> to only export the time window between the first
+   *          two cursors (if enabled and defined), <code>false</code> to always
+   *          export the entire capture.
+   */
+  protected SVGExporter( final boolean aCursorRange )
+  {
+    this.cursorRange = aCursorRange;
+  }
+
   // METHODS
 
   /**
-   * @see nl.lxtreme.ols.api.data.export.Exporter#export(nl.lxtreme.ols.api.data.DataContainer,
-   *      javax.swing.JComponent, java.io.OutputStream)
+   * Escapes the given text for use in XML.
+   * 
+   * @param aText
+   *          the text to escape, cannot be <code>null</code>.
+   * @return the escaped text, never <code>null</code>.
+   */
+  static String escapeXml( final String aText )
+  {
+    final StringBuilder sb = new StringBuilder( aText.length() );
+    for ( int i = 0; i < aText.length(); i++ )
+    {
+      final char c = aText.charAt( i );
+      switch ( c )
+      {
+        case '<':
+          sb.append( "&lt;" );
+          break;
+        case '>':
+          sb.append( "&gt;" );
+          break;
+        case '&':
+          sb.append( "&amp;" );
+          break;
+        case '"':
+          sb.append( "&quot;" );
+          break;
+        default:
+          sb.append( c );
+          break;
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * {@inheritDoc}
    */
   @Override
-  public void export( final DataContainer aContainer, final JComponent aComponent, final OutputStream aStream )
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
   {
-    // Get a DOMImplementation.
-    DOMImplementation domImpl = GenericDOMImplementation.getDOMImplementation();
+    export( aDataSet, aComponent, aStream, null );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream,
+      final TaskProgressListener aProgressListener ) throws IOException
+  {
+    final AcquisitionResult capturedData = aDataSet.getCapturedData();
+    if ( capturedData == null )
+    {
+      throw new IOException( "Nothing to export!" );
+    }
+
+    final long[] timestamps = capturedData.getTimestamps();
+    final long firstTimestamp = ( timestamps.length > 0 ) ? timestamps[0] : 0L;
+    final long totalLength = Math.max( 1L, capturedData.getAbsoluteLength() );
+
+    long start = firstTimestamp;
+    long end = firstTimestamp + totalLength;
+
+    final Cursor[] cursors = aDataSet.getCursors();
+    if ( this.cursorRange && aDataSet.isCursorsEnabled() && ( cursors.length > 1 ) && cursors[0].isDefined()
+        && cursors[1].isDefined() )
+    {
+      final long t1 = cursors[0].getTimestamp();
+      final long t2 = cursors[1].getTimestamp();
+      if ( t1 != t2 )
+      {
+        start = Math.min( t1, t2 );
+        end = Math.max( t1, t2 );
+      }
+    }
 
-    // Create an instance of org.w3c.dom.Document.
-    final String svgNS = "http://www.w3.org/2000/svg";
-    Document document = domImpl.createDocument( svgNS, "svg", null );
+    final int width = getExportWidth( aComponent, end - start, totalLength );
 
-    final SVGGeneratorContext ctx = SVGGeneratorContext.createDefault( document );
-    ctx.setComment( "Generated on " + new Date() );
+    final Channel[] channels = aDataSet.getChannels();
+    final int channelCount = Math.min( channels.length, capturedData.getChannels() );
+    final int enabledChannels = capturedData.getEnabledChannels();
 
-    // Create an instance of the SVG Generator.
-    final SVGGraphics2D svgGenerator = new SVGGraphics2D( ctx, false /* textAsShapes */);
-    // Make sure to set the correct canvas size, in order for viewers to get a
-    // notion of the size of the display...
-    svgGenerator.setSVGCanvasSize( getImageSize( aComponent ) );
-    // "Paint" the diagram component to SVG...
-    paintDiagram( svgGenerator, aComponent );
+    int rows = 0;
+    for ( int i = 0; i < channelCount; i++ )
+    {
+      if ( isExported( channels[i], enabledChannels ) )
+      {
+        rows++;
+      }
+    }
+
+    final int imageWidth = LABEL_WIDTH + width;
+    final int imageHeight = Math.max( 1, rows ) * CHANNEL_HEIGHT;
+
+    final ExportProgress progress = new ExportProgress( aProgressListener, rows );
 
-    Writer out = new OutputStreamWriter( aStream, "UTF-8" );
+    final Writer writer = new BufferedWriter( new OutputStreamWriter( aStream, "UTF-8" ), 64 * 1024 );
     try
     {
-      svgGenerator.stream( out, true /* useCSS */);
+      writer.write( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+      writer.write( "<!-- Generated on " + escapeXml( new Date().toString() ) + " -->\n" );
+      writer.write( "<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"" + imageWidth
+          + "\" height=\"" + imageHeight + "\" viewBox=\"0 0 " + imageWidth + " " + imageHeight + "\">\n" );
+      writer.write( "<rect width=\"100%\" height=\"100%\" fill=\"" + BACKGROUND_COLOR + "\"/>\n" );
+      writer.write( "<g font-family=\"sans-serif\" font-size=\"12\" fill=\"" + LABEL_COLOR + "\">\n" );
+
+      int row = 0;
+      for ( int i = 0; i < channelCount; i++ )
+      {
+        if ( !isExported( channels[i], enabledChannels ) )
+        {
+          continue;
+        }
+
+        final int y = row++ * CHANNEL_HEIGHT;
+
+        String label = channels[i].getLabel();
+        if ( ( label == null ) || "".equals( label.trim() ) )
+        {
+          label = "Channel " + i;
+        }
+
+        writer.write( "<text x=\"4\" y=\"" + ( y + SIGNAL_LOW - 2 ) + "\">" + escapeXml( label ) + "</text>\n" );
+
+        writer.write( "<path transform=\"translate(" + LABEL_WIDTH + "," + y + ")\" fill=\"none\" stroke=\""
+            + SIGNAL_COLOR + "\" stroke-width=\"1\" shape-rendering=\"crispEdges\" d=\"" );
+        writeSignalPath( writer, capturedData, i, start, end, width );
+        writer.write( "\"/>\n" );
+
+        progress.update( row );
+      }
+
+      writer.write( "</g>\n</svg>\n" );
+      progress.done();
     }
     finally
     {
-      out.flush();
-      out.close();
-      out = null;
+      writer.flush();
     }
   }
 
@@ -101,115 +255,156 @@ public class SVGExporter implements Exporter
   }
 
   /**
-   * Returns the export image size for the given component.
+   * Writes the path data of a single channel, merging all transitions that
+   * fall within the same horizontal unit.
    * 
-   * @param aDiagram
-   *          the component to get the export image size for, cannot be
-   *          <code>null</code>.
-   * @return a export image size, never <code>null</code>.
+   * @param aWriter
+   *          the writer to write the path data to;
+   * @param aData
+   *          the acquisition data to take the signal from;
+   * @param aChannel
+   *          the index of the channel to write;
+   * @param aStart
+   *          the start time of the exported window;
+   * @param aEnd
+   *          the end time of the exported window, &gt; start time;
+   * @param aWidth
+   *          the width of the exported window, &gt; 0.
+   * @throws IOException
+   *           in case of I/O problems.
    */
-  private Dimension getImageSize( final JComponent aDiagram )
+  final void writeSignalPath( final Writer aWriter, final AcquisitionResult aData, final int aChannel,
+      final long aStart, final long aEnd, final int aWidth ) throws IOException
   {
-    if ( aDiagram instanceof JScrollPane )
+    final int[] values = aData.getValues();
+    final long[] timestamps = aData.getTimestamps();
+    final int mask = 1 << aChannel;
+    final double scale = ( double )aWidth / ( aEnd - aStart );
+
+    // Start with the level of the sample in effect at the window start...
+    int idx = Arrays.binarySearch( timestamps, aStart );
+    if ( idx < 0 )
+    {
+      idx = Math.max( 0, -idx - 2 );
+    }
+    boolean level = ( values.length > 0 ) && ( ( values[idx] & mask ) != 0 );
+
+    aWriter.write( 'M' );
+    writeInt( aWriter, 0 );
+    aWriter.write( ' ' );
+    writeInt( aWriter, getY( level ) );
+
+    int column = -1;
+    boolean columnLevel = level;
+    boolean toggled = false;
+
+    for ( idx++; idx < values.length; idx++ )
     {
-      final JScrollPane scrollpane = ( JScrollPane )aDiagram;
+      final long timestamp = timestamps[idx];
+      if ( timestamp >= aEnd )
+      {
+        break;
+      }
 
-      final Dimension viewSize = scrollpane.getViewport().getViewSize();
-      final Dimension rowHeaderSize = scrollpane.getRowHeader().getViewSize();
-      final Dimension columnHeaderSize = scrollpane.getColumnHeader().getViewSize();
+      final boolean newLevel = ( values[idx] & mask ) != 0;
+      if ( newLevel == level )
+      {
+        continue;
+      }
 
-      final int width = viewSize.width + rowHeaderSize.width;
-      final int height = viewSize.height + columnHeaderSize.height;
+      final int x = ( timestamp <= aStart ) ? 0 : ( int )Math.min( aWidth, ( timestamp - aStart ) * scale );
+      if ( x != column )
+      {
+        writeColumn( aWriter, column, columnLevel, level, toggled );
+
+        column = x;
+        columnLevel = level;
+        toggled = false;
+      }
 
-      return new Dimension( width, height );
+      level = newLevel;
+      toggled = true;
     }
 
-    return aDiagram.getPreferredSize();
+    writeColumn( aWriter, column, columnLevel, level, toggled );
+
+    aWriter.write( 'H' );
+    writeInt( aWriter, aWidth );
   }
 
   /**
-   * Paints the given component on the given canvas.
-   * 
-   * @param aCanvas
-   *          the canvas to paint on, cannot be <code>null</code>;
-   * @param aDiagram
-   *          the component to paint, cannot be <code>null</code>.
-   * @see #paintScrollPaneContents(Graphics2D, JScrollPane)
+   * Returns the width of the exported window.
    */
-  private void paintDiagram( final Graphics2D aCanvas, final JComponent aDiagram )
+  private int getExportWidth( final JComponent aComponent, final long aWindowLength, final long aTotalLength )
   {
-    if ( aDiagram instanceof JScrollPane )
+    int viewWidth = 0;
+    if ( aComponent instanceof JScrollPane )
     {
-      paintScrollPaneContents( aCanvas, ( JScrollPane )aDiagram );
+      viewWidth = ( ( JScrollPane )aComponent ).getViewport().getViewSize().width;
     }
-    else
-    {
-      final Border border = aDiagram.getBorder();
-      if ( border != null )
-      {
-        final Insets insets = border.getBorderInsets( aDiagram );
-        if ( insets != null )
-        {
-          aCanvas.translate( -insets.left, -insets.top );
-        }
-      }
 
-      aDiagram.paint( aCanvas );
+    if ( viewWidth <= 0 )
+    {
+      return DEFAULT_WIDTH;
     }
+
+    final double width = Math.ceil( viewWidth * ( ( double )aWindowLength / aTotalLength ) );
+    return ( int )Math.max( 1.0, Math.min( MAX_WIDTH, width ) );
   }
 
   /**
-   * Paints the contents of the given scrollpane on the given canvas, expanding
-   * it to its full view (without scroll bars).
-   * 
-   * @param aCanvas
-   *          the canvas to paint on, cannot be <code>null</code>;
-   * @param aScrollPane
-   *          the scroll pane to paint, cannot be <code>null</code>.
+   * Returns the Y-coordinate for the given signal level.
    */
-  private void paintScrollPaneContents( final Graphics2D aCanvas, final JScrollPane aScrollPane )
+  private int getY( final boolean aLevel )
   {
-    int offsetX = 0;
-    int offsetY = 0;
-
-    final Component rowHeaderView = aScrollPane.getRowHeader().getView();
-    final Component columnHeaderView = aScrollPane.getColumnHeader().getView();
-    final Component cornerView = aScrollPane.getCorner( ScrollPaneConstants.UPPER_LEADING_CORNER );
-    final Component contentView = aScrollPane.getViewport().getView();
+    return aLevel ? SIGNAL_HIGH : SIGNAL_LOW;
+  }
 
-    if ( rowHeaderView != null )
-    {
-      offsetX = rowHeaderView.getWidth();
-    }
-    if ( columnHeaderView != null )
-    {
-      offsetY = columnHeaderView.getHeight();
-    }
+  /**
+   * Returns whether the given channel is to be exported.
+   */
+  private boolean isExported( final Channel aChannel, final int aEnabledChannels )
+  {
+    return aChannel.isEnabled() && ( ( aEnabledChannels & aChannel.getMask() ) != 0 );
+  }
 
-    if ( cornerView != null )
+  /**
+   * Writes all transitions of a single column, drawing a vertical bar in case
+   * the signal toggled back to its original level within that column.
+   */
+  private void writeColumn( final Writer aWriter, final int aColumn, final boolean aStartLevel,
+      final boolean aEndLevel, final boolean aToggled ) throws IOException
+  {
+    if ( !aToggled )
     {
-      cornerView.paint( aCanvas );
+      return;
     }
 
-    if ( columnHeaderView != null )
+    aWriter.write( 'H' );
+    writeInt( aWriter, aColumn );
+    if ( aStartLevel == aEndLevel )
     {
-      aCanvas.translate( offsetX, 0 );
-      columnHeaderView.paint( aCanvas );
-      aCanvas.translate( -offsetX, 0 );
+      aWriter.write( 'V' );
+      writeInt( aWriter, getY( !aStartLevel ) );
     }
+    aWriter.write( 'V' );
+    writeInt( aWriter, getY( aEndLevel ) );
+  }
 
-    if ( rowHeaderView != null )
+  /**
+   * Writes the given non-negative integer value without intermediary objects.
+   */
+  private void writeInt( final Writer aWriter, final int aValue ) throws IOException
+  {
+    int value = aValue;
+    int pos = this.intBuffer.length;
+    do
     {
-      aCanvas.translate( 0, offsetY );
-      rowHeaderView.paint( aCanvas );
-      aCanvas.translate( 0, -offsetY );
+      this.intBuffer[--pos] = ( char )( '0' + ( value % 10 ) );
+      value /= 10;
     }
+    while ( value > 0 );
 
-    if ( contentView != null )
-    {
-      aCanvas.translate( offsetX, offsetY );
-      contentView.paint( aCanvas );
-      aCanvas.translate( -offsetX, -offsetY );
-    }
+    aWriter.write( this.intBuffer, pos, this.intBuffer.length - pos );
   }
 }
@@ -0,0 +1,166 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.svg;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.test.data.project.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link SVGExporter}.
+ */
+public class SVGExporterTest
+{
+  // VARIABLES
+
+  private SVGExporter exporter;
+
+  // METHODS
+
+  /**
+   * Sets up the test cases.
+   */
+  @Before
+  public void setUp()
+  {
+    this.exporter = new SVGExporter();
+  }
+
+  /**
+   * Test method for
+   * {@link SVGExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that only the cursor range exporter honours the cursors.
+   * </p>
+   */
+  @Test
+  public void testExportCursorRangeIsOptInOk() throws IOException
+  {
+    final StubDataSet dataSet = ( StubDataSet )DataTestUtils.createStubDataSet( 16, 8 );
+    dataSet.setCursorsEnabled( false );
+
+    final String wholeCapture = exportToString( this.exporter, dataSet );
+
+    dataSet.setCursorsEnabled( true );
+    dataSet.getCursor( 0 ).setTimestamp( 2L );
+    dataSet.getCursor( 1 ).setTimestamp( 5L );
+
+    assertEquals( wholeCapture, exportToString( this.exporter, dataSet ) );
+    assertFalse( wholeCapture.equals( exportToString( new SVGCursorRangeExporter(), dataSet ) ) );
+  }
+
+  /**
+   * Test method for
+   * {@link SVGExporter#export(DataSet, JComponent, OutputStream)}.
+   */
+  @Test
+  public void testExportWritesOnePathPerChannelOk() throws IOException
+  {
+    final DataSet dataSet = DataTestUtils.createStubDataSet( 16, 8 );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    this.exporter.export( dataSet, mock( JComponent.class ), baos );
+
+    final String svg = baos.toString( "UTF-8" );
+    assertTrue( svg.startsWith( "<?xml" ) );
+    assertTrue( svg.trim().endsWith( "</svg>" ) );
+    assertEquals( 8, svg.split( "<path " ).length - 1 );
+  }
+
+  /**
+   * Test method for
+   * {@link SVGExporter#writeSignalPath(Writer, nl.lxtreme.ols.api.acquisition.AcquisitionResult, int, long, long, int)}
+   * .
+   */
+  @Test
+  public void testWriteSignalPathMergesTransitionsOk() throws IOException
+  {
+    final int[] values = { 0, 1, 0, 1, 0, 1 };
+    final long[] timestamps = { 0L, 10L, 20L, 21L, 22L, 50L };
+    final CapturedData data = new CapturedData( values, timestamps, -1L, 100, 8, 0xFF, 100L );
+
+    final StringWriter writer = new StringWriter();
+    this.exporter.writeSignalPath( writer, data, 0, 0L, 100L, 10 );
+
+    // The toggles at 20..22 fall within a single unit...
+    assertEquals( "M0 17H1V3H2V17H5V3H10", writer.toString() );
+
+    // A pulse within a single unit is drawn as vertical bar...
+    final int[] glitchValues = { 0, 1, 0, 1 };
+    final long[] glitchTimestamps = { 0L, 10L, 11L, 50L };
+    final CapturedData glitchData = new CapturedData( glitchValues, glitchTimestamps, -1L, 100, 8, 0xFF, 100L );
+
+    final StringWriter glitchWriter = new StringWriter();
+    this.exporter.writeSignalPath( glitchWriter, glitchData, 0, 0L, 100L, 10 );
+
+    assertEquals( "M0 17H1V3V17H5V3H10", glitchWriter.toString() );
+  }
+
+  /**
+   * Test method for
+   * {@link SVGExporter#writeSignalPath(Writer, nl.lxtreme.ols.api.acquisition.AcquisitionResult, int, long, long, int)}
+   * .
+   */
+  @Test
+  public void testWriteSignalPathWithinWindowOk() throws IOException
+  {
+    final int[] values = { 0, 1, 0, 1 };
+    final long[] timestamps = { 0L, 10L, 20L, 30L };
+    final CapturedData data = new CapturedData( values, timestamps, -1L, 100, 8, 0xFF, 40L );
+
+    final StringWriter writer = new StringWriter();
+    this.exporter.writeSignalPath( writer, data, 0, 15L, 25L, 10 );
+
+    assertEquals( "M0 3H5V17H10", writer.toString() );
+  }
+
+  /**
+   * Test method for {@link SVGExporter#escapeXml(String)}.
+   */
+  @Test
+  public void testEscapeXmlOk()
+  {
+    assertEquals( "a&lt;b&gt;&amp;&quot;", SVGExporter.escapeXml( "a<b>&\"" ) );
+  }
+
+  /**
+   * Exports the given data set with the given exporter.
+   */
+  private String exportToString( final SVGExporter aExporter, final DataSet aDataSet ) throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    aExporter.export( aDataSet, mock( JComponent.class ), baos );
+    return baos.toString( "UTF-8" );
+  }
+}
+
+/* EOF */
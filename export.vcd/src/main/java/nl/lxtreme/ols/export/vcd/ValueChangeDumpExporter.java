@@ -30,6 +30,7 @@ import javax.swing.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.util.*;
 
 
@@ -37,13 +38,16 @@ import nl.lxtreme.ols.util.*;
  * Provides a exporter for the "value change dump" format, as specified in IEEE
  * Std 1364-2001.
  */
-public class ValueChangeDumpExporter implements Exporter
+public class ValueChangeDumpExporter implements ProgressAwareExporter
 {
   // CONSTANTS
 
   private static final String ID = "OLS Java Client";
   private static final String VERSION = "VCD exporter v1.1";
 
+  /** The number of samples written between two progress updates. */
+  private static final int PROGRESS_INTERVAL = 64 * 1024;
+
   // METHODS
 
   /**
@@ -52,6 +56,16 @@ public class ValueChangeDumpExporter implements Exporter
   @Override
   public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
+  {
+    export( aDataSet, aComponent, aStream, null );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream,
+      final TaskProgressListener aProgressListener ) throws IOException
   {
     final PrintWriter writer = new PrintWriter( aStream );
     try
@@ -62,7 +76,13 @@ public class ValueChangeDumpExporter implements Exporter
 
       writePreamble( writer, aDataSet, timescale );
       writeVariableDump( writer, aDataSet );
-      writeDataDump( writer, capturedData, timescale );
+      writer.flush();
+
+      final ValueChangeDumpWriter dumpWriter = new ValueChangeDumpWriter( aStream, capturedData.getChannels(),
+          capturedData.getSampleRate(), timescale );
+      writeDataDump( dumpWriter, capturedData, new ExportProgress( aProgressListener,
+          capturedData.getValues().length ) );
+      dumpWriter.flush();
     }
     finally
     {
@@ -89,11 +109,19 @@ public class ValueChangeDumpExporter implements Exporter
   }
 
   /**
+   * Writes all value changes of the given captured data.
+   * 
    * @param aWriter
+   *          the value change dump writer to write to;
    * @param aCapturedData
-   * @param aTimebase
+   *          the captured data to write;
+   * @param aProgress
+   *          the progress of the export, updated regularly while writing.
+   * @throws IOException
+   *           in case of I/O problems.
    */
-  protected void writeDataDump( final PrintWriter aWriter, final AcquisitionResult aCapturedData, final double aTimebase )
+  protected void writeDataDump( final ValueChangeDumpWriter aWriter, final AcquisitionResult aCapturedData,
+      final ExportProgress aProgress ) throws IOException
   {
     final int[] values = aCapturedData.getValues();
     final long[] timestamps = aCapturedData.getTimestamps();
@@ -104,21 +132,23 @@ public class ValueChangeDumpExporter implements Exporter
     for ( int i = 0, size = values.length; i < size; i++ )
     {
       final int value = values[i];
-      final long timestamp = timestamps[i];
-
-      final int time = ( int )( timestamp / ( aCapturedData.getSampleRate() * aTimebase ) );
 
       if ( ( i == 0 ) || ( oldValue != value ) )
       {
-        writeTime( aWriter, time );
+        writeTime( aWriter, aWriter.toTime( timestamps[i] ) );
         writeVariableData( aWriter, channelCount, channelMask, value, oldValue, ( i == 0 ) );
       }
 
       oldValue = value;
+
+      if ( ( i % PROGRESS_INTERVAL ) == 0 )
+      {
+        aProgress.update( i );
+      }
     }
 
-    final int time = ( int )( aCapturedData.getAbsoluteLength() / ( aCapturedData.getSampleRate() * aTimebase ) );
-    writeTime( aWriter, time );
+    writeTime( aWriter, aWriter.toTime( aCapturedData.getAbsoluteLength() ) );
+    aProgress.done();
   }
 
   /**
@@ -144,51 +174,58 @@ public class ValueChangeDumpExporter implements Exporter
    */
   protected void writeSingleVariableDefinition( final PrintWriter aWriter, final int aIndex )
   {
-    aWriter.printf( "x%s", getIdentifier( aIndex ) ).println();
+    aWriter.printf( "x%s", getIdentifier( aIndex ) ).print( '\n' );
   }
 
   /**
+   * Writes the given time value.
+   * 
    * @param aWriter
-   * @param aTimebase
+   *          the value change dump writer to write to;
+   * @param aTime
+   *          the time value, in units of the timebase.
+   * @throws IOException
+   *           in case of I/O problems.
    */
-  protected void writeTime( final PrintWriter aWriter, final long aTimebase )
+  protected void writeTime( final ValueChangeDumpWriter aWriter, final long aTime ) throws IOException
   {
-    ValueChangeDumpHelper.writeTime( aWriter, aTimebase );
+    aWriter.writeTime( aTime );
   }
 
   /**
+   * Writes the values of all channels that changed with respect to the old
+   * value.
+   * 
    * @param aWriter
-   *          the writer to write the variable data to;
+   *          the value change dump writer to write to;
    * @param aChannelCount
    *          the total channel count;
    * @param aChannelMask
    *          the enabled channel mask;
    * @param aValue
-   *          the value to write.
+   *          the value to write;
+   * @param aOldValue
+   *          the previously written value;
+   * @param aAllBits
+   *          <code>true</code> to write all enabled channels,
+   *          <code>false</code> to write only the changed channels.
+   * @throws IOException
+   *           in case of I/O problems.
    */
-  protected void writeVariableData( final PrintWriter aWriter, final int aChannelCount, final int aChannelMask,
-      final int aValue, final int aOldValue, final boolean aAllBits )
+  protected void writeVariableData( final ValueChangeDumpWriter aWriter, final int aChannelCount,
+      final int aChannelMask, final int aValue, final int aOldValue, final boolean aAllBits ) throws IOException
   {
-    int value = aValue;
-    int oldValue = aOldValue;
-    int mask = aChannelMask;
-    for ( int i = 0; i < aChannelCount; i++ )
+    int changed = aAllBits ? aChannelMask : ( ( aValue ^ aOldValue ) & aChannelMask );
+    if ( aChannelCount < 32 )
     {
-      if ( ( mask & ( 1 << i ) ) == 0 )
-      {
-        continue;
-      }
-
-      final int bitValue = ( value & 1 );
-      final int oldBitValue = ( oldValue & 1 );
-
-      if ( aAllBits || ( bitValue != oldBitValue ) )
-      {
-        aWriter.printf( "%d%s", Integer.valueOf( bitValue ), getIdentifier( i ) ).println();
-      }
+      changed &= ( 1 << aChannelCount ) - 1;
+    }
 
-      value >>= 1;
-      oldValue >>= 1;
+    while ( changed != 0 )
+    {
+      final int channel = Integer.numberOfTrailingZeros( changed );
+      aWriter.writeValue( channel, ( aValue >>> channel ) & 1 );
+      changed &= changed - 1;
     }
   }
 
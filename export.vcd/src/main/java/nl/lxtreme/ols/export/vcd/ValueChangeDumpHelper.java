@@ -57,8 +57,7 @@ public class ValueChangeDumpHelper
     {
       throw new IllegalArgumentException( "More than 90 identifiers are not supported!" );
     }
-    int id = '!' + aIndex;
-    return String.format( "%c", Integer.valueOf( id ) );
+    return String.valueOf( ( char )( '!' + aIndex ) );
   }
 
   /**
@@ -108,7 +107,7 @@ public class ValueChangeDumpHelper
    */
   public static final void writeCloseDeclaration( final PrintWriter aWriter )
   {
-    aWriter.println( "$end" );
+    aWriter.print( "$end\n" );
   }
 
   /**
@@ -129,12 +128,12 @@ public class ValueChangeDumpHelper
     aWriter.printf( "$%s ", aKeyword );
     for ( String value : aValues )
     {
-      aWriter.println();
+      aWriter.print( '\n' );
       aWriter.printf( "  %s", value );
     }
     if ( aValues.length > 0 )
     {
-      aWriter.println();
+      aWriter.print( '\n' );
     }
     writeCloseDeclaration( aWriter );
   }
@@ -146,7 +145,7 @@ public class ValueChangeDumpHelper
    */
   public static final void writeOpenDeclaration( final PrintWriter aWriter, final String aKeyword )
   {
-    aWriter.printf( "$%s", aKeyword ).println();
+    aWriter.printf( "$%s", aKeyword ).print( '\n' );
   }
 
   /**
@@ -155,7 +154,7 @@ public class ValueChangeDumpHelper
    */
   public static final void writeTime( final PrintWriter aWriter, final long aTimebase )
   {
-    aWriter.printf( "#%d", Long.valueOf( aTimebase ) ).println();
+    aWriter.printf( "#%d", Long.valueOf( aTimebase ) ).print( '\n' );
   }
 
   /**
@@ -174,7 +173,7 @@ public class ValueChangeDumpHelper
    */
   public static final void writeVariable( final PrintWriter aWriter, final int aIndex, final String aLabel )
   {
-    aWriter.printf( "$var wire 1 %s %s $end", getIdentifier( aIndex ), aLabel ).println();
+    aWriter.printf( "$var wire 1 %s %s $end", getIdentifier( aIndex ), aLabel ).print( '\n' );
   }
 
   /**
@@ -0,0 +1,239 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.vcd;
+
+
+import java.io.*;
+
+
+/**
+ * Provides a writer for the value changes of a value change dump, emitting
+ * directly into a reusable byte buffer.
+ * <p>
+ * All identifiers are precomputed, and time values are scaled using integer
+ * arithmetic only, making this writer suitable for very large captures.
+ * </p>
+ */
+final class ValueChangeDumpWriter
+{
+  // CONSTANTS
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  /** The maximum length of a single line: '#' + 19 digits + newline. */
+  private static final int MAX_LINE_LENGTH = 21;
+
+  // VARIABLES
+
+  private final OutputStream stream;
+  private final byte[][] identifiers;
+  private final byte[] buffer;
+  private final byte[] digits;
+  private final long timeNumerator;
+  private final long timeDenominator;
+
+  private int bufferPos;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ValueChangeDumpWriter} instance.
+   * 
+   * @param aStream
+   *          the stream to write to, cannot be <code>null</code>;
+   * @param aChannelCount
+   *          the number of channels to write, &gt;= 0;
+   * @param aSampleRate
+   *          the sample rate of the data to write, &gt; 0;
+   * @param aTimebase
+   *          the timebase of the dump, as returned by
+   *          {@link ValueChangeDumpHelper#getTimebase(long)}.
+   */
+  public ValueChangeDumpWriter( final OutputStream aStream, final int aChannelCount, final int aSampleRate,
+      final double aTimebase )
+  {
+    this.stream = aStream;
+    this.buffer = new byte[BUFFER_SIZE];
+    this.digits = new byte[20];
+
+    this.identifiers = new byte[aChannelCount][];
+    for ( int i = 0; i < aChannelCount; i++ )
+    {
+      this.identifiers[i] = ValueChangeDumpHelper.getIdentifier( i ).getBytes();
+    }
+
+    // The timebase is always 1, 10 or 100 times a power of 1000 (in seconds),
+    // so the time of a sample is "timestamp * 10^exp / (rate * n)"...
+    int exponent = 0;
+    double scaledTimebase = aTimebase;
+    while ( ( exponent < 18 ) && ( scaledTimebase < 0.5 ) )
+    {
+      scaledTimebase *= 1000.0;
+      exponent += 3;
+    }
+
+    long numerator = 1L;
+    for ( int i = 0; i < exponent; i++ )
+    {
+      numerator *= 10L;
+    }
+    long denominator = Math.max( 1L, aSampleRate * Math.max( 1L, Math.round( scaledTimebase ) ) );
+
+    final long gcd = gcd( numerator, denominator );
+    this.timeNumerator = numerator / gcd;
+    this.timeDenominator = denominator / gcd;
+  }
+
+  // METHODS
+
+  /**
+   * Returns the greatest common divisor of the two given values.
+   */
+  private static long gcd( final long aA, final long aB )
+  {
+    long a = aA;
+    long b = aB;
+    while ( b != 0L )
+    {
+      final long t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+
+  /**
+   * Flushes all buffered data to the underlying stream.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void flush() throws IOException
+  {
+    if ( this.bufferPos > 0 )
+    {
+      this.stream.write( this.buffer, 0, this.bufferPos );
+      this.bufferPos = 0;
+    }
+    this.stream.flush();
+  }
+
+  /**
+   * Converts the given timestamp (in samples) to a time value in units of the
+   * timebase of this writer.
+   * 
+   * @param aTimestamp
+   *          the timestamp to convert, &gt;= 0.
+   * @return the time value, &gt;= 0.
+   */
+  public long toTime( final long aTimestamp )
+  {
+    final long num = this.timeNumerator;
+    final long den = this.timeDenominator;
+    if ( aTimestamp <= ( Long.MAX_VALUE / num ) )
+    {
+      return ( aTimestamp * num ) / den;
+    }
+    // Split to avoid overflowing the intermediate result...
+    final long remainder = aTimestamp % den;
+    final long result = ( aTimestamp / den ) * num;
+    if ( remainder <= ( Long.MAX_VALUE / num ) )
+    {
+      return result + ( ( remainder * num ) / den );
+    }
+    return result + ( long )( remainder * ( ( double )num / den ) );
+  }
+
+  /**
+   * Writes the given time value as "#time" line.
+   * 
+   * @param aTime
+   *          the time value to write, &gt;= 0.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeTime( final long aTime ) throws IOException
+  {
+    ensureCapacity( MAX_LINE_LENGTH );
+
+    final byte[] buf = this.buffer;
+    int pos = this.bufferPos;
+    buf[pos++] = '#';
+
+    long time = aTime;
+    int count = 0;
+    do
+    {
+      this.digits[count++] = ( byte )( '0' + ( time % 10L ) );
+      time /= 10L;
+    }
+    while ( time > 0L );
+
+    while ( count > 0 )
+    {
+      buf[pos++] = this.digits[--count];
+    }
+    buf[pos++] = '\n';
+
+    this.bufferPos = pos;
+  }
+
+  /**
+   * Writes the value of a single channel.
+   * 
+   * @param aChannel
+   *          the index of the channel to write;
+   * @param aValue
+   *          the value of the channel, 0 or 1.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeValue( final int aChannel, final int aValue ) throws IOException
+  {
+    final byte[] id = this.identifiers[aChannel];
+
+    ensureCapacity( id.length + 2 );
+
+    final byte[] buf = this.buffer;
+    int pos = this.bufferPos;
+    buf[pos++] = ( byte )( '0' + aValue );
+    for ( int i = 0; i < id.length; i++ )
+    {
+      buf[pos++] = id[i];
+    }
+    buf[pos++] = '\n';
+
+    this.bufferPos = pos;
+  }
+
+  /**
+   * Writes out the buffer in case it cannot hold the given number of bytes.
+   */
+  private void ensureCapacity( final int aLength ) throws IOException
+  {
+    if ( ( this.bufferPos + aLength ) > this.buffer.length )
+    {
+      this.stream.write( this.buffer, 0, this.bufferPos );
+      this.bufferPos = 0;
+    }
+  }
+}
+
+/* EOF */
@@ -80,9 +80,9 @@ public class ValueChangeDumpExporterTest
 
     verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
     verify( this.exporter, times( 16 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 2 ) ).writeVariableData( any( PrintWriter.class ), eq( 16 ), eq( 65535 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 3 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    verify( this.exporter, times( 2 ) ).writeVariableData( any( ValueChangeDumpWriter.class ), eq( 16 ), eq( 65535 ),
+        anyInt(), anyInt(), anyBoolean() );
+    verify( this.exporter, times( 3 ) ).writeTime( any( ValueChangeDumpWriter.class ), anyLong() );
   }
 
   /**
@@ -102,9 +102,9 @@ public class ValueChangeDumpExporterTest
 
     verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
     verify( this.exporter, times( 8 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 4 ) ).writeVariableData( any( PrintWriter.class ), eq( 8 ), eq( 255 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 5 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    verify( this.exporter, times( 4 ) ).writeVariableData( any( ValueChangeDumpWriter.class ), eq( 8 ), eq( 255 ),
+        anyInt(), anyInt(), anyBoolean() );
+    verify( this.exporter, times( 5 ) ).writeTime( any( ValueChangeDumpWriter.class ), anyLong() );
   }
 
   /**
@@ -150,8 +150,8 @@ public class ValueChangeDumpExporterTest
 
     verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
     verify( this.exporter, times( 1 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 16 ) ).writeVariableData( any( PrintWriter.class ), eq( 1 ), eq( 1 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 17 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    verify( this.exporter, times( 16 ) ).writeVariableData( any( ValueChangeDumpWriter.class ), eq( 1 ), eq( 1 ),
+        anyInt(), anyInt(), anyBoolean() );
+    verify( this.exporter, times( 17 ) ).writeTime( any( ValueChangeDumpWriter.class ), anyLong() );
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.vcd;
+
+
+import static nl.lxtreme.ols.export.vcd.ValueChangeDumpHelper.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link ValueChangeDumpWriter}.
+ */
+public class ValueChangeDumpWriterTest
+{
+  // METHODS
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#toTime(long)}.
+   */
+  @Test
+  public void testToTimeOk()
+  {
+    // 100MHz => 10ns timebase...
+    ValueChangeDumpWriter writer = createWriter( new ByteArrayOutputStream(), 100000000 );
+    assertEquals( 0L, writer.toTime( 0L ) );
+    assertEquals( 12345L, writer.toTime( 12345L ) );
+
+    // 3MHz => 100ns timebase...
+    writer = createWriter( new ByteArrayOutputStream(), 3000000 );
+    assertEquals( 3L, writer.toTime( 1L ) );
+    assertEquals( 10L, writer.toTime( 3L ) );
+    assertEquals( 33333333333L, writer.toTime( 10000000000L ) );
+
+    // Time values beyond the range of an integer do not wrap...
+    writer = createWriter( new ByteArrayOutputStream(), 1 );
+    assertEquals( Long.MAX_VALUE, writer.toTime( Long.MAX_VALUE ) );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeTime(long)} and
+   * {@link ValueChangeDumpWriter#writeValue(int, int)}.
+   */
+  @Test
+  public void testWriteTimeAndValuesOk() throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final ValueChangeDumpWriter writer = createWriter( baos, 1000000 );
+
+    writer.writeTime( 0L );
+    writer.writeValue( 0, 1 );
+    writer.writeValue( 31, 0 );
+    writer.writeTime( 5000000000L );
+    writer.flush();
+
+    assertEquals( "#0\n1!\n0@\n#5000000000\n", baos.toString( "US-ASCII" ) );
+  }
+
+  /**
+   * Creates a new writer for 32 channels.
+   */
+  private ValueChangeDumpWriter createWriter( final OutputStream aStream, final int aSampleRate )
+  {
+    return new ValueChangeDumpWriter( aStream, 32, aSampleRate, getTimebase( aSampleRate ) );
+  }
+}
+
+/* EOF */
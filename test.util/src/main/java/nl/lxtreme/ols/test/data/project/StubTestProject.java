@@ -31,6 +31,7 @@ import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.test.data.*;
 
 
@@ -63,6 +64,24 @@ public class StubTestProject implements Project
 
   // METHODS
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getAcquisitionHistoryIndex()
+  {
+    return -1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getAcquisitionHistorySize()
+  {
+    return 0;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -140,6 +159,15 @@ public class StubTestProject implements Project
     OlsDataHelper.read( this.dataSet, aReader );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void selectAcquisition( final int aIndex ) throws IOException
+  {
+    throw new IndexOutOfBoundsException( "No acquisition history!" );
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.Project#setCapturedData(AcquisitionResult)
    */
@@ -230,4 +258,13 @@ public class StubTestProject implements Project
   {
     OlsDataHelper.write( this.dataSet, aWriter );
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeData( final Writer aWriter, final TaskProgressListener aListener ) throws IOException
+  {
+    writeData( aWriter );
+  }
 }
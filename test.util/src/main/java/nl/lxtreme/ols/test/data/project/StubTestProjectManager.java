@@ -25,6 +25,7 @@ import java.beans.*;
 import java.io.*;
 
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
@@ -102,6 +103,15 @@ public class StubTestProjectManager implements ProjectManager
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void saveProject( final OutputStream aOutput, final TaskProgressListener aListener ) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * @param aProject
    */
@@ -21,14 +21,10 @@
 package nl.lxtreme.ols.tool.onewire;
 
 
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.*;
 import static nl.lxtreme.ols.util.swing.SwingComponentUtils.*;
 
 import java.awt.*;
 import java.io.*;
-import java.text.*;
-import java.util.*;
-import java.util.List;
 
 import javax.swing.*;
 
@@ -38,10 +34,6 @@ import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.ToolUtils.RestorableAction;
 import nl.lxtreme.ols.util.*;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
-import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
 import nl.lxtreme.ols.util.swing.*;
 
 import org.osgi.framework.*;
@@ -52,6 +44,85 @@ import org.osgi.framework.*;
  */
 public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implements ExportAware<OneWireDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Provides the table model for the decoded 1-Wire data.
+   */
+  static final class OneWireDataTableModel extends ToolResultTableModel<OneWireData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Color RESET_COLOR = new Color( 0xe0e0e0 );
+    private static final Color UNKNOWN_EVENT_COLOR = new Color( 0xff8000 );
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new OneWireDataTableModel instance.
+     */
+    public OneWireDataTableModel()
+    {
+      super( "Index", "Time", "Hex", "Bin", "Dec", "ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRowIndex, final OneWireData aRow )
+    {
+      if ( !aRow.isEvent() )
+      {
+        return null;
+      }
+      if ( OneWireDataSet.OW_RESET.equals( aRow.getEventName() ) )
+      {
+        return RESET_COLOR;
+      }
+      // unknown event
+      return UNKNOWN_EVENT_COLOR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRowIndex, final OneWireData aRow, final int aColumnIndex )
+    {
+      if ( aColumnIndex == 0 )
+      {
+        return String.valueOf( aRowIndex );
+      }
+      else if ( aColumnIndex == 1 )
+      {
+        return formatTime( aRow.getStartSampleIndex() );
+      }
+
+      if ( aRow.isEvent() )
+      {
+        return ( aColumnIndex == 2 ) ? aRow.getEventName() : null;
+      }
+
+      final int value = aRow.getValue();
+      switch ( aColumnIndex )
+      {
+        case 2:
+          return "0x" + StringUtils.integerToHexString( value, 2 );
+        case 3:
+          return "0b" + StringUtils.integerToBinString( value, 8 );
+        case 4:
+          return String.valueOf( value );
+        default:
+          return String.valueOf( ( char )value );
+      }
+    }
+  }
+
   // CONSTANTS
 
   private static final long serialVersionUID = 1L;
@@ -60,7 +131,8 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
 
   private JComboBox owLine;
   private JComboBox owMode;
-  private JEditorPane outText;
+  private OneWireDataTableModel resultModel;
+  private ToolResultView resultView;
 
   private RestorableAction runAnalysisAction;
   private Action exportAction;
@@ -99,13 +171,50 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
   public void exportToFile( final File aOutputFile, final ExportFormat aFormat ) throws IOException
   {
     final OneWireDataSet lastResult = getLastResult();
-    if ( ExportFormat.HTML.equals( aFormat ) )
+
+    final ToolResultWriter writer = ToolResultWriter.create( aOutputFile, aFormat );
+    try
     {
-      toHtmlPage( aOutputFile, lastResult );
+      if ( ExportFormat.HTML.equals( aFormat ) )
+      {
+        writer.writeTitle( "1-Wire Analysis results" );
+        writer.writeProperty( "Decoded bytes", Integer.valueOf( lastResult.getDecodedByteCount() ) );
+        writer.writeProperty( "Detected bus errors", Integer.valueOf( lastResult.getBusErrorCount() ) );
+        writer.write( lastResult.getData(), this.resultModel );
+      }
+      else if ( ExportFormat.CSV.equals( aFormat ) )
+      {
+        writer.write( lastResult.getData(), new ToolResultWriter.RowCallback<OneWireData>()
+        {
+          @Override
+          public void writeFooter( final ToolResultWriter aWriter )
+          {
+            // NO-op
+          }
+
+          @Override
+          public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+          {
+            aWriter.writeColumns( "index", "start-time", "end-time", "event?", "event-type", "data" );
+          }
+
+          @Override
+          public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final OneWireData aRow )
+              throws IOException
+          {
+            final String startTime = UnitOfTime.format( lastResult.getTime( aRow.getStartSampleIndex() ) );
+            final String endTime = UnitOfTime.format( lastResult.getTime( aRow.getEndSampleIndex() ) );
+            final String data = aRow.isEvent() ? null : Integer.toString( aRow.getValue() );
+
+            aWriter.writeRow( null, Integer.valueOf( aRowIndex ), startTime, endTime,
+                Boolean.valueOf( aRow.isEvent() ), aRow.getEventName(), data );
+          }
+        } );
+      }
     }
-    else if ( ExportFormat.CSV.equals( aFormat ) )
+    finally
     {
-      // TODO!
+      writer.close();
     }
   }
 
@@ -127,9 +236,8 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
   @Override
   public void reset()
   {
-    final String emptyHtmlPage = getEmptyHtmlPage();
-    this.outText.setText( emptyHtmlPage );
-    this.outText.setEditable( false );
+    this.resultModel.setDataSet( null );
+    this.resultView.setSummary( null );
 
     this.runAnalysisAction.restore();
 
@@ -154,32 +262,19 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
   @Override
   protected void onToolEnded( final OneWireDataSet aResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aResult );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-      }
+    this.resultModel.setDataSet( aResult );
 
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
-
-      this.runAnalysisAction.restore();
+    if ( aResult != null )
+    {
+      this.resultView.setSummary( String.format( "Decoded bytes: %d, detected bus errors: %d",
+          Integer.valueOf( aResult.getDecodedByteCount() ), Integer.valueOf( aResult.getBusErrorCount() ) ) );
     }
-    catch ( final IOException exception )
+    else
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // This should not happen for the no-file exports!
-        throw new RuntimeException( exception );
-      }
+      this.resultView.setSummary( null );
     }
+
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -216,75 +311,15 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
     this.exportAction.setEnabled( aEnabled );
   }
 
-  /**
-   * Creates the HTML template for exports to HTML.
-   * 
-   * @param aExporter
-   *          the HTML exporter instance to use, cannot be <code>null</code>.
-   * @return a HTML exporter filled with the template, never <code>null</code>.
-   */
-  private HtmlExporter createHtmlTemplate( final HtmlExporter aExporter )
-  {
-    aExporter.addCssStyle( "body { font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table { border-width: 1px; border-spacing: 0px; border-color: gray;"
-        + " border-collapse: collapse; border-style: solid; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " background-color: #C0C0FF; text-align: left; font-weight: bold; font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " font-family: monospace; } " );
-    aExporter.addCssStyle( ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( ".w100 { width: 100%; } " );
-    aExporter.addCssStyle( ".w30 { width: 30%; } " );
-    aExporter.addCssStyle( ".w20 { width: 20%; } " );
-    aExporter.addCssStyle( ".w15 { width: 15%; } " );
-    aExporter.addCssStyle( ".w10 { width: 10%; } " );
-
-    final Element body = aExporter.getBody();
-    body.addChild( H1 ).addContent( "1-Wire&reg; Analysis results" );
-    body.addChild( HR );
-    body.addChild( DIV ).addAttribute( "class", "date" ).addContent( "{date-now}" );
-
-    Element table, tr, thead, tbody;
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Statistics" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Decoded bytes" );
-    tr.addChild( TD ).addContent( "{decoded-bytes}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Detected bus errors" );
-    tr.addChild( TD ).addContent( "{detected-bus-errors}" );
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    thead = table.addChild( THEAD );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w30" ).addContent( "Index" );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Time" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Dec" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "ASCII" );
-    tbody = table.addChild( TBODY );
-    tbody.addContent( "{decoded-data}" );
-
-    return aExporter;
-  }
-
   /**
    * @return
    */
   private JPanel createPreviewPane()
   {
-    final JPanel output = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel = new OneWireDataTableModel();
+    this.resultView = new ToolResultView( this.resultModel );
 
-    output.add( new JScrollPane( this.outText ) );
-
-    return output;
+    return this.resultView;
   }
 
   /**
@@ -316,37 +351,6 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
     return panel;
   }
 
-  /**
-   * Returns an "empty" HTML page.
-   * 
-   * @return an empty HTML page string, never <code>null</code>.
-   */
-  private String getEmptyHtmlPage()
-  {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "sda-bus-config".equals( aMacro ) || "scl-bus-config".equals( aMacro ) )
-        {
-          return "&lt;auto detect&gt;";
-        }
-        else if ( "decoded-bytes".equals( aMacro ) || "detected-bus-errors".equals( aMacro ) )
-        {
-          return "-";
-        }
-        return null;
-      }
-    } );
-  }
-
   /**
    * Initializes this dialog.
    */
@@ -383,97 +387,4 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
     pack();
   }
 
-  /**
-   * generate a HTML page
-   * 
-   * @param aEmpty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
-   */
-  private String toHtmlPage( final File aFile, final OneWireDataSet aAnalysisResult ) throws IOException
-  {
-    final MacroResolver macroResolver = new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "decoded-bytes".equals( aMacro ) )
-        {
-          return Integer.valueOf( aAnalysisResult.getDecodedByteCount() );
-        }
-        else if ( "detected-bus-errors".equals( aMacro ) )
-        {
-          return Integer.valueOf( aAnalysisResult.getBusErrorCount() );
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          final List<OneWireData> dataSet = aAnalysisResult.getData();
-          Element tr;
-
-          for ( int i = 0; i < dataSet.size(); i++ )
-          {
-            final OneWireData data = dataSet.get( i );
-
-            if ( data.isEvent() )
-            {
-              // this is an event
-              final String event = data.getEventName();
-
-              String bgColor;
-              if ( OneWireDataSet.OW_RESET.equals( event ) )
-              {
-                bgColor = "#e0e0e0";
-              }
-              else
-              {
-                // unknown event
-                bgColor = "#ff8000";
-              }
-
-              tr = aParent.addChild( TR ).addAttribute( "style", "background-color: " + bgColor + ";" );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aAnalysisResult.getTime( data.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( event );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD );
-            }
-            else
-            {
-              final int value = data.getValue();
-
-              tr = aParent.addChild( TR );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aAnalysisResult.getTime( data.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( "0x" + StringUtils.integerToHexString( value, 2 ) );
-              tr.addChild( TD ).addContent( "0b" + StringUtils.integerToBinString( value, 8 ) );
-              tr.addChild( TD ).addContent( String.valueOf( value ) );
-              tr.addChild( TD ).addContent( String.valueOf( ( char )value ) );
-            }
-          }
-        }
-
-        return null;
-      }
-    };
-
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
-  }
 }
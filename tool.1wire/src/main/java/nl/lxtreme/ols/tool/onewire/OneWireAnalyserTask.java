@@ -23,6 +23,7 @@ package nl.lxtreme.ols.tool.onewire;
 
 import static nl.lxtreme.ols.util.NumberUtils.*;
 
+import java.util.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
@@ -30,6 +31,7 @@ import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.util.*;
+import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
 
 
@@ -53,6 +55,8 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
   private int owLineIndex;
   private int owLineMask;
   private OneWireTiming owTiming;
+  /** The index of the first sample after the last sampled time. */
+  private int sampleCursor;
 
   // CONSTRUCTORS
 
@@ -68,7 +72,7 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
       final AnnotationListener aAnnotationListener )
   {
     this.context = aContext;
-    this.progressListener = aProgressListener;
+    this.progressListener = ThrottledProgressListener.wrap( aProgressListener );
     this.annotationListener = aAnnotationListener;
     this.owTiming = new OneWireTiming( OneWireBusMode.STANDARD );
   }
@@ -160,6 +164,7 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
     final long[] timestamps = aData.getTimestamps();
 
     this.progressListener.setProgress( 0 );
+    this.sampleCursor = 0;
 
     final long startOfDecode = timestamps[aDataSet.getStartOfDecode()];
     final long endOfDecode = timestamps[aDataSet.getEndOfDecode() - 1];
@@ -265,37 +270,46 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
   }
 
   /**
-   * Find first falling edge this is the start of the start bit. If the signal
-   * is inverted, find the first rising edge.
+   * Finds the first edge of the given type on the 1-wire line, starting at the
+   * given timestamp.
+   * <p>
+   * Only the transitions of the captured data are examined, instead of every
+   * single moment in time between the given timestamps.
+   * </p>
    * 
    * @param aStartOfDecode
    *          the timestamp to start searching;
    * @param aEndOfDecode
    *          the timestamp to end the search;
-   * @param aMask
-   *          the bit-value mask to apply for finding the start bit.
-   * @return the time at which the start bit was found, -1 if it is not found.
+   * @param aEdge
+   *          the edge to find, cannot be <code>null</code>.
+   * @return the time at which the edge was found, -1 if it is not found.
    */
   private long findEdge( final AcquisitionResult aData, final long aStartOfDecode, final long aEndOfDecode,
       final Edge aEdge )
   {
-    long result = -1;
+    final int[] values = aData.getValues();
+    final long[] timestamps = aData.getTimestamps();
 
     int oldBitValue = getDataValue( aData, aStartOfDecode ) & this.owLineMask;
-    for ( long timeCursor = aStartOfDecode + 1; ( result < 0 ) && ( timeCursor < aEndOfDecode ); timeCursor++ )
+    for ( int i = this.sampleCursor; ( i < values.length ) && ( timestamps[i] < aEndOfDecode ); i++ )
     {
-      final int bitValue = getDataValue( aData, timeCursor ) & this.owLineMask;
+      final int bitValue = values[i] & this.owLineMask;
+      if ( bitValue == oldBitValue )
+      {
+        continue;
+      }
 
-      final Edge edge = Edge.toEdge( oldBitValue, bitValue );
-      if ( aEdge == edge )
+      if ( aEdge == Edge.toEdge( oldBitValue, bitValue ) )
       {
-        result = timeCursor;
+        this.sampleCursor = i + 1;
+        return timestamps[i];
       }
 
       oldBitValue = bitValue;
     }
 
-    return result;
+    return -1;
   }
 
   /**
@@ -308,18 +322,8 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
    */
   private int getDataValue( final AcquisitionResult aData, final long aTimeValue )
   {
-    final int[] values = aData.getValues();
-    final long[] timestamps = aData.getTimestamps();
-
-    int i;
-    for ( i = 1; i < timestamps.length; i++ )
-    {
-      if ( aTimeValue < timestamps[i] )
-      {
-        break;
-      }
-    }
-    return values[i - 1];
+    final int k = seekSampleIndex( aData.getTimestamps(), aTimeValue );
+    return aData.getValues()[Math.max( 0, k - 1 )];
   }
 
   /**
@@ -393,4 +397,39 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
     this.annotationListener.onAnnotation( new SampleDataAnnotation( this.owLineIndex, aStartTimestamp, aEndTimestamp,
         annotation ) );
   }
+
+  /**
+   * Moves the sample cursor to the first sample whose timestamp is greater
+   * than the given time value.
+   * <p>
+   * As decoding mostly moves forward in time, the cursor is simply advanced;
+   * only when moving backwards in time, a binary search is used.
+   * </p>
+   * 
+   * @param aTimestamps
+   *          the timestamps of all samples;
+   * @param aTimeValue
+   *          the time value to move the cursor to.
+   * @return the new position of the sample cursor, >= 0.
+   */
+  private int seekSampleIndex( final long[] aTimestamps, final long aTimeValue )
+  {
+    int k = this.sampleCursor;
+    if ( ( k > aTimestamps.length ) || ( ( k > 0 ) && ( aTimestamps[k - 1] > aTimeValue ) ) )
+    {
+      k = Arrays.binarySearch( aTimestamps, aTimeValue );
+      // Position the cursor *after* the sample with the given time value...
+      k = ( k < 0 ) ? -( k + 1 ) : ( k + 1 );
+    }
+    else
+    {
+      while ( ( k < aTimestamps.length ) && ( aTimestamps[k] <= aTimeValue ) )
+      {
+        k++;
+      }
+    }
+
+    this.sampleCursor = k;
+    return k;
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.onewire;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Tests the decoding of long 1-Wire captures, using the same (standard) bus
+ * timing as the 1-Wire generator of the test device.
+ */
+public class OneWireAnalyserLongCaptureTest
+{
+  // CONSTANTS
+
+  /** 8 MHz, as used by the test device. */
+  private static final int SAMPLE_RATE = 8000000;
+  /** Number of samples per microsecond. */
+  private static final int TICK = SAMPLE_RATE / 1000000;
+
+  // VARIABLES
+
+  private final List<Integer> values = new ArrayList<Integer>();
+  private final List<Long> timestamps = new ArrayList<Long>();
+  private long time;
+
+  // METHODS
+
+  /**
+   * Tests that a capture of 16K bytes (almost 10 seconds, 256K transitions) is
+   * decoded in a single pass over its transitions.
+   */
+  @Test( timeout = 10000 )
+  public void testDecodeLongCaptureOk() throws Exception
+  {
+    final Random rnd = new Random( 1L );
+    final int[] payload = new int[16384];
+
+    drive( 1, 5 );
+    writeReset();
+    for ( int i = 0; i < payload.length; i++ )
+    {
+      payload[i] = rnd.nextInt( 256 );
+      writeByte( payload[i] );
+    }
+    drive( 1, 5 );
+
+    final OneWireDataSet result = analyse();
+
+    final List<OneWireData> data = result.getData();
+    assertEquals( payload.length + 1, data.size() );
+
+    // The first result is the reset with a slave presence pulse...
+    assertTrue( data.get( 0 ).isEvent() );
+    assertEquals( 1, data.get( 0 ).getValue() );
+
+    for ( int i = 0; i < payload.length; i++ )
+    {
+      final OneWireData datum = data.get( i + 1 );
+      assertFalse( datum.isEvent() );
+      assertEquals( payload[i], datum.getValue() );
+    }
+  }
+
+  /**
+   * Analyses the generated data.
+   */
+  private OneWireDataSet analyse() throws Exception
+  {
+    final int[] sampleValues = new int[this.values.size()];
+    final long[] sampleTimestamps = new long[this.timestamps.size()];
+    for ( int i = 0; i < sampleValues.length; i++ )
+    {
+      sampleValues[i] = this.values.get( i ).intValue();
+      sampleTimestamps[i] = this.timestamps.get( i ).longValue();
+    }
+
+    final AcquisitionResult container = new CapturedData( sampleValues, sampleTimestamps, Ols.NOT_AVAILABLE,
+        SAMPLE_RATE, 1, 0x01, this.time );
+    final ToolContext toolContext = DataTestUtils.createToolContext( container );
+
+    final ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+    final AnnotationListener al = Mockito.mock( AnnotationListener.class );
+
+    final OneWireAnalyserTask worker = new OneWireAnalyserTask( toolContext, tpl, al );
+    worker.setOneWireLineIndex( 0 );
+    worker.setOneWireBusMode( OneWireBusMode.STANDARD );
+
+    return worker.call();
+  }
+
+  /**
+   * Drives the 1-Wire line to the given level for the given duration.
+   */
+  private void drive( final int aLevel, final int aMicros )
+  {
+    this.values.add( Integer.valueOf( aLevel ) );
+    this.timestamps.add( Long.valueOf( this.time ) );
+    this.time += aMicros * TICK;
+  }
+
+  /**
+   * Writes a single byte, LSB first.
+   */
+  private void writeByte( final int aValue )
+  {
+    for ( int bit = 0; bit < 8; bit++ )
+    {
+      if ( ( aValue & ( 1 << bit ) ) != 0 )
+      {
+        drive( 0, 6 );
+        drive( 1, 64 );
+      }
+      else
+      {
+        drive( 0, 60 );
+        drive( 1, 10 );
+      }
+    }
+  }
+
+  /**
+   * Writes a master reset, followed by a slave presence pulse.
+   */
+  private void writeReset()
+  {
+    drive( 0, 480 );
+    drive( 1, 70 );
+    drive( 0, 410 );
+    drive( 1, 10 );
+  }
+}
+
+/* EOF */
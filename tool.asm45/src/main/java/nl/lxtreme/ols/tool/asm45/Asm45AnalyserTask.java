@@ -25,6 +25,7 @@ import static nl.lxtreme.ols.util.NumberUtils.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 
 
 /**
@@ -208,6 +209,15 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
       new Asm45OpcodeTable( 0xffff, 0x73c0, "CDC", 0, 11 ), //
       new Asm45OpcodeTable( 0, 0, null, 0, 0 ) };
 
+  /**
+   * Direct lookup from 16-bit instruction words to their entry in
+   * {@link #hp9845Table}, or -1 if the word is not a valid instruction.
+   */
+  private static final short[] opcodeIndex = createOpcodeIndex();
+
+  /** Denotes a disassembled instruction that does not refer to its address. */
+  private static final int NO_ADDRESS = Integer.MIN_VALUE;
+
   // VARIABLES
 
   private final ToolContext context;
@@ -226,6 +236,11 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
   private boolean reportData;
   private boolean reportBusGrants;
 
+  /** disassembled instructions, without their address dependent part */
+  private final String[] asmPrefixes;
+  private final String[] asmSuffixes;
+  private final int[] asmOffsets;
+
   // CONSTRUCTORS
 
   /**
@@ -239,7 +254,11 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
       final AnnotationListener aAnnotationListener )
   {
     this.context = aContext;
-    this.progressListener = aProgressListener;
+    this.progressListener = ThrottledProgressListener.wrap( aProgressListener );
+
+    this.asmPrefixes = new String[0x10000];
+    this.asmSuffixes = new String[0x10000];
+    this.asmOffsets = new int[0x10000];
   }
 
   // METHODS
@@ -494,42 +513,101 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    * 
    * @param address
    * @param opcode
+   *          the 16-bit instruction word;
    * @return event description (assembler instruction or data transfer)
    */
   protected String word2asm( final int address, final int opcode )
   {
-    int operand;
-    int count;
-    int timing = 0;
-    int i = 0;
-    Asm45OpcodeTable op = hp9845Table[0];
-    String ret_string = "";
-
-    /* get mnemonic */
-    while ( op.getMnemonic() != null )
+    final int word = opcode & 0xffff;
+
+    String prefix = this.asmPrefixes[word];
+    if ( prefix == null )
     {
-      if ( ( opcode & op.getMask() ) == op.getOpcode() )
+      prefix = decodeOpcode( word );
+    }
+
+    final int offset = this.asmOffsets[word];
+    if ( offset == NO_ADDRESS )
+    {
+      return prefix;
+    }
+    return prefix + formatAddress( address + offset ) + this.asmSuffixes[word];
+  }
+
+  /**
+   * Creates the direct lookup table from 16-bit instruction words to the
+   * first matching entry in {@link #hp9845Table}.
+   * 
+   * @return the lookup table, with -1 for words that do not match any entry.
+   */
+  private static short[] createOpcodeIndex()
+  {
+    final short[] result = new short[0x10000];
+    for ( int word = 0; word < result.length; word++ )
+    {
+      result[word] = -1;
+
+      for ( int i = 0; hp9845Table[i].getMnemonic() != null; i++ )
       {
-        break;
+        final Asm45OpcodeTable op = hp9845Table[i];
+        if ( ( word & op.getMask() ) == op.getOpcode() )
+        {
+          result[word] = ( short )i;
+          break;
+        }
       }
-      i++;
-      op = hp9845Table[i];
     }
+    return result;
+  }
+
+  /**
+   * Formats the given address as (at least) 4-digit hexadecimal value.
+   * 
+   * @param aAddress
+   *          the address to format.
+   * @return the formatted address, never <code>null</code>.
+   */
+  private static String formatAddress( final int aAddress )
+  {
+    final String hex = Integer.toHexString( aAddress );
+    if ( hex.length() >= 4 )
+    {
+      return hex;
+    }
+    return "0000".substring( hex.length() ) + hex;
+  }
+
+  /**
+   * Disassembles the given instruction word and caches the result. Only the
+   * parts that do not depend on the address of the instruction are cached;
+   * for skips and current page references, the relative offset is cached
+   * instead.
+   * 
+   * @param aOpcode
+   *          the 16-bit instruction word to disassemble.
+   * @return the (address independent) prefix of the disassembled instruction,
+   *         never <code>null</code>.
+   */
+  private String decodeOpcode( final int aOpcode )
+  {
+    int operand;
+    int offset = NO_ADDRESS;
+    String suffix = null;
 
+    final int entry = opcodeIndex[aOpcode];
     /* if match, write mnemonic - else return */
-    if ( op.getMnemonic() == null )
+    if ( entry < 0 )
     {
-      return "???";
+      return cacheOpcode( aOpcode, "???", NO_ADDRESS, null );
     }
 
-    ret_string = op.getMnemonic();
-    timing = op.getTiming();
+    final Asm45OpcodeTable op = hp9845Table[entry];
+    final StringBuilder sb = new StringBuilder( op.getMnemonic() );
 
     switch ( op.getMode() )
     {
       case 0:
         /* no operands (full width opcode) */
-        /* note: timing for EMC mantissa & arithmetics depends on actual data */
         break;
 
       case 1:
@@ -537,150 +615,144 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
          * 10-bit memory reference w/ or w/o indirection and/or base page
          * reference
          */
-        operand = opcode & 0x03ff;
-        if ( ( opcode & 0x0200 ) != 0 )
+        operand = aOpcode & 0x03ff;
+        if ( ( aOpcode & 0x0200 ) != 0 )
         {
           operand -= 0x0400;
         }
-        if ( ( opcode & 0x0400 ) != 0 )
+
+        /* indirect addressing */
+        final String indirect = ( ( aOpcode & 0x8000 ) != 0 ) ? ",I" : "";
+
+        if ( ( aOpcode & 0x0400 ) != 0 )
         {
           /* current page */
-          ret_string += String.format( " %04x", address + operand );
+          sb.append( ' ' );
+          offset = operand;
+          suffix = indirect;
         }
         else
         {
           /* base page */
           if ( operand < 0 )
           {
-            ret_string += String.format( " %04x", 0x10000 + operand );
+            sb.append( ' ' ).append( formatAddress( 0x10000 + operand ) );
+          }
+          else if ( operand < 32 )
+          {
+            sb.append( ' ' ).append( registers[operand] );
           }
           else
           {
-            if ( operand < 32 )
-            {
-              ret_string += String.format( " %s", registers[operand] );
-            }
-            else
-            {
-              ret_string += String.format( " %04x", operand );
-            }
+            sb.append( ' ' ).append( formatAddress( operand ) );
           }
-        }
 
-        /* indirect addressing */
-        if ( ( opcode & 0x8000 ) != 0 )
-        {
-          timing += 6;
-          ret_string += ",I";
-        }
+          sb.append( indirect );
 
-        /* base page reference */
-        if ( ( opcode & 0x0400 ) == 0 )
-        {
+          /* base page reference */
           if ( ( operand < 0 ) || ( operand > 31 ) )
           {
-            ret_string += " [B]";
+            sb.append( " [B]" );
           }
         }
         break;
 
       case 2: /* 5-bit register (for EXE) */
-        operand = opcode & 0x001f;
-        ret_string += String.format( " %s", registers[operand] );
-        if ( ( opcode & 0x8000 ) != 0 )
+        operand = aOpcode & 0x001f;
+        sb.append( ' ' ).append( registers[operand] );
+        if ( ( aOpcode & 0x8000 ) != 0 )
         {
-          timing += 6;
-          ret_string += ",I";
+          sb.append( ",I" );
         }
         break;
 
       case 3: /* 6-bit signed skip field */
-        operand = opcode & 0x003f;
-        if ( ( opcode & 0x0020 ) != 0 )
+        operand = aOpcode & 0x003f;
+        if ( ( aOpcode & 0x0020 ) != 0 )
         {
           operand -= 0x0040;
         }
-        ret_string += String.format( " *+%d [%04x]", operand, address + operand );
+        sb.append( " *+" ).append( operand ).append( " [" );
+        offset = operand;
+        suffix = "]";
         break;
 
       case 4:
         /* 6-bit signed skip field with hold/change and clear/set */
-        operand = opcode & 0x003f;
-        if ( ( opcode & 0x0020 ) != 0 )
+        operand = aOpcode & 0x003f;
+        if ( ( aOpcode & 0x0020 ) != 0 )
         {
           operand -= 0x0040;
         }
-        ret_string += String.format( " *+%d", operand );
+        sb.append( " *+" ).append( operand );
 
-        if ( ( opcode & 0x0080 ) != 0 )
+        if ( ( aOpcode & 0x0080 ) != 0 )
         {
-          if ( ( opcode & 0x0040 ) != 0 )
+          if ( ( aOpcode & 0x0040 ) != 0 )
           {
-            ret_string += ",S";
+            sb.append( ",S" );
           }
           else
           {
-            ret_string += ",C";
+            sb.append( ",C" );
           }
         }
 
-        ret_string += String.format( " [%04x]", address + operand );
-
+        sb.append( " [" );
+        offset = operand;
+        suffix = "]";
         break;
 
       case 5:
         /*
          * 6-bit signed skip field w/ or w/o pop the IOC's PA stack (for RET)
          */
-        operand = opcode & 0x3f;
-        if ( ( opcode & 0x20 ) != 0 )
+        operand = aOpcode & 0x3f;
+        if ( ( aOpcode & 0x20 ) != 0 )
         {
           operand -= 0x0040;
         }
-        ret_string += String.format( " %d", operand );
-        if ( ( opcode & 0x40 ) != 0 )
+        sb.append( ' ' ).append( operand );
+        if ( ( aOpcode & 0x40 ) != 0 )
         {
-          ret_string += ",P";
+          sb.append( ",P" );
         }
         break;
 
       case 6:
         /* 4-bit count */
-        count = ( opcode & 0xf ) + 1;
-        ret_string += String.format( " %d", count );
-        if ( ( opcode & 0xfff0 ) == 0x7380 )
-        {
-          timing += count * 6; /* CLR */
-        }
-        else if ( ( opcode & 0xfff0 ) == 0x7380 )
-        {
-          timing += count * 12; /* XFR */
-        }
-        else
-        {
-          timing += count; /* all others */
-        }
+        sb.append( ' ' ).append( ( aOpcode & 0xf ) + 1 );
         break;
 
       case 7:
         /* 3-bit register with increment/decrement */
-        operand = opcode & 0x7;
-        ret_string += String.format( " %s", Asm45AnalyserTask.registers[operand] );
-        if ( ( opcode & 0x0080 ) != 0 )
+        operand = aOpcode & 0x7;
+        sb.append( ' ' ).append( registers[operand] );
+        if ( ( aOpcode & 0x0080 ) != 0 )
         {
-          ret_string += ",D";
+          sb.append( ",D" );
         }
         else
         {
-          ret_string += ",I";
+          sb.append( ",I" );
         }
         break;
     }
 
-    // TODO
-    assert timing >= 0;
+    return cacheOpcode( aOpcode, sb.toString(), offset, suffix );
+  }
 
-    return ret_string;
+  /**
+   * Caches the disassembly of the given instruction word.
+   * 
+   * @return the given prefix.
+   */
+  private String cacheOpcode( final int aOpcode, final String aPrefix, final int aOffset, final String aSuffix )
+  {
+    this.asmOffsets[aOpcode] = aOffset;
+    this.asmSuffixes[aOpcode] = aSuffix;
+    this.asmPrefixes[aOpcode] = aPrefix;
+    return aPrefix;
   }
 
   /**
@@ -21,14 +21,10 @@
 package nl.lxtreme.ols.tool.asm45;
 
 
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.*;
 import static nl.lxtreme.ols.util.swing.SwingComponentUtils.*;
 
 import java.awt.*;
 import java.io.*;
-import java.text.*;
-import java.util.*;
-import java.util.List;
 import java.util.logging.*;
 
 import javax.swing.*;
@@ -38,11 +34,6 @@ import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.ToolUtils.RestorableAction;
 import nl.lxtreme.ols.util.*;
-import nl.lxtreme.ols.util.ExportUtils.CsvExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
-import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.component.*;
 
@@ -57,6 +48,89 @@ import org.osgi.framework.*;
 public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataSet> implements
     ExportAware<Asm45DataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Provides the table model for the decoded Asm45 data.
+   */
+  static final class Asm45DataTableModel extends ToolResultTableModel<Asm45Data>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Color TRIGGER_COLOR = new Color( 0xffa0ff );
+    private static final Color BUS_GRANT_COLOR = new Color( 0x64ff64 );
+    private static final Color DATA_TRANSFER_COLOR = new Color( 0xe0e0ff );
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Asm45DataTableModel instance.
+     */
+    public Asm45DataTableModel()
+    {
+      super( "Index", "Clocks", "Block", "Address", "Value", "Bus Grant", "Type", "Event" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRowIndex, final Asm45Data aRow )
+    {
+      if ( aRowIndex == getTriggerEvent() )
+      {
+        // trigger event
+        return TRIGGER_COLOR;
+      }
+      else if ( Asm45Data.TYPE_INSTRUCTION.equals( aRow.getType() ) )
+      {
+        // machine instruction
+        return null;
+      }
+      // data transfer (w/ or w/o bus grant)
+      return aRow.getBusGrant() ? BUS_GRANT_COLOR : DATA_TRANSFER_COLOR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRowIndex, final Asm45Data aRow, final int aColumnIndex )
+    {
+      switch ( aColumnIndex )
+      {
+        case 0:
+          return String.valueOf( aRowIndex - getTriggerEvent() );
+        case 1:
+          return String.valueOf( aRow.getClocks() );
+        case 2:
+          return StringUtils.integerToHexString( aRow.getBlock(), 2 );
+        case 3:
+          return StringUtils.integerToHexString( aRow.getAddress(), 4 );
+        case 4:
+          return StringUtils.integerToHexString( aRow.getValue(), 4 );
+        case 5:
+          return aRow.getBusGrant() ? "X" : "-";
+        case 6:
+          return aRow.getType();
+        default:
+          return aRow.getEvent();
+      }
+    }
+
+    /**
+     * @return the index of the trigger event in the decoded data.
+     */
+    private int getTriggerEvent()
+    {
+      return ( ( Asm45DataSet )getDataSet() ).getTriggerEvent();
+    }
+  }
+
   // CONSTANTS
 
   private static final long serialVersionUID = 1L;
@@ -86,7 +160,8 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
   private JCheckBox showInst;
   private JCheckBox showData;
   private JCheckBox showBusGrants;
-  private JEditorPane outText;
+  private Asm45DataTableModel resultModel;
+  private ToolResultView resultView;
 
   private RestorableAction runAnalysisAction;
   private Action exportAction;
@@ -155,9 +230,8 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
   @Override
   public void reset()
   {
-    final String emptyHtmlPage = getEmptyHtmlPage();
-    this.outText.setText( emptyHtmlPage );
-    this.outText.setEditable( false );
+    this.resultModel.setDataSet( null );
+    this.resultView.setSummary( null );
 
     this.runAnalysisAction.restore();
 
@@ -189,32 +263,19 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
   @Override
   protected void onToolEnded( final Asm45DataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-      }
-
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
+    this.resultModel.setDataSet( aAnalysisResult );
 
-      this.runAnalysisAction.restore();
+    if ( aAnalysisResult != null )
+    {
+      this.resultView.setSummary( String.format( "Decoded words: %d",
+          Integer.valueOf( aAnalysisResult.getDecodedWordCount() ) ) );
     }
-    catch ( final IOException exception )
+    else
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // This should not happen for the no-file exports!
-        throw new RuntimeException( exception );
-      }
+      this.resultView.setSummary( null );
     }
+
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -285,105 +346,15 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
     return result;
   }
 
-  /**
-   * Creates the HTML template for exports to HTML.
-   * 
-   * @param aExporter
-   *          the HTML exporter instance to use, cannot be <code>null</code>.
-   * @return a HTML exporter filled with the template, never <code>null</code>.
-   */
-  private HtmlExporter createHtmlTemplate( final HtmlExporter aExporter )
-  {
-    aExporter.addCssStyle( "body { font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table { border-width: 1px; border-spacing: 0px; border-color: gray;"
-        + " border-collapse: collapse; border-style: solid; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " background-color: #E0E0FF; text-align: center; font-weight: bold; font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " font-family: monospace; } " );
-    aExporter.addCssStyle( ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( ".w100 { width: 100%; } " );
-    aExporter.addCssStyle( ".w30 { width: 30%; } " );
-    aExporter.addCssStyle( ".w20 { width: 20%; } " );
-    aExporter.addCssStyle( ".w15 { width: 15%; } " );
-    aExporter.addCssStyle( ".w10 { width: 10%; } " );
-
-    final Element body = aExporter.getBody();
-    body.addChild( H1 ).addContent( "Asm45 Analysis results" );
-    body.addChild( HR );
-    body.addChild( DIV ).addAttribute( "class", "date" ).addContent( "{date-now}" );
-
-    Element table, tr, thead, tbody;
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Bus configuration" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "IDA0/..IDA15/" );
-    tr.addChild( TD ).addContent( "0..15" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "BSC0/..BSC5/" );
-    tr.addChild( TD ).addContent( "16..21" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "SMC/" );
-    tr.addChild( TD ).addContent( "{smc-bus-config}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "STM/" );
-    tr.addChild( TD ).addContent( "{stm-bus-config}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "EBG" );
-    tr.addChild( TD ).addContent( "{ebg-bus-config}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "BYTE" );
-    tr.addChild( TD ).addContent( "{byte-bus-config}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "BL" );
-    tr.addChild( TD ).addContent( "{bl-bus-config}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "WRT/" );
-    tr.addChild( TD ).addContent( "{wrt-bus-config}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "SYNC" );
-    tr.addChild( TD ).addContent( "{sync-bus-config}" );
-
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Statistics" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Decoded words" );
-    tr.addChild( TD ).addContent( "{decoded-words}" );
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    thead = table.addChild( THEAD );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Index" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Clocks" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Block" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Address" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Value" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Bus Grant" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Type" );
-    tr.addChild( TH ).addAttribute( "class", "w30" ).addContent( "Event" );
-    tbody = table.addChild( TBODY );
-    tbody.addContent( "{decoded-data}" );
-
-    return aExporter;
-  }
-
   /**
    * @return
    */
   private JPanel createPreviewPane()
   {
-    final JPanel output = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel = new Asm45DataTableModel();
+    this.resultView = new ToolResultView( this.resultModel );
 
-    output.add( new JScrollPane( this.outText ) );
-
-    return output;
+    return this.resultView;
   }
 
   /**
@@ -462,62 +433,6 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
     return panel;
   }
 
-  /**
-   * Returns an "empty" HTML page.
-   * 
-   * @return an empty HTML page string, never <code>null</code>.
-   */
-  private String getEmptyHtmlPage()
-  {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
-    {
-      @Override
-      @SuppressWarnings( "boxing" )
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "smc-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineSMC.getSelectedIndex();
-        }
-        else if ( "stm-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineSTM.getSelectedIndex();
-        }
-        else if ( "ebg-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineEBG.getSelectedIndex();
-        }
-        else if ( "byte-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineBYTE.getSelectedIndex();
-        }
-        else if ( "bl-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineBL.getSelectedIndex();
-        }
-        else if ( "wrt-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineWRT.getSelectedIndex();
-        }
-        else if ( "sync-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineSYNC.getSelectedIndex();
-        }
-        else if ( "decoded-words".equals( aMacro ) )
-        {
-          return "-";
-        }
-        return null;
-      }
-    } );
-  }
-
   /**
    *
    */
@@ -564,21 +479,39 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
   {
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aSelectedFile );
+      final ToolResultWriter writer = ToolResultWriter.create( aSelectedFile, ExportFormat.CSV );
+      try
+      {
+        writer.write( aAnalysisResult.getData(), new ToolResultWriter.RowCallback<Asm45Data>()
+        {
+          @Override
+          public void writeFooter( final ToolResultWriter aWriter )
+          {
+            // NO-op
+          }
 
-      exporter.setHeaders( "index", "clocks", "block", "address", "value", "bus grant", "type", "event" );
+          @Override
+          public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+          {
+            aWriter.writeColumns( "index", "clocks", "block", "address", "value", "bus grant", "type", "event" );
+          }
 
-      final List<Asm45Data> dataSet = aAnalysisResult.getData();
-      for ( int i = 0; i < dataSet.size(); i++ )
+          @Override
+          public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final Asm45Data aRow )
+              throws IOException
+          {
+            aWriter.writeRow( null, Integer.valueOf( aRowIndex ), Integer.valueOf( aRow.getClocks() ),
+                StringUtils.integerToHexString( aRow.getBlock(), 2 ),
+                StringUtils.integerToHexString( aRow.getAddress(), 4 ),
+                StringUtils.integerToHexString( aRow.getValue(), 4 ), aRow.getBusGrant() ? "X" : "-", aRow.getType(),
+                aRow.getEvent() );
+          }
+        } );
+      }
+      finally
       {
-        final Asm45Data ds = dataSet.get( i );
-        exporter.addRow( Integer.valueOf( i ), Integer.valueOf( ds.getClocks() ),
-            StringUtils.integerToHexString( ds.getBlock(), 2 ), StringUtils.integerToHexString( ds.getAddress(), 4 ),
-            StringUtils.integerToHexString( ds.getValue(), 4 ), ds.getBusGrant() ? "X" : "-", ds.getType(),
-            ds.getEvent() );
+        writer.close();
       }
-
-      exporter.close();
     }
     catch ( final IOException exception )
     {
@@ -600,7 +533,26 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
   {
     try
     {
-      toHtmlPage( aSelectedFile, aAnalysisResult );
+      final ToolResultWriter writer = ToolResultWriter.create( aSelectedFile, ExportFormat.HTML );
+      try
+      {
+        writer.writeTitle( "Asm45 Analysis results" );
+        writer.writeProperty( "IDA0/..IDA15/", "0..15" );
+        writer.writeProperty( "BSC0/..BSC5/", "16..21" );
+        writer.writeProperty( "SMC/", Integer.valueOf( this.lineSMC.getSelectedIndex() ) );
+        writer.writeProperty( "STM/", Integer.valueOf( this.lineSTM.getSelectedIndex() ) );
+        writer.writeProperty( "EBG", Integer.valueOf( this.lineEBG.getSelectedIndex() ) );
+        writer.writeProperty( "BYTE", Integer.valueOf( this.lineBYTE.getSelectedIndex() ) );
+        writer.writeProperty( "BL", Integer.valueOf( this.lineBL.getSelectedIndex() ) );
+        writer.writeProperty( "WRT/", Integer.valueOf( this.lineWRT.getSelectedIndex() ) );
+        writer.writeProperty( "SYNC", Integer.valueOf( this.lineSYNC.getSelectedIndex() ) );
+        writer.writeProperty( "Decoded words", Integer.valueOf( aAnalysisResult.getDecodedWordCount() ) );
+        writer.write( aAnalysisResult.getData(), this.resultModel );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -611,127 +563,4 @@ public final class Asm45ProtocolAnalysisDialog extends BaseToolDialog<Asm45DataS
       }
     }
   }
-
-  /**
-   * generate a HTML page
-   * 
-   * @param aEmpty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
-   */
-  // table data:
-  //
-  // Index, Clocks, Block, Address, Value, Type, Event
-  //
-  private String toHtmlPage( final File aFile, final Asm45DataSet aAnalysisResult ) throws IOException
-  {
-    final MacroResolver macroResolver = new MacroResolver()
-    {
-      @Override
-      @SuppressWarnings( "boxing" )
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "smc-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineSMC.getSelectedIndex();
-        }
-        else if ( "stm-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineSTM.getSelectedIndex();
-        }
-        else if ( "ebg-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineEBG.getSelectedIndex();
-        }
-        else if ( "byte-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineBYTE.getSelectedIndex();
-        }
-        else if ( "bl-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineBL.getSelectedIndex();
-        }
-        else if ( "wrt-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineWRT.getSelectedIndex();
-        }
-        else if ( "sync-bus-config".equals( aMacro ) )
-        {
-          return Asm45ProtocolAnalysisDialog.this.lineSYNC.getSelectedIndex();
-        }
-        else if ( "decoded-words".equals( aMacro ) )
-        {
-          return Integer.valueOf( aAnalysisResult.getDecodedWordCount() );
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          final List<Asm45Data> dataSet = aAnalysisResult.getData();
-          Element tr;
-
-          for ( int i = 0; i < dataSet.size(); i++ )
-          {
-            final Asm45Data data = dataSet.get( i );
-            int index = i - aAnalysisResult.getTriggerEvent();
-
-            String bgColor;
-
-            if ( index == 0 )
-            {
-              // trigger event
-              bgColor = "#ffa0ff";
-            }
-            else if ( data.getType().equals( Asm45Data.TYPE_INSTRUCTION ) )
-            {
-              // machine instruction
-              bgColor = "#ffffff";
-            }
-            else
-            {
-              // data transfer (w/ or w/o bus grant)
-              if ( data.getBusGrant() )
-              {
-                bgColor = "#64ff64";
-              }
-              else
-              {
-                bgColor = "#e0e0ff";
-              }
-            }
-
-            tr = aParent.addChild( TR )
-                .addAttribute( "style", "background-color: " + bgColor + "; text-align: center;" );
-            tr.addChild( TD ).addContent( String.valueOf( index ) );
-            tr.addChild( TD ).addContent( String.valueOf( data.getClocks() ) );
-            tr.addChild( TD ).addContent( StringUtils.integerToHexString( data.getBlock(), 2 ) );
-            tr.addChild( TD ).addContent( StringUtils.integerToHexString( data.getAddress(), 4 ) );
-            tr.addChild( TD ).addContent( StringUtils.integerToHexString( data.getValue(), 4 ) );
-            tr.addChild( TD ).addContent( data.getBusGrant() ? "X" : "-" );
-            tr.addChild( TD ).addContent( data.getType() );
-            tr.addChild( TD ).addAttribute( "style", "text-align: left;" ).addContent( data.getEvent() );
-          }
-        }
-
-        return null;
-      }
-    };
-
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
-  }
 }
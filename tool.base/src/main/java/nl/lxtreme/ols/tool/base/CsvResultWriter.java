@@ -0,0 +1,126 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.awt.*;
+import java.io.*;
+
+
+/**
+ * Provides a streaming result writer for CSV. Titles and properties are not
+ * written, only the column names followed by the rows.
+ */
+final class CsvResultWriter extends ToolResultWriter
+{
+  // CONSTANTS
+
+  private static final char DELIMITER = ',';
+  private static final String LINE_SEPARATOR = System.getProperty( "line.separator", "\n" );
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new CsvResultWriter instance.
+   * 
+   * @param aWriter
+   *          the writer to write the CSV to, cannot be <code>null</code>.
+   */
+  CsvResultWriter( final Writer aWriter )
+  {
+    super( aWriter );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeColumns( final String... aNames ) throws IOException
+  {
+    writeLine( aNames );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeProperty( final String aName, final Object aValue ) throws IOException
+  {
+    // NO-op
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeRow( final Color aBackground, final Object... aValues ) throws IOException
+  {
+    writeLine( aValues );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeTitle( final String aTitle ) throws IOException
+  {
+    // NO-op
+  }
+
+  /**
+   * Writes a single line of quoted values.
+   * 
+   * @param aValues
+   *          the values to write, cannot be <code>null</code>.
+   */
+  private void writeLine( final Object[] aValues ) throws IOException
+  {
+    for ( int i = 0; i < aValues.length; i++ )
+    {
+      if ( i > 0 )
+      {
+        this.writer.write( DELIMITER );
+      }
+
+      final Object value = aValues[i];
+
+      this.writer.write( '"' );
+      if ( value instanceof Character )
+      {
+        // Keep in line with the CSV exporter of ExportUtils...
+        if ( Character.isLetterOrDigit( ( ( Character )value ).charValue() ) )
+        {
+          this.writer.write( ( ( Character )value ).charValue() );
+        }
+      }
+      else if ( value != null )
+      {
+        this.writer.write( String.valueOf( value ) );
+      }
+      this.writer.write( '"' );
+    }
+    this.writer.write( LINE_SEPARATOR );
+  }
+}
+
+/* EOF */
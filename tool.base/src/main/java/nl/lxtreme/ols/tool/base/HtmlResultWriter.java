@@ -0,0 +1,277 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.awt.*;
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+
+/**
+ * Provides a streaming result writer for HTML.
+ */
+final class HtmlResultWriter extends ToolResultWriter
+{
+  // CONSTANTS
+
+  private static final String CSS_STYLE = "body { font-family: sans-serif; } "
+      + "table { border-width: 1px; border-spacing: 0px; border-color: gray; border-collapse: collapse;"
+      + " border-style: solid; margin-bottom: 15px; } "
+      + "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
+      + " background-color: #C0C0FF; text-align: left; font-weight: bold; font-family: sans-serif; } "
+      + "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
+      + " font-family: monospace; } " //
+      + ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " //
+      + ".w100 { width: 100%; } " //
+      + ".w30 { width: 30%; } ";
+
+  // VARIABLES
+
+  private boolean documentStarted;
+  private boolean propertiesStarted;
+  private boolean tableStarted;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new HtmlResultWriter instance.
+   * 
+   * @param aWriter
+   *          the writer to write the HTML to, cannot be <code>null</code>.
+   */
+  HtmlResultWriter( final Writer aWriter )
+  {
+    super( aWriter );
+  }
+
+  // METHODS
+
+  /**
+   * Escapes the HTML special characters in the given value.
+   * 
+   * @param aValue
+   *          the value to escape, can be <code>null</code>.
+   * @return the escaped value, never <code>null</code>.
+   */
+  static String escape( final Object aValue )
+  {
+    if ( aValue == null )
+    {
+      return "";
+    }
+
+    final String value = String.valueOf( aValue );
+    StringBuilder sb = null;
+    for ( int i = 0; i < value.length(); i++ )
+    {
+      final char c = value.charAt( i );
+      final String replacement;
+      switch ( c )
+      {
+        case '<':
+          replacement = "&lt;";
+          break;
+        case '>':
+          replacement = "&gt;";
+          break;
+        case '&':
+          replacement = "&amp;";
+          break;
+        case '"':
+          replacement = "&quot;";
+          break;
+        default:
+          replacement = null;
+          break;
+      }
+
+      if ( replacement != null )
+      {
+        if ( sb == null )
+        {
+          sb = new StringBuilder( value.length() + 16 );
+          sb.append( value, 0, i );
+        }
+        sb.append( replacement );
+      }
+      else if ( sb != null )
+      {
+        sb.append( c );
+      }
+    }
+    return ( sb == null ) ? value : sb.toString();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      startDocument( "" );
+      endProperties();
+      endTable();
+
+      this.writer.write( "</body></html>\n" );
+    }
+    finally
+    {
+      super.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeColumns( final String... aNames ) throws IOException
+  {
+    startDocument( "" );
+    endProperties();
+    endTable();
+
+    this.writer.write( "<table class='w100'><thead><tr>" );
+    for ( String name : aNames )
+    {
+      this.writer.write( "<th>" );
+      this.writer.write( escape( name ) );
+      this.writer.write( "</th>" );
+    }
+    this.writer.write( "</tr></thead><tbody>\n" );
+
+    this.tableStarted = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeProperty( final String aName, final Object aValue ) throws IOException
+  {
+    startDocument( "" );
+
+    if ( !this.propertiesStarted )
+    {
+      this.writer.write( "<table class='w100'><tbody>\n" );
+      this.propertiesStarted = true;
+    }
+
+    this.writer.write( "<tr><td class='w30'>" );
+    this.writer.write( escape( aName ) );
+    this.writer.write( "</td><td>" );
+    this.writer.write( escape( aValue ) );
+    this.writer.write( "</td></tr>\n" );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeRow( final Color aBackground, final Object... aValues ) throws IOException
+  {
+    if ( aBackground != null )
+    {
+      this.writer.write( "<tr style='background-color: #" );
+      this.writer.write( String.format( "%06x", Integer.valueOf( aBackground.getRGB() & 0xFFFFFF ) ) );
+      this.writer.write( ";'>" );
+    }
+    else
+    {
+      this.writer.write( "<tr>" );
+    }
+    for ( Object value : aValues )
+    {
+      this.writer.write( "<td>" );
+      this.writer.write( escape( value ) );
+      this.writer.write( "</td>" );
+    }
+    this.writer.write( "</tr>\n" );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeTitle( final String aTitle ) throws IOException
+  {
+    startDocument( aTitle );
+
+    this.writer.write( "<h1>" );
+    this.writer.write( escape( aTitle ) );
+    this.writer.write( "</h1><hr><div class='date'>Generated: " );
+    this.writer.write( escape( DateFormat.getDateInstance( DateFormat.LONG ).format( new Date() ) ) );
+    this.writer.write( "</div>\n" );
+  }
+
+  /**
+   * Closes the property table, if started.
+   */
+  private void endProperties() throws IOException
+  {
+    if ( this.propertiesStarted )
+    {
+      this.writer.write( "</tbody></table>\n" );
+      this.propertiesStarted = false;
+    }
+  }
+
+  /**
+   * Closes the result table, if started.
+   */
+  private void endTable() throws IOException
+  {
+    if ( this.tableStarted )
+    {
+      this.writer.write( "</tbody></table>\n" );
+      this.tableStarted = false;
+    }
+  }
+
+  /**
+   * Writes the start of the HTML document, if not already done.
+   * 
+   * @param aTitle
+   *          the title of the document, cannot be <code>null</code>.
+   */
+  private void startDocument( final String aTitle ) throws IOException
+  {
+    if ( this.documentStarted )
+    {
+      return;
+    }
+
+    this.writer.write( "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\"" );
+    this.writer.write( " \"http://www.w3.org/TR/html4/strict.dtd\">\n" );
+    this.writer.write( "<html><head><meta http-equiv='Content-type' content='text/html;charset=UTF-8'><title>" );
+    this.writer.write( escape( aTitle ) );
+    this.writer.write( "</title><style type='text/css'>" );
+    this.writer.write( CSS_STYLE );
+    this.writer.write( "</style></head><body>\n" );
+
+    this.documentStarted = true;
+  }
+}
+
+/* EOF */
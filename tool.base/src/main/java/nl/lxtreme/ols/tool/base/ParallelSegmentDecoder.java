@@ -0,0 +1,337 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static nl.lxtreme.ols.util.NumberUtils.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Decodes a (long) range of samples by splitting it into segments at bus-idle
+ * points, decoding these segments in parallel, and returning their results in
+ * sample order.
+ * <p>
+ * The results are identical to decoding the whole range sequentially: each
+ * segment is first decoded with the state assumed at its bus-idle point; if the
+ * state carried over from the previous segment differs from this assumption,
+ * the segment is decoded once more with the carried state.
+ * </p>
+ * 
+ * @param <STATE>
+ *          the type of decoding state;
+ * @param <RESULT>
+ *          the type of result of a single segment.
+ */
+public final class ParallelSegmentDecoder<STATE, RESULT>
+{
+  // INNER TYPES
+
+  /**
+   * Decodes a single segment, starting with its assumed boundary state.
+   */
+  private final class SegmentTask implements Callable<RESULT>
+  {
+    // VARIABLES
+
+    final int startIdx;
+    final int endIdx;
+    final STATE state;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SegmentTask instance.
+     */
+    SegmentTask( final int aStartIdx, final int aEndIdx, final STATE aState )
+    {
+      this.startIdx = aStartIdx;
+      this.endIdx = aEndIdx;
+      this.state = aState;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RESULT call() throws Exception
+    {
+      final RESULT result = ParallelSegmentDecoder.this.decoder.decode( this.startIdx, this.endIdx, this.state );
+      segmentDecoded( this.endIdx - this.startIdx );
+      return result;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The default minimal number of samples in a single segment. */
+  public static final int DEFAULT_MIN_SEGMENT_SIZE = 1 << 18;
+
+  /** The number of segments to create per thread, for a better load balance. */
+  private static final int SEGMENTS_PER_THREAD = 4;
+
+  // VARIABLES
+
+  private final SegmentDecoder<STATE, RESULT> decoder;
+  private final ToolProgressListener progressListener;
+  private final int threadCount;
+  private final int minSegmentSize;
+
+  private long samplesTotal;
+  private long samplesDecoded;
+  private volatile int segmentCount;
+  private volatile int redecodeCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ParallelSegmentDecoder instance that uses as many threads as
+   * there are processors available.
+   * 
+   * @param aDecoder
+   *          the actual decoder to use, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the progress listener to report the decoding progress to, cannot
+   *          be <code>null</code>.
+   */
+  public ParallelSegmentDecoder( final SegmentDecoder<STATE, RESULT> aDecoder,
+      final ToolProgressListener aProgressListener )
+  {
+    this( aDecoder, aProgressListener, Runtime.getRuntime().availableProcessors(), DEFAULT_MIN_SEGMENT_SIZE );
+  }
+
+  /**
+   * Creates a new ParallelSegmentDecoder instance.
+   * 
+   * @param aDecoder
+   *          the actual decoder to use, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the progress listener to report the decoding progress to, cannot
+   *          be <code>null</code>;
+   * @param aThreadCount
+   *          the maximum number of threads to use, &lt; 2 to decode
+   *          sequentially;
+   * @param aMinSegmentSize
+   *          the minimal number of samples in a single segment, &gt; 0.
+   */
+  public ParallelSegmentDecoder( final SegmentDecoder<STATE, RESULT> aDecoder,
+      final ToolProgressListener aProgressListener, final int aThreadCount, final int aMinSegmentSize )
+  {
+    if ( aDecoder == null )
+    {
+      throw new IllegalArgumentException( "Decoder cannot be null!" );
+    }
+    if ( aProgressListener == null )
+    {
+      throw new IllegalArgumentException( "Progress listener cannot be null!" );
+    }
+    if ( aMinSegmentSize <= 0 )
+    {
+      throw new IllegalArgumentException( "Minimal segment size should be positive!" );
+    }
+
+    this.decoder = aDecoder;
+    this.progressListener = aProgressListener;
+    this.threadCount = aThreadCount;
+    this.minSegmentSize = aMinSegmentSize;
+  }
+
+  // METHODS
+
+  /**
+   * Decodes all samples in the given range.
+   * 
+   * @param aStartIdx
+   *          the sample index to start decoding at (inclusive);
+   * @param aEndIdx
+   *          the sample index to stop decoding at (exclusive);
+   * @param aState
+   *          the decoding state at the start of the range, cannot be
+   *          <code>null</code>.
+   * @return the results of all decoded segments, in sample order, never
+   *         <code>null</code>.
+   * @throws Exception
+   *           in case decoding one of the segments failed, or in case the
+   *           decoding is interrupted.
+   */
+  public List<RESULT> decode( final int aStartIdx, final int aEndIdx, final STATE aState ) throws Exception
+  {
+    final List<RESULT> result = new ArrayList<RESULT>();
+
+    synchronized ( this )
+    {
+      this.samplesTotal = ( long )aEndIdx - aStartIdx;
+      this.samplesDecoded = 0L;
+    }
+
+    this.segmentCount = 1;
+    this.redecodeCount = 0;
+
+    final int[] boundaries = findBoundaries( aStartIdx, aEndIdx );
+    final int segmentCount = boundaries.length - 1;
+    if ( ( segmentCount < 2 ) || ( this.threadCount < 2 ) )
+    {
+      result.add( this.decoder.decode( aStartIdx, aEndIdx, aState ) );
+      segmentDecoded( aEndIdx - aStartIdx );
+      return result;
+    }
+
+    this.segmentCount = segmentCount;
+
+    final List<SegmentTask> tasks = new ArrayList<SegmentTask>( segmentCount );
+    for ( int i = 0; i < segmentCount; i++ )
+    {
+      final STATE state = ( i == 0 ) ? aState : this.decoder.createBoundaryState( boundaries[i] );
+      tasks.add( new SegmentTask( boundaries[i], boundaries[i + 1], state ) );
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool( Math.min( segmentCount, this.threadCount ) );
+    try
+    {
+      final List<Future<RESULT>> futures = new ArrayList<Future<RESULT>>( segmentCount );
+      for ( SegmentTask task : tasks )
+      {
+        futures.add( executor.submit( task ) );
+      }
+
+      STATE state = aState;
+      for ( int i = 0; i < segmentCount; i++ )
+      {
+        final SegmentTask task = tasks.get( i );
+        RESULT segmentResult = futures.get( i ).get();
+
+        if ( ( i == 0 ) || state.equals( this.decoder.createBoundaryState( task.startIdx ) ) )
+        {
+          state = task.state;
+        }
+        else
+        {
+          // The assumed state was wrong; decode this segment once more with the
+          // state carried over from the previous segment...
+          segmentResult = this.decoder.decode( task.startIdx, task.endIdx, state );
+          this.redecodeCount++;
+        }
+
+        result.add( segmentResult );
+      }
+
+      return result;
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof Exception )
+      {
+        throw ( Exception )cause;
+      }
+      throw exception;
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the number of segments that were decoded once more during the
+   * last call to {@link #decode(int, int, Object)}, because the state assumed
+   * at their start was wrong.
+   * 
+   * @return the number of re-decoded segments, &gt;= 0.
+   */
+  public int getRedecodeCount()
+  {
+    return this.redecodeCount;
+  }
+
+  /**
+   * Returns the number of segments the range was split into during the last
+   * call to {@link #decode(int, int, Object)}.
+   * 
+   * @return the number of segments, &gt;= 0.
+   */
+  public int getSegmentCount()
+  {
+    return this.segmentCount;
+  }
+
+  /**
+   * Determines the segment boundaries for the given range of samples.
+   * 
+   * @param aStartIdx
+   *          the sample index to start decoding at (inclusive);
+   * @param aEndIdx
+   *          the sample index to stop decoding at (exclusive).
+   * @return the boundaries of all segments, including the given start and end
+   *         index, in ascending order.
+   */
+  final int[] findBoundaries( final int aStartIdx, final int aEndIdx )
+  {
+    final long range = Math.max( 0L, ( long )aEndIdx - aStartIdx );
+    final int segmentCount = ( int )Math.max( 1L,
+        Math.min( Math.max( 1, this.threadCount ) * SEGMENTS_PER_THREAD, range / this.minSegmentSize ) );
+
+    final int[] boundaries = new int[segmentCount + 1];
+    int count = 0;
+    boundaries[count++] = aStartIdx;
+
+    for ( int i = 1; i < segmentCount; i++ )
+    {
+      final int fromIdx = ( int )Math.max( aStartIdx + ( ( i * range ) / segmentCount ), boundaries[count - 1] + 1L );
+      if ( fromIdx >= aEndIdx )
+      {
+        break;
+      }
+
+      final int idx = this.decoder.findBoundary( fromIdx, aEndIdx );
+      if ( idx < 0 )
+      {
+        // No more bus-idle points; the remainder is a single segment...
+        break;
+      }
+
+      boundaries[count++] = idx;
+    }
+
+    boundaries[count++] = aEndIdx;
+    return Arrays.copyOf( boundaries, count );
+  }
+
+  /**
+   * Called when a segment is decoded for the first time.
+   * 
+   * @param aSampleCount
+   *          the number of samples in the decoded segment.
+   */
+  final synchronized void segmentDecoded( final int aSampleCount )
+  {
+    this.samplesDecoded += aSampleCount;
+    this.progressListener.setProgress( getPercentage( this.samplesDecoded, this.samplesTotal ) );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,87 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+/**
+ * Provides a protocol decoder that can decode a range of samples in
+ * independent segments, each starting at a bus-idle point.
+ * <p>
+ * The decoding state is carried from one segment to the next. When decoding
+ * in parallel, the state at the start of each segment is not known in advance,
+ * so it is assumed to be the state the decoder would be in at a bus-idle
+ * point. If, once the previous segment is decoded, this assumption turns out
+ * to be wrong, the segment is decoded once more with the actual state.
+ * </p>
+ * 
+ * @param <STATE>
+ *          the type of decoding state, should implement
+ *          {@link Object#equals(Object)} by comparing all state that can
+ *          influence the decoding of subsequent samples;
+ * @param <RESULT>
+ *          the type of result of a single segment.
+ * @see ParallelSegmentDecoder
+ */
+public interface SegmentDecoder<STATE, RESULT>
+{
+  // METHODS
+
+  /**
+   * Creates the decoding state that is assumed at the given bus-idle point.
+   * 
+   * @param aSampleIdx
+   *          the sample index of the bus-idle point, as returned by
+   *          {@link #findBoundary(int, int)}.
+   * @return a new decoding state, never <code>null</code>.
+   */
+  STATE createBoundaryState( int aSampleIdx );
+
+  /**
+   * Decodes all samples in the given range.
+   * 
+   * @param aStartIdx
+   *          the sample index to start decoding at (inclusive);
+   * @param aEndIdx
+   *          the sample index to stop decoding at (exclusive);
+   * @param aState
+   *          the decoding state at the start of the range, cannot be
+   *          <code>null</code>. Upon return, this state is updated to
+   *          represent the decoding state at the end of the range.
+   * @return the decoding result of the given range, never <code>null</code>.
+   * @throws Exception
+   *           in case decoding failed.
+   */
+  RESULT decode( int aStartIdx, int aEndIdx, STATE aState ) throws Exception;
+
+  /**
+   * Searches for the first bus-idle point in the given range.
+   * 
+   * @param aStartIdx
+   *          the sample index to start searching at (inclusive);
+   * @param aEndIdx
+   *          the sample index to stop searching at (exclusive).
+   * @return the sample index of the first bus-idle point, or -1 if no such
+   *         point exists in the given range.
+   */
+  int findBoundary( int aStartIdx, int aEndIdx );
+}
+
+/* EOF */
@@ -0,0 +1,150 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Provides a {@link ToolProgressListener} that only forwards progress to
+ * another progress listener when the percentage actually changes, or when a
+ * given time quantum has passed since the last forwarded progress.
+ * <p>
+ * Decoding loops typically report their progress for every sample or frame,
+ * while the percentage only changes a hundred times during an entire run.
+ * Wrapping the progress listener of a tool in this class, keeps such loops
+ * from going to the UI (through the service registry) for every single call.
+ * </p>
+ * <p>
+ * This class is <b>not</b> thread-safe: each decoding thread should use its
+ * own instance.
+ * </p>
+ */
+public final class ThrottledProgressListener implements ToolProgressListener
+{
+  // CONSTANTS
+
+  /** The default time quantum, in milliseconds. */
+  public static final long DEFAULT_QUANTUM = 250L;
+
+  /**
+   * The number of unchanged percentages after which the time quantum is
+   * checked, should be a power of two minus one.
+   */
+  private static final int CHECK_INTERVAL_MASK = 1023;
+
+  // VARIABLES
+
+  private final ToolProgressListener delegate;
+  private final long quantum;
+
+  private int lastPercentage;
+  private long lastTime;
+  private int unchangedCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ThrottledProgressListener instance using the default time
+   * quantum.
+   * 
+   * @param aDelegate
+   *          the progress listener to forward the progress to, may be
+   *          <code>null</code> in which case all progress is ignored.
+   */
+  public ThrottledProgressListener( final ToolProgressListener aDelegate )
+  {
+    this( aDelegate, DEFAULT_QUANTUM );
+  }
+
+  /**
+   * Creates a new ThrottledProgressListener instance.
+   * 
+   * @param aDelegate
+   *          the progress listener to forward the progress to, may be
+   *          <code>null</code> in which case all progress is ignored;
+   * @param aQuantum
+   *          the time (in milliseconds) after which an unchanged percentage is
+   *          forwarded again, >= 0.
+   */
+  public ThrottledProgressListener( final ToolProgressListener aDelegate, final long aQuantum )
+  {
+    if ( aQuantum < 0L )
+    {
+      throw new IllegalArgumentException( "Quantum cannot be negative!" );
+    }
+
+    this.delegate = aDelegate;
+    this.quantum = aQuantum * 1000000L;
+
+    this.lastPercentage = -1;
+  }
+
+  // METHODS
+
+  /**
+   * Wraps the given progress listener in a ThrottledProgressListener, unless
+   * it already is one.
+   * 
+   * @param aListener
+   *          the progress listener to wrap, may be <code>null</code>.
+   * @return a throttled progress listener, never <code>null</code>.
+   */
+  public static ThrottledProgressListener wrap( final ToolProgressListener aListener )
+  {
+    if ( aListener instanceof ThrottledProgressListener )
+    {
+      return ( ThrottledProgressListener )aListener;
+    }
+    return new ThrottledProgressListener( aListener );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setProgress( final int aPercentage )
+  {
+    if ( aPercentage == this.lastPercentage )
+    {
+      if ( ( ++this.unchangedCount & CHECK_INTERVAL_MASK ) != 0 )
+      {
+        return;
+      }
+      if ( ( System.nanoTime() - this.lastTime ) < this.quantum )
+      {
+        return;
+      }
+    }
+
+    this.lastPercentage = aPercentage;
+    this.lastTime = System.nanoTime();
+    this.unchangedCount = 0;
+
+    if ( this.delegate != null )
+    {
+      this.delegate.setProgress( aPercentage );
+    }
+  }
+}
+
+/* EOF */
@@ -0,0 +1,341 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+
+import javax.swing.table.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.util.*;
+
+
+/**
+ * Provides a table model that is directly backed by the decoded data of a
+ * {@link BaseDataSet}.
+ * <p>
+ * Cell values are only formatted when the table asks for them, which is only
+ * done for the rows that are actually visible. This keeps the tool dialogs
+ * responsive, regardless of the number of decoded symbols.
+ * </p>
+ * <p>
+ * Normally, each decoded symbol is shown in its own row. Subclasses can
+ * coalesce two subsequent symbols into a single row, for example, the data
+ * sent and received in a single full-duplex transfer, by overriding
+ * {@link #isCoalesced(BaseData, BaseData)}.
+ * </p>
+ * 
+ * @param <DATA>
+ *          the type of decoded data shown in the table.
+ */
+public abstract class ToolResultTableModel<DATA extends BaseData<DATA>> extends AbstractTableModel implements
+    ToolResultWriter.RowCallback<DATA>
+{
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  // VARIABLES
+
+  private final String[] columnNames;
+
+  private BaseDataSet<DATA> dataSet;
+  /** The data index of the first symbol of each row, or null for one row per symbol. */
+  private int[] rows;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ToolResultTableModel instance.
+   * 
+   * @param aColumnNames
+   *          the names of the columns of this model, cannot be
+   *          <code>null</code>.
+   */
+  protected ToolResultTableModel( final String... aColumnNames )
+  {
+    this.columnNames = aColumnNames.clone();
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Class<?> getColumnClass( final int aColumnIndex )
+  {
+    return String.class;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getColumnCount()
+  {
+    return this.columnNames.length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final String getColumnName( final int aColumnIndex )
+  {
+    return this.columnNames[aColumnIndex];
+  }
+
+  /**
+   * Returns the data set backing this model.
+   * 
+   * @return the data set, can be <code>null</code> if no data set is set.
+   */
+  public final BaseDataSet<DATA> getDataSet()
+  {
+    return this.dataSet;
+  }
+
+  /**
+   * Returns the decoded data shown at the given row.
+   * 
+   * @param aRowIndex
+   *          the index of the row to return the data for, >= 0.
+   * @return the decoded data, never <code>null</code>.
+   */
+  public final DATA getRow( final int aRowIndex )
+  {
+    return this.dataSet.getData().get( getDataIndex( aRowIndex ) );
+  }
+
+  /**
+   * Returns the background color to use for the given row.
+   * <p>
+   * By default, no specific background color is used. Override this method to
+   * highlight, for example, events or errors.
+   * </p>
+   * 
+   * @param aRowIndex
+   *          the index of the row to return the background color for, >= 0;
+   * @param aRow
+   *          the decoded data of the row to return the background color for,
+   *          never <code>null</code>.
+   * @return a background color, or <code>null</code> to use the default
+   *         background color.
+   */
+  public Color getRowBackground( final int aRowIndex, final DATA aRow )
+  {
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getRowCount()
+  {
+    if ( this.dataSet == null )
+    {
+      return 0;
+    }
+    if ( this.rows != null )
+    {
+      return this.rows.length;
+    }
+    return this.dataSet.getData().size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final Object getValueAt( final int aRowIndex, final int aColumnIndex )
+  {
+    return getValueAt( aRowIndex, getRow( aRowIndex ), aColumnIndex );
+  }
+
+  /**
+   * Sets the data set backing this model.
+   * 
+   * @param aDataSet
+   *          the data set to show, can be <code>null</code> to clear this
+   *          model.
+   */
+  public final void setDataSet( final BaseDataSet<DATA> aDataSet )
+  {
+    this.dataSet = aDataSet;
+    this.rows = createRowIndex( aDataSet );
+
+    fireTableDataChanged();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeFooter( final ToolResultWriter aWriter ) throws IOException
+  {
+    // NO-op
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+  {
+    aWriter.writeColumns( this.columnNames );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final DATA aRow ) throws IOException
+  {
+    int rowIndex = aRowIndex;
+    if ( this.rows != null )
+    {
+      // The writer iterates over all symbols; symbols coalesced into the row of
+      // their predecessor are written as part of that row...
+      rowIndex = Arrays.binarySearch( this.rows, aRowIndex );
+      if ( rowIndex < 0 )
+      {
+        return;
+      }
+    }
+
+    final Object[] values = new Object[this.columnNames.length];
+    for ( int i = 0; i < values.length; i++ )
+    {
+      values[i] = getValueAt( rowIndex, aRow, i );
+    }
+    aWriter.writeRow( getRowBackground( rowIndex, aRow ), values );
+  }
+
+  /**
+   * Formats the time of the given sample index as relative time to the
+   * trigger, if present.
+   * 
+   * @param aSampleIndex
+   *          the sample index to format the time for, >= 0.
+   * @return a formatted time, never <code>null</code>.
+   */
+  protected final String formatTime( final int aSampleIndex )
+  {
+    return UnitOfTime.format( this.dataSet.getTime( aSampleIndex ) );
+  }
+
+  /**
+   * Returns the decoded data coalesced into the given row, if any.
+   * 
+   * @param aRowIndex
+   *          the index of the row, >= 0.
+   * @return the second symbol of the given row, or <code>null</code> if the
+   *         row only shows a single symbol.
+   */
+  protected final DATA getCoalescedRow( final int aRowIndex )
+  {
+    if ( this.rows == null )
+    {
+      return null;
+    }
+
+    final int dataIdx = this.rows[aRowIndex];
+    final int nextIdx = ( ( aRowIndex + 1 ) < this.rows.length ) ? this.rows[aRowIndex + 1] : this.dataSet.getData()
+        .size();
+    return ( ( nextIdx - dataIdx ) > 1 ) ? this.dataSet.getData().get( dataIdx + 1 ) : null;
+  }
+
+  /**
+   * Returns whether the given two subsequent symbols are to be shown in a
+   * single row. By default, each symbol is shown in its own row.
+   * 
+   * @param aFirst
+   *          the first symbol, never <code>null</code>;
+   * @param aSecond
+   *          the symbol directly following the first symbol, never
+   *          <code>null</code>.
+   * @return <code>true</code> to show both symbols in a single row,
+   *         <code>false</code> otherwise.
+   */
+  protected boolean isCoalesced( final DATA aFirst, final DATA aSecond )
+  {
+    return false;
+  }
+
+  /**
+   * Returns the value to show in the given cell.
+   * 
+   * @param aRowIndex
+   *          the index of the row, >= 0;
+   * @param aRow
+   *          the decoded data of the row, never <code>null</code>;
+   * @param aColumnIndex
+   *          the index of the column, >= 0.
+   * @return the value to show, can be <code>null</code> to show an empty cell.
+   */
+  protected abstract Object getValueAt( final int aRowIndex, final DATA aRow, final int aColumnIndex );
+
+  /**
+   * Determines which symbols are shown in which row.
+   * 
+   * @return the data index of the first symbol of each row, or
+   *         <code>null</code> if each symbol is shown in its own row.
+   */
+  private int[] createRowIndex( final BaseDataSet<DATA> aDataSet )
+  {
+    if ( aDataSet == null )
+    {
+      return null;
+    }
+
+    final List<DATA> data = aDataSet.getData();
+    final int size = data.size();
+
+    final int[] result = new int[size];
+    int count = 0;
+    for ( int i = 0; i < size; i++ )
+    {
+      result[count++] = i;
+      if ( ( ( i + 1 ) < size ) && isCoalesced( data.get( i ), data.get( i + 1 ) ) )
+      {
+        i++;
+      }
+    }
+
+    return ( count == size ) ? null : Arrays.copyOf( result, count );
+  }
+
+  /**
+   * Returns the data index of the first symbol shown in the given row.
+   */
+  private int getDataIndex( final int aRowIndex )
+  {
+    return ( this.rows == null ) ? aRowIndex : this.rows[aRowIndex];
+  }
+}
+
+/* EOF */
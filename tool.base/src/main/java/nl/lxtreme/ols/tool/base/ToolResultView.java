@@ -0,0 +1,161 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.awt.*;
+
+import javax.swing.*;
+import javax.swing.table.*;
+
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides a view for the results of a protocol analyser, consisting of a short
+ * summary and a table with all decoded data.
+ * <p>
+ * As the table only renders the rows that are visible, this view can show
+ * large numbers of decoded symbols without any noticeable delay. HTML should
+ * only be used for exporting the results to file.
+ * </p>
+ */
+public class ToolResultView extends JPanel
+{
+  // INNER TYPES
+
+  /**
+   * Renders the cells of the result table with the row background provided by
+   * the table model.
+   */
+  static final class ResultCellRenderer extends DefaultTableCellRenderer
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // VARIABLES
+
+    private final ToolResultTableModel<?> model;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ResultCellRenderer instance.
+     */
+    public ResultCellRenderer( final ToolResultTableModel<?> aModel )
+    {
+      this.model = aModel;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Component getTableCellRendererComponent( final JTable aTable, final Object aValue,
+        final boolean aIsSelected, final boolean aHasFocus, final int aRow, final int aColumn )
+    {
+      super.getTableCellRendererComponent( aTable, aValue, aIsSelected, aHasFocus, aRow, aColumn );
+
+      if ( !aIsSelected )
+      {
+        final Color background = getRowBackground( this.model, aTable.convertRowIndexToModel( aRow ) );
+        setBackground( ( background != null ) ? background : aTable.getBackground() );
+      }
+
+      return this;
+    }
+
+    /**
+     * Helper method to capture the generic type of the given model.
+     */
+    private static <DATA extends BaseData<DATA>> Color getRowBackground( final ToolResultTableModel<DATA> aModel,
+        final int aRowIndex )
+    {
+      return aModel.getRowBackground( aRowIndex, aModel.getRow( aRowIndex ) );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  // VARIABLES
+
+  private final JLabel summary;
+  private final JTable table;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ToolResultView instance.
+   * 
+   * @param aModel
+   *          the table model providing the decoded data, cannot be
+   *          <code>null</code>.
+   */
+  public ToolResultView( final ToolResultTableModel<?> aModel )
+  {
+    super( new BorderLayout( 0, 4 ) );
+
+    this.summary = new JLabel();
+    this.summary.setVisible( false );
+
+    this.table = new JTable( aModel );
+    this.table.setDefaultRenderer( String.class, new ResultCellRenderer( aModel ) );
+    this.table.setFont( new Font( Font.MONOSPACED, Font.PLAIN, this.table.getFont().getSize() ) );
+    this.table.setFillsViewportHeight( true );
+    this.table.setSelectionMode( ListSelectionModel.SINGLE_INTERVAL_SELECTION );
+    this.table.getTableHeader().setReorderingAllowed( false );
+
+    add( this.summary, BorderLayout.NORTH );
+    add( new JScrollPane( this.table ), BorderLayout.CENTER );
+  }
+
+  // METHODS
+
+  /**
+   * Returns the table showing the decoded data.
+   * 
+   * @return the table, never <code>null</code>.
+   */
+  public final JTable getTable()
+  {
+    return this.table;
+  }
+
+  /**
+   * Sets the summary shown above the decoded data, such as the number of
+   * decoded symbols and detected errors.
+   * 
+   * @param aSummary
+   *          the summary to show, can be <code>null</code> to hide the summary.
+   */
+  public final void setSummary( final String aSummary )
+  {
+    this.summary.setText( aSummary );
+    this.summary.setVisible( ( aSummary != null ) && !"".equals( aSummary.trim() ) );
+  }
+}
+
+/* EOF */
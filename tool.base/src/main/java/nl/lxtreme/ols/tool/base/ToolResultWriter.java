@@ -0,0 +1,260 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.awt.*;
+import java.io.*;
+import java.util.List;
+
+import nl.lxtreme.ols.tool.base.ExportAware.ExportFormat;
+
+
+/**
+ * Provides a streaming writer for exporting tool results to file.
+ * <p>
+ * In contrast to the HTML exporter of {@link nl.lxtreme.ols.util.ExportUtils},
+ * no document tree is built in memory: all rows are written directly to a
+ * buffered writer while the decoded data is iterated.
+ * </p>
+ */
+public abstract class ToolResultWriter implements Closeable
+{
+  // INNER TYPES
+
+  /**
+   * Callback used to write the header, rows and footer of a result table.
+   * 
+   * @param <DATA>
+   *          the type of decoded data to write.
+   */
+  public static interface RowCallback<DATA>
+  {
+    // METHODS
+
+    /**
+     * Called before the first row is written, and should write the column
+     * names of the result table.
+     * 
+     * @param aWriter
+     *          the writer to write to, never <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems.
+     */
+    void writeHeader( ToolResultWriter aWriter ) throws IOException;
+
+    /**
+     * Called for each decoded data item.
+     * 
+     * @param aWriter
+     *          the writer to write to, never <code>null</code>;
+     * @param aRowIndex
+     *          the index of the decoded data item, >= 0;
+     * @param aRow
+     *          the decoded data item to write, never <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems.
+     */
+    void writeRow( ToolResultWriter aWriter, int aRowIndex, DATA aRow ) throws IOException;
+
+    /**
+     * Called after the last row is written.
+     * 
+     * @param aWriter
+     *          the writer to write to, never <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems.
+     */
+    void writeFooter( ToolResultWriter aWriter ) throws IOException;
+  }
+
+  // CONSTANTS
+
+  /** The number of rows after which an interruption is checked. */
+  private static final int INTERRUPT_CHECK_INTERVAL = 4096;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  // VARIABLES
+
+  protected final Writer writer;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ToolResultWriter instance.
+   * 
+   * @param aWriter
+   *          the writer to write the results to, cannot be <code>null</code>.
+   */
+  protected ToolResultWriter( final Writer aWriter )
+  {
+    this.writer = aWriter;
+  }
+
+  // METHODS
+
+  /**
+   * Creates a new result writer for the given file.
+   * 
+   * @param aFile
+   *          the file to write to, cannot be <code>null</code>;
+   * @param aFormat
+   *          the format to write the results in, cannot be <code>null</code>.
+   * @return a new result writer, never <code>null</code>.
+   * @throws IOException
+   *           in case the given file could not be opened.
+   */
+  public static ToolResultWriter create( final File aFile, final ExportFormat aFormat ) throws IOException
+  {
+    if ( aFile == null )
+    {
+      throw new IllegalArgumentException( "File cannot be null!" );
+    }
+
+    final Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( aFile ), "UTF-8" ),
+        BUFFER_SIZE );
+    return create( writer, aFormat );
+  }
+
+  /**
+   * Creates a new result writer for the given writer.
+   * 
+   * @param aWriter
+   *          the writer to write to, cannot be <code>null</code>;
+   * @param aFormat
+   *          the format to write the results in, cannot be <code>null</code>.
+   * @return a new result writer, never <code>null</code>.
+   */
+  public static ToolResultWriter create( final Writer aWriter, final ExportFormat aFormat )
+  {
+    if ( ExportFormat.CSV.equals( aFormat ) )
+    {
+      return new CsvResultWriter( aWriter );
+    }
+    else if ( ExportFormat.HTML.equals( aFormat ) )
+    {
+      return new HtmlResultWriter( aWriter );
+    }
+    throw new IllegalArgumentException( "Unsupported export format: " + aFormat );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      this.writer.flush();
+    }
+    finally
+    {
+      this.writer.close();
+    }
+  }
+
+  /**
+   * Writes all given data items as rows, using the given callback.
+   * 
+   * @param aData
+   *          the decoded data to write, cannot be <code>null</code>;
+   * @param aCallback
+   *          the callback that writes the individual rows, cannot be
+   *          <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or when the current thread is
+   *           interrupted.
+   */
+  public final <DATA> void write( final List<DATA> aData, final RowCallback<DATA> aCallback ) throws IOException
+  {
+    aCallback.writeHeader( this );
+
+    final int size = aData.size();
+    for ( int i = 0; i < size; i++ )
+    {
+      if ( ( ( i % INTERRUPT_CHECK_INTERVAL ) == 0 ) && Thread.currentThread().isInterrupted() )
+      {
+        throw new InterruptedIOException( "Export interrupted!" );
+      }
+
+      aCallback.writeRow( this, i, aData.get( i ) );
+    }
+
+    aCallback.writeFooter( this );
+  }
+
+  /**
+   * Writes the names of the columns of the result table.
+   * 
+   * @param aNames
+   *          the column names, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public abstract void writeColumns( String... aNames ) throws IOException;
+
+  /**
+   * Writes a single property, such as a statistic or configuration setting.
+   * Properties should be written before the columns of the result table.
+   * <p>
+   * Formats that cannot represent properties ignore them.
+   * </p>
+   * 
+   * @param aName
+   *          the name of the property, cannot be <code>null</code>;
+   * @param aValue
+   *          the value of the property, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public abstract void writeProperty( String aName, Object aValue ) throws IOException;
+
+  /**
+   * Writes a single row of the result table.
+   * 
+   * @param aBackground
+   *          the background color of the row, can be <code>null</code> if no
+   *          specific color is to be used. Formats that cannot represent
+   *          colors ignore this;
+   * @param aValues
+   *          the cell values of the row, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public abstract void writeRow( Color aBackground, Object... aValues ) throws IOException;
+
+  /**
+   * Writes the title of the results. Should be written before anything else.
+   * <p>
+   * Formats that cannot represent titles ignore them.
+   * </p>
+   * 
+   * @param aTitle
+   *          the title to write, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public abstract void writeTitle( String aTitle ) throws IOException;
+}
+
+/* EOF */
@@ -0,0 +1,117 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.tools.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ThrottledProgressListener}.
+ */
+public class ThrottledProgressListenerTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all reported percentages.
+   */
+  static final class RecordingListener implements ToolProgressListener
+  {
+    final List<Integer> percentages = new ArrayList<Integer>();
+
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      this.percentages.add( Integer.valueOf( aPercentage ) );
+    }
+  }
+
+  // VARIABLES
+
+  private RecordingListener recorder;
+
+  // METHODS
+
+  @Before
+  public void setUp()
+  {
+    this.recorder = new RecordingListener();
+  }
+
+  /**
+   * Tests that only changed percentages are forwarded.
+   */
+  @Test
+  public void testForwardChangedPercentagesOnlyOk()
+  {
+    final ThrottledProgressListener listener = new ThrottledProgressListener( this.recorder, Long.MAX_VALUE / 1000000L );
+    for ( int i = 0; i < 100000; i++ )
+    {
+      listener.setProgress( ( i * 100 ) / 100000 );
+    }
+    listener.setProgress( 100 );
+
+    assertEquals( 101, this.recorder.percentages.size() );
+    for ( int i = 0; i <= 100; i++ )
+    {
+      assertEquals( i, this.recorder.percentages.get( i ).intValue() );
+    }
+  }
+
+  /**
+   * Tests that an unchanged percentage is forwarded again once the time
+   * quantum has passed.
+   */
+  @Test
+  public void testForwardUnchangedPercentageAfterQuantumOk()
+  {
+    final ThrottledProgressListener listener = new ThrottledProgressListener( this.recorder, 0L );
+    for ( int i = 0; i < 4096; i++ )
+    {
+      listener.setProgress( 50 );
+    }
+
+    assertTrue( this.recorder.percentages.size() > 1 );
+    assertTrue( this.recorder.percentages.size() < 4096 );
+  }
+
+  /**
+   * Tests that a <code>null</code> delegate is accepted and that wrapping an
+   * already throttled listener does not wrap it again.
+   */
+  @Test
+  public void testWrapOk()
+  {
+    final ThrottledProgressListener listener = ThrottledProgressListener.wrap( this.recorder );
+    assertSame( listener, ThrottledProgressListener.wrap( listener ) );
+
+    ThrottledProgressListener.wrap( null ).setProgress( 10 );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,159 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+
+import nl.lxtreme.ols.tool.base.ExportAware.ExportFormat;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ToolResultWriter}.
+ */
+public class ToolResultWriterTest
+{
+  // INNER TYPES
+
+  /**
+   * Writes each string as a single-cell row, highlighting rows starting with
+   * "!".
+   */
+  static final class StringRowCallback implements ToolResultWriter.RowCallback<String>
+  {
+    // VARIABLES
+
+    boolean footerWritten;
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeFooter( final ToolResultWriter aWriter ) throws IOException
+    {
+      this.footerWritten = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+    {
+      aWriter.writeColumns( "index", "value" );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final String aRow )
+        throws IOException
+    {
+      final Color color = aRow.startsWith( "!" ) ? Color.RED : null;
+      aWriter.writeRow( color, Integer.valueOf( aRowIndex ), aRow );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final String EOL = System.getProperty( "line.separator", "\n" );
+
+  // METHODS
+
+  /**
+   * Tests that the CSV output only contains the columns and rows.
+   */
+  @Test
+  public void testWriteCsv() throws IOException
+  {
+    final StringWriter output = new StringWriter();
+    final StringRowCallback callback = new StringRowCallback();
+
+    final ToolResultWriter writer = ToolResultWriter.create( output, ExportFormat.CSV );
+    writer.writeTitle( "Title" );
+    writer.writeProperty( "Property", "value" );
+    writer.write( Arrays.asList( "a", "!b" ), callback );
+    writer.close();
+
+    assertTrue( callback.footerWritten );
+    assertEquals( "\"index\",\"value\"" + EOL + "\"0\",\"a\"" + EOL + "\"1\",\"!b\"" + EOL, output.toString() );
+  }
+
+  /**
+   * Tests that the HTML output contains the title, properties and all rows,
+   * with special characters escaped.
+   */
+  @Test
+  public void testWriteHtml() throws IOException
+  {
+    final StringWriter output = new StringWriter();
+
+    final ToolResultWriter writer = ToolResultWriter.create( output, ExportFormat.HTML );
+    writer.writeTitle( "Title" );
+    writer.writeProperty( "Mode", "<unknown>" );
+    writer.write( Arrays.asList( "a&b", "!c" ), new StringRowCallback() );
+    writer.close();
+
+    final String html = output.toString();
+    assertTrue( html.contains( "<title>Title</title>" ) );
+    assertTrue( html.contains( "<h1>Title</h1>" ) );
+    assertTrue( html.contains( "<tr><td class='w30'>Mode</td><td>&lt;unknown&gt;</td></tr>" ) );
+    assertTrue( html.contains( "<thead><tr><th>index</th><th>value</th></tr></thead>" ) );
+    assertTrue( html.contains( "<tr><td>0</td><td>a&amp;b</td></tr>" ) );
+    assertTrue( html.contains( "<tr style='background-color: #ff0000;'><td>1</td><td>!c</td></tr>" ) );
+    assertTrue( html.endsWith( "</tbody></table>\n</body></html>\n" ) );
+  }
+
+  /**
+   * Tests that writing large results is aborted when the current thread is
+   * interrupted.
+   */
+  @Test( expected = InterruptedIOException.class )
+  public void testWriteInterrupted() throws IOException
+  {
+    final List<String> rows = Collections.nCopies( 10000, "row" );
+
+    final ToolResultWriter writer = ToolResultWriter.create( new StringWriter(), ExportFormat.CSV );
+
+    Thread.currentThread().interrupt();
+    try
+    {
+      writer.write( rows, new StringRowCallback() );
+    }
+    finally
+    {
+      // Clear the interrupted flag again...
+      Thread.interrupted();
+    }
+  }
+}
+
+/* EOF */
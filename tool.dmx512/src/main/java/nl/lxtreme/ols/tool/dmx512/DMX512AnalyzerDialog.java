@@ -21,14 +21,10 @@
 package nl.lxtreme.ols.tool.dmx512;
 
 
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.*;
 import static nl.lxtreme.ols.util.swing.SwingComponentUtils.*;
 
 import java.awt.*;
 import java.io.*;
-import java.text.*;
-import java.util.*;
-import java.util.List;
 import java.util.logging.*;
 
 import javax.swing.*;
@@ -39,11 +35,6 @@ import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.ToolUtils.RestorableAction;
 import nl.lxtreme.ols.util.*;
-import nl.lxtreme.ols.util.ExportUtils.CsvExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
-import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
 import nl.lxtreme.ols.util.swing.*;
 
 import org.osgi.framework.*;
@@ -54,6 +45,123 @@ import org.osgi.framework.*;
  */
 public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> implements ExportAware<DMX512DataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Provides the table model for the decoded DMX512 data.
+   */
+  static final class DMX512DataTableModel extends ToolResultTableModel<DMX512Data>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Color FRAME_ERROR_COLOR = new Color( 0xff6600 );
+    private static final Color PARITY_ERROR_COLOR = new Color( 0xff9900 );
+    private static final Color START_ERROR_COLOR = new Color( 0xffcc00 );
+    private static final Color ODD_ROW_COLOR = new Color( 0xeeeeee );
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new DMX512DataTableModel instance.
+     */
+    public DMX512DataTableModel()
+    {
+      super( "Index", "Time", "Hex", "Bin", "Dec", "ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * Returns whether the given value can be represented as an
+     * ASCII-character.
+     * 
+     * @param aValue
+     *          the value to test.
+     * @return <code>true</code> if the given character can be represented as
+     *         printable ASCII-character, <code>false</code> otherwise.
+     */
+    private static boolean isPrintableCharacter( final int aValue )
+    {
+      return ( aValue >= 32 ) && ( aValue < 255 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRowIndex, final DMX512Data aRow )
+    {
+      final String eventName = aRow.getEventName();
+      if ( "FRAME".equals( eventName ) )
+      {
+        return FRAME_ERROR_COLOR;
+      }
+      else if ( "PARITY".equals( eventName ) )
+      {
+        return PARITY_ERROR_COLOR;
+      }
+      else if ( "START".equals( eventName ) )
+      {
+        return START_ERROR_COLOR;
+      }
+      // symbol
+      return ( ( aRowIndex % 2 ) == 0 ) ? null : ODD_ROW_COLOR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRowIndex, final DMX512Data aRow, final int aColumnIndex )
+    {
+      if ( aColumnIndex == 0 )
+      {
+        return String.valueOf( aRowIndex );
+      }
+      else if ( aColumnIndex == 1 )
+      {
+        return formatTime( aRow.getStartSampleIndex() );
+      }
+
+      final String eventName = aRow.getEventName();
+      if ( eventName != null )
+      {
+        if ( aColumnIndex != 2 )
+        {
+          return null;
+        }
+        if ( "FRAME".equals( eventName ) )
+        {
+          return "Frame error";
+        }
+        else if ( "PARITY".equals( eventName ) )
+        {
+          return "Parity error";
+        }
+        else if ( "START".equals( eventName ) )
+        {
+          return "Start error";
+        }
+        return eventName;
+      }
+
+      final int value = aRow.getData();
+      switch ( aColumnIndex )
+      {
+        case 2:
+          return "0x" + StringUtils.integerToHexString( value, 2 );
+        case 3:
+          return "0b" + StringUtils.integerToBinString( value, 8 );
+        case 4:
+          return String.valueOf( value );
+        default:
+          return isPrintableCharacter( value ) ? String.valueOf( ( char )value ) : null;
+      }
+    }
+  }
+
   // CONSTANTS
 
   private static final long serialVersionUID = 1L;
@@ -63,7 +171,8 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
   // VARIABLES
 
   private JComboBox dataLine;
-  private JEditorPane outText;
+  private DMX512DataTableModel resultModel;
+  private ToolResultView resultView;
 
   private RestorableAction runAnalysisAction;
   private Action closeAction;
@@ -127,8 +236,8 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
   @Override
   public void reset()
   {
-    this.outText.setText( getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel.setDataSet( null );
+    this.resultView.setSummary( null );
 
     this.runAnalysisAction.restore();
 
@@ -152,32 +261,20 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
   @Override
   protected void onToolEnded( final DMX512DataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-      }
-
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
+    this.resultModel.setDataSet( aAnalysisResult );
 
-      this.runAnalysisAction.restore();
+    if ( aAnalysisResult != null )
+    {
+      this.resultView.setSummary( String.format( "Decoded bytes: %d, detected bus errors: %d, number of slots: %d",
+          Integer.valueOf( aAnalysisResult.getDecodedSymbols() ), Integer.valueOf( aAnalysisResult.getDetectedErrors() ),
+          Integer.valueOf( aAnalysisResult.getSlotCount() ) ) );
     }
-    catch ( final IOException exception )
+    else
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // Should not happen in this situation!
-        throw new RuntimeException( exception );
-      }
+      this.resultView.setSummary( null );
     }
+
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -218,86 +315,15 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
     this.exportAction.setEnabled( aEnable );
   }
 
-  /**
-   * Creates the HTML template for exports to HTML.
-   * 
-   * @param aExporter
-   *          the HTML exporter instance to use, cannot be <code>null</code>.
-   * @return a HTML exporter filled with the template, never <code>null</code>.
-   */
-  private HtmlExporter createHtmlTemplate( final HtmlExporter aExporter )
-  {
-    aExporter.addCssStyle( "body { font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table { border-width: 1px; border-spacing: 0px; border-color: gray;"
-        + " border-collapse: collapse; border-style: solid; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " background-color: #C0C0FF; text-align: left; font-weight: bold; font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " font-family: monospace; } " );
-    aExporter.addCssStyle( ".error { color: red; } " );
-    aExporter.addCssStyle( ".warning { color: orange; } " );
-    aExporter.addCssStyle( ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( ".w100 { width: 100%; } " );
-    aExporter.addCssStyle( ".w35 { width: 35%; } " );
-    aExporter.addCssStyle( ".w30 { width: 30%; } " );
-    aExporter.addCssStyle( ".w15 { width: 15%; } " );
-    aExporter.addCssStyle( ".w10 { width: 10%; } " );
-    aExporter.addCssStyle( ".w8 { width: 8%; } " );
-    aExporter.addCssStyle( ".w7 { width: 7%; } " );
-
-    final Element body = aExporter.getBody();
-    body.addChild( H1 ).addContent( "DMX512 Analysis results" );
-    body.addChild( HR );
-    body.addChild( DIV ).addAttribute( "class", "date" ).addContent( "Generated: ", "{date-now}" );
-
-    Element table, tr, thead, tbody;
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Statistics" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Decoded bytes" );
-    tr.addChild( TD ).addContent( "{decoded-bytes}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Detected bus errors" );
-    tr.addChild( TD ).addContent( "{detected-bus-errors}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Number of slots" );
-    tr.addChild( TD ).addContent( "{slot-count}" );
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    thead = table.addChild( THEAD );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w30" ).addAttribute( "colspan", "2" );
-    tr.addChild( TH ).addAttribute( "class", "w35" ).addAttribute( "colspan", "4" ).addContent( "Data" );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Index" );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Time" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w8" ).addContent( "Dec" );
-    tr.addChild( TH ).addAttribute( "class", "w7" ).addContent( "ASCII" );
-    tbody = table.addChild( TBODY );
-    tbody.addContent( "{decoded-data}" );
-
-    return aExporter;
-  }
-
   /**
    * @return
    */
   private JPanel createPreviewPane()
   {
-    final JPanel panTable = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
+    this.resultModel = new DMX512DataTableModel();
+    this.resultView = new ToolResultView( this.resultModel );
 
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
-
-    panTable.add( new JScrollPane( this.outText ) );
-
-    return panTable;
+    return this.resultView;
   }
 
   /**
@@ -320,40 +346,6 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
     return settings;
   }
 
-  /**
-   * generate a HTML page
-   * 
-   * @param empty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
-   */
-  private String getEmptyHtmlPage()
-  {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "decoded-bytes".equals( aMacro ) || "detected-bus-errors".equals( aMacro )
-            || "baudrate".equals( aMacro ) )
-        {
-          return "-";
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          return null;
-        }
-        return null;
-      }
-    } );
-  }
-
   /**
    * Initializes this dialog.
    */
@@ -395,26 +387,39 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
   {
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
-      exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "RxD event", "TxD event",
-          "RxD data", "TxD data" );
-
-      final List<DMX512Data> decodedData = aDataSet.getData();
-      for ( int i = 0; i < decodedData.size(); i++ )
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.CSV );
+      try
       {
-        final DMX512Data ds = decodedData.get( i );
+        writer.write( aDataSet.getData(), new ToolResultWriter.RowCallback<DMX512Data>()
+        {
+          @Override
+          public void writeFooter( final ToolResultWriter aWriter )
+          {
+            // NO-op
+          }
 
-        final String startTime = UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
-        final String endTime = UnitOfTime.format( aDataSet.getTime( ds.getEndSampleIndex() ) );
+          @Override
+          public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+          {
+            aWriter.writeColumns( "index", "start-time", "end-time", "event-type", "data" );
+          }
 
-        String eventType = ds.getEventName();
-        String dataValue = Integer.toString( ds.getData() );
+          @Override
+          public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final DMX512Data aRow )
+              throws IOException
+          {
+            final String startTime = UnitOfTime.format( aDataSet.getTime( aRow.getStartSampleIndex() ) );
+            final String endTime = UnitOfTime.format( aDataSet.getTime( aRow.getEndSampleIndex() ) );
 
-        exporter.addRow( Integer.valueOf( i ), startTime, endTime, eventType, dataValue );
+            aWriter.writeRow( null, Integer.valueOf( aRowIndex ), startTime, endTime, aRow.getEventName(),
+                Integer.toString( aRow.getData() ) );
+          }
+        } );
+      }
+      finally
+      {
+        writer.close();
       }
-
-      exporter.close();
     }
     catch ( final IOException exception )
     {
@@ -436,7 +441,19 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
   {
     try
     {
-      toHtmlPage( aFile, aDataSet );
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.HTML );
+      try
+      {
+        writer.writeTitle( "DMX512 Analysis results" );
+        writer.writeProperty( "Decoded bytes", Integer.valueOf( aDataSet.getDecodedSymbols() ) );
+        writer.writeProperty( "Detected bus errors", Integer.valueOf( aDataSet.getDetectedErrors() ) );
+        writer.writeProperty( "Number of slots", Integer.valueOf( aDataSet.getSlotCount() ) );
+        writer.write( aDataSet.getData(), this.resultModel );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -447,133 +464,4 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
       }
     }
   }
-
-  /**
-   * generate a HTML page
-   * 
-   * @param empty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
-   */
-  private String toHtmlPage( final File aFile, final DMX512DataSet aDataSet ) throws IOException
-  {
-    final int bitCount = 8;
-    final int bitAdder = 0;
-
-    final MacroResolver macroResolver = new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "decoded-bytes".equals( aMacro ) )
-        {
-          return Integer.valueOf( aDataSet.getDecodedSymbols() );
-        }
-        else if ( "slot-count".equals( aMacro ) )
-        {
-          return Integer.valueOf( aDataSet.getSlotCount() );
-        }
-        else if ( "detected-bus-errors".equals( aMacro ) )
-        {
-          return Integer.valueOf( aDataSet.getDetectedErrors() );
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          final List<DMX512Data> decodedData = aDataSet.getData();
-          Element tr;
-
-          for ( int i = 0; i < decodedData.size(); i++ )
-          {
-            final DMX512Data ds = decodedData.get( i );
-
-            String eventName = ds.getEventName();
-            String bgColor;
-            if ( "FRAME".equals( eventName ) )
-            {
-              eventName = "Frame error";
-              bgColor = "#ff6600";
-            }
-            else if ( "PARITY".equals( eventName ) )
-            {
-              eventName = "Parity error";
-              bgColor = "#ff9900";
-            }
-            else if ( "START".equals( eventName ) )
-            {
-              eventName = "Start error";
-              bgColor = "#ffcc00";
-            }
-            else
-            {
-              // symbol
-              bgColor = ( i % 2 ) == 0 ? "#ffffff" : "#eeeeee";
-            }
-
-            tr = aParent.addChild( TR ).addAttribute( "style", "background-color: " + bgColor + ";" );
-            tr.addChild( TD ).addContent( String.valueOf( i ) );
-            tr.addChild( TD ).addContent( UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) ) );
-            if ( eventName == null )
-            {
-              // normal symbol...
-              int data = ds.getData();
-
-              String dataHex = "0x" + StringUtils.integerToHexString( data, ( bitCount / 4 ) + bitAdder );
-              String dataBin = "0b" + StringUtils.integerToBinString( data, bitCount );
-              String dataDec = String.valueOf( data );
-              String dataASCII = "";
-              if ( isPrintableCharacter( data ) )
-              {
-                dataASCII = String.valueOf( ( char )data );
-              }
-
-              tr.addChild( TD ).addContent( dataHex );
-              tr.addChild( TD ).addContent( dataBin );
-              tr.addChild( TD ).addContent( dataDec );
-              tr.addChild( TD ).addContent( dataASCII );
-            }
-            else
-            {
-              // error event...
-              tr.addChild( TD ).addAttribute( "colspan", "4" ).addContent( eventName );
-            }
-          }
-        }
-        return null;
-      }
-
-      /**
-       * Returns whether the given value can be represented as an
-       * ASCII-character.
-       * 
-       * @param aValue
-       *          the value to test.
-       * @return <code>true</code> if the given character can be represented as
-       *         printable ASCII-character, <code>false</code> otherwise.
-       */
-      private boolean isPrintableCharacter( final int aValue )
-      {
-        final boolean withinRange = ( aValue >= 32 ) && ( aValue < 255 );
-        return withinRange;
-      }
-    };
-
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
-  }
 }
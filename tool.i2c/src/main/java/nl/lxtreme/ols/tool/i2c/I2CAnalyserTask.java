@@ -24,11 +24,13 @@ package nl.lxtreme.ols.tool.i2c;
 import static nl.lxtreme.ols.util.NumberUtils.*;
 
 import java.beans.*;
+import java.util.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
 
 
@@ -37,6 +39,208 @@ import nl.lxtreme.ols.tool.base.annotation.*;
  */
 public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Represents the state of the I2C decoder between two samples.
+   */
+  static final class I2CDecodeState
+  {
+    // VARIABLES
+
+    int oldSCL;
+    int oldSDA;
+    int bitCount;
+    int byteValue;
+    int prevIdx;
+    boolean startCondFound;
+    boolean tenBitAddress;
+    int slaveAddress;
+    int direction;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new I2CDecodeState instance for an idle bus, with the given
+     * values for SCL and SDA.
+     * 
+     * @param aSCL
+     *          the (masked) value of SCL;
+     * @param aSDA
+     *          the (masked) value of SDA.
+     */
+    I2CDecodeState( final int aSCL, final int aSDA )
+    {
+      this.oldSCL = aSCL;
+      this.oldSDA = aSDA;
+      this.bitCount = I2C_BITCOUNT;
+      this.byteValue = 0;
+      this.prevIdx = -1;
+      this.startCondFound = false;
+      this.tenBitAddress = false;
+      this.slaveAddress = 0x00;
+      this.direction = -1;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof I2CDecodeState ) )
+      {
+        return false;
+      }
+
+      final I2CDecodeState other = ( I2CDecodeState )aObject;
+      if ( ( this.oldSCL != other.oldSCL ) || ( this.oldSDA != other.oldSDA ) || ( this.bitCount != other.bitCount )
+          || ( this.byteValue != other.byteValue ) || ( this.startCondFound != other.startCondFound )
+          || ( this.tenBitAddress != other.tenBitAddress ) || ( this.slaveAddress != other.slaveAddress )
+          || ( this.direction != other.direction ) )
+      {
+        return false;
+      }
+      // The start of a byte is only relevant once its first bit is seen...
+      return ( this.bitCount == I2C_BITCOUNT ) || ( this.prevIdx == other.prevIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + this.oldSCL;
+      result = prime * result + this.oldSDA;
+      result = prime * result + this.bitCount;
+      result = prime * result + this.byteValue;
+      result = prime * result + ( this.startCondFound ? 1231 : 1237 );
+      result = prime * result + ( this.tenBitAddress ? 1231 : 1237 );
+      result = prime * result + this.slaveAddress;
+      result = prime * result + this.direction;
+      return result;
+    }
+  }
+
+  /**
+   * Provides the decoding results of a single segment.
+   */
+  static final class I2CSegment
+  {
+    // VARIABLES
+
+    final I2CDataSet dataSet;
+    final List<SampleDataAnnotation> annotations;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new I2CSegment instance.
+     * 
+     * @param aDataSet
+     *          the data set to decode the segment into, cannot be
+     *          <code>null</code>.
+     */
+    I2CSegment( final I2CDataSet aDataSet )
+    {
+      this.dataSet = aDataSet;
+      this.annotations = new ArrayList<SampleDataAnnotation>();
+    }
+  }
+
+  /**
+   * Decodes a single segment of I2C data, where segments start directly after
+   * a STOP condition.
+   */
+  final class I2CSegmentDecoder implements SegmentDecoder<I2CDecodeState, I2CSegment>
+  {
+    // VARIABLES
+
+    private final int[] values;
+    private final int sclMask;
+    private final int sdaMask;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new I2CSegmentDecoder instance.
+     */
+    I2CSegmentDecoder()
+    {
+      this.values = I2CAnalyserTask.this.context.getData().getValues();
+      this.sclMask = ( 1 << I2CAnalyserTask.this.sclIdx );
+      this.sdaMask = ( 1 << I2CAnalyserTask.this.sdaIdx );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public I2CDecodeState createBoundaryState( final int aSampleIdx )
+    {
+      return createState( aSampleIdx - 1 );
+    }
+
+    /**
+     * Creates the decoding state of an idle bus for the moment directly after
+     * the given sample.
+     * 
+     * @param aSampleIdx
+     *          the sample index.
+     * @return a new decoding state, never <code>null</code>.
+     */
+    public I2CDecodeState createState( final int aSampleIdx )
+    {
+      final int value = this.values[aSampleIdx];
+      return new I2CDecodeState( value & this.sclMask, value & this.sdaMask );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public I2CSegment decode( final int aStartIdx, final int aEndIdx, final I2CDecodeState aState )
+    {
+      final I2CSegment result = new I2CSegment( new I2CDataSet( aStartIdx, aEndIdx,
+          I2CAnalyserTask.this.context.getData() ) );
+      decodeSegment( result, this.values, aStartIdx, aEndIdx, aState );
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findBoundary( final int aStartIdx, final int aEndIdx )
+    {
+      int oldSda = ( this.values[aStartIdx - 1] & this.sdaMask );
+      for ( int idx = aStartIdx; idx < aEndIdx; idx++ )
+      {
+        final int value = this.values[idx];
+        final int sda = ( value & this.sdaMask );
+        if ( ( oldSda < sda ) && ( ( value & this.sclMask ) != 0 ) )
+        {
+          // SDA rises while SCL is high: a STOP condition; the bus is idle
+          // directly after it...
+          return ( ( idx + 1 ) < aEndIdx ) ? ( idx + 1 ) : -1;
+        }
+        oldSda = sda;
+      }
+      return -1;
+    }
+  }
+
   // CONSTANTS
 
   public static final String LINE_A = "LineA";
@@ -70,6 +274,10 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   private int lineBidx;
   private int sdaIdx;
   private int sclIdx;
+  private int threadCount;
+  private int minSegmentSize;
+  private int segmentCount;
+  private int redecodeCount;
 
   // CONSTRUCTORS
 
@@ -83,13 +291,16 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
       final AnnotationListener aAnnotationListener )
   {
     this.context = aContext;
-    this.progressListener = aProgressListener;
+    this.progressListener = ThrottledProgressListener.wrap( aProgressListener );
     this.annotationListener = aAnnotationListener;
 
     this.pcs = new PropertyChangeSupport( this );
 
     // the default behaviour is remained as-is...
     this.detectSDA_SCL = true;
+
+    this.threadCount = Runtime.getRuntime().availableProcessors();
+    this.minSegmentSize = ParallelSegmentDecoder.DEFAULT_MIN_SEGMENT_SIZE;
   }
 
   // METHODS
@@ -117,13 +328,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int[] values = data.getValues();
     final long[] timestamps = data.getTimestamps();
 
-    // process the captured data and write to output
-    int oldSCL, oldSDA, bitCount;
-    int byteValue;
-
     if ( LOG.isLoggable( Level.FINE ) )
     {
       LOG.log( Level.FINE, "Line A mask = 0x{0}", Integer.toHexString( this.lineAmask ) );
@@ -144,34 +350,13 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
       this.sdaIdx = this.lineBidx;
     }
 
-    final int sdaMask = ( 1 << this.sdaIdx );
-    final int sclMask = ( 1 << this.sclIdx );
-
     final I2CDataSet i2cDataSet = new I2CDataSet( startOfDecode, endOfDecode, data );
 
     // Prepare everything for the decoding results...
     prepareResults();
 
-    /*
-     * Now decode the bytes, SDA may only change when SCL is low. Otherwise it
-     * may be a repeated start condition or stop condition. If the start/stop
-     * condition is not at a byte boundary a bus error is detected. So we have
-     * to scan for SCL rises and for SDA changes during SCL is high. Each byte
-     * is followed by a 9th bit (ACK/NACK).
-     */
-    int idx = i2cDataSet.getStartOfDecode();
-    int prevIdx = -1;
-
-    oldSCL = values[idx] & sclMask;
-    oldSDA = values[idx] & sdaMask;
-
-    bitCount = I2C_BITCOUNT;
-    byteValue = 0;
-
-    boolean startCondFound = false;
-    boolean tenBitAddress = false;
-    int slaveAddress = 0x00;
-    int direction = -1;
+    final I2CSegmentDecoder decoder = new I2CSegmentDecoder();
+    final I2CDecodeState state = decoder.createState( i2cDataSet.getStartOfDecode() );
 
     if ( this.detectSDA_SCL )
     {
@@ -181,169 +366,31 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
       this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[startOfDecode],
           I2CDataSet.I2C_START ) );
 
-      startCondFound = true;
+      state.startCondFound = true;
     }
 
-    for ( ; idx < i2cDataSet.getEndOfDecode(); idx++ )
-    {
-      final int dataValue = values[idx];
-
-      final int sda = ( dataValue & sdaMask );
-      final int scl = ( dataValue & sclMask );
-
-      // detect SCL fall/rise
-      if ( oldSCL > scl )
-      {
-        // SCL falls
-        if ( ( prevIdx < 0 ) || ( bitCount == I2C_BITCOUNT ) )
-        {
-          prevIdx = idx;
-        }
-
-        if ( bitCount == 0 )
-        {
-          // store decoded byte
-          reportData( i2cDataSet, prevIdx, idx, byteValue );
-
-          final String annotation;
-          if ( startCondFound )
-          {
-            // This is the (7- or 10-bit) address part...
-            direction = ( byteValue & 0x01 );
-
-            if ( ( byteValue & 0xf8 ) == 0xf0 )
-            {
-              // 10-bit address part...
-              slaveAddress = ( byteValue & 0x06 ) << 6;
-              tenBitAddress = true;
-
-              annotation = String.format( "Setup %s 10-bit slave", ( direction == 1 ) ? "read from" : "write to" );
-            }
-            else
-            {
-              if ( tenBitAddress )
-              {
-                // 10-bit address needs the first few bits of the previous slave
-                // address, so OR-ing is needed here...
-                slaveAddress |= ( byteValue & 0xFF );
-              }
-              else
-              {
-                // 7-bit address, directly available. See issue #51
-                slaveAddress = ( ( byteValue >> 1 ) & 0xFF );
-              }
-              startCondFound = false;
-
-              annotation = String.format( tenBitAddress ? "Setup %s slave: 0x%X " : "Setup %s slave: 0x%X [0x%X]",
-                  ( direction == 1 ) ? "read from" : "write to", Integer.valueOf( slaveAddress ),
-                  Integer.valueOf( byteValue ) );
-
-              tenBitAddress = false;
-            }
-          }
-          else
-          {
-            annotation = String.format( "%s data: 0x%X (%c)", ( direction == 1 ) ? "Read" : "Write",
-                Integer.valueOf( byteValue ), Integer.valueOf( byteValue ) );
-          }
-
-          this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[prevIdx],
-              timestamps[idx], annotation ) );
+    /*
+     * The decoding range is split into segments directly after each STOP
+     * condition, which are decoded in parallel for long captures.
+     */
+    final ParallelSegmentDecoder<I2CDecodeState, I2CSegment> segmentDecoder;
+    segmentDecoder = new ParallelSegmentDecoder<I2CDecodeState, I2CSegment>( decoder, this.progressListener,
+        this.threadCount, this.minSegmentSize );
 
-          byteValue = 0;
-        }
-      }
-      else if ( scl > oldSCL )
+    final List<I2CSegment> segments = segmentDecoder.decode( i2cDataSet.getStartOfDecode() + 1,
+        i2cDataSet.getEndOfDecode(), state );
+    for ( I2CSegment segment : segments )
+    {
+      i2cDataSet.addAll( segment.dataSet );
+      for ( SampleDataAnnotation annotation : segment.annotations )
       {
-        // SCL rises
-        if ( sda != oldSDA )
-        {
-          reportBusError( i2cDataSet, idx );
-        }
-        else
-        {
-          // read SDA
-          if ( bitCount != 0 )
-          {
-            bitCount--;
-            if ( sda != 0 )
-            {
-              byteValue |= ( 1 << bitCount );
-            }
-          }
-          else
-          {
-            // read the confirmation of the slave...
-            if ( sda != 0 )
-            {
-              // NACK
-              reportNACK( i2cDataSet, idx );
-
-              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                  I2CDataSet.I2C_NACK ) );
-            }
-            else
-            {
-              // ACK
-              reportACK( i2cDataSet, idx );
-
-              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                  I2CDataSet.I2C_ACK ) );
-            }
-
-            // next byte
-            bitCount = I2C_BITCOUNT;
-            byteValue = 0;
-          }
-        }
+        this.annotationListener.onAnnotation( annotation );
       }
-
-      // detect SDA change when SCL high
-      if ( ( scl == sclMask ) && ( sda != oldSDA ) )
-      {
-        // SDA changes here
-        if ( ( bitCount > 0 ) && ( bitCount < ( I2C_BITCOUNT - 1 ) ) )
-        {
-          // bus error, no complete byte detected
-          reportBusError( i2cDataSet, idx );
-        }
-        else
-        {
-          if ( sda > oldSDA )
-          {
-            // SDA rises, this is a stop condition
-            reportStopCondition( i2cDataSet, idx );
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                I2CDataSet.I2C_STOP ) );
-
-            slaveAddress = 0x00;
-            direction = -1;
-          }
-          else
-          {
-            // SDA falls, this is a start condition
-            reportStartCondition( i2cDataSet, idx );
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                I2CDataSet.I2C_START ) );
-
-            startCondFound = true;
-          }
-
-          // new byte
-          bitCount = I2C_BITCOUNT;
-          byteValue = 0;
-        }
-      }
-
-      oldSCL = scl;
-      oldSDA = sda;
-
-      this.progressListener
-          .setProgress( getPercentage( idx, i2cDataSet.getStartOfDecode(), i2cDataSet.getEndOfDecode() ) );
     }
 
+    this.segmentCount = segmentDecoder.getSegmentCount();
+    this.redecodeCount = segmentDecoder.getRedecodeCount();
+
     return i2cDataSet;
   }
 
@@ -417,6 +464,17 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     this.reportStop = aReportStop;
   }
 
+  /**
+   * Returns the number of segments that were decoded once more during the
+   * last decoding, because the state assumed at their start was wrong.
+   * 
+   * @return the number of re-decoded segments, &gt;= 0.
+   */
+  final int getRedecodeCount()
+  {
+    return this.redecodeCount;
+  }
+
   /**
    * @return the sclIdx
    */
@@ -433,6 +491,32 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     return this.sdaIdx;
   }
 
+  /**
+   * Returns the number of segments the last decoding was split into.
+   * 
+   * @return the number of segments, &gt;= 0.
+   */
+  final int getSegmentCount()
+  {
+    return this.segmentCount;
+  }
+
+  /**
+   * Sets how the decoding range is split into segments that are decoded in
+   * parallel.
+   * 
+   * @param aThreadCount
+   *          the maximum number of threads to use, &lt; 2 to decode
+   *          sequentially;
+   * @param aMinSegmentSize
+   *          the minimal number of samples in a single segment, &gt; 0.
+   */
+  final void setSegmentation( final int aThreadCount, final int aMinSegmentSize )
+  {
+    this.threadCount = aThreadCount;
+    this.minSegmentSize = aMinSegmentSize;
+  }
+
   /**
    * Tries to auto detect the SDA & SCL lines between the given boundries in the
    * data.
@@ -518,6 +602,214 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     return sampleIdx;
   }
 
+  /**
+   * Decodes the I2C data of a single segment.
+   * <p>
+   * SDA may only change when SCL is low. Otherwise it may be a repeated start
+   * condition or stop condition. If the start/stop condition is not at a byte
+   * boundary a bus error is detected. So we have to scan for SCL rises and for
+   * SDA changes during SCL is high. Each byte is followed by a 9th bit
+   * (ACK/NACK).
+   * </p>
+   * 
+   * @param aSegment
+   *          the segment to fill with the decoded data and annotations;
+   * @param aValues
+   *          the sample values to decode;
+   * @param aStartIdx
+   *          the sample index to start decoding at (inclusive);
+   * @param aEndIdx
+   *          the sample index to stop decoding at (exclusive);
+   * @param aState
+   *          the decoding state at the start of the segment, will be updated to
+   *          the decoding state at the end of the segment.
+   */
+  private void decodeSegment( final I2CSegment aSegment, final int[] aValues, final int aStartIdx, final int aEndIdx,
+      final I2CDecodeState aState )
+  {
+    final long[] timestamps = this.context.getData().getTimestamps();
+
+    final int sdaMask = ( 1 << this.sdaIdx );
+    final int sclMask = ( 1 << this.sclIdx );
+
+    int oldSCL = aState.oldSCL;
+    int oldSDA = aState.oldSDA;
+    int bitCount = aState.bitCount;
+    int byteValue = aState.byteValue;
+    int prevIdx = aState.prevIdx;
+    boolean startCondFound = aState.startCondFound;
+    boolean tenBitAddress = aState.tenBitAddress;
+    int slaveAddress = aState.slaveAddress;
+    int direction = aState.direction;
+
+    for ( int idx = aStartIdx; idx < aEndIdx; idx++ )
+    {
+      final int dataValue = aValues[idx];
+
+      final int sda = ( dataValue & sdaMask );
+      final int scl = ( dataValue & sclMask );
+
+      // detect SCL fall/rise
+      if ( oldSCL > scl )
+      {
+        // SCL falls
+        if ( ( prevIdx < 0 ) || ( bitCount == I2C_BITCOUNT ) )
+        {
+          prevIdx = idx;
+        }
+
+        if ( bitCount == 0 )
+        {
+          // store decoded byte
+          reportData( aSegment.dataSet, prevIdx, idx, byteValue );
+
+          final String annotation;
+          if ( startCondFound )
+          {
+            // This is the (7- or 10-bit) address part...
+            direction = ( byteValue & 0x01 );
+
+            if ( ( byteValue & 0xf8 ) == 0xf0 )
+            {
+              // 10-bit address part...
+              slaveAddress = ( byteValue & 0x06 ) << 6;
+              tenBitAddress = true;
+
+              annotation = String.format( "Setup %s 10-bit slave", ( direction == 1 ) ? "read from" : "write to" );
+            }
+            else
+            {
+              if ( tenBitAddress )
+              {
+                // 10-bit address needs the first few bits of the previous slave
+                // address, so OR-ing is needed here...
+                slaveAddress |= ( byteValue & 0xFF );
+              }
+              else
+              {
+                // 7-bit address, directly available. See issue #51
+                slaveAddress = ( ( byteValue >> 1 ) & 0xFF );
+              }
+              startCondFound = false;
+
+              annotation = String.format( tenBitAddress ? "Setup %s slave: 0x%X " : "Setup %s slave: 0x%X [0x%X]",
+                  ( direction == 1 ) ? "read from" : "write to", Integer.valueOf( slaveAddress ),
+                  Integer.valueOf( byteValue ) );
+
+              tenBitAddress = false;
+            }
+          }
+          else
+          {
+            annotation = String.format( "%s data: 0x%X (%c)", ( direction == 1 ) ? "Read" : "Write",
+                Integer.valueOf( byteValue ), Integer.valueOf( byteValue ) );
+          }
+
+          aSegment.annotations.add( new SampleDataAnnotation( this.sdaIdx, timestamps[prevIdx],
+              timestamps[idx], annotation ) );
+
+          byteValue = 0;
+        }
+      }
+      else if ( scl > oldSCL )
+      {
+        // SCL rises
+        if ( sda != oldSDA )
+        {
+          reportBusError( aSegment.dataSet, idx );
+        }
+        else
+        {
+          // read SDA
+          if ( bitCount != 0 )
+          {
+            bitCount--;
+            if ( sda != 0 )
+            {
+              byteValue |= ( 1 << bitCount );
+            }
+          }
+          else
+          {
+            // read the confirmation of the slave...
+            if ( sda != 0 )
+            {
+              // NACK
+              reportNACK( aSegment.dataSet, idx );
+
+              aSegment.annotations.add( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
+                  I2CDataSet.I2C_NACK ) );
+            }
+            else
+            {
+              // ACK
+              reportACK( aSegment.dataSet, idx );
+
+              aSegment.annotations.add( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
+                  I2CDataSet.I2C_ACK ) );
+            }
+
+            // next byte
+            bitCount = I2C_BITCOUNT;
+            byteValue = 0;
+          }
+        }
+      }
+
+      // detect SDA change when SCL high
+      if ( ( scl == sclMask ) && ( sda != oldSDA ) )
+      {
+        // SDA changes here
+        if ( ( bitCount > 0 ) && ( bitCount < ( I2C_BITCOUNT - 1 ) ) )
+        {
+          // bus error, no complete byte detected
+          reportBusError( aSegment.dataSet, idx );
+        }
+        else
+        {
+          if ( sda > oldSDA )
+          {
+            // SDA rises, this is a stop condition
+            reportStopCondition( aSegment.dataSet, idx );
+
+            aSegment.annotations.add( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
+                I2CDataSet.I2C_STOP ) );
+
+            slaveAddress = 0x00;
+            direction = -1;
+          }
+          else
+          {
+            // SDA falls, this is a start condition
+            reportStartCondition( aSegment.dataSet, idx );
+
+            aSegment.annotations.add( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
+                I2CDataSet.I2C_START ) );
+
+            startCondFound = true;
+          }
+
+          // new byte
+          bitCount = I2C_BITCOUNT;
+          byteValue = 0;
+        }
+      }
+
+      oldSCL = scl;
+      oldSDA = sda;
+    }
+
+    aState.oldSCL = oldSCL;
+    aState.oldSDA = oldSDA;
+    aState.bitCount = bitCount;
+    aState.byteValue = byteValue;
+    aState.prevIdx = prevIdx;
+    aState.startCondFound = startCondFound;
+    aState.tenBitAddress = tenBitAddress;
+    aState.slaveAddress = slaveAddress;
+    aState.direction = direction;
+  }
+
   /**
    * Prepares everything for the upcoming results.
    */
@@ -60,6 +60,20 @@ public final class I2CData extends BaseData<I2CData>
     this.value = 0;
   }
 
+  /**
+   * Creates a copy of the given data with a new index.
+   * 
+   * @param aIdx
+   *          the new index of the data;
+   * @param aData
+   *          the data to copy, cannot be <code>null</code>.
+   */
+  I2CData( final int aIdx, final I2CData aData )
+  {
+    super( aIdx, aData.getChannelIdx(), aData.getStartSampleIndex(), aData.getEndSampleIndex(), aData.getEventName() );
+    this.value = aData.value;
+  }
+
   // METHODS
 
   /**
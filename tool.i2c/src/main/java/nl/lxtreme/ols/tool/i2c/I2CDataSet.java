@@ -58,6 +58,23 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
 
   // METHODS
 
+  /**
+   * Appends all data of the given data set to this data set.
+   * 
+   * @param aDataSet
+   *          the data set to append, cannot be <code>null</code>.
+   */
+  void addAll( final I2CDataSet aDataSet )
+  {
+    for ( I2CData data : aDataSet.getData() )
+    {
+      addData( new I2CData( size(), data ) );
+    }
+
+    this.busErrors += aDataSet.busErrors;
+    this.decodedBytes += aDataSet.decodedBytes;
+  }
+
   /**
    * Returns the number of bus errors.
    * 
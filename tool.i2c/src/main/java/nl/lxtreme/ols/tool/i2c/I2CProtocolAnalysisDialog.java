@@ -21,16 +21,12 @@
 package nl.lxtreme.ols.tool.i2c;
 
 
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.*;
 import static nl.lxtreme.ols.util.swing.SwingComponentUtils.*;
 
 import java.awt.*;
 import java.awt.event.*;
 import java.beans.*;
 import java.io.*;
-import java.text.*;
-import java.util.*;
-import java.util.List;
 import java.util.logging.*;
 
 import javax.swing.*;
@@ -41,11 +37,6 @@ import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.ToolUtils.RestorableAction;
 import nl.lxtreme.ols.util.*;
-import nl.lxtreme.ols.util.ExportUtils.CsvExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
-import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
 import nl.lxtreme.ols.util.swing.*;
 
 import org.osgi.framework.*;
@@ -60,6 +51,97 @@ import org.osgi.framework.*;
 public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet> implements ExportAware<I2CDataSet>,
     PropertyChangeListener
 {
+  // INNER TYPES
+
+  /**
+   * Provides the table model for the decoded I2C data.
+   */
+  static final class I2CDataTableModel extends ToolResultTableModel<I2CData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Color START_STOP_COLOR = new Color( 0xe0e0e0 );
+    private static final Color ACK_COLOR = new Color( 0xc0ffc0 );
+    private static final Color NACK_COLOR = new Color( 0xffc0c0 );
+    private static final Color UNKNOWN_EVENT_COLOR = new Color( 0xff8000 );
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new I2CDataTableModel instance.
+     */
+    public I2CDataTableModel()
+    {
+      super( "Index", "Time", "Hex", "Bin", "Dec", "ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRowIndex, final I2CData aRow )
+    {
+      if ( !aRow.isEvent() )
+      {
+        return null;
+      }
+
+      final String event = aRow.getEventName();
+      if ( I2CDataSet.I2C_START.equals( event ) || I2CDataSet.I2C_STOP.equals( event ) )
+      {
+        return START_STOP_COLOR;
+      }
+      else if ( I2CDataSet.I2C_ACK.equals( event ) )
+      {
+        return ACK_COLOR;
+      }
+      else if ( I2CDataSet.I2C_NACK.equals( event ) )
+      {
+        return NACK_COLOR;
+      }
+      // unknown event
+      return UNKNOWN_EVENT_COLOR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRowIndex, final I2CData aRow, final int aColumnIndex )
+    {
+      if ( aColumnIndex == 0 )
+      {
+        return String.valueOf( aRowIndex );
+      }
+      else if ( aColumnIndex == 1 )
+      {
+        return formatTime( aRow.getStartSampleIndex() );
+      }
+
+      if ( aRow.isEvent() )
+      {
+        return ( aColumnIndex == 2 ) ? aRow.getEventName() : null;
+      }
+
+      final int value = aRow.getValue();
+      switch ( aColumnIndex )
+      {
+        case 2:
+          return "0x" + StringUtils.integerToHexString( value, 2 );
+        case 3:
+          return "0b" + StringUtils.integerToBinString( value, 8 );
+        case 4:
+          return String.valueOf( value );
+        default:
+          return String.valueOf( ( char )value );
+      }
+    }
+  }
+
   // CONSTANTS
 
   private static final long serialVersionUID = 1L;
@@ -72,7 +154,8 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   private JComboBox lineA;
   private JLabel lineBLabel;
   private JComboBox lineB;
-  private JEditorPane outText;
+  private I2CDataTableModel resultModel;
+  private ToolResultView resultView;
   private JLabel busSetSCL;
   private JLabel busSetSDA;
   private JCheckBox detectSDA_SCL;
@@ -184,9 +267,8 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   @Override
   public void reset()
   {
-    final String emptyHtmlPage = getEmptyHtmlPage();
-    this.outText.setText( emptyHtmlPage );
-    this.outText.setEditable( false );
+    this.resultModel.setDataSet( null );
+    this.resultView.setSummary( null );
 
     this.runAnalysisAction.restore();
 
@@ -253,34 +335,22 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   @Override
   protected void onToolEnded( final I2CDataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-        this.exportAction.setEnabled( !aAnalysisResult.isEmpty() );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-        this.exportAction.setEnabled( false );
-      }
-
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
+    this.resultModel.setDataSet( aAnalysisResult );
 
-      this.runAnalysisAction.restore();
+    if ( aAnalysisResult != null )
+    {
+      this.resultView.setSummary( String.format( "SCL: %s, SDA: %s, decoded bytes: %d, detected bus errors: %d",
+          this.busSetSCL.getText(), this.busSetSDA.getText(), Integer.valueOf( aAnalysisResult.getDecodedByteCount() ),
+          Integer.valueOf( aAnalysisResult.getBusErrorCount() ) ) );
+      this.exportAction.setEnabled( !aAnalysisResult.isEmpty() );
     }
-    catch ( final IOException exception )
+    else
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // This should not happen for the no-file exports!
-        throw new RuntimeException( exception );
-      }
+      this.resultView.setSummary( null );
+      this.exportAction.setEnabled( false );
     }
+
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -314,85 +384,15 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
     toolTask.addPropertyChangeListener( this );
   }
 
-  /**
-   * Creates the HTML template for exports to HTML.
-   * 
-   * @param aExporter
-   *          the HTML exporter instance to use, cannot be <code>null</code>.
-   * @return a HTML exporter filled with the template, never <code>null</code>.
-   */
-  private HtmlExporter createHtmlTemplate( final HtmlExporter aExporter )
-  {
-    aExporter.addCssStyle( "body { font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table { border-width: 1px; border-spacing: 0px; border-color: gray;"
-        + " border-collapse: collapse; border-style: solid; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " background-color: #C0C0FF; text-align: left; font-weight: bold; font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " font-family: monospace; } " );
-    aExporter.addCssStyle( ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( ".w100 { width: 100%; } " );
-    aExporter.addCssStyle( ".w30 { width: 30%; } " );
-    aExporter.addCssStyle( ".w20 { width: 20%; } " );
-    aExporter.addCssStyle( ".w15 { width: 15%; } " );
-    aExporter.addCssStyle( ".w10 { width: 10%; } " );
-
-    final Element body = aExporter.getBody();
-    body.addChild( H1 ).addContent( "I<sup>2</sup>C Analysis results" );
-    body.addChild( HR );
-    body.addChild( DIV ).addAttribute( "class", "date" ).addContent( "{date-now}" );
-
-    Element table, tr, thead, tbody;
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Bus configuration" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "SDA" );
-    tr.addChild( TD ).addContent( "{sda-bus-config}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "SCL" );
-    tr.addChild( TD ).addContent( "{scl-bus-config}" );
-
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Statistics" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Decoded bytes" );
-    tr.addChild( TD ).addContent( "{decoded-bytes}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Detected bus errors" );
-    tr.addChild( TD ).addContent( "{detected-bus-errors}" );
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    thead = table.addChild( THEAD );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w30" ).addContent( "Index" );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Time" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Dec" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "ASCII" );
-    tbody = table.addChild( TBODY );
-    tbody.addContent( "{decoded-data}" );
-
-    return aExporter;
-  }
-
   /**
    * @return
    */
   private JPanel createPreviewPane()
   {
-    final JPanel output = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel = new I2CDataTableModel();
+    this.resultView = new ToolResultView( this.resultModel );
 
-    output.add( new JScrollPane( this.outText ) );
-
-    return output;
+    return this.resultView;
   }
 
   /**
@@ -467,37 +467,6 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
     return panel;
   }
 
-  /**
-   * Returns an "empty" HTML page.
-   * 
-   * @return an empty HTML page string, never <code>null</code>.
-   */
-  private String getEmptyHtmlPage()
-  {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "sda-bus-config".equals( aMacro ) || "scl-bus-config".equals( aMacro ) )
-        {
-          return "&lt;auto detect&gt;";
-        }
-        else if ( "decoded-bytes".equals( aMacro ) || "detected-bus-errors".equals( aMacro ) )
-        {
-          return "-";
-        }
-        return null;
-      }
-    } );
-  }
-
   /**
    *
    */
@@ -544,24 +513,40 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   {
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aSelectedFile );
-
-      exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "data" );
-
-      final List<I2CData> dataSet = aAnalysisResult.getData();
-      for ( int i = 0; i < dataSet.size(); i++ )
+      final ToolResultWriter writer = ToolResultWriter.create( aSelectedFile, ExportFormat.CSV );
+      try
       {
-        final I2CData ds = dataSet.get( i );
+        writer.write( aAnalysisResult.getData(), new ToolResultWriter.RowCallback<I2CData>()
+        {
+          @Override
+          public void writeFooter( final ToolResultWriter aWriter )
+          {
+            // NO-op
+          }
 
-        final String startTime = UnitOfTime.format( aAnalysisResult.getTime( ds.getStartSampleIndex() ) );
-        final String endTime = UnitOfTime.format( aAnalysisResult.getTime( ds.getEndSampleIndex() ) );
-        final String data = ds.isEvent() ? "" : Character.toString( ( char )ds.getValue() );
+          @Override
+          public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+          {
+            aWriter.writeColumns( "index", "start-time", "end-time", "event?", "event-type", "data" );
+          }
 
-        exporter.addRow( Integer.valueOf( i ), startTime, endTime, Boolean.valueOf( ds.isEvent() ), ds.getEventName(),
-            data );
-      }
+          @Override
+          public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final I2CData aRow )
+              throws IOException
+          {
+            final String startTime = UnitOfTime.format( aAnalysisResult.getTime( aRow.getStartSampleIndex() ) );
+            final String endTime = UnitOfTime.format( aAnalysisResult.getTime( aRow.getEndSampleIndex() ) );
+            final String data = aRow.isEvent() ? "" : Character.toString( ( char )aRow.getValue() );
 
-      exporter.close();
+            aWriter.writeRow( null, Integer.valueOf( aRowIndex ), startTime, endTime,
+                Boolean.valueOf( aRow.isEvent() ), aRow.getEventName(), data );
+          }
+        } );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -583,7 +568,20 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   {
     try
     {
-      toHtmlPage( aSelectedFile, aAnalysisResult );
+      final ToolResultWriter writer = ToolResultWriter.create( aSelectedFile, ExportFormat.HTML );
+      try
+      {
+        writer.writeTitle( "I2C Analysis results" );
+        writer.writeProperty( "SDA", this.busSetSDA.getText() );
+        writer.writeProperty( "SCL", this.busSetSCL.getText() );
+        writer.writeProperty( "Decoded bytes", Integer.valueOf( aAnalysisResult.getDecodedByteCount() ) );
+        writer.writeProperty( "Detected bus errors", Integer.valueOf( aAnalysisResult.getBusErrorCount() ) );
+        writer.write( aAnalysisResult.getData(), this.resultModel );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -594,114 +592,4 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
       }
     }
   }
-
-  /**
-   * generate a HTML page
-   * 
-   * @param aEmpty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
-   */
-  private String toHtmlPage( final File aFile, final I2CDataSet aAnalysisResult ) throws IOException
-  {
-    final MacroResolver macroResolver = new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "sda-bus-config".equals( aMacro ) )
-        {
-          return I2CProtocolAnalysisDialog.this.busSetSDA.getText();
-        }
-        else if ( "scl-bus-config".equals( aMacro ) )
-        {
-          return I2CProtocolAnalysisDialog.this.busSetSCL.getText();
-        }
-        else if ( "decoded-bytes".equals( aMacro ) )
-        {
-          return Integer.valueOf( aAnalysisResult.getDecodedByteCount() );
-        }
-        else if ( "detected-bus-errors".equals( aMacro ) )
-        {
-          return Integer.valueOf( aAnalysisResult.getBusErrorCount() );
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          final List<I2CData> dataSet = aAnalysisResult.getData();
-          Element tr;
-
-          for ( int i = 0; i < dataSet.size(); i++ )
-          {
-            final I2CData data = dataSet.get( i );
-
-            if ( data.isEvent() )
-            {
-              // this is an event
-              final String event = data.getEventName();
-
-              String bgColor;
-              if ( I2CDataSet.I2C_START.equals( event ) || I2CDataSet.I2C_STOP.equals( event ) )
-              {
-                bgColor = "#e0e0e0";
-              }
-              else if ( I2CDataSet.I2C_ACK.equals( event ) )
-              {
-                bgColor = "#c0ffc0";
-              }
-              else if ( I2CDataSet.I2C_NACK.equals( event ) )
-              {
-                bgColor = "#ffc0c0";
-              }
-              else
-              {
-                // unknown event
-                bgColor = "#ff8000";
-              }
-
-              tr = aParent.addChild( TR ).addAttribute( "style", "background-color: " + bgColor + ";" );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aAnalysisResult.getTime( data.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( event );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD );
-            }
-            else
-            {
-              final int value = data.getValue();
-
-              tr = aParent.addChild( TR );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aAnalysisResult.getTime( data.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( "0x" + StringUtils.integerToHexString( value, 2 ) );
-              tr.addChild( TD ).addContent( "0b" + StringUtils.integerToBinString( value, 8 ) );
-              tr.addChild( TD ).addContent( String.valueOf( value ) );
-              tr.addChild( TD ).addContent( String.valueOf( ( char )value ) );
-            }
-          }
-        }
-
-        return null;
-      }
-    };
-
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
-  }
 }
@@ -0,0 +1,233 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.i2c;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Tests that decoding I2C data in parallel segments yields the same results as
+ * decoding it sequentially.
+ */
+public class I2CAnalyserParallelDecodeTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all sample data annotations as text, in the order they are added.
+   */
+  static final class AnnotationRecorder implements AnnotationListener
+  {
+    // VARIABLES
+
+    final List<String> annotations = new ArrayList<String>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      // NO-op
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      // NO-op
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      if ( aAnnotation instanceof SampleDataAnnotation )
+      {
+        final SampleDataAnnotation annotation = ( SampleDataAnnotation )aAnnotation;
+        this.annotations.add( annotation.getStartTimestamp() + "-" + annotation.getEndTimestamp() + ": "
+            + annotation.getAnnotation() );
+      }
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int SCL = 0;
+  private static final int SDA = 1;
+
+  // VARIABLES
+
+  private AcquisitionResult data;
+
+  // METHODS
+
+  /**
+   * Generates a long I2C capture with random transactions, of which some use
+   * a repeated START condition, and some are aborted half-way a byte.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 0x12c0ffeeL );
+    final List<Integer> values = new ArrayList<Integer>();
+
+    while ( values.size() < 500000 )
+    {
+      // idle bus...
+      for ( int i = rnd.nextInt( 8 ) + 2; i > 0; i-- )
+      {
+        add( values, true, true );
+      }
+
+      // START condition...
+      add( values, true, false );
+      add( values, false, false );
+
+      final int byteCount = rnd.nextInt( 6 ) + 1;
+      for ( int i = 0; i < byteCount; i++ )
+      {
+        if ( ( i > 0 ) && ( rnd.nextInt( 10 ) == 0 ) )
+        {
+          // repeated START condition...
+          add( values, false, true );
+          add( values, true, true );
+          add( values, true, false );
+          add( values, false, false );
+        }
+
+        // a transaction aborted half-way a byte causes a bus error...
+        final int bitCount = ( rnd.nextInt( 100 ) == 0 ) ? ( rnd.nextInt( 6 ) + 1 ) : 9;
+        final int value = ( rnd.nextInt( 256 ) << 1 ) | ( ( rnd.nextInt( 8 ) == 0 ) ? 1 : 0 );
+        for ( int bit = 8; bit > ( 8 - bitCount ); bit-- )
+        {
+          // change data while the clock is low, sample on the rising edge...
+          final boolean sda = ( value & ( 1 << bit ) ) != 0;
+          add( values, false, sda );
+          add( values, true, sda );
+          add( values, false, sda );
+        }
+
+        if ( bitCount < 9 )
+        {
+          break;
+        }
+      }
+
+      // STOP condition...
+      add( values, false, false );
+      add( values, true, false );
+      add( values, true, true );
+    }
+
+    final int[] samples = new int[values.size()];
+    for ( int i = 0; i < samples.length; i++ )
+    {
+      samples[i] = values.get( i ).intValue();
+    }
+
+    this.data = new CapturedData( samples, Ols.NOT_AVAILABLE, 1000000, 2, 0x03 );
+  }
+
+  /**
+   * Tests that decoding in parallel segments yields the same results and
+   * annotations as decoding sequentially, including transactions that are
+   * aborted half-way a byte, and that segments are only rarely decoded a
+   * second time.
+   */
+  @Test
+  public void testParallelDecodeEqualsSequentialDecodeOk() throws Exception
+  {
+    final AnnotationRecorder expectedAnnotations = new AnnotationRecorder();
+    final I2CDataSet expected = createWorker( 1, Integer.MAX_VALUE, expectedAnnotations ).call();
+    assertTrue( expected.getData().size() > 10000 );
+
+    final AnnotationRecorder annotations = new AnnotationRecorder();
+    final I2CAnalyserTask worker = createWorker( 32, 256, annotations );
+    final I2CDataSet result = worker.call();
+    assertEquals( expected.getData(), result.getData() );
+    assertEquals( expected.getBusErrorCount(), result.getBusErrorCount() );
+    assertEquals( expected.getDecodedByteCount(), result.getDecodedByteCount() );
+    assertEquals( expectedAnnotations.annotations, annotations.annotations );
+
+    // Only segments starting after an aborted transaction should be decoded
+    // twice...
+    final int segmentCount = worker.getSegmentCount();
+    final int redecodeCount = worker.getRedecodeCount();
+    assertTrue( segmentCount > 100 );
+    assertTrue( "No segments re-decoded", redecodeCount > 0 );
+    assertTrue( "Too many re-decoded segments: " + redecodeCount + " of " + segmentCount,
+        redecodeCount <= ( segmentCount / 10 ) );
+  }
+
+  /**
+   * Adds a single sample with the given levels for SCL and SDA.
+   */
+  private void add( final List<Integer> aValues, final boolean aSCL, final boolean aSDA )
+  {
+    aValues.add( Integer.valueOf( ( aSCL ? ( 1 << SCL ) : 0 ) | ( aSDA ? ( 1 << SDA ) : 0 ) ) );
+  }
+
+  /**
+   * Creates a worker for decoding the test data.
+   */
+  private I2CAnalyserTask createWorker( final int aThreadCount, final int aMinSegmentSize,
+      final AnnotationListener aAnnotationListener )
+  {
+    final ToolContext toolContext = DataTestUtils.createToolContext( this.data, 0, this.data.getValues().length - 1 );
+
+    final ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+
+    final I2CAnalyserTask worker = new I2CAnalyserTask( toolContext, tpl, aAnnotationListener );
+    worker.setLineAIndex( SCL );
+    worker.setLineBIndex( SDA );
+    worker.setDetectSDA_SCL( false );
+    worker.setReportACK( true );
+    worker.setReportNACK( true );
+    worker.setReportStart( true );
+    worker.setReportStop( true );
+    worker.setSegmentation( aThreadCount, aMinSegmentSize );
+
+    return worker;
+  }
+}
+
+/* EOF */
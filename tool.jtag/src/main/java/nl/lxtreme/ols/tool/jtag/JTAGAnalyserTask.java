@@ -21,24 +21,8 @@
 package nl.lxtreme.ols.tool.jtag;
 
 
-import static nl.lxtreme.ols.tool.jtag.JTAGState.CAPTURE_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.CAPTURE_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT1_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT1_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT2_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT2_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.PAUSE_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.PAUSE_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.RUN_TEST_IDLE;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SELECT_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SELECT_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SHIFT_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SHIFT_IR;
 import static nl.lxtreme.ols.tool.jtag.JTAGState.TEST_LOGIC_RESET;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.UPDATE_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.UPDATE_IR;
 
-import java.math.BigInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,6 +31,7 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.ToolContext;
 import nl.lxtreme.ols.api.tools.ToolProgressListener;
 import nl.lxtreme.ols.api.tools.ToolTask;
+import nl.lxtreme.ols.tool.base.ThrottledProgressListener;
 import nl.lxtreme.ols.tool.base.annotation.ChannelLabelAnnotation;
 import nl.lxtreme.ols.tool.base.annotation.SampleDataAnnotation;
 
@@ -89,7 +74,7 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
       final AnnotationListener aAnnotationListener )
   {
     this.context = aContext;
-    this.progressListener = aProgressListener;
+    this.progressListener = ThrottledProgressListener.wrap( aProgressListener );
     this.annotationListener = aAnnotationListener;
 
     this.tdoIdx = -1;
@@ -203,12 +188,11 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
     // scanning for falling/rising clk edges
     int oldTckValue = ( values[startOfDecode] & tckMask );
 
-    String state;
     int startTdiDataIdx = 0;
     int endTdiDataIdx = 0;
-    
-    String tdiData = null;
-    String tdoData = null;
+
+    JTAGShiftRegister tdiData = null;
+    JTAGShiftRegister tdoData = null;
 
     this.currentState = TEST_LOGIC_RESET;
     this.oldState = TEST_LOGIC_RESET;
@@ -221,9 +205,6 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
     {
       final int dataSample = values[idx];
       final int tckValue = ( dataSample & tckMask );
-      final int tmsValue = ( dataSample & tmsMask );
-      final int tdiValue = ( dataSample & tdiMask );
-      final int tdoValue = ( dataSample & tdoMask );
 
       if ( oldTckValue != tckValue )
       {
@@ -231,274 +212,55 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
 
         if ( tckValue != 0 )
         {
-          if ( this.currentState == TEST_LOGIC_RESET )
-          { // state 0: Test Logic Reset
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-          }
-          else if ( this.currentState == RUN_TEST_IDLE )
-          { // state 1: Run Test Idle
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-            else
-            {
-              this.currentState = SELECT_DR;
-            }
-          }
-          else if ( this.currentState == SELECT_DR )
-          { // state 2: Select DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = CAPTURE_DR;
-            }
-            else
-            {
-              this.currentState = SELECT_IR;
-            }
-          }
-          else if ( this.currentState == CAPTURE_DR )
-          { // state 3: Capture DR
-            state = this.currentState.getDisplayText();
-            
-            tdiData = null;
-            tdoData = null;
-            
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_DR;
-            }
-            else
-            {
-              this.currentState = EXIT1_DR;
-            }
-          }
-          else if ( this.currentState == SHIFT_DR )
-          { // state 4: Shift DR
-            state = this.currentState.getDisplayText();
-            
-            if ( tdiData == null )
-            {
-              startTdiDataIdx = idx;
-              
-              tdiData = "";
-              tdoData = "";
-            }
-            endTdiDataIdx = idx;
-
-            if ( tdiValue == 0 )
-            {
-              tdiData = "0" + tdiData;
-            }
-            else
-            {
-              tdiData = "1" + tdiData;
-            }
-
-            if ( tdoValue == 0 )
-            {
-              tdoData = "0" + tdoData;
-            }
-            else
-            {
-              tdoData = "1" + tdoData;
-            }
-
-            if ( tmsValue != 0 )
-            {
-              this.currentState = EXIT1_DR;
-            }
-          }
-          else if ( this.currentState == EXIT1_DR )
-          { // state 5: Exit1 DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_DR;
-            }
-            else
-            {
-              this.currentState = UPDATE_DR;
-            }
-          }
-          else if ( this.currentState == PAUSE_DR )
-          { // state 6: Pause DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_DR;
-            }
-            else
-            {
-              this.currentState = EXIT2_DR;
-            }
-          }
-          else if ( this.currentState == EXIT2_DR )
-          { // state 7: Exit2 DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_DR;
-            }
-            else
-            {
-              this.currentState = UPDATE_DR;
-            }
-          }
-          else if ( this.currentState == UPDATE_DR )
-          { // state 8: Update DR
-            state = this.currentState.getDisplayText();
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdiIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdiData, 2 ) ) ) );
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdoIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdoData, 2 ) ) ) );
-
-            aDataSet.reportJTAGTdiData( tdiIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdiData );
-            aDataSet.reportJTAGTdoData( tdoIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdoData );
-
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-            else
-            {
-              this.currentState = SELECT_DR;
-            }
-          }
-          else if ( this.currentState == SELECT_IR )
-          { // state 9: Select IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = CAPTURE_IR;
-            }
-            else
-            {
-              this.currentState = TEST_LOGIC_RESET;
-            }
-          }
-          else if ( this.currentState == CAPTURE_IR )
-          { // state 10: Capture IR
-            state = this.currentState.getDisplayText();
-            
-            tdiData = null;
-            tdoData = null;
-            
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_IR;
-            }
-            else
-            {
-              this.currentState = EXIT1_IR;
-            }
-          }
-          else if ( this.currentState == SHIFT_IR )
-          { // state 11: Shift IR
-            state = this.currentState.getDisplayText();
-
-            if ( tdiData == null )
-            {
-              startTdiDataIdx = idx;
-              
-              tdiData = "";
-              tdoData = "";
-            }
-            endTdiDataIdx = idx;
-
-            if ( tdiValue == 0 )
-            {
-              tdiData = "0" + tdiData;
-            }
-            else
-            {
-              tdiData = "1" + tdiData;
-            }
-
-            if ( tdoValue == 0 )
-            {
-              tdoData = "0" + tdoData;
-            }
-            else
-            {
-              tdoData = "1" + tdoData;
-            }
-
-            if ( tmsValue != 0 )
-            {
-              this.currentState = EXIT1_IR;
-            }
-          }
-          else if ( this.currentState == EXIT1_IR )
-          { // state 12: Exit1 IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_IR;
-            }
-            else
-            {
-              this.currentState = UPDATE_IR;
-            }
-          }
-          else if ( this.currentState == PAUSE_IR )
-          { // state 13: Pause IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_IR;
-            }
-            else
-            {
-              this.currentState = EXIT2_IR;
-            }
-          }
-          else if ( this.currentState == EXIT2_IR )
-          { // state 14: Exit2 IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_IR;
-            }
-            else
-            {
-              this.currentState = UPDATE_IR;
-            }
-          }
-          else if ( this.currentState == UPDATE_IR )
-          { // state 15: Update IR
-            state = this.currentState.getDisplayText();
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdiIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdiData, 2 ) ) ) );
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdoIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdoData, 2 ) ) ) );
-
-            aDataSet.reportJTAGTdiData( tdiIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdiData );
-            aDataSet.reportJTAGTdoData( tdoIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdoData );
-
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-            else
-            {
-              this.currentState = SELECT_DR;
-            }
-          }
-          else
+          final String state = this.currentState.getDisplayText();
+
+          switch ( this.currentState )
           {
-            state = "ERROR";
+            case CAPTURE_DR:
+            case CAPTURE_IR:
+              tdiData = null;
+              tdoData = null;
+              break;
+
+            case SHIFT_DR:
+            case SHIFT_IR:
+              if ( tdiData == null )
+              {
+                startTdiDataIdx = idx;
+
+                tdiData = new JTAGShiftRegister();
+                tdoData = new JTAGShiftRegister();
+              }
+              endTdiDataIdx = idx;
+
+              tdiData.shiftIn( ( dataSample & tdiMask ) != 0 );
+              tdoData.shiftIn( ( dataSample & tdoMask ) != 0 );
+              break;
+
+            case UPDATE_DR:
+            case UPDATE_IR:
+              // Nothing is shifted when going directly from capture to exit...
+              if ( tdiData != null )
+              {
+                this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdiIdx,
+                    timestamps[startTdiDataIdx], timestamps[endTdiDataIdx], tdiData.toString() ) );
+                this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdoIdx,
+                    timestamps[startTdiDataIdx], timestamps[endTdiDataIdx], tdoData.toString() ) );
+
+                aDataSet.reportJTAGTdiData( this.tdiIdx, startTdiDataIdx, endTdiDataIdx, this.currentState, tdiData );
+                aDataSet.reportJTAGTdoData( this.tdoIdx, startTdiDataIdx, endTdiDataIdx, this.currentState, tdoData );
+
+                tdiData = null;
+                tdoData = null;
+              }
+              break;
+
+            default:
+              break;
           }
 
+          this.currentState = this.currentState.next( ( dataSample & tmsMask ) != 0 );
+
           if ( this.oldState != this.currentState )
           {
             this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tmsIdx, timestamps[this.startIdx],
@@ -21,28 +21,15 @@
 package nl.lxtreme.ols.tool.jtag;
 
 
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.DIV;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.H1;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.HR;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.TABLE;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.TBODY;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.TD;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.TH;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.THEAD;
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.TR;
 import static nl.lxtreme.ols.util.swing.SwingComponentUtils.createRightAlignedLabel;
 
 import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
-import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.Window;
 import java.io.File;
 import java.io.IOException;
-import java.math.BigInteger;
-import java.text.DateFormat;
-import java.util.Date;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -51,9 +38,7 @@ import javax.swing.Action;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
-import javax.swing.JEditorPane;
 import javax.swing.JPanel;
-import javax.swing.JScrollPane;
 import javax.swing.SpringLayout;
 
 import nl.lxtreme.ols.api.UserSettings;
@@ -62,14 +47,11 @@ import nl.lxtreme.ols.api.tools.ToolTask;
 import nl.lxtreme.ols.api.util.UnitOfTime;
 import nl.lxtreme.ols.tool.base.BaseToolDialog;
 import nl.lxtreme.ols.tool.base.ExportAware;
+import nl.lxtreme.ols.tool.base.ToolResultTableModel;
+import nl.lxtreme.ols.tool.base.ToolResultView;
+import nl.lxtreme.ols.tool.base.ToolResultWriter;
 import nl.lxtreme.ols.tool.base.ToolUtils;
 import nl.lxtreme.ols.tool.base.ToolUtils.RestorableAction;
-import nl.lxtreme.ols.util.ExportUtils;
-import nl.lxtreme.ols.util.ExportUtils.CsvExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
-import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
 import nl.lxtreme.ols.util.HostUtils;
 import nl.lxtreme.ols.util.swing.SpringLayoutUtils;
 import nl.lxtreme.ols.util.swing.SwingComponentUtils;
@@ -84,6 +66,100 @@ import org.osgi.framework.BundleContext;
  */
 public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet> implements ExportAware<JTAGDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Provides the table model for the decoded JTAG data.
+   */
+  static final class JTAGDataTableModel extends ToolResultTableModel<JTAGData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new JTAGDataTableModel instance.
+     */
+    public JTAGDataTableModel()
+    {
+      super( "Index", "Time", "State", "TDI Hex", "TDI Bin", "TDO Hex", "TDO Bin" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRowIndex, final JTAGData aRow, final int aColumnIndex )
+    {
+      if ( aColumnIndex == 0 )
+      {
+        return String.valueOf( aRowIndex );
+      }
+      else if ( aColumnIndex == 1 )
+      {
+        return formatTime( aRow.getStartSampleIndex() );
+      }
+      else if ( aColumnIndex == 2 )
+      {
+        return aRow.isEvent() ? String.valueOf( aRow.getDataValue() ) : aRow.getEventName();
+      }
+
+      if ( aRow.isEvent() )
+      {
+        return null;
+      }
+
+      final boolean tdiColumn = ( aColumnIndex < 5 );
+      JTAGData data = aRow;
+      if ( data.isTdiData() != tdiColumn )
+      {
+        data = getCoalescedRow( aRowIndex );
+        if ( ( data == null ) || ( data.isTdiData() != tdiColumn ) )
+        {
+          return null;
+        }
+      }
+
+      final JTAGShiftRegister value = ( JTAGShiftRegister )data.getDataValue();
+      if ( ( aColumnIndex % 2 ) != 0 )
+      {
+        return "0x" + value.toHexString();
+      }
+      return "0b" + value.toBinaryString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isCoalesced( final JTAGData aFirst, final JTAGData aSecond )
+    {
+      // TDI and TDO data of a single scan are shown in a single row...
+      return isSameScan( aFirst, aSecond );
+    }
+
+    /**
+     * Returns whether the given two subsequent entries are the TDI and TDO data
+     * of a single scan.
+     * 
+     * @param aFirst
+     *          the first entry;
+     * @param aSecond
+     *          the entry directly following the first entry.
+     * @return <code>true</code> if both entries belong to the same scan,
+     *         <code>false</code> otherwise.
+     */
+    static boolean isSameScan( final JTAGData aFirst, final JTAGData aSecond )
+    {
+      return aFirst.isData() && aSecond.isData() && ( aFirst.isTdiData() != aSecond.isTdiData() )
+          && ( aFirst.getStartSampleIndex() == aSecond.getStartSampleIndex() );
+    }
+  }
+
   // CONSTANTS
 
   private static final long serialVersionUID = 1L;
@@ -96,7 +172,8 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
   private JComboBox tdo;
   private JComboBox tdi;
   private JComboBox tms;
-  private JEditorPane outText;
+  private JTAGDataTableModel resultModel;
+  private ToolResultView resultView;
 
   private RestorableAction runAnalysisAction;
   private Action exportAction;
@@ -161,8 +238,7 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
   @Override
   public void reset()
   {
-    this.outText.setText( getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel.setDataSet( null );
 
     this.runAnalysisAction.restore();
 
@@ -188,34 +264,10 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
   @Override
   protected void onToolEnded( final JTAGDataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-        this.exportAction.setEnabled( !aAnalysisResult.isEmpty() );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-        this.exportAction.setEnabled( false );
-      }
-
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
+    this.resultModel.setDataSet( aAnalysisResult );
+    this.exportAction.setEnabled( ( aAnalysisResult != null ) && !aAnalysisResult.isEmpty() );
 
-      this.runAnalysisAction.restore();
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // Should not happen in this situation!
-        throw new RuntimeException( exception );
-      }
-    }
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -259,79 +311,15 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
     this.exportAction.setEnabled( aEnable );
   }
 
-  /**
-   * Creates the HTML template for exports to HTML.
-   * 
-   * @param aExporter
-   *          the HTML exporter instance to use, cannot be <code>null</code>.
-   * @return a HTML exporter filled with the template, never <code>null</code>.
-   */
-  private HtmlExporter createHtmlTemplate( final HtmlExporter aExporter )
-  {
-    aExporter.addCssStyle( "body { font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table { border-width: 1px; border-spacing: 0px; border-color: gray;"
-        + " border-collapse: collapse; border-style: solid; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " background-color: #C0C0FF; text-align: left; font-weight: bold; font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " font-family: monospace; } " );
-    aExporter.addCssStyle( ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( ".w100 { width: 100%; } " );
-    aExporter.addCssStyle( ".w50 { width: 50%; } " );
-    aExporter.addCssStyle( ".w45 { width: 45%; } " );
-    aExporter.addCssStyle( ".w44 { width: 44%; } " );
-    aExporter.addCssStyle( ".w40 { width: 40%; } " );
-    aExporter.addCssStyle( ".w35 { width: 35%; } " );
-    aExporter.addCssStyle( ".w30 { width: 30%; } " );
-    aExporter.addCssStyle( ".w28 { width: 28%; } " );
-    aExporter.addCssStyle( ".w20 { width: 20%; } " );
-    aExporter.addCssStyle( ".w15 { width: 15%; } " );
-    aExporter.addCssStyle( ".w12 { width: 12%; } " );
-    aExporter.addCssStyle( ".w10 { width: 10%; } " );
-    aExporter.addCssStyle( ".w8 { width: 8%; } " );
-    aExporter.addCssStyle( ".w7 { width: 7%; } " );
-    aExporter.addCssStyle( ".w5 { width: 5%; } " );
-
-    final Element body = aExporter.getBody();
-    body.addChild( H1 ).addContent( "JTAG Analysis results" );
-    body.addChild( HR );
-    body.addChild( DIV ).addAttribute( "class", "date" ).addContent( "Generated: ", "{date-now}" );
-
-    Element table, tr, thead, tbody;
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    thead = table.addChild( THEAD );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w44" ).addAttribute( "colspan", "3" );
-    tr.addChild( TH ).addAttribute( "class", "w28" ).addAttribute( "colspan", "2" ).addContent( "TDI" );
-    tr.addChild( TH ).addAttribute( "class", "w28" ).addAttribute( "colspan", "2" ).addContent( "TDO" );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w5" ).addContent( "Index" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Time" );
-    tr.addChild( TH ).addAttribute( "class", "w28" ).addContent( "State" );
-    tr.addChild( TH ).addAttribute( "class", "w8" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w8" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w20" ).addContent( "Bin" );
-    tbody = table.addChild( TBODY );
-    tbody.addContent( "{decoded-data}" );
-
-    return aExporter;
-  }
-
   /**
    * @return
    */
   private JPanel createPreviewPane()
   {
-    final JPanel panTable = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel = new JTAGDataTableModel();
+    this.resultView = new ToolResultView( this.resultModel );
 
-    panTable.add( new JScrollPane( this.outText ) );
-
-    return panTable;
+    return this.resultView;
   }
 
   /**
@@ -366,29 +354,6 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
     return settings;
   }
 
-  /**
-   * Generates an empty HTML page.
-   * 
-   * @return String with HTML data.
-   */
-  private String getEmptyHtmlPage()
-  {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        return null;
-      }
-    } );
-  }
-
   /**
    * Initializes this dialog.
    */
@@ -430,52 +395,78 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
   {
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
-      exporter.setHeaders( "index", "time", "state", "TDI data", "TDO data" );
-
-      final List<JTAGData> dataSet = aDataSet.getData();
-      for ( int i = 0; i < dataSet.size(); i++ )
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.CSV );
+      try
       {
-        final JTAGData data = dataSet.get( i );
+        final List<JTAGData> data = aDataSet.getData();
+        writer.write( data, new ToolResultWriter.RowCallback<JTAGData>()
+        {
+          private int coalescedIdx = -1;
 
-        final String time = UnitOfTime.format( aDataSet.getTime( data.getStartSampleIndex() ) );
-        final String event = data.isEvent() ? data.getEventName() : null;
+          @Override
+          public void writeFooter( final ToolResultWriter aWriter )
+          {
+            // NO-op
+          }
 
-        BigInteger tdiData = null;
-        BigInteger tdoData = null;
+          @Override
+          public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+          {
+            aWriter.writeColumns( "index", "time", "state", "TDI data", "TDO data" );
+          }
 
-        // Try to coalesce equal timestamps...
-        if ( ( i + 1 ) < dataSet.size() )
-        {
-          final JTAGData next = dataSet.get( i + 1 );
-          if ( next.getStartSampleIndex() == data.getStartSampleIndex() )
+          @Override
+          public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final JTAGData aRow )
+              throws IOException
           {
-            tdiData = ( BigInteger )( next.isTdiData() ? next.getDataValue() : data.getDataValue() );
-            tdoData = ( BigInteger )( next.isTdoData() ? next.getDataValue() : data.getDataValue() );
-            // Make sure to skip this entry in the next iteration...
-            i++;
+            if ( aRowIndex == this.coalescedIdx )
+            {
+              // Already written together with the previous entry...
+              return;
+            }
+
+            final String time = UnitOfTime.format( aDataSet.getTime( aRow.getStartSampleIndex() ) );
+            final String event = aRow.isEvent() ? aRow.getEventName() : null;
+
+            int rowIndex = aRowIndex;
+            JTAGData tdiData = aRow.isTdiData() ? aRow : null;
+            JTAGData tdoData = aRow.isTdoData() ? aRow : null;
+
+            // Try to coalesce the TDI and TDO data of a single scan...
+            final JTAGData next = ( ( aRowIndex + 1 ) < data.size() ) ? data.get( aRowIndex + 1 ) : null;
+            if ( ( next != null ) && JTAGDataTableModel.isSameScan( aRow, next ) )
+            {
+              if ( next.isTdiData() )
+              {
+                tdiData = next;
+              }
+              else
+              {
+                tdoData = next;
+              }
+              // Make sure to skip the next entry...
+              this.coalescedIdx = aRowIndex + 1;
+              rowIndex = this.coalescedIdx;
+            }
+
+            aWriter.writeRow( null, Integer.valueOf( rowIndex ), time, event, toHexString( tdiData ),
+                toHexString( tdoData ) );
           }
-        }
-        
-        if ( ( tdiData == null ) && data.isTdiData() )
-        {
-          tdiData = ( BigInteger )data.getDataValue();
-          tdoData = null;
-        }
-        else if ( ( tdoData == null ) && data.isTdoData() )
-        {
-          tdiData = null;
-          tdoData = ( BigInteger )data.getDataValue();
-        }
-        
-        final String tdiDataValue = tdiData != null ? "0x" + tdiData.toString( 16 ) : null;
-        final String tdoDataValue = tdoData != null ? "0x" + tdoData.toString( 16 ) : null;
 
-        exporter.addRow( Integer.valueOf( i ), time, event, tdiDataValue, tdoDataValue );
+          private String toHexString( final JTAGData aData )
+          {
+            if ( aData == null )
+            {
+              return null;
+            }
+            return "0x" + ( ( JTAGShiftRegister )aData.getDataValue() ).toHexString();
+          }
+        } );
+      }
+      finally
+      {
+        writer.close();
       }
-
-      exporter.close();
     }
     catch ( final IOException exception )
     {
@@ -497,7 +488,16 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
   {
     try
     {
-      toHtmlPage( aFile, aDataSet );
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.HTML );
+      try
+      {
+        writer.writeTitle( "JTAG Analysis results" );
+        writer.write( aDataSet.getData(), this.resultModel );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -508,122 +508,4 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
       }
     }
   }
-
-  /**
-   * generate a HTML page
-   * 
-   * @param aDataSet
-   *          the data set to create the HTML page for, cannot be
-   *          <code>null</code>.
-   * @return String with HTML data
-   */
-  private String toHtmlPage( final File aFile, final JTAGDataSet aAnalysisResult ) throws IOException
-  {
-    LOG.log( Level.INFO, "toHtmlPage" );
-
-    final MacroResolver macroResolver = new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          LOG.log( Level.INFO, "toHtmlPage date-now" );
-
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          LOG.log( Level.INFO, "toHtmlPage decoded-data" );
-
-          final List<JTAGData> dataSet = aAnalysisResult.getData();
-          Element tr;
-
-          for ( int i = 0; i < dataSet.size(); i++ )
-          {
-            final JTAGData data = dataSet.get( i );
-
-            if ( data.isEvent() )
-            {
-              tr = aParent.addChild( TR ).addAttribute( "style", "background-color: #fefeff;" );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aAnalysisResult.getTime( data.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( String.valueOf( data.getDataValue() ) );
-              tr.addChild( TD ).addAttribute( "colspan", "4" );
-            }
-            else
-            {
-              tr = aParent.addChild( TR );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aAnalysisResult.getTime( data.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( data.getEventName() );
-
-              BigInteger tdiData = null;
-              BigInteger tdoData = null;
-
-              // Try to coalesce equal timestamps...
-              if ( ( i + 1 ) < dataSet.size() )
-              {
-                final JTAGData next = dataSet.get( i + 1 );
-                if ( next.getStartSampleIndex() == data.getStartSampleIndex() )
-                {
-                  tdiData = ( BigInteger )( next.isTdiData() ? next.getDataValue() : data.getDataValue() );
-                  tdoData = ( BigInteger )( next.isTdoData() ? next.getDataValue() : data.getDataValue() );
-                  // Make sure to skip this entry in the next iteration...
-                  i++;
-                }
-              }
-              
-              if ( ( tdiData == null ) && data.isTdiData() )
-              {
-                tdiData = ( BigInteger )data.getDataValue();
-                tdoData = null;
-              }
-              else if ( ( tdoData == null ) && data.isTdoData() )
-              {
-                tdiData = null;
-                tdoData = ( BigInteger )data.getDataValue();
-              }
-
-              if ( tdiData != null )
-              {
-                tr.addChild( TD ).addContent( "0x" + tdiData.toString( 16 ) );
-                tr.addChild( TD ).addContent( "0b" + tdiData.toString( 2 ) );
-              }
-              else
-              {
-                tr.addChild( TD ).addAttribute( "colspan", "2" );
-              }
-              if ( tdoData != null )
-              {
-                tr.addChild( TD ).addContent( "0x" + tdoData.toString( 16 ) );
-                tr.addChild( TD ).addContent( "0b" + tdoData.toString( 2 ) );
-              }
-              else
-              {
-                tr.addChild( TD ).addAttribute( "colspan", "2" );
-              }
-            }
-          }
-        }
-
-        return null;
-      }
-    };
-
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
-  }
 }
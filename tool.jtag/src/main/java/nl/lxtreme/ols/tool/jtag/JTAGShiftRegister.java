@@ -0,0 +1,276 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.jtag;
+
+
+import java.math.*;
+import java.util.*;
+
+
+/**
+ * Provides a bit-packed, growable register for the bits shifted in on TDI or
+ * out on TDO during a single IR/DR scan.
+ * <p>
+ * The first bit shifted is the least significant bit of the register's value,
+ * which is how JTAG devices interpret their scan chains. Appending a bit is a
+ * constant-time operation, and the value is only formatted when it actually is
+ * displayed or exported.
+ * </p>
+ */
+public final class JTAGShiftRegister
+{
+  // CONSTANTS
+
+  private static final int INITIAL_WORD_COUNT = 2;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // VARIABLES
+
+  private long[] words;
+  private int bitCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new, empty, JTAGShiftRegister instance.
+   */
+  public JTAGShiftRegister()
+  {
+    this.words = new long[INITIAL_WORD_COUNT];
+    this.bitCount = 0;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals( final Object aObject )
+  {
+    if ( this == aObject )
+    {
+      return true;
+    }
+    if ( !( aObject instanceof JTAGShiftRegister ) )
+    {
+      return false;
+    }
+
+    final JTAGShiftRegister other = ( JTAGShiftRegister )aObject;
+    if ( this.bitCount != other.bitCount )
+    {
+      return false;
+    }
+
+    final int wordCount = getWordCount();
+    for ( int i = 0; i < wordCount; i++ )
+    {
+      if ( this.words[i] != other.words[i] )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the bit at the given position.
+   * 
+   * @param aIndex
+   *          the index of the bit to return, 0 denotes the first shifted bit.
+   * @return <code>true</code> if the bit is set, <code>false</code> otherwise.
+   * @throws IndexOutOfBoundsException
+   *           in case the given index is outside this register.
+   */
+  public boolean getBit( final int aIndex )
+  {
+    if ( ( aIndex < 0 ) || ( aIndex >= this.bitCount ) )
+    {
+      throw new IndexOutOfBoundsException( "Invalid bit index: " + aIndex );
+    }
+    return ( this.words[aIndex >>> 6] & ( 1L << aIndex ) ) != 0L;
+  }
+
+  /**
+   * Returns the number of bits shifted into this register.
+   * 
+   * @return a bit count, >= 0.
+   */
+  public int getBitCount()
+  {
+    return this.bitCount;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    final int prime = 31;
+    int result = this.bitCount;
+    final int wordCount = getWordCount();
+    for ( int i = 0; i < wordCount; i++ )
+    {
+      final long word = this.words[i];
+      result = prime * result + ( int )( word ^ ( word >>> 32 ) );
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether any bits are shifted into this register.
+   * 
+   * @return <code>true</code> if this register does not contain any bits,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.bitCount == 0;
+  }
+
+  /**
+   * Shifts a single bit into this register.
+   * 
+   * @param aBit
+   *          the value of the bit to add.
+   */
+  public void shiftIn( final boolean aBit )
+  {
+    final int wordIdx = this.bitCount >>> 6;
+    if ( wordIdx >= this.words.length )
+    {
+      this.words = Arrays.copyOf( this.words, this.words.length << 1 );
+    }
+    if ( aBit )
+    {
+      this.words[wordIdx] |= ( 1L << this.bitCount );
+    }
+    this.bitCount++;
+  }
+
+  /**
+   * Returns the value of this register as big integer.
+   * 
+   * @return a big integer, never <code>null</code>.
+   */
+  public BigInteger toBigInteger()
+  {
+    final int wordCount = getWordCount();
+    // One leading zero byte to keep the value positive...
+    final byte[] bytes = new byte[( wordCount << 3 ) + 1];
+    for ( int i = 0; i < wordCount; i++ )
+    {
+      final long word = this.words[i];
+      final int offset = bytes.length - 1 - ( i << 3 );
+      for ( int j = 0; j < 8; j++ )
+      {
+        bytes[offset - j] = ( byte )( word >>> ( j << 3 ) );
+      }
+    }
+    return new BigInteger( bytes );
+  }
+
+  /**
+   * Returns the value of this register as binary string, including leading
+   * zeros, such that it always shows all shifted bits.
+   * 
+   * @return a binary string, never <code>null</code>.
+   */
+  public String toBinaryString()
+  {
+    if ( this.bitCount == 0 )
+    {
+      return "0";
+    }
+
+    final char[] result = new char[this.bitCount];
+    for ( int i = this.bitCount - 1, pos = 0; i >= 0; i--, pos++ )
+    {
+      result[pos] = ( ( this.words[i >>> 6] & ( 1L << i ) ) != 0L ) ? '1' : '0';
+    }
+    return new String( result );
+  }
+
+  /**
+   * Returns the value of this register as (lower case) hexadecimal string,
+   * without leading zeros.
+   * 
+   * @return a hexadecimal string, never <code>null</code>.
+   */
+  public String toHexString()
+  {
+    final int highestBit = getHighestSetBit();
+    if ( highestBit < 0 )
+    {
+      return "0";
+    }
+
+    final int nibbleCount = ( highestBit >>> 2 ) + 1;
+    final char[] result = new char[nibbleCount];
+    for ( int i = nibbleCount - 1, pos = 0; i >= 0; i--, pos++ )
+    {
+      final int bitIdx = i << 2;
+      // Nibbles never straddle two words, as 64 is a multiple of 4...
+      final int nibble = ( int )( this.words[bitIdx >>> 6] >>> ( bitIdx & 63 ) ) & 0x0F;
+      result[pos] = HEX_DIGITS[nibble];
+    }
+    return new String( result );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "0x" + toHexString();
+  }
+
+  /**
+   * @return the index of the most significant bit that is set, or -1 if no
+   *         bits are set at all.
+   */
+  private int getHighestSetBit()
+  {
+    for ( int i = getWordCount() - 1; i >= 0; i-- )
+    {
+      final long word = this.words[i];
+      if ( word != 0L )
+      {
+        return ( i << 6 ) + 63 - Long.numberOfLeadingZeros( word );
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the number of words in use by this register.
+   */
+  private int getWordCount()
+  {
+    return ( this.bitCount + 63 ) >>> 6;
+  }
+}
+
+/* EOF */
@@ -43,6 +43,28 @@ public enum JTAGState
   EXIT2_IR( "Exit 2 IR" ), // State 14
   UPDATE_IR( "Update IR" ); // State 15
 
+  /**
+   * The TAP controller state transitions, indexed by (state ordinal * 2) + TMS.
+   */
+  private static final JTAGState[] TRANSITIONS = {
+      RUN_TEST_IDLE, TEST_LOGIC_RESET, // TEST_LOGIC_RESET
+      RUN_TEST_IDLE, SELECT_DR, // RUN_TEST_IDLE
+      CAPTURE_DR, SELECT_IR, // SELECT_DR
+      SHIFT_DR, EXIT1_DR, // CAPTURE_DR
+      SHIFT_DR, EXIT1_DR, // SHIFT_DR
+      PAUSE_DR, UPDATE_DR, // EXIT1_DR
+      PAUSE_DR, EXIT2_DR, // PAUSE_DR
+      SHIFT_DR, UPDATE_DR, // EXIT2_DR
+      RUN_TEST_IDLE, SELECT_DR, // UPDATE_DR
+      CAPTURE_IR, TEST_LOGIC_RESET, // SELECT_IR
+      SHIFT_IR, EXIT1_IR, // CAPTURE_IR
+      SHIFT_IR, EXIT1_IR, // SHIFT_IR
+      PAUSE_IR, UPDATE_IR, // EXIT1_IR
+      PAUSE_IR, EXIT2_IR, // PAUSE_IR
+      SHIFT_IR, UPDATE_IR, // EXIT2_IR
+      RUN_TEST_IDLE, SELECT_DR, // UPDATE_IR
+  };
+
   private final String displayText;
 
   /**
@@ -65,6 +87,18 @@ public enum JTAGState
   {
     return this.displayText;
   }
+
+  /**
+   * Returns the state the TAP controller moves to on a rising TCK edge.
+   * 
+   * @param aTms
+   *          the value of TMS at the rising TCK edge.
+   * @return the next state, never <code>null</code>.
+   */
+  public JTAGState next( final boolean aTms )
+  {
+    return TRANSITIONS[( ordinal() << 1 ) + ( aTms ? 1 : 0 )];
+  }
   
   /**
    * {@inheritDoc}
@@ -0,0 +1,249 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.jtag;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nl.lxtreme.ols.api.Ols;
+import nl.lxtreme.ols.api.acquisition.AcquisitionResult;
+import nl.lxtreme.ols.api.data.CapturedData;
+import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.tools.ToolContext;
+import nl.lxtreme.ols.api.tools.ToolProgressListener;
+import nl.lxtreme.ols.test.data.DataTestUtils;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+
+/**
+ * Tests the decoding of IR and DR scans by {@link JTAGAnalyserTask}.
+ */
+public class JTAGAnalyserTaskTest
+{
+  // CONSTANTS
+
+  private static final int TCK = 0;
+  private static final int TMS = 1;
+  private static final int TDI = 2;
+  private static final int TDO = 3;
+
+  private static final int SAMPLE_RATE = 1000000;
+
+  // VARIABLES
+
+  private int[] samples = new int[1024];
+  private int sampleCount = 0;
+
+  // METHODS
+
+  /**
+   * Tests that a short IR scan is reported with the first shifted bit as LSB.
+   */
+  @Test
+  public void testDecodeIRScanOk() throws Exception
+  {
+    final boolean[] tdi = { true, false, false, true, true, false };
+    final boolean[] tdo = { true, false, false, false, false, false };
+
+    resetTap();
+    // Run-Test/Idle -> Select-DR -> Select-IR -> Capture-IR -> Shift-IR
+    clock( false );
+    clock( true );
+    clock( true );
+    clock( false );
+    clock( false );
+    shift( tdi, tdo );
+    // Exit1-IR -> Update-IR -> Run-Test/Idle
+    clock( true );
+    clock( false );
+    clock( false );
+
+    final List<JTAGData> data = getScanData( analyse() );
+    assertEquals( 2, data.size() );
+
+    final JTAGShiftRegister tdiData = ( JTAGShiftRegister )data.get( 0 ).getDataValue();
+    assertEquals( "19", tdiData.toHexString() );
+    assertEquals( "011001", tdiData.toBinaryString() );
+    assertEquals( "0x19", tdiData.toString() );
+    assertEquals( BigInteger.valueOf( 0x19 ), tdiData.toBigInteger() );
+
+    final JTAGShiftRegister tdoData = ( JTAGShiftRegister )data.get( 1 ).getDataValue();
+    assertEquals( "1", tdoData.toHexString() );
+    assertEquals( "000001", tdoData.toBinaryString() );
+    assertEquals( 6, tdoData.getBitCount() );
+  }
+
+  /**
+   * Tests that a DR scan of a million bits, as done while programming flash,
+   * is decoded in linear time.
+   */
+  @Test( timeout = 20000 )
+  public void testDecodeLongDRScanOk() throws Exception
+  {
+    final Random rnd = new Random( 1L );
+    final boolean[] tdi = new boolean[1 << 20];
+    final boolean[] tdo = new boolean[tdi.length];
+    for ( int i = 0; i < tdi.length; i++ )
+    {
+      tdi[i] = rnd.nextBoolean();
+      tdo[i] = rnd.nextBoolean();
+    }
+
+    resetTap();
+    // Run-Test/Idle -> Select-DR -> Capture-DR -> Shift-DR
+    clock( false );
+    clock( true );
+    clock( false );
+    clock( false );
+    shift( tdi, tdo );
+    // Exit1-DR -> Pause-DR -> Exit2-DR -> Update-DR -> Run-Test/Idle
+    clock( false );
+    clock( true );
+    clock( true );
+    clock( false );
+    clock( false );
+
+    final List<JTAGData> data = getScanData( analyse() );
+    assertEquals( 2, data.size() );
+
+    assertTrue( data.get( 0 ).isTdiData() );
+    assertBits( tdi, ( JTAGShiftRegister )data.get( 0 ).getDataValue() );
+    assertTrue( data.get( 1 ).isTdoData() );
+    assertBits( tdo, ( JTAGShiftRegister )data.get( 1 ).getDataValue() );
+  }
+
+  /**
+   * Analyses the generated samples.
+   */
+  private JTAGDataSet analyse() throws Exception
+  {
+    final int[] values = new int[this.sampleCount];
+    System.arraycopy( this.samples, 0, values, 0, this.sampleCount );
+
+    final AcquisitionResult container = new CapturedData( values, Ols.NOT_AVAILABLE, SAMPLE_RATE, 4, 0x0F );
+    final ToolContext toolContext = DataTestUtils.createToolContext( container );
+
+    final ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+    final AnnotationListener al = Mockito.mock( AnnotationListener.class );
+
+    final JTAGAnalyserTask worker = new JTAGAnalyserTask( toolContext, tpl, al );
+    worker.setTckIndex( TCK );
+    worker.setTmsIndex( TMS );
+    worker.setTdiIndex( TDI );
+    worker.setTdoIndex( TDO );
+
+    return worker.call();
+  }
+
+  /**
+   * Asserts that the given register contains exactly the given bits.
+   */
+  private void assertBits( final boolean[] aExpected, final JTAGShiftRegister aActual )
+  {
+    assertEquals( aExpected.length, aActual.getBitCount() );
+    for ( int i = 0; i < aExpected.length; i++ )
+    {
+      assertEquals( "Bit " + i, aExpected[i], aActual.getBit( i ) );
+    }
+  }
+
+  /**
+   * Generates a single TCK cycle with the given TMS value.
+   */
+  private void clock( final boolean aTms )
+  {
+    clock( aTms, false, false );
+  }
+
+  /**
+   * Generates a single TCK cycle with the given TMS, TDI and TDO values.
+   */
+  private void clock( final boolean aTms, final boolean aTdi, final boolean aTdo )
+  {
+    int value = ( aTms ? ( 1 << TMS ) : 0 ) | ( aTdi ? ( 1 << TDI ) : 0 ) | ( aTdo ? ( 1 << TDO ) : 0 );
+    write( value );
+    write( value | ( 1 << TCK ) );
+  }
+
+  /**
+   * @return the TDI and TDO data of the given data set.
+   */
+  private List<JTAGData> getScanData( final JTAGDataSet aDataSet )
+  {
+    final List<JTAGData> result = new ArrayList<JTAGData>();
+    for ( JTAGData datum : aDataSet.getData() )
+    {
+      if ( datum.isTdiData() || datum.isTdoData() )
+      {
+        result.add( datum );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Brings the TAP controller in its Run-Test/Idle state.
+   */
+  private void resetTap()
+  {
+    write( 0 );
+    for ( int i = 0; i < 5; i++ )
+    {
+      clock( true );
+    }
+    clock( false );
+  }
+
+  /**
+   * Shifts the given bits, leaving the shift state on the last bit.
+   */
+  private void shift( final boolean[] aTdi, final boolean[] aTdo )
+  {
+    for ( int i = 0; i < aTdi.length; i++ )
+    {
+      clock( i == ( aTdi.length - 1 ), aTdi[i], aTdo[i] );
+    }
+  }
+
+  /**
+   * Appends a single sample.
+   */
+  private void write( final int aValue )
+  {
+    if ( this.sampleCount == this.samples.length )
+    {
+      final int[] newSamples = new int[this.samples.length << 1];
+      System.arraycopy( this.samples, 0, newSamples, 0, this.sampleCount );
+      this.samples = newSamples;
+    }
+    this.samples[this.sampleCount++] = aValue;
+  }
+}
+
+/* EOF */
@@ -26,6 +26,7 @@ import java.util.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.linedecoder.*;
 
 
@@ -65,7 +66,7 @@ public class LineDecoderTask implements ToolTask<AcquisitionResult>
   {
     this.context = aContext;
     this.annotationListener = aAnnotationListener;
-    this.progressListener = aProgressListener;
+    this.progressListener = ThrottledProgressListener.wrap( aProgressListener );
   }
 
   // METHODS
@@ -21,15 +21,15 @@
 package nl.lxtreme.ols.tool.spi;
 
 
-import static nl.lxtreme.ols.util.NumberUtils.*;
-
 import java.beans.*;
+import java.util.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.NumberUtils.BitOrder;
@@ -41,6 +41,182 @@ import nl.lxtreme.ols.util.analysis.*;
  */
 public class SPIAnalyserTask implements ToolTask<SPIDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Represents the state of the SPI decoder between two samples.
+   */
+  final class SPIDecodeState
+  {
+    // VARIABLES
+
+    int oldSckValue;
+    int oldCsValue;
+    boolean slaveSelected;
+    int dataStartIdx;
+    int bitIdx;
+    int clockEdgeIdx;
+    int misoValue;
+    int mosiValue;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SPIDecodeState instance for the moment directly after the
+     * given sample.
+     * 
+     * @param aValue
+     *          the sample value;
+     * @param aSampleIdx
+     *          the sample index.
+     */
+    SPIDecodeState( final int aValue, final int aSampleIdx )
+    {
+      this.oldSckValue = ( aValue & ( 1 << SPIAnalyserTask.this.sckIdx ) );
+      this.oldCsValue = ( aValue & ( 1 << SPIAnalyserTask.this.csIdx ) );
+      this.slaveSelected = true;
+      this.dataStartIdx = aSampleIdx;
+      this.bitIdx = SPIAnalyserTask.this.bitCount;
+      this.clockEdgeIdx = 0;
+      this.misoValue = 0;
+      this.mosiValue = 0;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the parity of the clock edge index is compared, as it is not reset
+     * at the end of a datagram and only its parity affects the decoding.
+     * </p>
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof SPIDecodeState ) )
+      {
+        return false;
+      }
+
+      final SPIDecodeState other = ( SPIDecodeState )aObject;
+      if ( ( this.oldSckValue != other.oldSckValue ) || ( this.oldCsValue != other.oldCsValue )
+          || ( this.slaveSelected != other.slaveSelected ) || ( this.bitIdx != other.bitIdx )
+          || ( ( this.clockEdgeIdx & 1 ) != ( other.clockEdgeIdx & 1 ) ) || ( this.misoValue != other.misoValue )
+          || ( this.mosiValue != other.mosiValue ) )
+      {
+        return false;
+      }
+      // The start of a datagram is only relevant once its first bit is seen...
+      return ( this.bitIdx == SPIAnalyserTask.this.bitCount ) || ( this.dataStartIdx == other.dataStartIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + this.oldSckValue;
+      result = prime * result + this.oldCsValue;
+      result = prime * result + ( this.slaveSelected ? 1231 : 1237 );
+      result = prime * result + this.bitIdx;
+      result = prime * result + ( this.clockEdgeIdx & 1 );
+      result = prime * result + this.misoValue;
+      result = prime * result + this.mosiValue;
+      return result;
+    }
+  }
+
+  /**
+   * Decodes a single segment of SPI data, where segments start at the moment
+   * the slave is deselected (/CS goes high).
+   */
+  final class SPISegmentDecoder implements SegmentDecoder<SPIDecodeState, SPIDataSet>
+  {
+    // VARIABLES
+
+    private final int[] values;
+    private final SPIMode mode;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SPISegmentDecoder instance.
+     * 
+     * @param aMode
+     *          the SPI mode defining the edges on which data can be sampled
+     *          and on which edges data can change.
+     */
+    SPISegmentDecoder( final SPIMode aMode )
+    {
+      this.values = SPIAnalyserTask.this.context.getData().getValues();
+      this.mode = aMode;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SPIDecodeState createBoundaryState( final int aSampleIdx )
+    {
+      return createState( aSampleIdx - 1 );
+    }
+
+    /**
+     * Creates the decoding state for the moment directly after the given
+     * sample.
+     * 
+     * @param aSampleIdx
+     *          the sample index.
+     * @return a new decoding state, never <code>null</code>.
+     */
+    public SPIDecodeState createState( final int aSampleIdx )
+    {
+      return new SPIDecodeState( this.values[aSampleIdx], aSampleIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SPIDataSet decode( final int aStartIdx, final int aEndIdx, final SPIDecodeState aState )
+    {
+      final SPIDataSet result = new SPIDataSet( aStartIdx, aEndIdx, SPIAnalyserTask.this.context.getData() );
+      clockDataOnEdge( result, this.values, this.mode, aStartIdx, aEndIdx, aState );
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findBoundary( final int aStartIdx, final int aEndIdx )
+    {
+      final int csMask = ( 1 << SPIAnalyserTask.this.csIdx );
+
+      int oldCsValue = ( this.values[aStartIdx - 1] & csMask );
+      for ( int idx = aStartIdx; idx < aEndIdx; idx++ )
+      {
+        final int csValue = ( this.values[idx] & csMask );
+        if ( oldCsValue < csValue )
+        {
+          return idx;
+        }
+        oldCsValue = csValue;
+      }
+      return -1;
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( SPIAnalyserTask.class.getName() );
@@ -66,6 +242,10 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   private int misoIdx;
   private int io2Idx;
   private int io3Idx;
+  private int threadCount;
+  private int minSegmentSize;
+  private int segmentCount;
+  private int redecodeCount;
 
   // CONSTRUCTORS
 
@@ -79,7 +259,7 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
       final AnnotationListener aAnnotationListener )
   {
     this.context = aContext;
-    this.progressListener = aProgressListener;
+    this.progressListener = ThrottledProgressListener.wrap( aProgressListener );
     this.annotationListener = aAnnotationListener;
 
     this.pcs = new PropertyChangeSupport( this );
@@ -87,6 +267,9 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     this.misoIdx = -1;
     this.mosiIdx = -1;
     this.protocol = SPIFIMode.STANDARD;
+
+    this.threadCount = Runtime.getRuntime().availableProcessors();
+    this.minSegmentSize = ParallelSegmentDecoder.DEFAULT_MIN_SEGMENT_SIZE;
   }
 
   // METHODS
@@ -303,80 +486,211 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     this.spiMode = aMode;
   }
 
+  /**
+   * Returns the number of segments that were decoded once more during the
+   * last decoding, because the state assumed at their start was wrong.
+   * 
+   * @return the number of re-decoded segments, &gt;= 0.
+   */
+  final int getRedecodeCount()
+  {
+    return this.redecodeCount;
+  }
+
+  /**
+   * Returns the number of segments the last decoding was split into.
+   * 
+   * @return the number of segments, &gt;= 0.
+   */
+  final int getSegmentCount()
+  {
+    return this.segmentCount;
+  }
+
+  /**
+   * Sets how the decoding range is split into segments that are decoded in
+   * parallel.
+   * 
+   * @param aThreadCount
+   *          the maximum number of threads to use, &lt; 2 to decode
+   *          sequentially;
+   * @param aMinSegmentSize
+   *          the minimal number of samples in a single segment, &gt; 0.
+   */
+  final void setSegmentation( final int aThreadCount, final int aMinSegmentSize )
+  {
+    this.threadCount = aThreadCount;
+    this.minSegmentSize = aMinSegmentSize;
+  }
+
+  /**
+   * Adds the annotations for all decoded data.
+   * 
+   * @param aDataSet
+   *          the decoded data to annotate.
+   */
+  private void annotateData( final SPIDataSet aDataSet )
+  {
+    final long[] timestamps = this.context.getData().getTimestamps();
+    // Most datagrams are bytes, so their texts are formatted only once...
+    final String[] texts = new String[256];
+
+    for ( SPIData data : aDataSet.getData() )
+    {
+      if ( !data.isData() )
+      {
+        continue;
+      }
+
+      final int value = data.getDataValue();
+
+      String text = ( ( value >= 0 ) && ( value < texts.length ) ) ? texts[value] : null;
+      if ( text == null )
+      {
+        String formatSpec = "0x%1$X";
+        if ( Character.isLetterOrDigit( value ) )
+        {
+          formatSpec = formatSpec.concat( " (%1$c)" );
+        }
+
+        text = String.format( formatSpec, Integer.valueOf( value ) );
+        if ( ( value >= 0 ) && ( value < texts.length ) )
+        {
+          texts[value] = text;
+        }
+      }
+
+      this.annotationListener.onAnnotation( new SampleDataAnnotation( data.getChannelIdx(),
+          timestamps[data.getStartSampleIndex()], timestamps[data.getEndSampleIndex()], text ) );
+    }
+  }
+
   /**
    * Decodes the SPI-data on a given clock edge.
+   * <p>
+   * The decoding range is split into segments at the moments the slave is
+   * deselected, which are decoded in parallel for long captures.
+   * </p>
    * 
    * @param aDataSet
    *          the decoded data to fill;
    * @param aMode
    *          the SPI mode defining the edges on which data can be sampled and
    *          on which edges data can change.
+   * @throws Exception
+   *           in case the decoding failed or was interrupted.
    */
   private void clockDataOnEdge( final SPIDataSet aDataSet, final SPIMode aMode, final int aSlaveSelectedIdx )
+      throws Exception
   {
-    final AcquisitionResult data = this.context.getData();
-
-    final int[] values = data.getValues();
-
     final int startOfDecode = Math.max( aSlaveSelectedIdx, aDataSet.getStartOfDecode() );
     final int endOfDecode = aDataSet.getEndOfDecode();
 
+    final SPISegmentDecoder decoder = new SPISegmentDecoder( aMode );
+    final ParallelSegmentDecoder<SPIDecodeState, SPIDataSet> segmentDecoder;
+    segmentDecoder = new ParallelSegmentDecoder<SPIDecodeState, SPIDataSet>( decoder, this.progressListener,
+        this.threadCount, this.minSegmentSize );
+
+    final List<SPIDataSet> segments = segmentDecoder.decode( startOfDecode + 1, endOfDecode,
+        decoder.createState( startOfDecode ) );
+    for ( SPIDataSet segment : segments )
+    {
+      aDataSet.addAll( segment );
+    }
+
+    this.segmentCount = segmentDecoder.getSegmentCount();
+    this.redecodeCount = segmentDecoder.getRedecodeCount();
+
+    annotateData( aDataSet );
+  }
+
+  /**
+   * Decodes the SPI-data of a single segment on a given clock edge.
+   * 
+   * @param aDataSet
+   *          the decoded data to fill;
+   * @param aValues
+   *          the sample values to decode;
+   * @param aMode
+   *          the SPI mode defining the edges on which data can be sampled and
+   *          on which edges data can change;
+   * @param aStartIdx
+   *          the sample index to start decoding at (inclusive);
+   * @param aEndIdx
+   *          the sample index to stop decoding at (exclusive);
+   * @param aState
+   *          the decoding state at the start of the segment, will be updated to
+   *          the decoding state at the end of the segment.
+   */
+  private void clockDataOnEdge( final SPIDataSet aDataSet, final int[] aValues, final SPIMode aMode,
+      final int aStartIdx, final int aEndIdx, final SPIDecodeState aState )
+  {
     final int mosiMask = ( 1 << this.mosiIdx ); // IO0
     final int misoMask = ( 1 << this.misoIdx ); // IO1
-    final int io2Mask = ( 1 << this.io2Idx );
-    final int io3Mask = ( 1 << this.io3Idx );
     final int sckMask = ( 1 << this.sckIdx );
     final int csMask = ( 1 << this.csIdx );
 
+    final boolean standard = SPIFIMode.STANDARD.equals( this.protocol );
+    // the number of IO lines forming a single symbol in dual/quad mode...
+    final int ioWidth = SPIFIMode.QUAD.equals( this.protocol ) ? 4 : 2;
+    final int io0Idx = this.mosiIdx;
+    final int io1Idx = this.misoIdx;
+    final int io2Idx = this.io2Idx;
+    final int io3Idx = this.io3Idx;
+
+    final int cpha = aMode.getCPHA();
+    final boolean logEdges = LOG.isLoggable( Level.FINE );
+
     // scanning for falling/rising clk edges
-    int oldSckValue = ( values[startOfDecode] & sckMask );
-    int oldCsValue = ( values[startOfDecode] & csMask );
+    int oldSckValue = aState.oldSckValue;
+    int oldCsValue = aState.oldCsValue;
 
-    boolean slaveSelected = true;
-    int dataStartIdx = startOfDecode;
+    boolean slaveSelected = aState.slaveSelected;
+    int dataStartIdx = aState.dataStartIdx;
 
-    int bitIdx = this.bitCount;
+    int bitIdx = aState.bitIdx;
 
     final int clockEdgeCount = ( this.bitCount + 1 ) * 2;
-    int clockEdgeIdx = 0;
+    int clockEdgeIdx = aState.clockEdgeIdx;
 
-    int misovalue = 0;
-    int mosivalue = 0;
+    int misovalue = aState.misoValue;
+    int mosivalue = aState.mosiValue;
 
-    for ( int idx = startOfDecode + 1; idx < endOfDecode; idx++ )
+    for ( int idx = aStartIdx; idx < aEndIdx; idx++ )
     {
-      final int dataSample = values[idx];
+      final int dataSample = aValues[idx];
       /* CLK edge detection */
       final int sckValue = ( dataSample & sckMask );
       /* CS edge detection */
       final int csValue = ( dataSample & csMask );
 
-      final Edge slaveSelectEdge = Edge.toEdge( oldCsValue, csValue );
-      oldCsValue = csValue;
-
-      if ( slaveSelectEdge.isFalling() )
-      {
-        reportCsLow( aDataSet, idx );
-
-        slaveSelected = true;
-      }
-      else if ( slaveSelectEdge.isRising() )
+      if ( csValue != oldCsValue )
       {
-        reportCsHigh( aDataSet, idx );
+        if ( csValue == 0 )
+        {
+          reportCsLow( aDataSet, idx );
 
-        slaveSelected = false;
-        // it could be that we're waiting until a next clock cycle comes along;
-        // however, the /CS signal might be going up before that cycle actually
-        // comes...
-        if ( bitIdx <= 0 )
+          slaveSelected = true;
+        }
+        else
         {
-          // Full datagram decoded...
-          reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
+          reportCsHigh( aDataSet, idx );
+
+          slaveSelected = false;
+          // it could be that we're waiting until a next clock cycle comes
+          // along; however, the /CS signal might be going up before that cycle
+          // actually comes...
+          if ( bitIdx <= 0 )
+          {
+            // Full datagram decoded...
+            reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
 
-          bitIdx = this.bitCount;
-          misovalue = 0;
-          mosivalue = 0;
+            bitIdx = this.bitCount;
+            misovalue = 0;
+            mosivalue = 0;
+          }
         }
+        oldCsValue = csValue;
       }
 
       if ( this.honourCS && !slaveSelected )
@@ -386,109 +700,102 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
         continue;
       }
 
-      final Edge clockEdge = Edge.toEdge( oldSckValue, sckValue );
+      if ( sckValue == oldSckValue )
+      {
+        // Only actual clock edges should be taken into account...
+        continue;
+      }
       oldSckValue = sckValue;
 
-      final boolean sampleEdgeSeen;
-      if ( clockEdge.isRising() || clockEdge.isFalling() )
+      clockEdgeIdx = ( clockEdgeIdx + 1 ) % clockEdgeCount;
+      // When CPHA is '1', we should sample at the even numbered clock edges,
+      // when CPHA is '0' we should sample at the odd numbered clock edges...
+      final boolean sampleEdgeSeen = ( ( clockEdgeIdx + cpha ) & 1 ) != 0;
+
+      // First clock edge we've seen? If so, we should keep this index as our
+      // start of data index...
+      if ( sampleEdgeSeen && ( bitIdx == this.bitCount ) )
       {
-        clockEdgeIdx = ( clockEdgeIdx + 1 ) % clockEdgeCount;
-        // When CPHA is '1', we should sample at the even numbered clock edges,
-        // when CPHA is '0' we should sample at the odd numbered clock edges...
-        sampleEdgeSeen = ( ( clockEdgeIdx + aMode.getCPHA() ) % 2 ) != 0;
-
-        // First clock edge we've seen? If so, we should keep this index as our
-        // start of data index...
-        if ( sampleEdgeSeen && ( bitIdx == this.bitCount ) )
-        {
-          dataStartIdx = idx;
-        }
+        dataStartIdx = idx;
+      }
 
+      if ( logEdges )
+      {
         LOG.log( Level.FINE, "Clock edge: {0}, idx: {1}, sample? {2}", //
-            new Object[] { clockEdge, Integer.valueOf( clockEdgeIdx ), Boolean.valueOf( sampleEdgeSeen ) } );
+            new Object[] { Edge.toEdge( sckValue ^ sckMask, sckValue ), Integer.valueOf( clockEdgeIdx ),
+                Boolean.valueOf( sampleEdgeSeen ) } );
       }
-      else
+
+      if ( !sampleEdgeSeen )
       {
-        // Only actual clock edges should be taken into account...
-        sampleEdgeSeen = false;
+        continue;
       }
 
-      if ( sampleEdgeSeen )
+      if ( standard )
       {
-        if ( SPIFIMode.STANDARD.equals( this.protocol ) )
+        // sample MiSo here; always MSB first, perform conversion later on...
+        if ( ( this.misoIdx >= 0 ) && ( ( dataSample & misoMask ) != 0 ) )
         {
-          // sample MiSo here; always MSB first, perform conversion later on...
-          if ( ( this.misoIdx >= 0 ) && ( ( dataSample & misoMask ) != 0 ) )
-          {
-            misovalue |= ( 1 << bitIdx );
-          }
-          // sample MoSi here; always MSB first, perform conversion later on...
-          if ( ( this.mosiIdx >= 0 ) && ( ( dataSample & mosiMask ) != 0 ) )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-
-          if ( bitIdx >= 0 )
-          {
-            bitIdx--;
-          }
+          misovalue |= ( 1 << bitIdx );
         }
-        else if ( SPIFIMode.DUAL.equals( this.protocol ) )
+        // sample MoSi here; always MSB first, perform conversion later on...
+        if ( ( this.mosiIdx >= 0 ) && ( ( dataSample & mosiMask ) != 0 ) )
         {
-          // Sample both MOSI/IO0 & MISO/IO1 here; they form two bits of our
-          // symbol; we do MSB first, as the decoded symbol will be corrected
-          // later on...
-          if ( ( dataSample & misoMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & mosiMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
+          mosivalue |= ( 1 << bitIdx );
         }
-        else if ( SPIFIMode.QUAD.equals( this.protocol ) )
+
+        if ( bitIdx >= 0 )
         {
-          // Sample both MOSI/IO0, MISO/IO1, IO2 & IO3 here; they form four bits
-          // of our symbol; we do MSB first, as the decoded symbol will be
-          // corrected later on...
-          if ( ( dataSample & io3Mask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & io2Mask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
           bitIdx--;
-          if ( ( dataSample & misoMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & mosiMask ) != 0 )
+        }
+      }
+      else if ( bitIdx >= ( ioWidth - 1 ) )
+      {
+        // Gather all IO lines into a single symbol and place it at once; we do
+        // MSB first, as the decoded symbol will be corrected later on...
+        int symbol = ( ( dataSample >>> io1Idx ) & 1 ) << 1 | ( ( dataSample >>> io0Idx ) & 1 );
+        if ( ioWidth == 4 )
+        {
+          symbol |= ( ( dataSample >>> io3Idx ) & 1 ) << 3 | ( ( dataSample >>> io2Idx ) & 1 ) << 2;
+        }
+        bitIdx -= ioWidth;
+        mosivalue |= ( symbol << ( bitIdx + 1 ) );
+      }
+      else
+      {
+        // The symbol does not fit in the remaining bits of the datagram, place
+        // it bit by bit...
+        final int[] ioLines = ( ioWidth == 4 ) ? new int[] { io3Idx, io2Idx, io1Idx, io0Idx } : new int[] { io1Idx,
+            io0Idx };
+        for ( int ioLine : ioLines )
+        {
+          if ( ( ( dataSample >>> ioLine ) & 1 ) != 0 )
           {
             mosivalue |= ( 1 << bitIdx );
           }
           bitIdx--;
         }
+      }
 
-        if ( bitIdx < 0 )
-        {
-          // Full datagram decoded...
-          reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
+      if ( bitIdx < 0 )
+      {
+        // Full datagram decoded...
+        reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
 
-          bitIdx = this.bitCount;
-          misovalue = 0;
-          mosivalue = 0;
-        }
+        bitIdx = this.bitCount;
+        misovalue = 0;
+        mosivalue = 0;
       }
-
-      this.progressListener.setProgress( getPercentage( idx, startOfDecode, endOfDecode ) );
     }
+
+    aState.oldSckValue = oldSckValue;
+    aState.oldCsValue = oldCsValue;
+    aState.slaveSelected = slaveSelected;
+    aState.dataStartIdx = dataStartIdx;
+    aState.bitIdx = bitIdx;
+    aState.clockEdgeIdx = clockEdgeIdx;
+    aState.misoValue = misovalue;
+    aState.mosiValue = mosivalue;
   }
 
   /**
@@ -510,7 +817,7 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   private SPIMode detectSPIMode( final int aStartIndex, final int aEndIndex )
   {
     final AcquisitionResult data = this.context.getData();
-    final Frequency<Integer> valueStats = new Frequency<Integer>();
+    final IntFrequency valueStats = new IntFrequency( 0, 1 );
 
     final int[] values = data.getValues();
     final int sckMask = 1 << this.sckIdx;
@@ -520,14 +827,14 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     for ( int i = aStartIndex; i < aEndIndex; i++ )
     {
       final int newValue = ( values[i] & sckMask ) >> this.sckIdx;
-      valueStats.addValue( Integer.valueOf( newValue ) );
+      valueStats.addValue( newValue );
     }
 
     SPIMode result;
 
     // If the clock line's most occurring value is one, then
     // we're fairly sure that CPOL == 1...
-    if ( valueStats.getHighestRanked().intValue() == 1 )
+    if ( !valueStats.isEmpty() && ( valueStats.getHighestRanked() == 1 ) )
     {
       LOG.log( Level.INFO, "SPI mode is probably mode 2 or 3 (CPOL == 1). Assuming mode 2 ..." );
       result = SPIMode.MODE_2;
@@ -632,24 +939,12 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   private void reportData( final SPIDataSet aDecodedData, final int aStartIdx, final int aEndIdx, final int aMosiValue,
       final int aMisoValue )
   {
-    long[] timestamps = this.context.getData().getTimestamps();
-
     if ( SPIFIMode.STANDARD.equals( this.protocol ) )
     {
       if ( this.mosiIdx >= 0 )
       {
         // Perform bit-order conversion on the full byte...
         final int mosivalue = NumberUtils.convertBitOrder( aMosiValue, ( this.bitCount + 1 ), this.bitOrder );
-
-        String formatSpec = "0x%1$X";
-        if ( Character.isLetterOrDigit( mosivalue ) )
-        {
-          formatSpec = formatSpec.concat( " (%1$c)" );
-        }
-
-        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, timestamps[aStartIdx],
-            timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
-
         aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, mosivalue );
       }
 
@@ -657,16 +952,6 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
       {
         // Perform bit-order conversion on the full byte...
         final int misovalue = NumberUtils.convertBitOrder( aMisoValue, ( this.bitCount + 1 ), this.bitOrder );
-
-        String formatSpec = "0x%1$X";
-        if ( Character.isLetterOrDigit( misovalue ) )
-        {
-          formatSpec = formatSpec.concat( " (%1$c)" );
-        }
-
-        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.misoIdx, timestamps[aStartIdx],
-            timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( misovalue ) ) ) );
-
         aDecodedData.reportMisoData( this.misoIdx, aStartIdx, aEndIdx, misovalue );
       }
     }
@@ -674,16 +959,6 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     {
       // Perform bit-order conversion on the full byte...
       final int mosivalue = NumberUtils.convertBitOrder( aMosiValue, ( this.bitCount + 1 ), this.bitOrder );
-
-      String formatSpec = "0x%1$X";
-      if ( Character.isLetterOrDigit( mosivalue ) )
-      {
-        formatSpec = formatSpec.concat( " (%1$c)" );
-      }
-
-      this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, timestamps[aStartIdx],
-          timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
-
       aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, mosivalue );
     }
   }
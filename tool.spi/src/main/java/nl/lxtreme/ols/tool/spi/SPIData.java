@@ -67,6 +67,21 @@ public final class SPIData extends BaseData<SPIData>
     this.dataValue = aDataValue;
   }
 
+  /**
+   * Creates a copy of the given data with a new index.
+   * 
+   * @param aIdx
+   *          the new index of the data;
+   * @param aData
+   *          the data to copy, cannot be <code>null</code>.
+   */
+  SPIData( final int aIdx, final SPIData aData )
+  {
+    super( aIdx, aData.getChannelIdx(), aData.getStartSampleIndex(), aData.getEndSampleIndex(), aData.getEventName() );
+    this.dataName = aData.dataName;
+    this.dataValue = aData.dataValue;
+  }
+
   // METHODS
 
   /**
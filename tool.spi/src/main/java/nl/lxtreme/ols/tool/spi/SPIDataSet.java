@@ -51,6 +51,20 @@ public final class SPIDataSet extends BaseDataSet<SPIData>
 
   // METHODS
 
+  /**
+   * Appends all data of the given data set to this data set.
+   * 
+   * @param aDataSet
+   *          the data set to append, cannot be <code>null</code>.
+   */
+  void addAll( final SPIDataSet aDataSet )
+  {
+    for ( SPIData data : aDataSet.getData() )
+    {
+      addData( new SPIData( size(), data ) );
+    }
+  }
+
   /**
    * @param aTimeValue
    */
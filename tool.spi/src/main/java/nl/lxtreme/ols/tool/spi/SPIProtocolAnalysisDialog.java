@@ -21,16 +21,13 @@
 package nl.lxtreme.ols.tool.spi;
 
 
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.*;
 import static nl.lxtreme.ols.util.swing.SwingComponentUtils.*;
 
 import java.awt.*;
 import java.awt.event.*;
 import java.beans.*;
 import java.io.*;
-import java.text.*;
 import java.util.*;
-import java.util.List;
 import java.util.logging.*;
 
 import javax.swing.*;
@@ -41,11 +38,6 @@ import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.ToolUtils.RestorableAction;
 import nl.lxtreme.ols.util.*;
-import nl.lxtreme.ols.util.ExportUtils.CsvExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
-import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
 import nl.lxtreme.ols.util.NumberUtils.BitOrder;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.component.*;
@@ -65,6 +57,135 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
 {
   // INNER TYPES
 
+  /**
+   * Provides the table model for the decoded SPI data.
+   */
+  static final class SPIDataTableModel extends ToolResultTableModel<SPIData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Color CS_LOW_COLOR = new Color( 0xc0ffc0 );
+    private static final Color CS_HIGH_COLOR = new Color( 0xe0e0e0 );
+    private static final Color UNKNOWN_EVENT_COLOR = new Color( 0xff8000 );
+
+    // VARIABLES
+
+    private int bitCount = 8;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SPIDataTableModel instance.
+     */
+    public SPIDataTableModel()
+    {
+      super( "Index", "Time", "MOSI Hex", "MOSI Bin", "MOSI Dec", "MOSI ASCII", "MISO Hex", "MISO Bin", "MISO Dec",
+          "MISO ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRowIndex, final SPIData aRow )
+    {
+      if ( !aRow.isEvent() )
+      {
+        return null;
+      }
+      if ( SPIDataSet.SPI_CS_LOW.equals( aRow.getEventName() ) )
+      {
+        return CS_LOW_COLOR;
+      }
+      else if ( SPIDataSet.SPI_CS_HIGH.equals( aRow.getEventName() ) )
+      {
+        return CS_HIGH_COLOR;
+      }
+      return UNKNOWN_EVENT_COLOR;
+    }
+
+    /**
+     * Sets the number of bits used to format the decoded values.
+     * 
+     * @param aBitCount
+     *          the number of bits, > 0.
+     */
+    public void setBitCount( final int aBitCount )
+    {
+      this.bitCount = aBitCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRowIndex, final SPIData aRow, final int aColumnIndex )
+    {
+      if ( aColumnIndex == 0 )
+      {
+        return String.valueOf( aRowIndex );
+      }
+      else if ( aColumnIndex == 1 )
+      {
+        return formatTime( aRow.getStartSampleIndex() );
+      }
+
+      if ( aRow.isEvent() )
+      {
+        if ( ( aColumnIndex != 2 ) && ( aColumnIndex != 6 ) )
+        {
+          return null;
+        }
+        final String event = aRow.getEventName();
+        if ( SPIDataSet.SPI_CS_LOW.equals( event ) || SPIDataSet.SPI_CS_HIGH.equals( event ) )
+        {
+          return event;
+        }
+        return "UNKNOWN";
+      }
+
+      final boolean mosiColumn = ( aColumnIndex < 6 );
+      SPIData data = aRow;
+      if ( data.isMosiData() != mosiColumn )
+      {
+        data = getCoalescedRow( aRowIndex );
+        if ( ( data == null ) || ( data.isMosiData() != mosiColumn ) )
+        {
+          return null;
+        }
+      }
+
+      final int value = data.getDataValue();
+      switch ( ( aColumnIndex - 2 ) % 4 )
+      {
+        case 0:
+          final int bitAdder = ( ( this.bitCount % 4 ) != 0 ) ? 1 : 0;
+          return "0x" + StringUtils.integerToHexString( value, ( this.bitCount / 4 ) + bitAdder );
+        case 1:
+          return "0b" + StringUtils.integerToBinString( value, this.bitCount );
+        case 2:
+          return String.valueOf( value );
+        default:
+          return Character.isLetterOrDigit( value ) ? Character.toString( ( char )value ) : null;
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isCoalesced( final SPIData aFirst, final SPIData aSecond )
+    {
+      // MOSI and MISO data of a single transfer are shown in a single row...
+      return aFirst.isData() && aSecond.isData() && ( aFirst.isMosiData() != aSecond.isMosiData() )
+          && ( aFirst.getStartSampleIndex() == aSecond.getStartSampleIndex() );
+    }
+  }
+
   /**
    * Provides a combobox renderer for {@link BitOrder} enums.
    */
@@ -203,7 +324,8 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   private JComboBox bits;
   private JComboBox order;
   private JComboBox spifiMode;
-  private JEditorPane outText;
+  private SPIDataTableModel resultModel;
+  private ToolResultView resultView;
   private JCheckBox reportCS;
   private JCheckBox honourCS;
 
@@ -310,8 +432,8 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   @Override
   public void reset()
   {
-    this.outText.setText( getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel.setDataSet( null );
+    this.resultView.setSummary( null );
 
     this.runAnalysisAction.restore();
 
@@ -384,34 +506,21 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   @Override
   protected void onToolEnded( final SPIDataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-        this.exportAction.setEnabled( !aAnalysisResult.isEmpty() );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-        this.exportAction.setEnabled( false );
-      }
-
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
+    this.resultModel.setBitCount( Integer.parseInt( ( String )this.bits.getSelectedItem() ) );
+    this.resultModel.setDataSet( aAnalysisResult );
 
-      this.runAnalysisAction.restore();
+    if ( aAnalysisResult != null )
+    {
+      this.resultView.setSummary( "SPI mode: " + getDetectedSPIModeDescription() );
+      this.exportAction.setEnabled( !aAnalysisResult.isEmpty() );
     }
-    catch ( final IOException exception )
+    else
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // Should not happen in this situation!
-        throw new RuntimeException( exception );
-      }
+      this.resultView.setSummary( null );
+      this.exportAction.setEnabled( false );
     }
+
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -541,82 +650,15 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
     return true;
   }
 
-  /**
-   * Creates the HTML template for exports to HTML.
-   * 
-   * @param aExporter
-   *          the HTML exporter instance to use, cannot be <code>null</code>.
-   * @return a HTML exporter filled with the template, never <code>null</code>.
-   */
-  private HtmlExporter createHtmlTemplate( final HtmlExporter aExporter )
-  {
-    aExporter.addCssStyle( "body { font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table { border-width: 1px; border-spacing: 0px; border-color: gray;"
-        + " border-collapse: collapse; border-style: solid; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " background-color: #C0C0FF; text-align: left; font-weight: bold; font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " font-family: monospace; } " );
-    aExporter.addCssStyle( ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( ".w100 { width: 100%; } " );
-    aExporter.addCssStyle( ".w35 { width: 35%; } " );
-    aExporter.addCssStyle( ".w30 { width: 30%; } " );
-    aExporter.addCssStyle( ".w15 { width: 15%; } " );
-    aExporter.addCssStyle( ".w10 { width: 10%; } " );
-    aExporter.addCssStyle( ".w8 { width: 8%; } " );
-    aExporter.addCssStyle( ".w7 { width: 7%; } " );
-
-    final Element body = aExporter.getBody();
-    body.addChild( H1 ).addContent( "SPI Analysis results" );
-    body.addChild( HR );
-    body.addChild( DIV ).addAttribute( "class", "date" ).addContent( "Generated: ", "{date-now}" );
-
-    Element table, tr, thead, tbody;
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Configuration" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "SPI mode" );
-    tr.addChild( TD ).addContent( "{detected-spi-mode}" );
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    thead = table.addChild( THEAD );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w30" ).addAttribute( "colspan", "2" );
-    tr.addChild( TH ).addAttribute( "class", "w35" ).addAttribute( "colspan", "4" ).addContent( "MOSI" );
-    tr.addChild( TH ).addAttribute( "class", "w35" ).addAttribute( "colspan", "4" ).addContent( "MISO" );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Index" );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Time" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w8" ).addContent( "Dec" );
-    tr.addChild( TH ).addAttribute( "class", "w7" ).addContent( "ASCII" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w8" ).addContent( "Dec" );
-    tr.addChild( TH ).addAttribute( "class", "w7" ).addContent( "ASCII" );
-    tbody = table.addChild( TBODY );
-    tbody.addContent( "{decoded-data}" );
-
-    return aExporter;
-  }
-
   /**
    * @return
    */
   private JPanel createPreviewPane()
   {
-    final JPanel panTable = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel = new SPIDataTableModel();
+    this.resultView = new ToolResultView( this.resultModel );
 
-    panTable.add( new JScrollPane( this.outText ) );
-
-    return panTable;
+    return this.resultView;
   }
 
   /**
@@ -721,26 +763,34 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   }
 
   /**
-   * Generates an empty HTML page.
+   * Returns a description of the detected SPI mode.
    * 
-   * @return String with HTML data.
+   * @return a SPI mode description, never <code>null</code>.
    */
-  private String getEmptyHtmlPage()
+  private String getDetectedSPIModeDescription()
   {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
+    String result = "<unknown>";
+    if ( this.detectedSPIMode != null )
     {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
+      switch ( this.detectedSPIMode )
       {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        return null;
+        case MODE_0:
+          result = "Mode 0 (CPOL = 0, CPHA = 0)";
+          break;
+        case MODE_1:
+          result = "Mode 1 (CPOL = 0, CPHA = 1)";
+          break;
+        case MODE_2:
+          result = "Mode 2 (CPOL = 1, CPHA = 0)";
+          break;
+        case MODE_3:
+          result = "Mode 3 (CPOL = 1, CPHA = 1)";
+          break;
+        default:
+          break;
       }
-    } );
+    }
+    return result;
   }
 
   /**
@@ -784,25 +834,41 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   {
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
-      exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "MOSI data", "MISO data" );
-
-      final List<SPIData> decodedData = aDataSet.getData();
-      for ( int i = 0; i < decodedData.size(); i++ )
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.CSV );
+      try
       {
-        final SPIData ds = decodedData.get( i );
+        writer.write( aDataSet.getData(), new ToolResultWriter.RowCallback<SPIData>()
+        {
+          @Override
+          public void writeFooter( final ToolResultWriter aWriter )
+          {
+            // NO-op
+          }
+
+          @Override
+          public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+          {
+            aWriter.writeColumns( "index", "start-time", "end-time", "event?", "event-type", "MOSI data", "MISO data" );
+          }
 
-        final String startTime = UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
-        final String endTime = UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
-        final String mosiDataValue = ds.isMosiData() ? Integer.toString( ds.getDataValue() ) : null;
-        final String misoDataValue = ds.isMisoData() ? Integer.toString( ds.getDataValue() ) : null;
+          @Override
+          public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final SPIData aRow )
+              throws IOException
+          {
+            final String startTime = UnitOfTime.format( aDataSet.getTime( aRow.getStartSampleIndex() ) );
+            final String endTime = UnitOfTime.format( aDataSet.getTime( aRow.getStartSampleIndex() ) );
+            final String mosiDataValue = aRow.isMosiData() ? Integer.toString( aRow.getDataValue() ) : null;
+            final String misoDataValue = aRow.isMisoData() ? Integer.toString( aRow.getDataValue() ) : null;
 
-        exporter.addRow( Integer.valueOf( i ), startTime, endTime, Boolean.valueOf( ds.isEvent() ), ds.getEventName(),
-            mosiDataValue, misoDataValue );
+            aWriter.writeRow( null, Integer.valueOf( aRowIndex ), startTime, endTime,
+                Boolean.valueOf( aRow.isEvent() ), aRow.getEventName(), mosiDataValue, misoDataValue );
+          }
+        } );
+      }
+      finally
+      {
+        writer.close();
       }
-
-      exporter.close();
     }
     catch ( final IOException exception )
     {
@@ -824,7 +890,17 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   {
     try
     {
-      toHtmlPage( aFile, aDataSet );
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.HTML );
+      try
+      {
+        writer.writeTitle( "SPI Analysis results" );
+        writer.writeProperty( "SPI mode", getDetectedSPIModeDescription() );
+        writer.write( aDataSet.getData(), this.resultModel );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -835,172 +911,4 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
       }
     }
   }
-
-  /**
-   * generate a HTML page
-   * 
-   * @param aDataSet
-   *          the data set to create the HTML page for, cannot be
-   *          <code>null</code>.
-   * @return String with HTML data
-   */
-  private String toHtmlPage( final File aFile, final SPIDataSet aDataSet ) throws IOException
-  {
-    final int bitCount = Integer.parseInt( ( String )this.bits.getSelectedItem() );
-    final int bitAdder = ( ( bitCount % 4 ) != 0 ) ? 1 : 0;
-
-    final MacroResolver macroResolver = new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "detected-spi-mode".equals( aMacro ) )
-        {
-          String result = "<unknown>";
-          switch ( SPIProtocolAnalysisDialog.this.detectedSPIMode )
-          {
-            case MODE_0:
-              result = "Mode 0 (CPOL = 0, CPHA = 0)";
-              break;
-            case MODE_1:
-              result = "Mode 1 (CPOL = 0, CPHA = 1)";
-              break;
-            case MODE_2:
-              result = "Mode 2 (CPOL = 1, CPHA = 0)";
-              break;
-            case MODE_3:
-              result = "Mode 3 (CPOL = 1, CPHA = 1)";
-              break;
-            default:
-              break;
-          }
-          return result;
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          final List<SPIData> decodedData = aDataSet.getData();
-          Element tr;
-
-          for ( int i = 0; i < decodedData.size(); i++ )
-          {
-            final SPIData ds = decodedData.get( i );
-
-            if ( ds.isEvent() )
-            {
-              String event;
-              String bgColor;
-
-              // this is an event
-              if ( SPIDataSet.SPI_CS_LOW.equals( ds.getEventName() ) )
-              {
-                // start condition
-                event = ds.getEventName();
-                bgColor = "#c0ffc0";
-              }
-              else if ( SPIDataSet.SPI_CS_HIGH.equals( ds.getEventName() ) )
-              {
-                // stop condition
-                event = ds.getEventName();
-                bgColor = "#e0e0e0";
-              }
-              else
-              {
-                // unknown event
-                event = "UNKNOWN";
-                bgColor = "#ff8000";
-              }
-
-              tr = aParent.addChild( TR ).addAttribute( "style", "background-color: " + bgColor + ";" );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( event );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD ).addContent( event );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD );
-            }
-            else if ( ds.isData() )
-            {
-              final int sampleIdx = ds.getStartSampleIndex();
-
-              tr = aParent.addChild( TR );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aDataSet.getTime( sampleIdx ) ) );
-
-              int mosiValue = ds.isMosiData() ? ds.getDataValue() : 0;
-              int misoValue = ds.isMisoData() ? ds.getDataValue() : 0;
-
-              // Try to coalesce equal timestamps...
-              if ( ( i + 1 ) < decodedData.size() )
-              {
-                final SPIData nextDS = decodedData.get( i + 1 );
-                if ( nextDS.getStartSampleIndex() == sampleIdx )
-                {
-                  mosiValue = nextDS.isMosiData() ? nextDS.getDataValue() : mosiValue;
-                  misoValue = nextDS.isMisoData() ? nextDS.getDataValue() : misoValue;
-                  // Make sure to skip this DS in the next iteration...
-                  i++;
-                }
-              }
-
-              // MOSI value first, MISO value next...
-              addDataValues( tr, i, sampleIdx, mosiValue );
-              addDataValues( tr, i, sampleIdx, misoValue );
-            }
-          }
-        }
-
-        return null;
-      }
-
-      /**
-       * @param aTableRow
-       * @param aIdx
-       * @param aSampleIdx
-       * @param aValue
-       */
-      private void addDataValues( final Element aTableRow, final int aIdx, final int aSampleIdx, final int aValue )
-      {
-        final String mosiDataHex = StringUtils.integerToHexString( aValue, ( bitCount / 4 ) + bitAdder );
-        final String mosiDataBin = StringUtils.integerToBinString( aValue, bitCount );
-        final String mosiDataDec = String.valueOf( aValue );
-        final String mosiDataASCII;
-        if ( Character.isLetterOrDigit( aValue ) )
-        {
-          mosiDataASCII = Character.toString( ( char )aValue );
-        }
-        else
-        {
-          mosiDataASCII = "";
-        }
-
-        aTableRow.addChild( TD ).addContent( "0x", mosiDataHex );
-        aTableRow.addChild( TD ).addContent( "0b", mosiDataBin );
-        aTableRow.addChild( TD ).addContent( mosiDataDec );
-        aTableRow.addChild( TD ).addContent( mosiDataASCII );
-      }
-    };
-
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
-  }
 }
@@ -0,0 +1,174 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.spi;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.util.NumberUtils.BitOrder;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Tests that decoding SPI data in parallel segments yields the same results as
+ * decoding it sequentially.
+ */
+public class SPIAnalyserParallelDecodeTest
+{
+  // CONSTANTS
+
+  private static final int MISO = 0;
+  private static final int MOSI = 1;
+  private static final int CS = 2;
+  private static final int SCK = 3;
+
+  // VARIABLES
+
+  private AcquisitionResult data;
+
+  // METHODS
+
+  /**
+   * Generates a long SPI capture with random transfers, of which some end
+   * half-way a datagram. The remainder of such a datagram is sent in the next
+   * transfer.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 0x5ca1ab1eL );
+    final List<Integer> values = new ArrayList<Integer>();
+
+    int sample = ( 1 << CS );
+    int pendingBits = 0;
+    while ( values.size() < 500000 )
+    {
+      // idle bus...
+      for ( int i = rnd.nextInt( 16 ) + 4; i > 0; i-- )
+      {
+        values.add( Integer.valueOf( sample ) );
+      }
+
+      sample &= ~( 1 << CS );
+      values.add( Integer.valueOf( sample ) );
+
+      final int bitCount;
+      if ( ( pendingBits == 0 ) && ( rnd.nextInt( 10 ) == 0 ) )
+      {
+        bitCount = rnd.nextInt( 7 ) + 1;
+        // a transfer ending one bit short of a datagram completes it...
+        pendingBits = ( bitCount == 7 ) ? 0 : ( 8 - bitCount );
+      }
+      else
+      {
+        bitCount = pendingBits + 8 * rnd.nextInt( 4 ) + ( ( pendingBits == 0 ) ? 8 : 0 );
+        pendingBits = 0;
+      }
+      for ( int bit = 0; bit < bitCount; bit++ )
+      {
+        // change data while the clock is low, sample on the rising edge...
+        sample = ( sample & ~( ( 1 << MISO ) | ( 1 << MOSI ) ) ) | rnd.nextInt( 4 );
+        values.add( Integer.valueOf( sample ) );
+        values.add( Integer.valueOf( sample ) );
+
+        sample |= ( 1 << SCK );
+        values.add( Integer.valueOf( sample ) );
+        values.add( Integer.valueOf( sample ) );
+
+        sample &= ~( 1 << SCK );
+        values.add( Integer.valueOf( sample ) );
+      }
+
+      sample |= ( 1 << CS );
+      values.add( Integer.valueOf( sample ) );
+    }
+
+    final int[] samples = new int[values.size()];
+    for ( int i = 0; i < samples.length; i++ )
+    {
+      samples[i] = values.get( i ).intValue();
+    }
+
+    this.data = new CapturedData( samples, Ols.NOT_AVAILABLE, 1000000, 4, 0x0F );
+  }
+
+  /**
+   * Tests that decoding in parallel segments yields the same results as
+   * decoding sequentially, including transfers that end half-way a datagram,
+   * and that segments are only rarely decoded a second time.
+   */
+  @Test
+  public void testParallelDecodeEqualsSequentialDecodeOk() throws Exception
+  {
+    final SPIDataSet expected = createWorker( 1, Integer.MAX_VALUE ).call();
+    assertTrue( expected.getData().size() > 10000 );
+
+    final SPIAnalyserTask worker = createWorker( 32, 256 );
+    final SPIDataSet result = worker.call();
+    assertEquals( expected.getData(), result.getData() );
+
+    // Only segments starting after a transfer that ended half-way a datagram
+    // should be decoded twice...
+    final int segmentCount = worker.getSegmentCount();
+    final int redecodeCount = worker.getRedecodeCount();
+    assertTrue( segmentCount > 100 );
+    assertTrue( "No segments re-decoded", redecodeCount > 0 );
+    assertTrue( "Too many re-decoded segments: " + redecodeCount + " of " + segmentCount,
+        redecodeCount <= ( segmentCount / 10 ) );
+  }
+
+  /**
+   * Creates a worker for decoding the test data.
+   */
+  private SPIAnalyserTask createWorker( final int aThreadCount, final int aMinSegmentSize )
+  {
+    final ToolContext toolContext = DataTestUtils.createToolContext( this.data, 0, this.data.getValues().length - 1 );
+
+    final ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+    final AnnotationListener al = Mockito.mock( AnnotationListener.class );
+
+    final SPIAnalyserTask worker = new SPIAnalyserTask( toolContext, tpl, al );
+    worker.setBitCount( 7 );
+    worker.setHonourCS( true );
+    worker.setReportCS( true );
+    worker.setSPIMode( SPIMode.MODE_0 );
+    worker.setOrder( BitOrder.MSB_FIRST );
+    worker.setIO1Index( MISO );
+    worker.setIO0Index( MOSI );
+    worker.setCSIndex( CS );
+    worker.setSCKIndex( SCK );
+    worker.setSegmentation( aThreadCount, aMinSegmentSize );
+
+    return worker;
+  }
+}
+
+/* EOF */
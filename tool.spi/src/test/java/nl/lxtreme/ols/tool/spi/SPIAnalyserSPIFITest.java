@@ -0,0 +1,154 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.spi;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.util.NumberUtils.BitOrder;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Tests the decoding of dual and quad (SPIFI) SPI data, using a synthetic
+ * capture in SPI mode 0.
+ */
+public class SPIAnalyserSPIFITest
+{
+  // CONSTANTS
+
+  private static final int CS = 0;
+  private static final int SCK = 1;
+  private static final int IO0 = 2;
+
+  // VARIABLES
+
+  private int[] payload;
+
+  // METHODS
+
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 1L );
+
+    this.payload = new int[4096];
+    for ( int i = 0; i < this.payload.length; i++ )
+    {
+      this.payload[i] = rnd.nextInt( 256 );
+    }
+  }
+
+  /**
+   * Tests that dual SPI data, two bits per clock, is decoded correctly.
+   */
+  @Test
+  public void testDecodeDualOk() throws Exception
+  {
+    final SPIDataSet result = analyse( SPIFIMode.DUAL, 2 );
+    assertPayload( result );
+  }
+
+  /**
+   * Tests that quad SPI data, four bits per clock, is decoded correctly.
+   */
+  @Test
+  public void testDecodeQuadOk() throws Exception
+  {
+    final SPIDataSet result = analyse( SPIFIMode.QUAD, 4 );
+    assertPayload( result );
+  }
+
+  /**
+   * Generates and analyses the payload using the given number of IO lines.
+   */
+  private SPIDataSet analyse( final SPIFIMode aProtocol, final int aWidth ) throws Exception
+  {
+    final int symbolMask = ( 1 << aWidth ) - 1;
+    final int symbolsPerByte = 8 / aWidth;
+
+    final int[] values = new int[2 + ( this.payload.length * symbolsPerByte * 2 )];
+    int idx = 0;
+    values[idx++] = ( 1 << CS );
+    for ( int value : this.payload )
+    {
+      for ( int s = symbolsPerByte - 1; s >= 0; s-- )
+      {
+        final int io = ( ( value >> ( s * aWidth ) ) & symbolMask ) << IO0;
+        values[idx++] = io;
+        values[idx++] = io | ( 1 << SCK );
+      }
+    }
+    values[idx++] = ( 1 << CS );
+
+    final AcquisitionResult container = new CapturedData( values, Ols.NOT_AVAILABLE, 1000000, 6, 0x3F );
+    final ToolContext toolContext = DataTestUtils.createToolContext( container );
+
+    final ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+    final AnnotationListener al = Mockito.mock( AnnotationListener.class );
+
+    final SPIAnalyserTask worker = new SPIAnalyserTask( toolContext, tpl, al );
+    worker.setBitCount( 7 );
+    worker.setHonourCS( true );
+    worker.setReportCS( false );
+    worker.setProtocol( aProtocol );
+    worker.setSPIMode( SPIMode.MODE_0 );
+    worker.setOrder( BitOrder.MSB_FIRST );
+    worker.setCSIndex( CS );
+    worker.setSCKIndex( SCK );
+    worker.setIO0Index( IO0 );
+    worker.setIO1Index( IO0 + 1 );
+    worker.setIO2Index( IO0 + 2 );
+    worker.setIO3Index( IO0 + 3 );
+
+    return worker.call();
+  }
+
+  /**
+   * Asserts that the given data set contains exactly the payload as MOSI data.
+   */
+  private void assertPayload( final SPIDataSet aDataSet )
+  {
+    int i = 0;
+    for ( SPIData data : aDataSet.getData() )
+    {
+      if ( data.isMosiData() )
+      {
+        assertTrue( "Too many data events?!", i < this.payload.length );
+        assertEquals( "Byte " + i, this.payload[i], data.getDataValue() );
+        i++;
+      }
+    }
+    assertEquals( this.payload.length, i );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,115 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.spi;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.tool.base.*;
+import nl.lxtreme.ols.tool.base.ExportAware.ExportFormat;
+import nl.lxtreme.ols.tool.spi.SPIProtocolAnalysisDialog.SPIDataTableModel;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SPIDataTableModel}.
+ */
+public class SPIDataTableModelTest
+{
+  // VARIABLES
+
+  private SPIDataTableModel model;
+
+  // METHODS
+
+  /**
+   * Creates a data set with a full-duplex transfer, followed by a transfer
+   * that only has MOSI data.
+   */
+  @Before
+  public void setUp()
+  {
+    final int[] samples = new int[40];
+    for ( int i = 0; i < samples.length; i++ )
+    {
+      samples[i] = i;
+    }
+
+    final SPIDataSet dataSet = new SPIDataSet( 0, samples.length, new CapturedData( samples, Ols.NOT_AVAILABLE,
+        1000000, 4, 0x0F ) );
+    dataSet.reportCSLow( 2, 0 );
+    dataSet.reportMosiData( 1, 10, 18, 0x41 );
+    dataSet.reportMisoData( 0, 10, 18, 0x42 );
+    dataSet.reportMosiData( 1, 20, 28, 0x43 );
+    dataSet.reportCSHigh( 2, 30 );
+
+    this.model = new SPIDataTableModel();
+    this.model.setDataSet( dataSet );
+  }
+
+  /**
+   * Tests that the MOSI and MISO data of a single transfer are shown in a
+   * single row.
+   */
+  @Test
+  public void testFullDuplexTransferIsShownInSingleRow()
+  {
+    assertEquals( 4, this.model.getRowCount() );
+
+    assertEquals( SPIDataSet.SPI_CS_LOW, this.model.getValueAt( 0, 2 ) );
+    assertEquals( "0x41", this.model.getValueAt( 1, 2 ) );
+    assertEquals( "0b01000010", this.model.getValueAt( 1, 7 ) );
+    assertEquals( "0x43", this.model.getValueAt( 2, 2 ) );
+    assertNull( this.model.getValueAt( 2, 6 ) );
+    assertEquals( SPIDataSet.SPI_CS_HIGH, this.model.getValueAt( 3, 6 ) );
+
+    assertEquals( 10, this.model.getRow( 1 ).getStartSampleIndex() );
+    assertEquals( 30, this.model.getRow( 3 ).getStartSampleIndex() );
+  }
+
+  /**
+   * Tests that exporting the model writes the same rows as shown in the table.
+   */
+  @Test
+  public void testWriteCoalescesFullDuplexTransfer() throws IOException
+  {
+    final StringWriter output = new StringWriter();
+
+    final ToolResultWriter writer = ToolResultWriter.create( output, ExportFormat.CSV );
+    writer.write( this.model.getDataSet().getData(), this.model );
+    writer.close();
+
+    final String[] lines = output.toString().split( "\r?\n" );
+    assertEquals( 5, lines.length );
+    assertTrue( lines[2].startsWith( "\"1\"," ) );
+    assertTrue( lines[2].contains( "\"0x41\"" ) );
+    assertTrue( lines[2].contains( "\"0x42\"" ) );
+    assertTrue( lines[3].startsWith( "\"2\"," ) );
+    assertTrue( lines[3].contains( "\"0x43\"" ) );
+  }
+}
+
+/* EOF */
@@ -28,11 +28,20 @@ import java.util.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 
 
 /**
  * Provides a generic decoder for asynchronous serial data, such as used for
  * UARTs, smartcards, LIN and other protocols.
+ * <p>
+ * The decoder is driven by the transitions in the acquired data: edges are
+ * found by walking the sample values directly, and bits are sampled through a
+ * cursor that only moves forward while decoding. This makes decoding
+ * proportional to the number of transitions, rather than the duration of the
+ * capture. As a consequence, a single instance of this decoder should not be
+ * used concurrently by multiple threads.
+ * </p>
  */
 public class AsyncSerialDataDecoder
 {
@@ -352,6 +361,9 @@ public class AsyncSerialDataDecoder
 
   private SerialDecoderCallback callback;
   private ToolProgressListener progressListener;
+  /** The index of the first sample at or after the last sampled time. */
+  private int sampleCursor;
+  private int symbolCount;
 
   // CONSTRUCTORS
 
@@ -401,6 +413,39 @@ public class AsyncSerialDataDecoder
    * @return the number of decoded symbols, >= 0.
    */
   public int decodeDataLine( final int aChannelIndex )
+  {
+    final long[] timestamps = this.dataSet.getTimestamps();
+
+    setProgress( 0 );
+
+    this.symbolCount = 0;
+    decodeDataLine( aChannelIndex, timestamps[this.context.getStartSampleIndex()], this.context.getEndSampleIndex() );
+
+    setProgress( 100 );
+
+    return this.symbolCount;
+  }
+
+  /**
+   * Decodes all symbols on a serial data line whose start bit is found before
+   * the given sample index.
+   * <p>
+   * Together with {@link #findIdleBoundary(int, int, int)}, this allows a data
+   * line to be decoded in independent segments: decoding a segment continues
+   * at the time returned for the previous segment.
+   * </p>
+   * 
+   * @param aChannelIndex
+   *          the channel index to decode, >= 0;
+   * @param aStartTime
+   *          the time to start searching for the first start bit;
+   * @param aEndIdx
+   *          the sample index before which start bits should be found
+   *          (exclusive).
+   * @return the time at which decoding should continue for the remainder of
+   *         the data line.
+   */
+  public long decodeDataLine( final int aChannelIndex, final long aStartTime, final int aEndIdx )
   {
     final int frameSize = this.configuration.getFrameSize( this.dataSet.getSampleRate() );
     final int bitLength = this.configuration.getBitLength( this.dataSet.getSampleRate() );
@@ -414,30 +459,39 @@ public class AsyncSerialDataDecoder
 
     final long[] timestamps = this.dataSet.getTimestamps();
 
-    final long startOfDecode = timestamps[this.context.getStartSampleIndex()];
     final long endOfDecode = timestamps[this.context.getEndSampleIndex()];
+    // Only start bits before the given sample index are searched for...
+    final long endOfSearch = ( aEndIdx < this.context.getEndSampleIndex() ) ? ( timestamps[aEndIdx] + 1 )
+        : endOfDecode;
 
-    long time = startOfDecode;
-
-    setProgress( 0 );
+    this.sampleCursor = findSampleIndex( timestamps, aStartTime );
 
-    int symbolCount = 0;
+    long time = aStartTime;
     while ( ( endOfDecode - time ) > frameSize )
     {
       /*
        * find first falling edge this is the start of the startbit. If the
        * signal is inverted, find the first rising edge.
        */
-      time = findStartBit( aChannelIndex, isInverted() ? Edge.RISING : Edge.FALLING, time, endOfDecode );
-      if ( time < 0 )
+      final long startBit = findStartBit( aChannelIndex, isInverted() ? Edge.RISING : Edge.FALLING, time,
+          endOfSearch );
+      if ( startBit < 0 )
       {
-        // No more start bits; stop the decoding process...
+        // No more start bits before the given sample index; searching from
+        // that sample onwards yields the same start bit as searching from the
+        // current time. Return it as resume time, so that it can be compared
+        // with the time assumed for the next segment...
+        if ( ( endOfSearch < endOfDecode ) && ( time < endOfSearch )
+            && ( ( endOfDecode - timestamps[aEndIdx] ) > frameSize ) )
+        {
+          time = timestamps[aEndIdx];
+        }
         break;
       }
 
       // Sampling is done in the middle of each bit the start bit must be low.
       // If the signal is inverted, the startbit must be high.
-      time += bitCenter;
+      time = startBit + bitCenter;
       if ( !isSpace( time, mask ) && ( this.callback != null ) )
       {
         // this is not a start bit !
@@ -466,7 +520,7 @@ public class AsyncSerialDataDecoder
       symbol = decodeSymbol( symbol, bitCount );
 
       // fully decoded a single symbol...
-      symbolCount++;
+      this.symbolCount++;
       if ( this.callback != null )
       {
         this.callback.onSymbol( aChannelIndex, symbol, startTime, endTime );
@@ -510,12 +564,63 @@ public class AsyncSerialDataDecoder
         time += stopBitCount * bitLength;
       }
 
-      setProgress( getPercentage( time, startOfDecode, endOfDecode ) );
+      setProgress( getPercentage( time, aStartTime, endOfDecode ) );
     }
 
-    setProgress( 100 );
+    return time;
+  }
+
+  /**
+   * Searches for the first start bit on a serial data line that follows a long
+   * mark, that is, a mark lasting at least two frames.
+   * <p>
+   * All symbols before such a long mark have ended before the start bit, so
+   * decoding a data line can always continue at this start bit.
+   * </p>
+   * 
+   * @param aChannelIndex
+   *          the channel index of the data line, >= 0;
+   * @param aStartIdx
+   *          the sample index to start searching at (inclusive), > 0;
+   * @param aEndIdx
+   *          the sample index to stop searching at (exclusive).
+   * @return the sample index at which the start bit begins, or -1 if no start
+   *         bit after a long mark is found.
+   */
+  public int findIdleBoundary( final int aChannelIndex, final int aStartIdx, final int aEndIdx )
+  {
+    final int frameSize = this.configuration.getFrameSize( this.dataSet.getSampleRate() );
+    final int bitLength = this.configuration.getBitLength( this.dataSet.getSampleRate() );
+    final long minMarkLength = 2L * ( frameSize + bitLength );
 
-    return symbolCount;
+    final int[] values = this.dataSet.getValues();
+    final long[] timestamps = this.dataSet.getTimestamps();
+    final int mask = ( 1 << aChannelIndex );
+    final int markValue = isInverted() ? 0 : mask;
+
+    int oldValue = ( values[aStartIdx - 1] & mask );
+    // We do not know when a mark before the given start index began...
+    long markStart = -1L;
+    for ( int idx = aStartIdx; idx < aEndIdx; idx++ )
+    {
+      final int value = ( values[idx] & mask );
+      if ( value == oldValue )
+      {
+        continue;
+      }
+
+      if ( value == markValue )
+      {
+        markStart = timestamps[idx];
+      }
+      else if ( ( markStart >= 0L ) && ( ( timestamps[idx] - markStart ) >= minMarkLength ) )
+      {
+        return idx;
+      }
+      oldValue = value;
+    }
+
+    return -1;
   }
 
   /**
@@ -539,7 +644,7 @@ public class AsyncSerialDataDecoder
    */
   public final void setProgressListener( final ToolProgressListener aProgressListener )
   {
-    this.progressListener = aProgressListener;
+    this.progressListener = ( aProgressListener == null ) ? null : ThrottledProgressListener.wrap( aProgressListener );
   }
 
   /**
@@ -558,24 +663,31 @@ public class AsyncSerialDataDecoder
   protected final long findEdge( final int aChannelIndex, final Edge aSampleEdge, final long aStartOfDecode,
       final long aEndOfDecode )
   {
+    final int[] values = this.dataSet.getValues();
+    final long[] timestamps = this.dataSet.getTimestamps();
     final int mask = ( 1 << aChannelIndex );
-    long result = -1;
+    final int invertMask = isInverted() ? ~0 : 0;
 
     int oldBitValue = getDataValue( aStartOfDecode, mask );
-    for ( long timeCursor = aStartOfDecode + 1; ( result < 0 ) && ( timeCursor < aEndOfDecode ); timeCursor++ )
+    // A transition of sample i becomes visible one tick after its timestamp...
+    for ( int i = this.sampleCursor; ( i < values.length ) && ( ( timestamps[i] + 1 ) < aEndOfDecode ); i++ )
     {
-      final int bitValue = getDataValue( timeCursor, mask );
+      final int bitValue = ( values[i] ^ invertMask ) & mask;
+      if ( bitValue == oldBitValue )
+      {
+        continue;
+      }
 
-      Edge edge = Edge.toEdge( oldBitValue, bitValue );
-      if ( aSampleEdge == edge )
+      if ( aSampleEdge == Edge.toEdge( oldBitValue, bitValue ) )
       {
-        result = timeCursor;
+        this.sampleCursor = i + 1;
+        return timestamps[i] + 1;
       }
 
       oldBitValue = bitValue;
     }
 
-    return result;
+    return -1;
   }
 
   /**
@@ -618,8 +730,7 @@ public class AsyncSerialDataDecoder
   protected final int getDataValue( final long aTimeValue, final int aMask )
   {
     final int[] values = this.dataSet.getValues();
-    final long[] timestamps = this.dataSet.getTimestamps();
-    int k = findSampleIndex( timestamps, aTimeValue );
+    final int k = seekSampleIndex( aTimeValue );
 
     int value = ( ( k == 0 ) ? values[0] : values[k - 1] );
     if ( isInverted() )
@@ -734,4 +845,38 @@ public class AsyncSerialDataDecoder
   {
     return this.configuration.isInverted();
   }
+
+  /**
+   * Moves the sample cursor to the first sample whose timestamp is equal to,
+   * or greater than, the given time value.
+   * <p>
+   * As decoding mostly moves forward in time, the cursor is simply advanced;
+   * only when moving backwards in time, a binary search is used.
+   * </p>
+   * 
+   * @param aTimeValue
+   *          the time value to move the cursor to.
+   * @return the new position of the sample cursor, >= 0.
+   * @see #findSampleIndex(long[], long)
+   */
+  private int seekSampleIndex( final long aTimeValue )
+  {
+    final long[] timestamps = this.dataSet.getTimestamps();
+
+    int k = this.sampleCursor;
+    if ( ( k > timestamps.length ) || ( ( k > 0 ) && ( timestamps[k - 1] >= aTimeValue ) ) )
+    {
+      k = findSampleIndex( timestamps, aTimeValue );
+    }
+    else
+    {
+      while ( ( k < timestamps.length ) && ( timestamps[k] < aTimeValue ) )
+      {
+        k++;
+      }
+    }
+
+    this.sampleCursor = k;
+    return k;
+  }
 }
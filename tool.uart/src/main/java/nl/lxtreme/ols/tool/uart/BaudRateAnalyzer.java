@@ -21,20 +21,159 @@
 package nl.lxtreme.ols.tool.uart;
 
 
-import nl.lxtreme.ols.util.analysis.*;
-
-
 /**
- * Utility for statistical baudrate analysis. Creates a histogram that allows to
- * evaluate each detected bit length. The bit length with the highest occurrence
- * is used for baudrate calculation.
+ * Utility for statistical baudrate analysis.
+ * <p>
+ * In a single pass over the data, the widths of all pulses of each data line
+ * are collected in a bounded histogram whose bins grow with the pulse width.
+ * The bit length is estimated from the narrowest cluster of pulse widths that
+ * is not an outlier (such as a glitch), and refined by fitting all pulse widths
+ * that are a small multiple of this bit length. The fraction of pulses that
+ * fit is reported as confidence.
+ * </p>
  */
 public final class BaudRateAnalyzer
 {
+  // INNER TYPES
+
+  /**
+   * Provides a histogram of pulse widths. Widths below 64 samples each have
+   * their own bin, larger widths share a bin with widths that differ at most
+   * 1/32th from it.
+   */
+  static final class PulseWidthHistogram
+  {
+    // VARIABLES
+
+    final int[] counts;
+    final long[] sums;
+    long total;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new PulseWidthHistogram instance.
+     */
+    PulseWidthHistogram()
+    {
+      this.counts = new int[BIN_COUNT];
+      this.sums = new long[BIN_COUNT];
+    }
+
+    // METHODS
+
+    /**
+     * Returns the bin for the given pulse width.
+     * 
+     * @param aWidth
+     *          the pulse width, &gt; 0.
+     * @return a bin index, &gt;= 0 && &lt; {@link #BIN_COUNT}.
+     */
+    static int getBin( final int aWidth )
+    {
+      final int octave = 31 - Integer.numberOfLeadingZeros( aWidth );
+      if ( octave < BIN_BITS )
+      {
+        return aWidth;
+      }
+      return ( ( octave - BIN_BITS + 1 ) << BIN_BITS ) + ( ( aWidth >>> ( octave - BIN_BITS ) ) & BIN_MASK );
+    }
+
+    /**
+     * Returns the smallest pulse width that is put in the given bin.
+     * 
+     * @param aBin
+     *          the bin index, &gt;= 0 && &lt; {@link #BIN_COUNT}.
+     * @return a pulse width.
+     */
+    static long getLowerWidth( final int aBin )
+    {
+      if ( aBin < ( 2 << BIN_BITS ) )
+      {
+        return aBin;
+      }
+      final int shift = ( aBin >>> BIN_BITS ) - 1;
+      return ( ( long )( ( 1 << BIN_BITS ) + ( aBin & BIN_MASK ) ) ) << shift;
+    }
+
+    /**
+     * Adds a single pulse width to this histogram.
+     * 
+     * @param aWidth
+     *          the pulse width to add, in samples.
+     */
+    void add( final long aWidth )
+    {
+      if ( aWidth > 0L )
+      {
+        final int bin = getBin( ( int )Math.min( aWidth, Integer.MAX_VALUE ) );
+        this.counts[bin]++;
+        this.sums[bin] += aWidth;
+        this.total++;
+      }
+    }
+
+    /**
+     * Adds all pulse widths of the given histogram to this histogram.
+     * 
+     * @param aHistogram
+     *          the histogram to add, cannot be <code>null</code>.
+     */
+    void addAll( final PulseWidthHistogram aHistogram )
+    {
+      for ( int i = 0; i < BIN_COUNT; i++ )
+      {
+        this.counts[i] += aHistogram.counts[i];
+        this.sums[i] += aHistogram.sums[i];
+      }
+      this.total += aHistogram.total;
+    }
+  }
+
+  /**
+   * Represents an estimated bit length.
+   */
+  static final class Estimate
+  {
+    // VARIABLES
+
+    final double bitLength;
+    final double confidence;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Estimate instance.
+     */
+    Estimate( final double aBitLength, final double aConfidence )
+    {
+      this.bitLength = aBitLength;
+      this.confidence = aConfidence;
+    }
+  }
+
+  // CONSTANTS
+
+  static final int BIN_BITS = 5;
+  static final int BIN_MASK = ( 1 << BIN_BITS ) - 1;
+  static final int BIN_COUNT = ( 32 - BIN_BITS ) << BIN_BITS;
+
+  /** Clusters with less than 1/50th of all pulses are considered outliers. */
+  private static final int OUTLIER_RATIO = 50;
+  /** Clusters with less than 1/4th of the largest cluster are outliers. */
+  private static final int OUTLIER_CLUSTER_RATIO = 4;
+  /** The longest pulse within a frame, in bits; longer pulses are idle time. */
+  private static final int MAX_BITS_PER_PULSE = 12;
+  /** The maximal deviation of a pulse width from a multiple of a bit length. */
+  private static final double TOLERANCE = 0.25;
+  /** The number of times an estimate is refined. */
+  private static final int REFINEMENTS = 2;
+
   // VARIABLES
 
   private final double sampleRate;
-  private final Frequency<Integer> statData;
+  private final Estimate estimate;
+  private final Estimate[] lineEstimates;
 
   // CONSTRUCTORS
 
@@ -49,12 +188,12 @@ public final class BaudRateAnalyzer
   public BaudRateAnalyzer( final int aSampleRate, final int aFixedBaudRate )
   {
     this.sampleRate = aSampleRate;
-    this.statData = new Frequency<Integer>();
 
-    // We already know our baudrate, so lets put a single value for the
-    // corresponding bitlength in our frequency mapping to let it be used...
+    // We already know our baudrate, so use the corresponding bitlength for all
+    // lines...
     final int bitLength = ( int )Math.round( aSampleRate / ( double )aFixedBaudRate );
-    this.statData.addValue( Integer.valueOf( bitLength ) );
+    this.estimate = new Estimate( bitLength, 1.0 );
+    this.lineEstimates = null;
   }
 
   /**
@@ -67,30 +206,59 @@ public final class BaudRateAnalyzer
    * @param aTimestamps
    *          the timestamps to use when determining the bit lengths;
    * @param aMask
-   *          the value mask to isolate the data.
+   *          the value mask to isolate the data lines, each line is analyzed
+   *          individually, while the overall results assume all lines to use
+   *          the same baudrate.
    */
   public BaudRateAnalyzer( final int aSampleRate, final int[] aValues, final long[] aTimestamps, final int aMask )
   {
     this.sampleRate = aSampleRate;
-    this.statData = new Frequency<Integer>();
 
-    long lastTransition = 0;
-    int lastBitValue = aValues[0] & aMask;
+    final PulseWidthHistogram[] histograms = new PulseWidthHistogram[32];
+    final long[] lastTransitions = new long[32];
+    for ( int i = 0; i < 32; i++ )
+    {
+      if ( ( aMask & ( 1 << i ) ) != 0 )
+      {
+        histograms[i] = new PulseWidthHistogram();
+      }
+      // The first transition of a line does not end a complete pulse...
+      lastTransitions[i] = -1L;
+    }
 
-    for ( int i = 0; i < aValues.length; i++ )
+    int lastValue = ( aValues.length > 0 ) ? aValues[0] : 0;
+    for ( int i = 1; i < aValues.length; i++ )
     {
-      final int bitValue = aValues[i] & aMask;
+      final int value = aValues[i];
 
-      if ( lastBitValue != bitValue )
+      int changed = ( lastValue ^ value ) & aMask;
+      while ( changed != 0 )
       {
-        final int bitLength = ( int )( aTimestamps[i] - lastTransition );
-        this.statData.addValue( Integer.valueOf( bitLength ) );
+        final int line = Integer.numberOfTrailingZeros( changed );
+        changed &= ( changed - 1 );
 
-        lastTransition = aTimestamps[i];
+        if ( lastTransitions[line] >= 0L )
+        {
+          histograms[line].add( aTimestamps[i] - lastTransitions[line] );
+        }
+        lastTransitions[line] = aTimestamps[i];
       }
 
-      lastBitValue = aValues[i] & aMask;
+      lastValue = value;
+    }
+
+    final PulseWidthHistogram allLines = new PulseWidthHistogram();
+
+    this.lineEstimates = new Estimate[32];
+    for ( int i = 0; i < 32; i++ )
+    {
+      if ( histograms[i] != null )
+      {
+        this.lineEstimates[i] = estimate( histograms[i] );
+        allLines.addAll( histograms[i] );
+      }
     }
+    this.estimate = estimate( allLines );
   }
 
   // METHODS
@@ -104,7 +272,187 @@ public final class BaudRateAnalyzer
    */
   public int getBaudRate()
   {
-    final int br = getBaudRateExact();
+    return getCommonBaudRate( getBaudRateExact() );
+  }
+
+  /**
+   * Returns the "normalized" baudrate of a single data line.
+   * 
+   * @param aChannelIdx
+   *          the channel index of the data line.
+   * @return a baudrate, >= 150 if a "common" baudrate could be determined, or
+   *         the exact baudrate if no "common" baudrate could be determined.
+   * @see #getBaudRate()
+   */
+  public int getBaudRate( final int aChannelIdx )
+  {
+    return getCommonBaudRate( getBaudRateExact( aChannelIdx ) );
+  }
+
+  /**
+   * Returns the calculated baudrate, as exact value.
+   * 
+   * @return a baudrate, calculated by dividing the sample rate by the estimated
+   *         bit length. Returns -1 if no bit length could be determined.
+   */
+  public int getBaudRateExact()
+  {
+    return getBaudRateExact( this.estimate );
+  }
+
+  /**
+   * Returns the calculated baudrate of a single data line, as exact value.
+   * 
+   * @param aChannelIdx
+   *          the channel index of the data line.
+   * @return a baudrate, or -1 if no bit length could be determined.
+   * @see #getBaudRateExact()
+   */
+  public int getBaudRateExact( final int aChannelIdx )
+  {
+    return getBaudRateExact( getEstimate( aChannelIdx ) );
+  }
+
+  /**
+   * Returns the estimated bit length, rounded to whole samples.
+   * 
+   * @return the best bit length, > 0 or -1 if there is no best bit length.
+   */
+  public int getBestBitLength()
+  {
+    return getBestBitLength( this.estimate );
+  }
+
+  /**
+   * Returns the estimated bit length of a single data line, rounded to whole
+   * samples.
+   * 
+   * @param aChannelIdx
+   *          the channel index of the data line.
+   * @return the best bit length, > 0 or -1 if there is no best bit length.
+   */
+  public int getBestBitLength( final int aChannelIdx )
+  {
+    return getBestBitLength( getEstimate( aChannelIdx ) );
+  }
+
+  /**
+   * Returns the confidence of the estimated bit length.
+   * 
+   * @return the fraction of pulses (excluding idle time) whose width is a
+   *         multiple of the estimated bit length, &gt;= 0.0 && &lt;= 1.0.
+   */
+  public double getConfidence()
+  {
+    return getConfidence( this.estimate );
+  }
+
+  /**
+   * Returns the confidence of the estimated bit length of a single data line.
+   * 
+   * @param aChannelIdx
+   *          the channel index of the data line.
+   * @return a confidence, &gt;= 0.0 && &lt;= 1.0.
+   * @see #getConfidence()
+   */
+  public double getConfidence( final int aChannelIdx )
+  {
+    return getConfidence( getEstimate( aChannelIdx ) );
+  }
+
+  /**
+   * Estimates the bit length from the given histogram.
+   * 
+   * @param aHistogram
+   *          the histogram of pulse widths to use, cannot be <code>null</code>.
+   * @return the estimated bit length, or <code>null</code> if no bit length
+   *         could be determined.
+   */
+  static Estimate estimate( final PulseWidthHistogram aHistogram )
+  {
+    final int[] counts = aHistogram.counts;
+    final long[] sums = aHistogram.sums;
+
+    // A cluster contains all pulse widths from its lower bound up to 1.5 times
+    // that bound, which separates single-bit pulses from multi-bit pulses...
+    final long[] clusterCounts = new long[BIN_COUNT];
+    final long[] clusterSums = new long[BIN_COUNT];
+
+    long largestCluster = 0L;
+    for ( int bin = 0; bin < BIN_COUNT; bin++ )
+    {
+      if ( counts[bin] == 0 )
+      {
+        continue;
+      }
+
+      final long upperWidth = ( PulseWidthHistogram.getLowerWidth( bin ) * 3 ) / 2;
+      for ( int i = bin; ( i < BIN_COUNT ) && ( PulseWidthHistogram.getLowerWidth( i ) < upperWidth ); i++ )
+      {
+        clusterCounts[bin] += counts[i];
+        clusterSums[bin] += sums[i];
+      }
+
+      largestCluster = Math.max( largestCluster, clusterCounts[bin] );
+    }
+
+    // The narrowest cluster that is not an outlier (such as a glitch) is
+    // presumed to contain the single-bit pulses...
+    final long minCount = Math.max( Math.max( 1L, aHistogram.total / OUTLIER_RATIO ), largestCluster
+        / OUTLIER_CLUSTER_RATIO );
+
+    Estimate result = null;
+    for ( int bin = 0; ( result == null ) && ( bin < BIN_COUNT ); bin++ )
+    {
+      if ( ( counts[bin] > 0 ) && ( clusterCounts[bin] >= minCount ) )
+      {
+        result = new Estimate( clusterSums[bin] / ( double )clusterCounts[bin], 0.0 );
+      }
+    }
+
+    for ( int i = 0; ( result != null ) && ( i < REFINEMENTS ); i++ )
+    {
+      result = refine( aHistogram, result.bitLength );
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the exact baudrate of the given estimate, or -1.
+   */
+  private int getBaudRateExact( final Estimate aEstimate )
+  {
+    final int bestBitLength = getBestBitLength( aEstimate );
+    if ( bestBitLength < 0 )
+    {
+      return -1;
+    }
+    return ( int )( this.sampleRate / aEstimate.bitLength );
+  }
+
+  /**
+   * @return the bit length of the given estimate, or -1.
+   */
+  private int getBestBitLength( final Estimate aEstimate )
+  {
+    if ( aEstimate == null )
+    {
+      return -1;
+    }
+    final int bitLength = ( int )Math.round( aEstimate.bitLength );
+    return ( bitLength > 0 ) ? bitLength : -1;
+  }
+
+  /**
+   * Finds the common baudrate that belongs to the given exact baudrate.
+   * 
+   * @param aBaudRate
+   *          the exact baudrate.
+   * @return the common baudrate, or the given baudrate if none could be found.
+   */
+  private int getCommonBaudRate( final int aBaudRate )
+  {
     final int[] commonBaudrates = AsyncSerialDataDecoder.COMMON_BAUDRATES;
 
     int baudRateRounded = -1;
@@ -112,7 +460,7 @@ public final class BaudRateAnalyzer
     for ( int idx = 1; ( baudRateRounded < 0 ) && ( idx < commonBaudrates.length ); idx++ )
     {
       int delta = ( commonBaudrates[idx] - commonBaudrates[idx - 1] ) / 2;
-      if ( ( br >= ( commonBaudrates[idx] - delta ) ) && ( br <= ( commonBaudrates[idx] + delta ) ) )
+      if ( ( aBaudRate >= ( commonBaudrates[idx] - delta ) ) && ( aBaudRate <= ( commonBaudrates[idx] + delta ) ) )
       {
         baudRateRounded = commonBaudrates[idx];
       }
@@ -120,37 +468,81 @@ public final class BaudRateAnalyzer
 
     if ( baudRateRounded < 0 )
     {
-      return br;
+      return aBaudRate;
     }
 
     return baudRateRounded;
   }
 
   /**
-   * Returns the calculated baudrate, as exact value.
-   * 
-   * @return a baudrate, calculated by dividing the sample rate by the "best"
-   *         bit length, as returned by {@link #getBestBitLength()}. Returns -1
-   *         if no best bit length could be determined.
+   * @return the confidence of the given estimate, or 0.0.
    */
-  public int getBaudRateExact()
+  private double getConfidence( final Estimate aEstimate )
   {
-    final int bestBitLength = getBestBitLength();
-    if ( bestBitLength < 0 )
+    return ( aEstimate == null ) ? 0.0 : aEstimate.confidence;
+  }
+
+  /**
+   * @return the estimate of the given data line, can be <code>null</code>.
+   */
+  private Estimate getEstimate( final int aChannelIdx )
+  {
+    if ( this.lineEstimates == null )
     {
-      return -1;
+      return this.estimate;
     }
-    return ( int )( this.sampleRate / bestBitLength );
+    return this.lineEstimates[aChannelIdx];
   }
 
   /**
-   * Returns the highest ranked bit length (= with the highest count).
+   * Refines the given bit length by fitting all pulse widths that are a small
+   * multiple of it.
    * 
-   * @return the best bit length, >= 0 or -1 if there is not best bit length.
+   * @param aHistogram
+   *          the histogram of pulse widths to use;
+   * @param aBitLength
+   *          the bit length to refine.
+   * @return the refined bit length, never <code>null</code>.
    */
-  public int getBestBitLength()
+  private static Estimate refine( final PulseWidthHistogram aHistogram, final double aBitLength )
   {
-    final Integer highestRanked = this.statData.getHighestRanked();
-    return ( highestRanked == null ) ? -1 : highestRanked.intValue();
+    final int[] counts = aHistogram.counts;
+    final long[] sums = aHistogram.sums;
+
+    long considered = 0L;
+    long matched = 0L;
+    long widthSum = 0L;
+    long bitSum = 0L;
+
+    for ( int bin = 0; bin < BIN_COUNT; bin++ )
+    {
+      final int count = counts[bin];
+      if ( count == 0 )
+      {
+        continue;
+      }
+
+      final double bits = sums[bin] / ( count * aBitLength );
+      final long multiple = Math.round( bits );
+      if ( multiple > MAX_BITS_PER_PULSE )
+      {
+        // Idle time between frames tells nothing about the bit length...
+        continue;
+      }
+
+      considered += count;
+      if ( ( multiple > 0L ) && ( Math.abs( bits - multiple ) <= TOLERANCE ) )
+      {
+        matched += count;
+        widthSum += sums[bin];
+        bitSum += multiple * count;
+      }
+    }
+
+    if ( bitSum == 0L )
+    {
+      return new Estimate( aBitLength, 0.0 );
+    }
+    return new Estimate( widthSum / ( double )bitSum, matched / ( double )considered );
   }
 }
@@ -23,12 +23,15 @@ package nl.lxtreme.ols.tool.uart.impl;
 
 import static nl.lxtreme.ols.util.NumberUtils.*;
 
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
 import nl.lxtreme.ols.tool.uart.*;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
@@ -39,10 +42,237 @@ import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
 
 
 /**
+ * Decodes the data and control lines of a UART.
+ * <p>
+ * All lines are independent of each other, so each line is decoded
+ * concurrently into its own data set. These are merged, in time order, into
+ * the final result afterwards.
+ * </p>
+ * 
  * @author jajans
  */
 public class UARTAnalyserTask implements ToolTask<UARTDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Reports the progress of a single line, which is combined with the progress
+   * of all other lines.
+   */
+  final class LineProgressListener implements ToolProgressListener
+  {
+    // VARIABLES
+
+    private final int line;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link LineProgressListener} instance.
+     * 
+     * @param aLine
+     *          the index of the line to report the progress for, >= 0.
+     */
+    LineProgressListener( final int aLine )
+    {
+      this.line = aLine;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      updateLineProgress( this.line, aPercentage );
+    }
+  }
+
+  /**
+   * Represents the state of a serial data line decoder between two samples.
+   */
+  static final class UARTDecodeState
+  {
+    // VARIABLES
+
+    long time;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new UARTDecodeState instance.
+     * 
+     * @param aTime
+     *          the time at which to continue searching for start bits.
+     */
+    UARTDecodeState( final long aTime )
+    {
+      this.time = aTime;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof UARTDecodeState ) )
+      {
+        return false;
+      }
+
+      final UARTDecodeState other = ( UARTDecodeState )aObject;
+      return this.time == other.time;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      return ( int )( this.time ^ ( this.time >>> 32 ) );
+    }
+  }
+
+  /**
+   * Provides the decoding results of a single segment of a data line.
+   */
+  static final class UARTSegment
+  {
+    // VARIABLES
+
+    final UARTDataSet dataSet;
+    final List<SampleDataAnnotation> annotations;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new UARTSegment instance.
+     * 
+     * @param aDataSet
+     *          the data set to decode the segment into, cannot be
+     *          <code>null</code>.
+     */
+    UARTSegment( final UARTDataSet aDataSet )
+    {
+      this.dataSet = aDataSet;
+      this.annotations = new ArrayList<SampleDataAnnotation>();
+    }
+  }
+
+  /**
+   * Decodes a single segment of a serial data line, where segments start at
+   * the first start bit after a long mark.
+   */
+  final class UARTSegmentDecoder implements SegmentDecoder<UARTDecodeState, UARTSegment>
+  {
+    // VARIABLES
+
+    private final SerialConfiguration configuration;
+    private final AcquisitionResult data;
+    private final int channelIndex;
+    private final int eventType;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new UARTSegmentDecoder instance.
+     * 
+     * @param aConfiguration
+     *          the serial configuration of the data line;
+     * @param aChannelIndex
+     *          the channel index of the data line;
+     * @param aEventType
+     *          type of the data (rx or tx).
+     */
+    UARTSegmentDecoder( final SerialConfiguration aConfiguration, final int aChannelIndex, final int aEventType )
+    {
+      this.configuration = aConfiguration;
+      this.data = UARTAnalyserTask.this.context.getData();
+      this.channelIndex = aChannelIndex;
+      this.eventType = aEventType;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UARTDecodeState createBoundaryState( final int aSampleIdx )
+    {
+      return new UARTDecodeState( this.data.getTimestamps()[aSampleIdx] );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UARTSegment decode( final int aStartIdx, final int aEndIdx, final UARTDecodeState aState )
+    {
+      final UARTSegment result = new UARTSegment( new UARTDataSet( aStartIdx, aEndIdx, this.data ) );
+
+      // Each segment needs its own decoder, as decoders keep track of their
+      // position in the data...
+      final AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( this.configuration,
+          UARTAnalyserTask.this.context );
+      decoder.setCallback( new SerialDecoderCallback()
+      {
+        @Override
+        public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
+        {
+          final int sampleIdx = UARTSegmentDecoder.this.data.getSampleIndex( aTime );
+          final int eventType = ( UARTSegmentDecoder.this.eventType == UARTData.UART_TYPE_RXDATA )
+              ? UARTData.UART_TYPE_RXEVENT : UARTData.UART_TYPE_TXEVENT;
+
+          result.dataSet.reportError( aType, aChannelIdx, sampleIdx, eventType );
+        }
+
+        @Override
+        public void onEvent( final int aChannelIdx, final String aEvent, final long aStartTime, final long aEndTime )
+        {
+          // Nop
+        }
+
+        @Override
+        public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
+        {
+          final AcquisitionResult data = UARTSegmentDecoder.this.data;
+          final int startSampleIdx = Math.max( data.getSampleIndex( aStartTime ), 0 );
+          final int endSampleIdx = Math.min( data.getSampleIndex( aEndTime ), data.getTimestamps().length - 1 );
+
+          result.dataSet.reportData( aChannelIdx, startSampleIdx, endSampleIdx, aSymbol,
+              UARTSegmentDecoder.this.eventType );
+
+          result.annotations.add( createSymbolAnnotation( aChannelIdx, aSymbol, aStartTime, aEndTime ) );
+        }
+      } );
+
+      aState.time = decoder.decodeDataLine( this.channelIndex, aState.time, aEndIdx );
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findBoundary( final int aStartIdx, final int aEndIdx )
+    {
+      final AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( this.configuration,
+          UARTAnalyserTask.this.context );
+      return decoder.findIdleBoundary( this.channelIndex, aStartIdx, aEndIdx );
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( UARTAnalyserTask.class.getName() );
@@ -74,6 +304,14 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
   private int bitCount;
   private int baudRate;
 
+  private int[] lineProgress;
+  private int lastProgress;
+
+  private int threadCount;
+  private int minSegmentSize;
+  private int segmentCount;
+  private int redecodeCount;
+
   // CONSTRUCTORS
 
   /**
@@ -96,6 +334,9 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     this.dsrIndex = -1;
     this.dtrIndex = -1;
     this.baudRate = -1;
+
+    this.threadCount = Runtime.getRuntime().availableProcessors();
+    this.minSegmentSize = ParallelSegmentDecoder.DEFAULT_MIN_SEGMENT_SIZE;
   }
 
   // METHODS
@@ -110,10 +351,9 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
 
     /*
      * Start decode from trigger or if no trigger is available from the first
-     * falling edge. The decoder works with two independant decoder runs. First
-     * for RxD and then for TxD, after this CTS, RTS, etc. is detected if
-     * enabled. After decoding all the decoded data are unsortet before the data
-     * is displayed it must be sortet by time.
+     * falling edge. Each of the RxD, TxD, CTS, RTS, etc. lines is decoded
+     * independently, if enabled. The results of all lines are merged by time
+     * afterwards.
      */
 
     final int[] values = data.getValues();
@@ -143,46 +383,61 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       throw new IllegalStateException( "No valid data range found for UART analysis!" );
     }
 
-    final UARTDataSet decodedData = new UARTDataSet( startOfDecode, endOfDecode, data );
+    final List<Callable<UARTDataSet>> lineDecoders = new ArrayList<Callable<UARTDataSet>>();
+
+    // determine the baudrate of all data lines in a single pass...
+    final BaudRateAnalyzer baudRateAnalyzer = createBaudRateAnalyzer( data, getDataBitMask() );
 
     // decode RxD/TxD data lines...
     if ( this.rxdIndex >= 0 )
     {
-      prepareAndDecodeData( decodedData, this.rxdIndex, UARTData.UART_TYPE_RXDATA, UARTDataSet.UART_RXD );
+      lineDecoders.add( prepareDataDecoder( startOfDecode, endOfDecode, lineDecoders.size(), baudRateAnalyzer,
+          this.rxdIndex, UARTData.UART_TYPE_RXDATA, UARTDataSet.UART_RXD ) );
     }
     if ( this.txdIndex >= 0 )
     {
-      prepareAndDecodeData( decodedData, this.txdIndex, UARTData.UART_TYPE_TXDATA, UARTDataSet.UART_TXD );
+      lineDecoders.add( prepareDataDecoder( startOfDecode, endOfDecode, lineDecoders.size(), baudRateAnalyzer,
+          this.txdIndex, UARTData.UART_TYPE_TXDATA, UARTDataSet.UART_TXD ) );
     }
 
     // decode control lines...
     if ( this.ctsIndex >= 0 )
     {
-      prepareAndDecodeControl( decodedData, this.ctsIndex, UARTDataSet.UART_CTS );
+      lineDecoders.add( prepareControlDecoder( startOfDecode, endOfDecode, lineDecoders.size(), this.ctsIndex,
+          UARTDataSet.UART_CTS ) );
     }
     if ( this.rtsIndex >= 0 )
     {
-      prepareAndDecodeControl( decodedData, this.rtsIndex, UARTDataSet.UART_RTS );
+      lineDecoders.add( prepareControlDecoder( startOfDecode, endOfDecode, lineDecoders.size(), this.rtsIndex,
+          UARTDataSet.UART_RTS ) );
     }
     if ( this.dcdIndex >= 0 )
     {
-      prepareAndDecodeControl( decodedData, this.dcdIndex, UARTDataSet.UART_DCD );
+      lineDecoders.add( prepareControlDecoder( startOfDecode, endOfDecode, lineDecoders.size(), this.dcdIndex,
+          UARTDataSet.UART_DCD ) );
     }
     if ( this.riIndex >= 0 )
     {
-      prepareAndDecodeControl( decodedData, this.riIndex, UARTDataSet.UART_RI );
+      lineDecoders.add( prepareControlDecoder( startOfDecode, endOfDecode, lineDecoders.size(), this.riIndex,
+          UARTDataSet.UART_RI ) );
     }
     if ( this.dsrIndex >= 0 )
     {
-      prepareAndDecodeControl( decodedData, this.dsrIndex, UARTDataSet.UART_DSR );
+      lineDecoders.add( prepareControlDecoder( startOfDecode, endOfDecode, lineDecoders.size(), this.dsrIndex,
+          UARTDataSet.UART_DSR ) );
     }
     if ( this.dtrIndex >= 0 )
     {
-      prepareAndDecodeControl( decodedData, this.dtrIndex, UARTDataSet.UART_DTR );
+      lineDecoders.add( prepareControlDecoder( startOfDecode, endOfDecode, lineDecoders.size(), this.dtrIndex,
+          UARTDataSet.UART_DTR ) );
     }
 
-    // sort the results by time
-    decodedData.sort();
+    this.lineProgress = new int[lineDecoders.size()];
+    this.lastProgress = -1;
+
+    // merge the results of all lines in time order...
+    final UARTDataSet decodedData = new UARTDataSet( startOfDecode, endOfDecode, data );
+    decodedData.merge( decodeLines( lineDecoders ) );
 
     return decodedData;
   }
@@ -333,22 +588,60 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
   }
 
   /**
-   * Emits a new symbol annotation to the interested listener(s).
+   * Creates a new symbol annotation.
    * 
    * @param aChannelIndex
    *          the channel index on which the symbol was found;
    * @param aSymbol
    *          the symbol itself;
-   * @param aStartSampleIdx
-   *          the start sample index of the symbol;
-   * @param aEndSampleIdx
-   *          the end sample index of the symbol.
+   * @param aStartTimestamp
+   *          the start timestamp of the symbol;
+   * @param aEndTimestamp
+   *          the end timestamp of the symbol.
+   * @return a new annotation, never <code>null</code>.
+   */
+  static SampleDataAnnotation createSymbolAnnotation( final int aChannelIndex, final int aSymbol,
+      final long aStartTimestamp, final long aEndTimestamp )
+  {
+    return new SampleDataAnnotation( aChannelIndex, aStartTimestamp, aEndTimestamp, String.format( "0x%1$X (%1$c)",
+        Integer.valueOf( aSymbol ) ) );
+  }
+
+  /**
+   * Returns the number of segments that were decoded once more during the
+   * last decoding of a data line.
+   * 
+   * @return the number of re-decoded segments, &gt;= 0.
+   */
+  int getRedecodeCount()
+  {
+    return this.redecodeCount;
+  }
+
+  /**
+   * Returns the number of segments the last decoded data line was split into.
+   * 
+   * @return the number of segments, &gt;= 0.
    */
-  private void addSymbolAnnotation( final int aChannelIndex, final int aSymbol, final long aStartTimestamp,
-      final long aEndTimestamp )
+  int getSegmentCount()
   {
-    this.annotationListener.onAnnotation( new SampleDataAnnotation( aChannelIndex, aStartTimestamp, aEndTimestamp,
-        String.format( "0x%1$X (%1$c)", Integer.valueOf( aSymbol ) ) ) );
+    return this.segmentCount;
+  }
+
+  /**
+   * Sets how each data line is split into segments for decoding them in
+   * parallel.
+   * 
+   * @param aThreadCount
+   *          the maximum number of threads to use per line, &lt; 2 to decode
+   *          sequentially;
+   * @param aMinSegmentSize
+   *          the minimal number of samples in a single segment, &gt; 0.
+   */
+  void setSegmentation( final int aThreadCount, final int aMinSegmentSize )
+  {
+    this.threadCount = aThreadCount;
+    this.minSegmentSize = aMinSegmentSize;
   }
 
   /**
@@ -358,7 +651,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    * @param aData
    *          the acquisition results to use;
    * @param aMask
-   *          the bit mask of the data to use.
+   *          the bit mask of the data lines to use.
    * @return a {@link BaudRateAnalyzer} instance, never <code>null</code>.
    */
   private BaudRateAnalyzer createBaudRateAnalyzer( final AcquisitionResult aData, final int aMask )
@@ -380,9 +673,12 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    * @param aChannelIndex
    *          the channel index of the control-line to decode;
    * @param aName
-   *          the name of the control line to decode.
+   *          the name of the control line to decode;
+   * @param aProgressListener
+   *          the progress listener to report the progress of this line to.
    */
-  private void decodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aName )
+  private void decodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aName,
+      final ToolProgressListener aProgressListener )
   {
     final AcquisitionResult data = this.context.getData();
 
@@ -397,7 +693,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     final int endSampleIdx = aDataSet.getEndOfDecode();
 
     final int[] values = data.getValues();
-    this.progressListener.setProgress( 0 );
+    aProgressListener.setProgress( 0 );
 
     int oldValue = values[startSampleIdx] & mask;
     for ( int i = startSampleIdx + 1; i < endSampleIdx; i++ )
@@ -416,28 +712,39 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       oldValue = value;
 
       // update progress
-      this.progressListener.setProgress( getPercentage( i, startSampleIdx, endSampleIdx ) );
+      aProgressListener.setProgress( getPercentage( i, startSampleIdx, endSampleIdx ) );
     }
+
+    aProgressListener.setProgress( 100 );
   }
 
   /**
    * @param aDataSet
    *          the data set to add the decoded data to;
+   * @param aBaudRateAnalyzer
+   *          the baud rate analyzer of the data lines;
    * @param aChannelIndex
    *          the channel index to decode;
    * @param aType
-   *          type of the data (rx or tx)
+   *          type of the data (rx or tx);
+   * @param aProgressListener
+   *          the progress listener to report the progress of this line to.
+   * @throws Exception
+   *           in case decoding the line failed, or in case the decoding is
+   *           interrupted.
    */
-  private void decodeData( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType )
+  private void decodeData( final UARTDataSet aDataSet, final BaudRateAnalyzer aBaudRateAnalyzer,
+      final int aChannelIndex, final int aEventType, final ToolProgressListener aProgressListener ) throws Exception
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int mask = ( 1 << aChannelIndex );
-    final BaudRateAnalyzer baudrateAnalyzer = createBaudRateAnalyzer( data, mask );
-
-    final int bitLength = baudrateAnalyzer.getBestBitLength();
+    final int bitLength = aBaudRateAnalyzer.getBestBitLength( aChannelIndex );
 
-    LOG.log( Level.FINE, "Baudrate = {0}bps", Integer.valueOf( bitLength ) );
+    if ( LOG.isLoggable( Level.FINE ) )
+    {
+      LOG.log( Level.FINE, "Bitlength = {0} samples (confidence {1}%)", new Object[] { Integer.valueOf( bitLength ),
+          Long.valueOf( Math.round( aBaudRateAnalyzer.getConfidence( aChannelIndex ) * 100.0 ) ) } );
+    }
 
     if ( bitLength <= 0 )
     {
@@ -450,8 +757,8 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       // baudrate...
       aDataSet.setSampledBitLength( bitLength );
 
-      aDataSet.setBaudRateExact( baudrateAnalyzer.getBaudRateExact() );
-      aDataSet.setBaudRate( baudrateAnalyzer.getBaudRate() );
+      aDataSet.setBaudRateExact( aBaudRateAnalyzer.getBaudRateExact( aChannelIndex ) );
+      aDataSet.setBaudRate( aBaudRateAnalyzer.getBaudRate( aChannelIndex ) );
 
       if ( LOG.isLoggable( Level.FINE ) )
       {
@@ -459,41 +766,86 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
             + aDataSet.getBaudRate() );
       }
 
-      SerialConfiguration config = new SerialConfiguration( baudrateAnalyzer.getBaudRateExact(), this.bitCount,
-          this.stopBits, this.parity, this.inverted, this.inversed );
+      final SerialConfiguration config = new SerialConfiguration( aBaudRateAnalyzer.getBaudRateExact( aChannelIndex ),
+          this.bitCount, this.stopBits, this.parity, this.inverted, this.inversed );
 
-      AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( config, this.context );
-      decoder.setProgressListener( this.progressListener );
-      decoder.setCallback( new SerialDecoderCallback()
-      {
-        @Override
-        public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
-        {
-          final int sampleIdx = data.getSampleIndex( aTime );
-          final int eventType = ( aEventType == UARTData.UART_TYPE_RXDATA ) ? UARTData.UART_TYPE_RXEVENT
-              : UARTData.UART_TYPE_TXEVENT;
+      /*
+       * Each data line is split into segments at the first start bit after a
+       * long mark, which are decoded in parallel for long captures.
+       */
+      final UARTSegmentDecoder decoder = new UARTSegmentDecoder( config, aChannelIndex, aEventType );
+      final ParallelSegmentDecoder<UARTDecodeState, UARTSegment> segmentDecoder;
+      segmentDecoder = new ParallelSegmentDecoder<UARTDecodeState, UARTSegment>( decoder, aProgressListener,
+          this.threadCount, this.minSegmentSize );
 
-          aDataSet.reportError( aType, aChannelIdx, sampleIdx, eventType );
-        }
+      final int startOfDecode = this.context.getStartSampleIndex();
+      final List<UARTSegment> segments = segmentDecoder.decode( startOfDecode, this.context.getEndSampleIndex(),
+          decoder.createBoundaryState( startOfDecode ) );
 
-        @Override
-        public void onEvent( final int aChannelIdx, final String aEvent, final long aStartTime, final long aEndTime )
+      // Lines are decoded concurrently...
+      synchronized ( this.annotationListener )
+      {
+        for ( UARTSegment segment : segments )
         {
-          // Nop
+          aDataSet.addAll( segment.dataSet );
+          for ( SampleDataAnnotation annotation : segment.annotations )
+          {
+            this.annotationListener.onAnnotation( annotation );
+          }
         }
+      }
 
-        @Override
-        public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
-        {
-          final int startSampleIdx = Math.max( data.getSampleIndex( aStartTime ), 0 );
-          final int endSampleIdx = Math.min( data.getSampleIndex( aEndTime ), data.getTimestamps().length - 1 );
+      this.segmentCount = segmentDecoder.getSegmentCount();
+      this.redecodeCount = segmentDecoder.getRedecodeCount();
+    }
+  }
 
-          aDataSet.reportData( aChannelIndex, startSampleIdx, endSampleIdx, aSymbol, aEventType );
+  /**
+   * Decodes all given lines, concurrently if there is more than one line.
+   * 
+   * @param aLineDecoders
+   *          the decoders of all lines, cannot be <code>null</code>.
+   * @return the decoded data sets of all lines, in the same order as their
+   *         decoders.
+   * @throws Exception
+   *           in case decoding one of the lines failed, or in case the
+   *           decoding is interrupted.
+   */
+  private List<UARTDataSet> decodeLines( final List<Callable<UARTDataSet>> aLineDecoders ) throws Exception
+  {
+    final List<UARTDataSet> result = new ArrayList<UARTDataSet>( aLineDecoders.size() );
 
-          addSymbolAnnotation( aChannelIndex, aSymbol, aStartTime, aEndTime );
-        }
-      } );
-      decoder.decodeDataLine( aChannelIndex );
+    final int threadCount = Math.min( aLineDecoders.size(), Runtime.getRuntime().availableProcessors() );
+    if ( threadCount < 2 )
+    {
+      for ( Callable<UARTDataSet> lineDecoder : aLineDecoders )
+      {
+        result.add( lineDecoder.call() );
+      }
+      return result;
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool( threadCount );
+    try
+    {
+      for ( Future<UARTDataSet> future : executor.invokeAll( aLineDecoders ) )
+      {
+        result.add( future.get() );
+      }
+      return result;
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof Exception )
+      {
+        throw ( Exception )cause;
+      }
+      throw exception;
+    }
+    finally
+    {
+      executor.shutdownNow();
     }
   }
 
@@ -556,40 +908,100 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     }
     return result;
   }
+  /**
+   * Builds a bit mask that can be applied to the data to filter out only the
+   * data lines (RxD and TxD).
+   * 
+   * @return a bit mask, >= 0.
+   */
+  private int getDataBitMask()
+  {
+    int result = 0x00;
+    if ( this.rxdIndex >= 0 )
+    {
+      result |= ( 1 << this.rxdIndex );
+    }
+    if ( this.txdIndex >= 0 )
+    {
+      result |= ( 1 << this.txdIndex );
+    }
+    return result;
+  }
+
 
   /**
-   * Prepares and decoded the control line indicated by the given channel index.
+   * Prepares the control line indicated by the given channel index, and
+   * returns the decoder for it.
    * 
-   * @param aDataSet
-   *          the dataset to add the decoding results to;
+   * @param aStartOfDecode
+   *          the sample index to start decoding;
+   * @param aEndOfDecode
+   *          the sample index to end decoding;
+   * @param aLine
+   *          the index of the line, used for reporting progress;
    * @param aChannelIndex
    *          the channel index of the channel to decode;
    * @param aDefaultLabel
    *          the default label to use for the decoded channel.
+   * @return the decoder for the control line, never <code>null</code>.
    */
-  private void prepareAndDecodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aDefaultLabel )
+  private Callable<UARTDataSet> prepareControlDecoder( final int aStartOfDecode, final int aEndOfDecode,
+      final int aLine, final int aChannelIndex, final String aDefaultLabel )
   {
     prepareResult( aChannelIndex, aDefaultLabel );
-    decodeControl( aDataSet, aChannelIndex, aDefaultLabel );
+
+    return new Callable<UARTDataSet>()
+    {
+      @Override
+      public UARTDataSet call() throws Exception
+      {
+        final UARTDataSet result = new UARTDataSet( aStartOfDecode, aEndOfDecode, UARTAnalyserTask.this.context
+            .getData() );
+        decodeControl( result, aChannelIndex, aDefaultLabel, new ThrottledProgressListener(
+            new LineProgressListener( aLine ) ) );
+        return result;
+      }
+    };
   }
 
   /**
-   * Prepares and decoded the data line indicated by the given channel index.
+   * Prepares the data line indicated by the given channel index, and returns
+   * the decoder for it.
    * 
-   * @param aDataSet
-   *          the dataset to add the decoding results to;
+   * @param aStartOfDecode
+   *          the sample index to start decoding;
+   * @param aEndOfDecode
+   *          the sample index to end decoding;
+   * @param aLine
+   *          the index of the line, used for reporting progress;
+   * @param aBaudRateAnalyzer
+   *          the baud rate analyzer of the data lines;
    * @param aChannelIndex
    *          the channel index of the channel to decode;
    * @param aEventType
    *          the event type to use for the decoded data;
    * @param aDefaultLabel
    *          the default label to use for the decoded channel.
+   * @return the decoder for the data line, never <code>null</code>.
    */
-  private void prepareAndDecodeData( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType,
+  private Callable<UARTDataSet> prepareDataDecoder( final int aStartOfDecode, final int aEndOfDecode,
+      final int aLine, final BaudRateAnalyzer aBaudRateAnalyzer, final int aChannelIndex, final int aEventType,
       final String aDefaultLabel )
   {
     prepareResult( aChannelIndex, aDefaultLabel );
-    decodeData( aDataSet, aChannelIndex, aEventType );
+
+    return new Callable<UARTDataSet>()
+    {
+      @Override
+      public UARTDataSet call() throws Exception
+      {
+        final UARTDataSet result = new UARTDataSet( aStartOfDecode, aEndOfDecode, UARTAnalyserTask.this.context
+            .getData() );
+        decodeData( result, aBaudRateAnalyzer, aChannelIndex, aEventType, new ThrottledProgressListener(
+            new LineProgressListener( aLine ) ) );
+        return result;
+      }
+    };
   }
 
   /**
@@ -605,4 +1017,31 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     this.annotationListener.clearAnnotations( aChannelIndex );
     this.annotationListener.onAnnotation( new ChannelLabelAnnotation( aChannelIndex, aLabel ) );
   }
+
+  /**
+   * Updates the progress of a single line, and reports the average progress
+   * of all lines to our progress listener if it has changed.
+   * 
+   * @param aLine
+   *          the index of the line to update the progress for;
+   * @param aPercentage
+   *          the progress of the line, >= 0 && <= 100.
+   */
+  private synchronized void updateLineProgress( final int aLine, final int aPercentage )
+  {
+    this.lineProgress[aLine] = aPercentage;
+
+    int sum = 0;
+    for ( int progress : this.lineProgress )
+    {
+      sum += progress;
+    }
+
+    final int percentage = sum / this.lineProgress.length;
+    if ( percentage != this.lastProgress )
+    {
+      this.progressListener.setProgress( percentage );
+      this.lastProgress = percentage;
+    }
+  }
 }
@@ -75,6 +75,22 @@ public final class UARTData extends BaseData<UARTData>
     this.type = aType;
   }
 
+  /**
+   * Creates a copy of the given data with a new index.
+   * 
+   * @param aIndex
+   *          the new index of the data;
+   * @param aData
+   *          the data to copy, cannot be <code>null</code>.
+   */
+  UARTData( final int aIndex, final UARTData aData )
+  {
+    super( aIndex, aData.getChannelIdx(), aData.getStartSampleIndex(), aData.getEndSampleIndex(), aData
+        .getEventName() );
+    this.data = aData.data;
+    this.type = aData.type;
+  }
+
   // METHODS
 
   /**
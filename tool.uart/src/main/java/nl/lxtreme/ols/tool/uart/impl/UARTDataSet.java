@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.tool.uart.impl;
 
 
+import java.util.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
@@ -71,6 +72,23 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
 
   // METHODS
 
+  /**
+   * Appends all data of the given data set to this data set.
+   * 
+   * @param aDataSet
+   *          the data set to append, cannot be <code>null</code>.
+   */
+  void addAll( final UARTDataSet aDataSet )
+  {
+    for ( UARTData data : aDataSet.getData() )
+    {
+      addData( new UARTData( size(), data ) );
+    }
+
+    this.decodedSymbols += aDataSet.decodedSymbols;
+    this.detectedErrors += aDataSet.detectedErrors;
+  }
+
   /**
    * Returns the "normalized" baudrate most people can recognize.
    * 
@@ -133,6 +151,71 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
     return getBitLength() > 15;
   }
 
+  /**
+   * Merges the results of several lines, each decoded into its own data set,
+   * into this data set.
+   * <p>
+   * As the data of each line is already ordered in time, a k-way merge
+   * suffices to order all data in time. Data at the same sample index is kept
+   * in the order of the given lines. The merged data is renumbered, and the
+   * statistics of all lines are combined.
+   * </p>
+   * 
+   * @param aLineResults
+   *          the data sets of the individually decoded lines, cannot be
+   *          <code>null</code>.
+   */
+  void merge( final List<UARTDataSet> aLineResults )
+  {
+    final int lineCount = aLineResults.size();
+
+    final List<List<UARTData>> lines = new ArrayList<List<UARTData>>( lineCount );
+    for ( UARTDataSet lineResult : aLineResults )
+    {
+      lines.add( lineResult.getData() );
+
+      this.decodedSymbols += lineResult.decodedSymbols;
+      this.detectedErrors += lineResult.detectedErrors;
+
+      if ( lineResult.bitLength > 0 )
+      {
+        setSampledBitLength( lineResult.bitLength );
+        setBaudRateExact( lineResult.baudRateExact );
+        setBaudRate( lineResult.baudRate );
+      }
+    }
+
+    // The number of lines is small, so a linear scan over the heads of all
+    // lines is cheaper than maintaining a heap...
+    final int[] positions = new int[lineCount];
+    for ( ;; )
+    {
+      int bestLine = -1;
+      UARTData best = null;
+      for ( int i = 0; i < lineCount; i++ )
+      {
+        final List<UARTData> line = lines.get( i );
+        if ( positions[i] < line.size() )
+        {
+          final UARTData candidate = line.get( positions[i] );
+          if ( ( best == null ) || ( candidate.compareTo( best ) < 0 ) )
+          {
+            bestLine = i;
+            best = candidate;
+          }
+        }
+      }
+
+      if ( best == null )
+      {
+        break;
+      }
+
+      positions[bestLine]++;
+      addData( new UARTData( size(), best ) );
+    }
+  }
+
   /**
    * @param aTime
    * @param aName
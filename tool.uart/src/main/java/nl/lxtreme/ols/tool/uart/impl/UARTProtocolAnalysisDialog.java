@@ -21,15 +21,11 @@
 package nl.lxtreme.ols.tool.uart.impl;
 
 
-import static nl.lxtreme.ols.util.ExportUtils.HtmlExporter.*;
 import static nl.lxtreme.ols.util.swing.SwingComponentUtils.*;
 
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
-import java.text.*;
-import java.util.*;
-import java.util.List;
 import java.util.logging.*;
 
 import javax.swing.*;
@@ -43,11 +39,6 @@ import nl.lxtreme.ols.tool.uart.*;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
 import nl.lxtreme.ols.util.*;
-import nl.lxtreme.ols.util.ExportUtils.CsvExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
-import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
-import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.component.*;
 
@@ -65,6 +56,147 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
 {
   // INNER TYPES
 
+  /**
+   * Provides the table model for the decoded UART data.
+   */
+  static final class UARTDataTableModel extends ToolResultTableModel<UARTData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Color EVENT_COLOR = new Color( 0xe0e0e0 );
+    private static final Color RXTX_EVENT_COLOR = new Color( 0xc0ffc0 );
+    private static final Color ERROR_COLOR = new Color( 0xff8000 );
+
+    // VARIABLES
+
+    private int bitCount = 8;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new UARTDataTableModel instance.
+     */
+    public UARTDataTableModel()
+    {
+      super( "Index", "Time", "RxD Hex", "RxD Bin", "RxD Dec", "RxD ASCII", "TxD Hex", "TxD Bin", "TxD Dec",
+          "TxD ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * Returns whether the given value can be represented as an
+     * ASCII-character.
+     * 
+     * @param aValue
+     *          the value to test.
+     * @return <code>true</code> if the given character can be represented as
+     *         printable ASCII-character, <code>false</code> otherwise.
+     */
+    private static boolean isPrintableCharacter( final int aValue )
+    {
+      return ( aValue >= 32 ) && ( aValue < 255 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRowIndex, final UARTData aRow )
+    {
+      if ( !aRow.isEvent() )
+      {
+        return null;
+      }
+
+      final String eventName = aRow.getEventName();
+      if ( ( eventName != null ) && eventName.endsWith( "_ERR" ) )
+      {
+        return ERROR_COLOR;
+      }
+
+      switch ( aRow.getType() )
+      {
+        case UARTData.UART_TYPE_EVENT:
+          return EVENT_COLOR;
+
+        case UARTData.UART_TYPE_RXEVENT:
+        case UARTData.UART_TYPE_TXEVENT:
+          return RXTX_EVENT_COLOR;
+
+        default:
+          // unknown event
+          return ERROR_COLOR;
+      }
+    }
+
+    /**
+     * Sets the number of data bits used to format the decoded values.
+     * 
+     * @param aBitCount
+     *          the number of data bits, > 0.
+     */
+    public void setBitCount( final int aBitCount )
+    {
+      this.bitCount = aBitCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRowIndex, final UARTData aRow, final int aColumnIndex )
+    {
+      if ( aColumnIndex == 0 )
+      {
+        return String.valueOf( aRowIndex );
+      }
+      else if ( aColumnIndex == 1 )
+      {
+        return formatTime( aRow.getStartSampleIndex() );
+      }
+
+      final boolean rxColumn = ( aColumnIndex < 6 );
+      final int type = aRow.getType();
+
+      if ( aRow.isEvent() )
+      {
+        final boolean show;
+        if ( UARTData.UART_TYPE_EVENT == type )
+        {
+          show = true;
+        }
+        else
+        {
+          show = rxColumn ? ( UARTData.UART_TYPE_RXEVENT == type ) : ( UARTData.UART_TYPE_TXEVENT == type );
+        }
+        // Event names are only shown in the first column of RxD/TxD...
+        return ( show && ( ( aColumnIndex == 2 ) || ( aColumnIndex == 6 ) ) ) ? aRow.getEventName() : null;
+      }
+
+      if ( rxColumn != ( UARTData.UART_TYPE_RXDATA == type ) )
+      {
+        return null;
+      }
+
+      final int value = aRow.getData();
+      switch ( ( aColumnIndex - 2 ) % 4 )
+      {
+        case 0:
+          final int bitAdder = ( ( this.bitCount % 4 ) != 0 ) ? 1 : 0;
+          return "0x" + StringUtils.integerToHexString( value, ( this.bitCount / 4 ) + bitAdder );
+        case 1:
+          return "0b" + StringUtils.integerToBinString( value, this.bitCount );
+        case 2:
+          return String.valueOf( value );
+        default:
+          return isPrintableCharacter( value ) ? String.valueOf( ( char )value ) : null;
+      }
+    }
+  }
+
   /**
    * Provides a combobox renderer for {@link UARTParity} values.
    */
@@ -156,7 +288,8 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   private JCheckBox inverse;
   private JCheckBox autoDetectBaudRate;
   private JComboBox baudrate;
-  private JEditorPane outText;
+  private UARTDataTableModel resultModel;
+  private ToolResultView resultView;
 
   private RestorableAction runAnalysisAction;
   private Action closeAction;
@@ -236,8 +369,8 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   @Override
   public void reset()
   {
-    this.outText.setText( getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel.setDataSet( null );
+    this.resultView.setSummary( null );
 
     this.runAnalysisAction.restore();
 
@@ -275,32 +408,11 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   @Override
   protected void onToolEnded( final UARTDataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-      }
+    this.resultModel.setBitCount( Integer.parseInt( ( String )this.bits.getSelectedItem() ) );
+    this.resultModel.setDataSet( aAnalysisResult );
+    this.resultView.setSummary( getSummary( aAnalysisResult ) );
 
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
-
-      this.runAnalysisAction.restore();
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // Should not happen in this situation!
-        throw new RuntimeException( exception );
-      }
-    }
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -376,91 +488,15 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
     this.exportAction.setEnabled( aEnable );
   }
 
-  /**
-   * Creates the HTML template for exports to HTML.
-   * 
-   * @param aExporter
-   *          the HTML exporter instance to use, cannot be <code>null</code>.
-   * @return a HTML exporter filled with the template, never <code>null</code>.
-   */
-  private HtmlExporter createHtmlTemplate( final HtmlExporter aExporter )
-  {
-    aExporter.addCssStyle( "body { font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table { border-width: 1px; border-spacing: 0px; border-color: gray;"
-        + " border-collapse: collapse; border-style: solid; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( "table th { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " background-color: #C0C0FF; text-align: left; font-weight: bold; font-family: sans-serif; } " );
-    aExporter.addCssStyle( "table td { border-width: 1px; padding: 2px; border-style: solid; border-color: gray;"
-        + " font-family: monospace; } " );
-    aExporter.addCssStyle( ".error { color: red; } " );
-    aExporter.addCssStyle( ".warning { color: orange; } " );
-    aExporter.addCssStyle( ".date { text-align: right; font-size: x-small; margin-bottom: 15px; } " );
-    aExporter.addCssStyle( ".w100 { width: 100%; } " );
-    aExporter.addCssStyle( ".w35 { width: 35%; } " );
-    aExporter.addCssStyle( ".w30 { width: 30%; } " );
-    aExporter.addCssStyle( ".w15 { width: 15%; } " );
-    aExporter.addCssStyle( ".w10 { width: 10%; } " );
-    aExporter.addCssStyle( ".w8 { width: 8%; } " );
-    aExporter.addCssStyle( ".w7 { width: 7%; } " );
-
-    final Element body = aExporter.getBody();
-    body.addChild( H1 ).addContent( "UART Analysis results" );
-    body.addChild( HR );
-    body.addChild( DIV ).addAttribute( "class", "date" ).addContent( "Generated: ", "{date-now}" );
-
-    Element table, tr, thead, tbody;
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-
-    tbody = table.addChild( TBODY );
-    tr = tbody.addChild( TR );
-    tr.addChild( TH ).addAttribute( "colspan", "2" ).addContent( "Statistics" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Decoded bytes" );
-    tr.addChild( TD ).addContent( "{decoded-bytes}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Detected bus errors" );
-    tr.addChild( TD ).addContent( "{detected-bus-errors}" );
-    tr = tbody.addChild( TR );
-    tr.addChild( TD ).addAttribute( "class", "w30" ).addContent( "Baudrate" );
-    tr.addChild( TD ).addContent( "{baudrate}" );
-
-    table = body.addChild( TABLE ).addAttribute( "class", "w100" );
-    thead = table.addChild( THEAD );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w30" ).addAttribute( "colspan", "2" );
-    tr.addChild( TH ).addAttribute( "class", "w35" ).addAttribute( "colspan", "4" ).addContent( "RxD" );
-    tr.addChild( TH ).addAttribute( "class", "w35" ).addAttribute( "colspan", "4" ).addContent( "TxD" );
-    tr = thead.addChild( TR );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Index" );
-    tr.addChild( TH ).addAttribute( "class", "w15" ).addContent( "Time" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w8" ).addContent( "Dec" );
-    tr.addChild( TH ).addAttribute( "class", "w7" ).addContent( "ASCII" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Hex" );
-    tr.addChild( TH ).addAttribute( "class", "w10" ).addContent( "Bin" );
-    tr.addChild( TH ).addAttribute( "class", "w8" ).addContent( "Dec" );
-    tr.addChild( TH ).addAttribute( "class", "w7" ).addContent( "ASCII" );
-    tbody = table.addChild( TBODY );
-    tbody.addContent( "{decoded-data}" );
-
-    return aExporter;
-  }
-
   /**
    * @return
    */
   private JPanel createPreviewPane()
   {
-    final JPanel panTable = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.resultModel = new UARTDataTableModel();
+    this.resultView = new ToolResultView( this.resultModel );
 
-    panTable.add( new JScrollPane( this.outText ) );
-
-    return panTable;
+    return this.resultView;
   }
 
   /**
@@ -572,37 +608,46 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   }
 
   /**
-   * generate a HTML page
+   * Returns a description of the baudrate of the given analysis results.
    * 
-   * @param empty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
+   * @param aDataSet
+   *          the analysis results to describe the baudrate for, cannot be
+   *          <code>null</code>.
+   * @return a baudrate description, never <code>null</code>.
    */
-  private String getEmptyHtmlPage()
+  private String getBaudRateDescription( final UARTDataSet aDataSet )
   {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
+    if ( aDataSet.getBaudRate() <= 0 )
     {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "decoded-bytes".equals( aMacro ) || "detected-bus-errors".equals( aMacro )
-            || "baudrate".equals( aMacro ) )
-        {
-          return "-";
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          return null;
-        }
-        return null;
-      }
-    } );
+      return "Baudrate calculation failed!";
+    }
+
+    final String baudrate = String.format( "%d (exact: %d)", Integer.valueOf( aDataSet.getBaudRate() ),
+        Integer.valueOf( aDataSet.getBaudRateExact() ) );
+    if ( !aDataSet.isBitLengthUsable() )
+    {
+      return baudrate.concat( " The baudrate may be wrong, use a higher samplerate to avoid this!" );
+    }
+    return baudrate;
+  }
+
+  /**
+   * Creates a short summary of the given analysis results.
+   * 
+   * @param aDataSet
+   *          the analysis results to summarize, can be <code>null</code>.
+   * @return a summary, or <code>null</code> if there are no results.
+   */
+  private String getSummary( final UARTDataSet aDataSet )
+  {
+    if ( aDataSet == null )
+    {
+      return null;
+    }
+
+    return String.format( "Decoded bytes: %d, detected bus errors: %d, baudrate: %s",
+        Integer.valueOf( aDataSet.getDecodedSymbols() ), Integer.valueOf( aDataSet.getDetectedErrors() ),
+        getBaudRateDescription( aDataSet ) );
   }
 
   /**
@@ -646,56 +691,72 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   {
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
-      exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "RxD event", "TxD event",
-          "RxD data", "TxD data" );
-
-      final List<UARTData> decodedData = aDataSet.getData();
-      for ( int i = 0; i < decodedData.size(); i++ )
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.CSV );
+      try
       {
-        final UARTData ds = decodedData.get( i );
+        writer.write( aDataSet.getData(), new ToolResultWriter.RowCallback<UARTData>()
+        {
+          @Override
+          public void writeFooter( final ToolResultWriter aWriter )
+          {
+            // NO-op
+          }
 
-        final String startTime = UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
-        final String endTime = UnitOfTime.format( aDataSet.getTime( ds.getEndSampleIndex() ) );
+          @Override
+          public void writeHeader( final ToolResultWriter aWriter ) throws IOException
+          {
+            aWriter.writeColumns( "index", "start-time", "end-time", "event?", "event-type", "RxD event", "TxD event",
+                "RxD data", "TxD data" );
+          }
 
-        String eventType = null;
-        String rxdEvent = null;
-        String txdEvent = null;
-        String rxdData = null;
-        String txdData = null;
+          @Override
+          public void writeRow( final ToolResultWriter aWriter, final int aRowIndex, final UARTData aRow )
+              throws IOException
+          {
+            final String startTime = UnitOfTime.format( aDataSet.getTime( aRow.getStartSampleIndex() ) );
+            final String endTime = UnitOfTime.format( aDataSet.getTime( aRow.getEndSampleIndex() ) );
 
-        switch ( ds.getType() )
-        {
-          case UARTData.UART_TYPE_EVENT:
-            eventType = ds.getEventName();
-            break;
+            String eventType = null;
+            String rxdEvent = null;
+            String txdEvent = null;
+            String rxdData = null;
+            String txdData = null;
 
-          case UARTData.UART_TYPE_RXEVENT:
-            rxdEvent = ds.getEventName();
-            break;
+            switch ( aRow.getType() )
+            {
+              case UARTData.UART_TYPE_EVENT:
+                eventType = aRow.getEventName();
+                break;
 
-          case UARTData.UART_TYPE_TXEVENT:
-            txdEvent = ds.getEventName();
-            break;
+              case UARTData.UART_TYPE_RXEVENT:
+                rxdEvent = aRow.getEventName();
+                break;
 
-          case UARTData.UART_TYPE_RXDATA:
-            rxdData = Integer.toString( ds.getData() );
-            break;
+              case UARTData.UART_TYPE_TXEVENT:
+                txdEvent = aRow.getEventName();
+                break;
 
-          case UARTData.UART_TYPE_TXDATA:
-            txdData = Integer.toString( ds.getData() );
-            break;
+              case UARTData.UART_TYPE_RXDATA:
+                rxdData = Integer.toString( aRow.getData() );
+                break;
 
-          default:
-            break;
-        }
+              case UARTData.UART_TYPE_TXDATA:
+                txdData = Integer.toString( aRow.getData() );
+                break;
 
-        exporter.addRow( Integer.valueOf( i ), startTime, endTime, Boolean.valueOf( ds.isEvent() ), eventType,
-            rxdEvent, txdEvent, rxdData, txdData );
-      }
+              default:
+                break;
+            }
 
-      exporter.close();
+            aWriter.writeRow( null, Integer.valueOf( aRowIndex ), startTime, endTime,
+                Boolean.valueOf( aRow.isEvent() ), eventType, rxdEvent, txdEvent, rxdData, txdData );
+          }
+        } );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -717,7 +778,19 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   {
     try
     {
-      toHtmlPage( aFile, aDataSet );
+      final ToolResultWriter writer = ToolResultWriter.create( aFile, ExportFormat.HTML );
+      try
+      {
+        writer.writeTitle( "UART Analysis results" );
+        writer.writeProperty( "Decoded bytes", Integer.valueOf( aDataSet.getDecodedSymbols() ) );
+        writer.writeProperty( "Detected bus errors", Integer.valueOf( aDataSet.getDetectedErrors() ) );
+        writer.writeProperty( "Baudrate", getBaudRateDescription( aDataSet ) );
+        writer.write( aDataSet.getData(), this.resultModel );
+      }
+      finally
+      {
+        writer.close();
+      }
     }
     catch ( final IOException exception )
     {
@@ -728,187 +801,4 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
       }
     }
   }
-
-  /**
-   * generate a HTML page
-   * 
-   * @param empty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
-   */
-  private String toHtmlPage( final File aFile, final UARTDataSet aDataSet ) throws IOException
-  {
-    final int bitCount = Integer.parseInt( ( String )this.bits.getSelectedItem() );
-    final int bitAdder = ( ( bitCount % 4 ) != 0 ) ? 1 : 0;
-
-    final MacroResolver macroResolver = new MacroResolver()
-    {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "decoded-bytes".equals( aMacro ) )
-        {
-          return Integer.valueOf( aDataSet.getDecodedSymbols() );
-        }
-        else if ( "detected-bus-errors".equals( aMacro ) )
-        {
-          return Integer.valueOf( aDataSet.getDetectedErrors() );
-        }
-        else if ( "baudrate".equals( aMacro ) )
-        {
-          final String baudrate;
-          if ( aDataSet.getBaudRate() <= 0 )
-          {
-            baudrate = "<span class='error'>Baudrate calculation failed!</span>";
-          }
-          else
-          {
-            baudrate = String.format( "%d (exact: %d)", Integer.valueOf( aDataSet.getBaudRate() ),
-                Integer.valueOf( aDataSet.getBaudRateExact() ) );
-            if ( !aDataSet.isBitLengthUsable() )
-            {
-              return baudrate
-                  .concat( " <span class='warning'>The baudrate may be wrong, use a higher samplerate to avoid this!</span>" );
-            }
-
-            return baudrate;
-          }
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          final List<UARTData> decodedData = aDataSet.getData();
-          Element tr;
-
-          for ( int i = 0; i < decodedData.size(); i++ )
-          {
-            final UARTData ds = decodedData.get( i );
-
-            if ( ds.isEvent() )
-            {
-              String rxEventData = "";
-              String txEventData = "";
-
-              String bgColor;
-              if ( UARTData.UART_TYPE_EVENT == ds.getType() )
-              {
-                rxEventData = txEventData = ds.getEventName();
-                bgColor = "#e0e0e0";
-              }
-              else if ( UARTData.UART_TYPE_RXEVENT == ds.getType() )
-              {
-                rxEventData = ds.getEventName();
-                bgColor = "#c0ffc0";
-              }
-              else if ( UARTData.UART_TYPE_TXEVENT == ds.getType() )
-              {
-                txEventData = ds.getEventName();
-                bgColor = "#c0ffc0";
-              }
-              else
-              {
-                // unknown event
-                bgColor = "#ff8000";
-              }
-
-              if ( txEventData.endsWith( "_ERR" ) || rxEventData.endsWith( "_ERR" ) )
-              {
-                bgColor = "#ff8000";
-              }
-
-              tr = aParent.addChild( TR ).addAttribute( "style", "background-color: " + bgColor + ";" );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( rxEventData );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD ).addContent( txEventData );
-              tr.addChild( TD );
-              tr.addChild( TD );
-              tr.addChild( TD );
-            }
-            else
-            {
-              String rxDataHex = "", rxDataBin = "", rxDataDec = "", rxDataASCII = "";
-              String txDataHex = "", txDataBin = "", txDataDec = "", txDataASCII = "";
-
-              // Normal data...
-              if ( UARTData.UART_TYPE_RXDATA == ds.getType() )
-              {
-                final int rxData = ds.getData();
-
-                rxDataHex = "0x" + StringUtils.integerToHexString( rxData, ( bitCount / 4 ) + bitAdder );
-                rxDataBin = "0b" + StringUtils.integerToBinString( rxData, bitCount );
-                rxDataDec = String.valueOf( rxData );
-                if ( isPrintableCharacter( rxData ) )
-                {
-                  rxDataASCII = String.valueOf( ( char )rxData );
-                }
-              }
-              else
-              /* if ( UARTData.UART_TYPE_TXDATA == ds.getType() ) */
-              {
-                final int txData = ds.getData();
-
-                txDataHex = "0x" + StringUtils.integerToHexString( txData, ( bitCount / 4 ) + bitAdder );
-                txDataBin = "0b" + StringUtils.integerToBinString( txData, bitCount );
-                txDataDec = String.valueOf( txData );
-                if ( isPrintableCharacter( txData ) )
-                {
-                  txDataASCII = String.valueOf( ( char )txData );
-                }
-              }
-
-              tr = aParent.addChild( TR );
-              tr.addChild( TD ).addContent( String.valueOf( i ) );
-              tr.addChild( TD ).addContent( UnitOfTime.format( aDataSet.getTime( ds.getStartSampleIndex() ) ) );
-              tr.addChild( TD ).addContent( rxDataHex );
-              tr.addChild( TD ).addContent( rxDataBin );
-              tr.addChild( TD ).addContent( rxDataDec );
-              tr.addChild( TD ).addContent( rxDataASCII );
-              tr.addChild( TD ).addContent( txDataHex );
-              tr.addChild( TD ).addContent( txDataBin );
-              tr.addChild( TD ).addContent( txDataDec );
-              tr.addChild( TD ).addContent( txDataASCII );
-            }
-          }
-        }
-        return null;
-      }
-
-      /**
-       * Returns whether the given value can be represented as an
-       * ASCII-character.
-       * 
-       * @param aValue
-       *          the value to test.
-       * @return <code>true</code> if the given character can be represented as
-       *         printable ASCII-character, <code>false</code> otherwise.
-       */
-      private boolean isPrintableCharacter( final int aValue )
-      {
-        final boolean withinRange = ( aValue >= 32 ) && ( aValue < 255 );
-        return withinRange;
-      }
-    };
-
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
-  }
 }
@@ -0,0 +1,201 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialConfiguration;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link AsyncSerialDataDecoder}.
+ */
+public class AsyncSerialDataDecoderTest
+{
+  // INNER TYPES
+
+  /**
+   * Collects all decoded symbols and errors.
+   */
+  static final class CollectingCallback implements SerialDecoderCallback
+  {
+    // VARIABLES
+
+    final List<Integer> symbols = new ArrayList<Integer>();
+    final List<Long> symbolTimes = new ArrayList<Long>();
+    int errors = 0;
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
+    {
+      this.errors++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEvent( final int aChannelIdx, final String aEvent, final long aStartTime, final long aEndTime )
+    {
+      // Nop
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
+    {
+      this.symbols.add( Integer.valueOf( aSymbol ) );
+      this.symbolTimes.add( Long.valueOf( aStartTime ) );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int SAMPLE_RATE = 1000000;
+  private static final int BAUDRATE = 9600;
+  private static final int BIT_LENGTH = SAMPLE_RATE / BAUDRATE;
+
+  // METHODS
+
+  /**
+   * Tests that a sparse capture of one hour at 9600 baud, with one symbol each
+   * minute, is decoded correctly, and in a time proportional to its number of
+   * transitions rather than its duration.
+   */
+  @Test( timeout = 10000 )
+  public void testDecodeSparseHourLongCaptureOk()
+  {
+    final long duration = 3600L * SAMPLE_RATE;
+    final long interval = 60L * SAMPLE_RATE;
+
+    final List<Integer> values = new ArrayList<Integer>();
+    final List<Long> timestamps = new ArrayList<Long>();
+    final List<Integer> expected = new ArrayList<Integer>();
+
+    addSample( values, timestamps, 0L, 1 );
+    for ( long time = interval; time < duration; time += interval )
+    {
+      final int symbol = 'A' + ( expected.size() % 26 );
+      addFrame( values, timestamps, time, symbol );
+      expected.add( Integer.valueOf( symbol ) );
+    }
+    values.add( Integer.valueOf( 1 ) );
+    timestamps.add( Long.valueOf( duration ) );
+
+    final AcquisitionResult data = new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, SAMPLE_RATE, 1, 1,
+        duration + 1L );
+
+    final CollectingCallback callback = new CollectingCallback();
+
+    final AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( new SerialConfiguration(),
+        DataTestUtils.createToolContext( data, 0, values.size() - 1 ) );
+    decoder.setCallback( callback );
+
+    assertEquals( expected.size(), decoder.decodeDataLine( 0 ) );
+
+    assertEquals( expected, callback.symbols );
+    assertEquals( 0, callback.errors );
+    // The symbol starts right after the start bit...
+    assertEquals( Long.valueOf( interval + 1L + BIT_LENGTH ), callback.symbolTimes.get( 0 ) );
+  }
+
+  /**
+   * Tests that decoding the same data line twice, which moves the decoder back
+   * in time, yields the same results.
+   */
+  @Test
+  public void testDecodeTwiceYieldsSameResultOk()
+  {
+    final List<Integer> values = new ArrayList<Integer>();
+    final List<Long> timestamps = new ArrayList<Long>();
+
+    addSample( values, timestamps, 0L, 1 );
+    addFrame( values, timestamps, 1000L, 0x55 );
+    addFrame( values, timestamps, 3000L, 0xA3 );
+    values.add( Integer.valueOf( 1 ) );
+    timestamps.add( Long.valueOf( 5000L ) );
+
+    final AcquisitionResult data = new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, SAMPLE_RATE, 1, 1, 5001L );
+
+    final CollectingCallback callback = new CollectingCallback();
+
+    final AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( new SerialConfiguration(),
+        DataTestUtils.createToolContext( data, 0, values.size() - 1 ) );
+    decoder.setCallback( callback );
+
+    assertEquals( 2, decoder.decodeDataLine( 0 ) );
+    assertEquals( 2, decoder.decodeDataLine( 0 ) );
+
+    assertEquals( Arrays.asList( 0x55, 0xA3, 0x55, 0xA3 ), callback.symbols );
+    assertEquals( 0, callback.errors );
+  }
+
+  /**
+   * Adds a single 8N1 frame, starting at the given time, to the given samples.
+   */
+  private void addFrame( final List<Integer> aValues, final List<Long> aTimestamps, final long aTime,
+      final int aSymbol )
+  {
+    // Start bit...
+    addSample( aValues, aTimestamps, aTime, 0 );
+    for ( int i = 0; i < 8; i++ )
+    {
+      addSample( aValues, aTimestamps, aTime + ( ( i + 1 ) * BIT_LENGTH ), ( aSymbol >> i ) & 1 );
+    }
+    // Stop bit...
+    addSample( aValues, aTimestamps, aTime + ( 9 * BIT_LENGTH ), 1 );
+  }
+
+  /**
+   * Adds a single sample, but only if its value differs from the last one.
+   */
+  private void addSample( final List<Integer> aValues, final List<Long> aTimestamps, final long aTime,
+      final int aValue )
+  {
+    if ( !aValues.isEmpty() && ( aValues.get( aValues.size() - 1 ).intValue() == aValue ) )
+    {
+      return;
+    }
+    aValues.add( Integer.valueOf( aValue ) );
+    aTimestamps.add( Long.valueOf( aTime ) );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,175 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link BaudRateAnalyzer}.
+ */
+public class BaudRateAnalyzerTest
+{
+  // CONSTANTS
+
+  private static final int SAMPLE_RATE = 1000000;
+
+  // METHODS
+
+  /**
+   * Creates the sample values of a number of 8N1-frames with random data on
+   * two lines, with a different bit length for each line.
+   */
+  private static int[] createFrames( final int aBitLength0, final int aBitLength1, final int aFrameCount,
+      final int aGlitchInterval )
+  {
+    final Random rnd = new Random( 12345L );
+
+    final int idleLength = 3 * Math.max( aBitLength0, aBitLength1 );
+    final int frameLength = 10 * Math.max( aBitLength0, aBitLength1 ) + idleLength;
+    final int[] values = new int[aFrameCount * frameLength + idleLength];
+    Arrays.fill( values, 0x03 );
+
+    for ( int frame = 0; frame < aFrameCount; frame++ )
+    {
+      final int offset = idleLength + frame * frameLength;
+      writeFrame( values, offset, aBitLength0, 0, rnd.nextInt( 256 ) );
+      writeFrame( values, offset, aBitLength1, 1, rnd.nextInt( 256 ) );
+
+      if ( ( aGlitchInterval > 0 ) && ( ( frame % aGlitchInterval ) == 0 ) )
+      {
+        // single sample glitch in the idle time...
+        values[offset - ( idleLength / 2 )] &= ~0x01;
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * Writes a single 8N1-frame to the given line.
+   */
+  private static void writeFrame( final int[] aValues, final int aOffset, final int aBitLength, final int aLine,
+      final int aSymbol )
+  {
+    // start bit, 8 data bits (LSB first) & stop bit...
+    final int frame = ( 1 << 9 ) | ( aSymbol << 1 );
+    for ( int bit = 0; bit < 10; bit++ )
+    {
+      for ( int i = 0; i < aBitLength; i++ )
+      {
+        final int idx = aOffset + ( bit * aBitLength ) + i;
+        if ( ( frame & ( 1 << bit ) ) != 0 )
+        {
+          aValues[idx] |= ( 1 << aLine );
+        }
+        else
+        {
+          aValues[idx] &= ~( 1 << aLine );
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the baudrate of multiple lines is determined in one go.
+   */
+  @Test
+  public void testAnalyzeMultipleLinesOk()
+  {
+    final int[] values = createFrames( 104, 52, 200, 0 );
+    final BaudRateAnalyzer analyzer = createAnalyzer( values, 0x03 );
+
+    assertEquals( 104, analyzer.getBestBitLength( 0 ) );
+    assertEquals( 9600, analyzer.getBaudRate( 0 ) );
+    assertEquals( 1.0, analyzer.getConfidence( 0 ), 0.001 );
+
+    assertEquals( 52, analyzer.getBestBitLength( 1 ) );
+    assertEquals( 19200, analyzer.getBaudRate( 1 ) );
+    assertEquals( 1.0, analyzer.getConfidence( 1 ), 0.001 );
+  }
+
+  /**
+   * Tests that glitches do not influence the determined baudrate, only its
+   * confidence.
+   */
+  @Test
+  public void testAnalyzeWithGlitchesOk()
+  {
+    final int[] values = createFrames( 104, 104, 200, 4 );
+    final BaudRateAnalyzer analyzer = createAnalyzer( values, 0x03 );
+
+    assertEquals( 104, analyzer.getBestBitLength( 0 ) );
+    assertEquals( 9600, analyzer.getBaudRate( 0 ) );
+    assertTrue( analyzer.getConfidence( 0 ) < 1.0 );
+    assertTrue( analyzer.getConfidence( 0 ) > 0.75 );
+
+    assertEquals( 104, analyzer.getBestBitLength() );
+    assertEquals( 9600, analyzer.getBaudRate() );
+  }
+
+  /**
+   * Tests that a line without any pulses yields no baudrate.
+   */
+  @Test
+  public void testAnalyzeWithoutDataOk()
+  {
+    final int[] values = createFrames( 104, 104, 10, 0 );
+    final BaudRateAnalyzer analyzer = createAnalyzer( values, 0x04 );
+
+    assertEquals( -1, analyzer.getBestBitLength( 2 ) );
+    assertEquals( -1, analyzer.getBaudRateExact( 2 ) );
+    assertEquals( 0.0, analyzer.getConfidence( 2 ), 0.001 );
+  }
+
+  /**
+   * Tests that a fixed baudrate is used for all lines.
+   */
+  @Test
+  public void testFixedBaudRateOk()
+  {
+    final BaudRateAnalyzer analyzer = new BaudRateAnalyzer( SAMPLE_RATE, 115200 );
+
+    assertEquals( 9, analyzer.getBestBitLength() );
+    assertEquals( 9, analyzer.getBestBitLength( 3 ) );
+    assertEquals( 1.0, analyzer.getConfidence( 3 ), 0.001 );
+  }
+
+  /**
+   * Creates a new analyzer for the given (uncompressed) sample values.
+   */
+  private BaudRateAnalyzer createAnalyzer( final int[] aValues, final int aMask )
+  {
+    final long[] timestamps = new long[aValues.length];
+    for ( int i = 0; i < timestamps.length; i++ )
+    {
+      timestamps[i] = i;
+    }
+    return new BaudRateAnalyzer( SAMPLE_RATE, aValues, timestamps, aMask );
+  }
+}
+
+/* EOF */
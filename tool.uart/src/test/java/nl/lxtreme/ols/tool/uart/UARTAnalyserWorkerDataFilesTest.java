@@ -108,6 +108,30 @@ public class UARTAnalyserWorkerDataFilesTest
     assertEquals( this.expectedBaudrate, result.getBaudRate() );
   }
 
+  /**
+   * Test method for
+   * {@link nl.lxtreme.ols.tool.uart.impl.UARTAnalyserTask#call()}.
+   * <p>
+   * Tests that the results of all (concurrently decoded) lines are merged in
+   * time order.
+   * </p>
+   */
+  @Test
+  public void testUartAnalysisResultsOrderedInTimeOk() throws Exception
+  {
+    UARTDataSet result = analyseDataFile( this.resourceName );
+
+    final List<UARTData> data = result.getData();
+    for ( int i = 0; i < data.size(); i++ )
+    {
+      assertEquals( i, data.get( i ).getIndex() );
+      if ( i > 0 )
+      {
+        assertTrue( data.get( i - 1 ).getStartSampleIndex() <= data.get( i ).getStartSampleIndex() );
+      }
+    }
+  }
+
   /**
    * Analyses the data file identified by the given resource name.
    * 
@@ -0,0 +1,224 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Tests that decoding UART data in parallel segments yields the same results
+ * as decoding it sequentially.
+ */
+public class UARTAnalyserParallelDecodeTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all sample data annotations as text, in the order they are added.
+   */
+  static final class AnnotationRecorder implements AnnotationListener
+  {
+    // VARIABLES
+
+    final List<String> annotations = new ArrayList<String>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      // NO-op
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      // NO-op
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      if ( aAnnotation instanceof SampleDataAnnotation )
+      {
+        final SampleDataAnnotation annotation = ( SampleDataAnnotation )aAnnotation;
+        this.annotations.add( annotation.getStartTimestamp() + "-" + annotation.getEndTimestamp() + ": "
+            + annotation.getAnnotation() );
+      }
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int RXD = 0;
+  private static final int SAMPLE_RATE = 1000000;
+  private static final int BAUD_RATE = 100000;
+  private static final int BIT_LENGTH = SAMPLE_RATE / BAUD_RATE;
+
+  // VARIABLES
+
+  private AcquisitionResult data;
+
+  private int[] samples;
+  private int sampleCount;
+
+  // METHODS
+
+  /**
+   * Generates a long UART capture with random symbols, separated by short and
+   * long idle periods, of which some have framing errors, and some idle
+   * periods contain glitches.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 0x0a27c0deL );
+
+    this.samples = new int[4000000];
+    this.sampleCount = 0;
+
+    add( true, 5 * BIT_LENGTH );
+    while ( this.sampleCount < ( this.samples.length - ( 50 * BIT_LENGTH ) ) )
+    {
+      // start bit...
+      add( false, BIT_LENGTH );
+      // data bits, LSB first...
+      final int value = rnd.nextInt( 256 );
+      for ( int bit = 0; bit < 8; bit++ )
+      {
+        add( ( value & ( 1 << bit ) ) != 0, BIT_LENGTH );
+      }
+      // stop bit, which is occasionally missing...
+      add( rnd.nextInt( 50 ) != 0, BIT_LENGTH );
+
+      // idle period, which is mostly short, but sometimes long enough to split
+      // the data line into segments...
+      if ( rnd.nextInt( 5 ) == 0 )
+      {
+        add( true, ( 25 + rnd.nextInt( 20 ) ) * BIT_LENGTH );
+      }
+      else
+      {
+        add( true, 1 + rnd.nextInt( 3 * BIT_LENGTH ) );
+      }
+
+      if ( rnd.nextInt( 100 ) == 0 )
+      {
+        // glitch, which is decoded as a (bogus) symbol...
+        add( false, 1 + rnd.nextInt( BIT_LENGTH / 2 ) );
+        add( true, 5 * BIT_LENGTH );
+      }
+    }
+    add( true, this.samples.length - this.sampleCount );
+
+    this.data = new CapturedData( this.samples, Ols.NOT_AVAILABLE, SAMPLE_RATE, 1, 0x01 );
+  }
+
+  /**
+   * Tests that decoding in parallel segments yields the same results and
+   * annotations as decoding sequentially, including symbols with framing
+   * errors and glitches.
+   */
+  @Test
+  public void testParallelDecodeEqualsSequentialDecodeOk() throws Exception
+  {
+    final AnnotationRecorder expectedAnnotations = new AnnotationRecorder();
+    final UARTDataSet expected = createWorker( 1, Integer.MAX_VALUE, expectedAnnotations ).call();
+    assertTrue( expected.getDecodedSymbols() > 10000 );
+    assertTrue( expected.getDetectedErrors() > 100 );
+
+    final AnnotationRecorder annotations = new AnnotationRecorder();
+    final UARTAnalyserTask worker = createWorker( 32, 256, annotations );
+    final UARTDataSet result = worker.call();
+    assertEquals( expected.getData(), result.getData() );
+    assertEquals( expected.getDecodedSymbols(), result.getDecodedSymbols() );
+    assertEquals( expected.getDetectedErrors(), result.getDetectedErrors() );
+    assertEquals( expectedAnnotations.annotations, annotations.annotations );
+
+    // As all symbols before a long mark have ended before it, the state
+    // assumed at the start of each segment should nearly always hold...
+    final int segmentCount = worker.getSegmentCount();
+    final int redecodeCount = worker.getRedecodeCount();
+    assertTrue( segmentCount > 100 );
+    assertTrue( "Too many re-decoded segments: " + redecodeCount + " of " + segmentCount,
+        redecodeCount <= ( segmentCount / 10 ) );
+  }
+
+  /**
+   * Adds the given number of samples with the given level for RxD.
+   */
+  private void add( final boolean aRxD, final int aCount )
+  {
+    final int value = aRxD ? ( 1 << RXD ) : 0;
+    for ( int i = 0; i < aCount; i++ )
+    {
+      this.samples[this.sampleCount++] = value;
+    }
+  }
+
+  /**
+   * Creates a worker for decoding the test data.
+   */
+  private UARTAnalyserTask createWorker( final int aThreadCount, final int aMinSegmentSize,
+      final AnnotationListener aAnnotationListener )
+  {
+    final ToolContext toolContext = DataTestUtils.createToolContext( this.data, 0, this.data.getValues().length - 1 );
+
+    final ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+
+    final UARTAnalyserTask worker = new UARTAnalyserTask( toolContext, tpl, aAnnotationListener );
+    worker.setStopBits( StopBits.ONE );
+    worker.setBitCount( 8 );
+    worker.setParity( Parity.NONE );
+    worker.setBaudRate( BAUD_RATE );
+    worker.setRxdIndex( RXD );
+    worker.setSegmentation( aThreadCount, aMinSegmentSize );
+
+    return worker;
+  }
+}
+
+/* EOF */
@@ -0,0 +1,406 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.analysis;
+
+
+import java.util.*;
+
+
+/**
+ * Provides a frequency distribution of primitive integer values.
+ * <p>
+ * Values within an (optional) dense range are counted in a plain array; all
+ * other values are counted in an open-addressing hash table. Neither boxes
+ * values nor counts, which makes it a lot faster than {@link Frequency}.
+ * </p>
+ * <p>
+ * This class is <em>not</em> thread-safe. To count values in parallel, let each
+ * producer use its own instance and merge them afterwards with
+ * {@link #addAll(IntFrequency)}.
+ * </p>
+ */
+public final class IntFrequency
+{
+  // CONSTANTS
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int MAX_DENSE_RANGE = 1 << 20;
+
+  // VARIABLES
+
+  private final int denseMin;
+  private final long[] denseCounts;
+
+  private int[] sparseValues;
+  private long[] sparseCounts;
+  private int sparseSize;
+
+  private long totalCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new IntFrequency instance that counts all values in a hash table.
+   */
+  public IntFrequency()
+  {
+    this.denseMin = 0;
+    this.denseCounts = new long[0];
+
+    this.sparseValues = new int[INITIAL_CAPACITY];
+    this.sparseCounts = new long[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Creates a new IntFrequency instance that counts values within the given
+   * range in an array, and all other values in a hash table.
+   * 
+   * @param aMinValue
+   *          the lowest value of the dense range (inclusive);
+   * @param aMaxValue
+   *          the highest value of the dense range (inclusive).
+   * @throws IllegalArgumentException
+   *           in case the given range is empty or too large.
+   */
+  public IntFrequency( final int aMinValue, final int aMaxValue )
+  {
+    final long range = ( long )aMaxValue - aMinValue + 1L;
+    if ( ( range <= 0L ) || ( range > MAX_DENSE_RANGE ) )
+    {
+      throw new IllegalArgumentException( "Invalid dense range: " + aMinValue + ".." + aMaxValue );
+    }
+
+    this.denseMin = aMinValue;
+    this.denseCounts = new long[( int )range];
+
+    this.sparseValues = new int[INITIAL_CAPACITY];
+    this.sparseCounts = new long[INITIAL_CAPACITY];
+  }
+
+  // METHODS
+
+  /**
+   * Adds all values of the given frequency distribution to this distribution.
+   * 
+   * @param aFrequency
+   *          the frequency distribution to add, cannot be <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given frequency distribution was <code>null</code>.
+   */
+  public void addAll( final IntFrequency aFrequency )
+  {
+    if ( aFrequency == null )
+    {
+      throw new IllegalArgumentException( "Frequency cannot be null!" );
+    }
+
+    for ( int i = 0; i < aFrequency.denseCounts.length; i++ )
+    {
+      if ( aFrequency.denseCounts[i] > 0L )
+      {
+        addValue( aFrequency.denseMin + i, aFrequency.denseCounts[i] );
+      }
+    }
+    for ( int i = 0; i < aFrequency.sparseCounts.length; i++ )
+    {
+      if ( aFrequency.sparseCounts[i] > 0L )
+      {
+        addValue( aFrequency.sparseValues[i], aFrequency.sparseCounts[i] );
+      }
+    }
+  }
+
+  /**
+   * Adds a given value once to this distribution.
+   * 
+   * @param aValue
+   *          the value to add.
+   */
+  public void addValue( final int aValue )
+  {
+    addValue( aValue, 1L );
+  }
+
+  /**
+   * Adds a given value a number of times to this distribution.
+   * 
+   * @param aValue
+   *          the value to add;
+   * @param aCount
+   *          the number of times to add the value, &gt; 0.
+   * @throws IllegalArgumentException
+   *           in case the given count was not positive.
+   */
+  public void addValue( final int aValue, final long aCount )
+  {
+    if ( aCount <= 0L )
+    {
+      throw new IllegalArgumentException( "Count should be positive!" );
+    }
+
+    final long denseIdx = ( long )aValue - this.denseMin;
+    if ( ( denseIdx >= 0L ) && ( denseIdx < this.denseCounts.length ) )
+    {
+      this.denseCounts[( int )denseIdx] += aCount;
+    }
+    else
+    {
+      int idx = findSlot( this.sparseValues, this.sparseCounts, aValue );
+      if ( this.sparseCounts[idx] == 0L )
+      {
+        if ( ( ( this.sparseSize + 1 ) * 2 ) > this.sparseValues.length )
+        {
+          grow();
+          idx = findSlot( this.sparseValues, this.sparseCounts, aValue );
+        }
+        this.sparseValues[idx] = aValue;
+        this.sparseSize++;
+      }
+      this.sparseCounts[idx] += aCount;
+    }
+
+    this.totalCount += aCount;
+  }
+
+  /**
+   * Clears all values from this frequency distribution.
+   */
+  public void clear()
+  {
+    Arrays.fill( this.denseCounts, 0L );
+
+    this.sparseValues = new int[INITIAL_CAPACITY];
+    this.sparseCounts = new long[INITIAL_CAPACITY];
+    this.sparseSize = 0;
+
+    this.totalCount = 0L;
+  }
+
+  /**
+   * Counts the number of occurrences of the given value.
+   * 
+   * @param aValue
+   *          the value to count.
+   * @return the number of occurrences, &gt;= 0.
+   */
+  public long getCount( final int aValue )
+  {
+    final long denseIdx = ( long )aValue - this.denseMin;
+    if ( ( denseIdx >= 0L ) && ( denseIdx < this.denseCounts.length ) )
+    {
+      return this.denseCounts[( int )denseIdx];
+    }
+    return this.sparseCounts[findSlot( this.sparseValues, this.sparseCounts, aValue )];
+  }
+
+  /**
+   * Returns the value with the highest count or rank. In case multiple values
+   * have the same count, the lowest of these values is returned.
+   * 
+   * @return the value with the highest rank.
+   * @throws NoSuchElementException
+   *           in case this frequency distribution is empty.
+   */
+  public int getHighestRanked()
+  {
+    return getRanked( true );
+  }
+
+  /**
+   * Returns the value with the lowest count or rank. In case multiple values
+   * have the same count, the lowest of these values is returned.
+   * 
+   * @return the value with the lowest rank.
+   * @throws NoSuchElementException
+   *           in case this frequency distribution is empty.
+   */
+  public int getLowestRanked()
+  {
+    return getRanked( false );
+  }
+
+  /**
+   * Returns the total number of values added to this frequency distribution.
+   * 
+   * @return a count, >= 0.
+   */
+  public long getTotalCount()
+  {
+    return this.totalCount;
+  }
+
+  /**
+   * Returns the number of unique values in this frequency distribution.
+   * 
+   * @return a unique value count, >= 0.
+   */
+  public int getUniqueValueCount()
+  {
+    int result = this.sparseSize;
+    for ( long count : this.denseCounts )
+    {
+      if ( count > 0L )
+      {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether or not this frequency distribution is empty.
+   * 
+   * @return <code>true</code> if no values are added, <code>false</code>
+   *         otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.totalCount == 0L;
+  }
+
+  /**
+   * Returns the unique values in this frequency distribution.
+   * 
+   * @return an array with all values, sorted in natural order, never
+   *         <code>null</code>.
+   */
+  public int[] values()
+  {
+    final int[] result = new int[getUniqueValueCount()];
+
+    int idx = 0;
+    for ( int i = 0; i < this.denseCounts.length; i++ )
+    {
+      if ( this.denseCounts[i] > 0L )
+      {
+        result[idx++] = this.denseMin + i;
+      }
+    }
+    for ( int i = 0; i < this.sparseCounts.length; i++ )
+    {
+      if ( this.sparseCounts[i] > 0L )
+      {
+        result[idx++] = this.sparseValues[i];
+      }
+    }
+
+    Arrays.sort( result );
+    return result;
+  }
+
+  /**
+   * Finds the slot of the given value in the given hash table.
+   * 
+   * @return the index of the slot containing the given value, or the index of
+   *         the empty slot where it should be stored.
+   */
+  private static int findSlot( final int[] aValues, final long[] aCounts, final int aValue )
+  {
+    final int mask = aValues.length - 1;
+
+    final int hash = aValue * 0x9E3779B9;
+    int idx = hash ^ ( hash >>> 16 );
+    while ( true )
+    {
+      idx &= mask;
+      if ( ( aCounts[idx] == 0L ) || ( aValues[idx] == aValue ) )
+      {
+        return idx;
+      }
+      idx++;
+    }
+  }
+
+  /**
+   * Returns the value with the highest or lowest rank.
+   */
+  private int getRanked( final boolean aHighest )
+  {
+    if ( isEmpty() )
+    {
+      throw new NoSuchElementException( "Frequency distribution is empty!" );
+    }
+
+    int result = 0;
+    long rank = -1L;
+
+    for ( int i = 0; i < this.denseCounts.length; i++ )
+    {
+      final long count = this.denseCounts[i];
+      if ( ( count > 0L ) && isRankedBefore( count, this.denseMin + i, rank, result, aHighest ) )
+      {
+        result = this.denseMin + i;
+        rank = count;
+      }
+    }
+    for ( int i = 0; i < this.sparseCounts.length; i++ )
+    {
+      final long count = this.sparseCounts[i];
+      if ( ( count > 0L ) && isRankedBefore( count, this.sparseValues[i], rank, result, aHighest ) )
+      {
+        result = this.sparseValues[i];
+        rank = count;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Doubles the capacity of the hash table.
+   */
+  private void grow()
+  {
+    final int[] oldValues = this.sparseValues;
+    final long[] oldCounts = this.sparseCounts;
+
+    this.sparseValues = new int[oldValues.length * 2];
+    this.sparseCounts = new long[oldCounts.length * 2];
+
+    for ( int i = 0; i < oldCounts.length; i++ )
+    {
+      if ( oldCounts[i] > 0L )
+      {
+        final int idx = findSlot( this.sparseValues, this.sparseCounts, oldValues[i] );
+        this.sparseValues[idx] = oldValues[i];
+        this.sparseCounts[idx] = oldCounts[i];
+      }
+    }
+  }
+
+  /**
+   * Determines whether a value is ranked before the current best value.
+   * 
+   * @return <code>true</code> if the given value has a higher (or lower) count
+   *         than the current best value, or the same count and a lower value.
+   */
+  private static boolean isRankedBefore( final long aCount, final int aValue, final long aBestCount,
+      final int aBestValue, final boolean aHighest )
+  {
+    if ( ( aBestCount < 0L ) || ( ( aCount == aBestCount ) && ( aValue < aBestValue ) ) )
+    {
+      return true;
+    }
+    return aHighest ? ( aCount > aBestCount ) : ( aCount < aBestCount );
+  }
+}
+
+/* EOF */
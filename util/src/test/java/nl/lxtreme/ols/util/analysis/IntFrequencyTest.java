@@ -0,0 +1,127 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.analysis;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link IntFrequency}.
+ */
+public class IntFrequencyTest
+{
+  // METHODS
+
+  /**
+   * Tests that the results are the same as those of {@link Frequency}, for
+   * both dense and sparse values.
+   */
+  @Test
+  public void testSameResultsAsFrequencyOk()
+  {
+    final Random rnd = new Random( 42L );
+
+    final Frequency<Integer> expected = new Frequency<Integer>();
+    final IntFrequency f = new IntFrequency( -16, 255 );
+
+    for ( int i = 0; i < 100000; i++ )
+    {
+      final int value = ( ( i % 3 ) == 0 ) ? rnd.nextInt() : rnd.nextInt( 300 ) - 20;
+      expected.addValue( Integer.valueOf( value ) );
+      f.addValue( value );
+    }
+
+    assertEquals( expected.getTotalCount(), f.getTotalCount() );
+    assertEquals( expected.getUniqueValueCount(), f.getUniqueValueCount() );
+    assertEquals( expected.getHighestRanked().intValue(), f.getHighestRanked() );
+    assertEquals( expected.getLowestRanked().intValue(), f.getLowestRanked() );
+
+    final int[] values = f.values();
+    int i = 0;
+    for ( Integer value : expected.values() )
+    {
+      assertEquals( value.intValue(), values[i++] );
+      assertEquals( expected.getCount( value ), f.getCount( value.intValue() ) );
+    }
+    assertEquals( values.length, i );
+  }
+
+  /**
+   * Tests that the distributions of multiple producers can be merged.
+   */
+  @Test
+  public void testAddAllOk()
+  {
+    final IntFrequency f1 = new IntFrequency();
+    final IntFrequency f2 = new IntFrequency( 0, 10 );
+
+    for ( int i = 0; i < 1000; i++ )
+    {
+      f1.addValue( i % 20 );
+      f2.addValue( i % 5 );
+    }
+
+    final IntFrequency result = new IntFrequency( 0, 3 );
+    result.addAll( f1 );
+    result.addAll( f2 );
+
+    assertEquals( 2000L, result.getTotalCount() );
+    assertEquals( 20, result.getUniqueValueCount() );
+    assertEquals( 250L, result.getCount( 4 ) );
+    assertEquals( 50L, result.getCount( 19 ) );
+    assertEquals( 0, result.getHighestRanked() );
+    assertEquals( 5, result.getLowestRanked() );
+  }
+
+  /**
+   * Tests that clearing a distribution removes all values.
+   */
+  @Test
+  public void testClearOk()
+  {
+    final IntFrequency f = new IntFrequency( 0, 1 );
+    f.addValue( 1 );
+    f.addValue( 1234567, 3L );
+
+    f.clear();
+
+    assertTrue( f.isEmpty() );
+    assertEquals( 0, f.getUniqueValueCount() );
+    assertEquals( 0L, f.getCount( 1 ) );
+    assertEquals( 0L, f.getCount( 1234567 ) );
+  }
+
+  /**
+   * Tests that ranking an empty distribution fails.
+   */
+  @Test( expected = NoSuchElementException.class )
+  public void testGetHighestRankedOfEmptyFail()
+  {
+    new IntFrequency().getHighestRanked();
+  }
+}
+
+/* EOF */